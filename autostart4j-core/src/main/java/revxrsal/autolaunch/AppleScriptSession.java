@@ -0,0 +1,247 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static revxrsal.autolaunch.Utils.escapeJava;
+
+/**
+ * A long-lived AppleScript interpreter. Rather than spawning an {@literal osascript}
+ * process for every command, a single process is kept alive and fed scripts
+ * through its standard input.
+ * <p>
+ * The protocol is line-based:
+ * <ul>
+ *     <li>Each request is a single line, containing the script as a JSON string literal.</li>
+ *     <li>Each response is a single line, starting with {@link #MARKER}, followed by either
+ *     {@literal OK <result>} or {@literal ERR <message>}. Backslashes, carriage returns and
+ *     new lines in the result are escaped as {@literal \\}, {@literal \r} and {@literal \n}.
+ *     Lines that do not start with the marker are ignored.</li>
+ * </ul>
+ * The process is restarted automatically if it dies, and is closed after being
+ * idle for a while. If a script does not respond within the read timeout, the
+ * process is killed, and a new one is started for the next script.
+ * <p>
+ * This class is thread-safe. Scripts are executed one at a time.
+ */
+final class AppleScriptSession implements AutoCloseable {
+
+    /**
+     * The prefix of every response line
+     */
+    static final String MARKER = "\u0001as4j\u0001 ";
+
+    /**
+     * A JavaScript for Automation program that speaks the protocol above
+     */
+    private static final String INTERPRETER = String.join("\n",
+            "ObjC.import('Foundation');",
+            "var app = Application.currentApplication();",
+            "app.includeStandardAdditions = true;",
+            "var stdin = $.NSFileHandle.fileHandleWithStandardInput;",
+            "var stdout = $.NSFileHandle.fileHandleWithStandardOutput;",
+            "var MARKER = '\\u0001as4j\\u0001 ';",
+            "function write(s) { stdout.writeData($(s + '\\n').dataUsingEncoding($.NSUTF8StringEncoding)); }",
+            "function esc(s) { return String(s).replace(/\\\\/g, '\\\\\\\\').replace(/\\r/g, '\\\\r').replace(/\\n/g, '\\\\n'); }",
+            "var buffer = '';",
+            "while (true) {",
+            "  var i = buffer.indexOf('\\n');",
+            "  if (i < 0) {",
+            "    var data = stdin.availableData;",
+            "    if (data.length == 0) break;",
+            "    buffer += $.NSString.alloc.initWithDataEncoding(data, $.NSUTF8StringEncoding).js;",
+            "    continue;",
+            "  }",
+            "  var line = buffer.substring(0, i);",
+            "  buffer = buffer.substring(i + 1);",
+            "  if (!line) continue;",
+            "  try {",
+            "    var result = app.runScript(JSON.parse(line), {in: 'AppleScript'});",
+            "    write(MARKER + 'OK ' + esc(result === undefined || result === null ? '' : result));",
+            "  } catch (e) {",
+            "    write(MARKER + 'ERR ' + esc(e.message || e));",
+            "  }",
+            "}"
+    );
+
+    /**
+     * The default command for the interpreter
+     */
+    static final List<String> OSASCRIPT = Collections.unmodifiableList(
+            Arrays.asList("osascript", "-l", "JavaScript", "-e", INTERPRETER)
+    );
+
+    private static final ScheduledExecutorService IDLE_CLOSER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "autostart4j-osascript-idle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<String> command;
+    private final long idleTimeoutMillis;
+    private final long readTimeoutMillis;
+
+    private @Nullable Process process;
+    private @Nullable Object spawnEvent;
+    private @Nullable Writer stdin;
+    private @Nullable BufferedReader stdout;
+    private @Nullable ScheduledFuture<?> idleClose;
+
+    AppleScriptSession(@NotNull List<String> command, long idleTimeoutMillis, long readTimeoutMillis) {
+        this.command = new ArrayList<>(command);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Executes the given script, and returns its result
+     *
+     * @param script Script to execute
+     * @return The script result
+     * @throws IOException      if the interpreter could not be started, died
+     *                          while executing the script, or did not respond
+     *                          within the read timeout
+     * @throws RuntimeException if the script has failed
+     */
+    public synchronized @NotNull String execute(@NotNull String script) throws IOException {
+        if (idleClose != null) {
+            idleClose.cancel(false);
+            idleClose = null;
+        }
+        try {
+            String request = '"' + escapeJava(script) + '"' + '\n';
+            try {
+                send(request);
+            } catch (IOException e) {
+                // the process has most likely died while idle. as nothing has been
+                // executed yet, it is safe to retry once.
+                destroy();
+                send(request);
+            }
+            return receive();
+        } catch (IOException e) {
+            destroy();
+            throw e;
+        } finally {
+            if (process != null)
+                idleClose = IDLE_CLOSER.schedule(this::close, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void send(@NotNull String request) throws IOException {
+        if (process == null || !process.isAlive())
+            start();
+        OperationContext.track(process);
+        stdin.write(request);
+        stdin.flush();
+    }
+
+    private @NotNull String receive() throws IOException {
+        // the monitor is held while reading, so the deadline is enforced by killing
+        // the process from another thread, which unblocks the read below. this can't
+        // use IDLE_CLOSER, as its task may itself be waiting for the monitor.
+        ProcessRunner.Watchdog watchdog = new ProcessRunner.Watchdog(process);
+        ScheduledFuture<?> deadline = ProcessRunner.WATCHDOG.schedule(watchdog, readTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            return readResponse();
+        } catch (IOException e) {
+            if (watchdog.fired)
+                throw new IOException("AppleScript interpreter did not respond within " + readTimeoutMillis + "ms");
+            throw e;
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    private @NotNull String readResponse() throws IOException {
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (!line.startsWith(MARKER))
+                continue;
+            String response = line.substring(MARKER.length());
+            if (response.startsWith("OK "))
+                return unescape(response.substring(3));
+            if (response.startsWith("ERR "))
+                throw new RuntimeException("AppleScript failed to execute: " + unescape(response.substring(4)));
+            throw new IOException("Malformed response from AppleScript interpreter: " + response);
+        }
+        throw new IOException("AppleScript interpreter exited unexpectedly");
+    }
+
+    private void start() throws IOException {
+        destroy();
+        spawnEvent = Events.beginProcessSpawn();
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.to(new File("/dev/null")))
+                .start();
+        this.process = process;
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private void destroy() {
+        if (process == null)
+            return;
+        try {
+            stdin.close();
+        } catch (IOException ignored) {
+        }
+        int exitCode = process.isAlive() ? -1 : process.exitValue();
+        process.destroy();
+        Events.endProcessSpawn(spawnEvent, command.get(0), exitCode);
+        spawnEvent = null;
+        process = null;
+        stdin = null;
+        stdout = null;
+    }
+
+    static @NotNull String unescape(@NotNull String value) {
+        if (value.indexOf('\\') == -1)
+            return value;
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                builder.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            switch (next) {
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                default:
+                    builder.append(next);
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Closes the interpreter. It will be started again if another script
+     * is executed.
+     */
+    @Override
+    public synchronized void close() {
+        if (idleClose != null) {
+            idleClose.cancel(false);
+            idleClose = null;
+        }
+        destroy();
+    }
+}
@@ -0,0 +1,239 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Writes files atomically, by writing to a temporary file in the same directory
+ * and moving it into place. Readers therefore either see the old contents or
+ * the new contents, never an empty or partially-written file.
+ */
+final class AtomicWriter {
+
+    private static final Map<Path, GroupSync> DIRECTORY_SYNCS = new ConcurrentHashMap<>();
+
+    private static final Set<OpenOption> CREATE_NOFOLLOW = new HashSet<>(Arrays.asList(CREATE_NEW, WRITE, LinkOption.NOFOLLOW_LINKS));
+
+    private AtomicWriter() {
+    }
+
+    /**
+     * Atomically writes the given data into the target file, replacing it
+     * if it exists.
+     *
+     * @param target     The file to write
+     * @param data       The data to write
+     * @param durability The durability policy
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(@NotNull Path target, byte @NotNull [] data, @NotNull Durability durability) throws IOException {
+        write(target, data, durability, null);
+    }
+
+    /**
+     * Atomically writes the given data into the target file, replacing it
+     * if it exists. The file is given to the given owner before it is moved
+     * into place, so it never appears with the wrong owner.
+     *
+     * @param target     The file to write
+     * @param data       The data to write
+     * @param durability The durability policy
+     * @param owner      The owner of the file, or {@code null} to keep the
+     *                   defaults of the current process
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(
+            @NotNull Path target,
+            byte @NotNull [] data,
+            @NotNull Durability durability,
+            @Nullable FileOwner owner
+    ) throws IOException {
+        Object event = Events.beginFileWrite();
+        Path dir = target.toAbsolutePath().getParent();
+        Path temp = dir.resolve("." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, CREATE_NEW, WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                if (durability != Durability.NONE)
+                    channel.force(true);
+            }
+            if (owner != null)
+                owner.applyTo(temp, FileOwner.FILE_PERMISSIONS);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (durability == Durability.FILE_AND_DIRECTORY)
+            syncDirectory(dir);
+        Events.endFileWrite(event, target, data.length);
+    }
+
+    /**
+     * Atomically writes the given data into a file of an open directory, like
+     * {@link #write(Path, byte[], Durability, FileOwner)} does. The temporary file
+     * is created, changed and moved through the directory, never by path, so
+     * replacing a directory above it cannot redirect the write elsewhere.
+     * <p>
+     * {@link Durability#FILE_AND_DIRECTORY} is treated as {@link Durability#FILE}:
+     * the directory is flushed by the caller.
+     *
+     * @param dir        The directory to write into
+     * @param target     The file to write. Only its name is used to open it in the directory.
+     * @param data       The data to write
+     * @param durability The durability policy
+     * @param owner      The owner of the file, or {@code null} to keep the
+     *                   defaults of the current process
+     * @throws IOException if an I/O error occurs
+     */
+    static void write(
+            @NotNull SecureDirectoryStream<Path> dir,
+            @NotNull Path target,
+            byte @NotNull [] data,
+            @NotNull Durability durability,
+            @Nullable FileOwner owner
+    ) throws IOException {
+        Object event = Events.beginFileWrite();
+        Path name = target.getFileName();
+        Path temp = name.resolveSibling("." + name + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (SeekableByteChannel channel = dir.newByteChannel(temp, CREATE_NOFOLLOW)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                if (durability != Durability.NONE && channel instanceof FileChannel)
+                    ((FileChannel) channel).force(true);
+            }
+            if (owner != null) {
+                PosixFileAttributeView view = dir.getFileAttributeView(temp, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+                if (view != null)
+                    owner.applyTo(view, FileOwner.FILE_PERMISSIONS);
+            }
+            dir.move(temp, dir, name);
+        } catch (IOException | RuntimeException e) {
+            try {
+                dir.deleteFile(temp);
+            } catch (NoSuchFileException ignored) {
+            }
+            throw e;
+        }
+        Events.endFileWrite(event, target, data.length);
+    }
+
+    /**
+     * Tests whether the given file does not exist, or is empty. Empty files are
+     * usually left behind by non-atomic writes that were interrupted by a crash.
+     *
+     * @param file File to check
+     * @return if the file is absent or empty
+     */
+    public static boolean isAbsentOrEmpty(@NotNull Path file) {
+        try {
+            return Files.size(file) == 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Flushes the given directory, making previous moves and deletions
+     * in it durable.
+     * <p>
+     * Concurrent callers for the same directory are grouped: a caller that arrives
+     * while a flush is in progress waits for the next flush, which then covers every
+     * caller that arrived in the meantime.
+     *
+     * @param dir The directory to flush
+     * @throws IOException if an I/O error occurs
+     */
+    public static void syncDirectory(@NotNull Path dir) throws IOException {
+        DIRECTORY_SYNCS.computeIfAbsent(dir.toAbsolutePath(), GroupSync::new).sync();
+    }
+
+    /**
+     * A group-commit of directory flushes
+     */
+    static class GroupSync {
+
+        private final Path dir;
+
+        /**
+         * The number of flushes that were requested
+         */
+        private long requested;
+
+        /**
+         * The number of requests that have been satisfied by a completed flush
+         */
+        private long completed;
+
+        private boolean syncing;
+
+        GroupSync(Path dir) {
+            this.dir = dir;
+        }
+
+        void sync() throws IOException {
+            long covered;
+            synchronized (this) {
+                long ticket = ++requested;
+                while (syncing || completed >= ticket) {
+                    if (completed >= ticket)
+                        return;
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for directory flush");
+                    }
+                }
+                // a flush started now covers every request made so far
+                syncing = true;
+                covered = requested;
+            }
+            boolean flushed = false;
+            try {
+                force();
+                flushed = true;
+            } finally {
+                synchronized (this) {
+                    if (flushed)
+                        completed = covered;
+                    syncing = false;
+                    notifyAll();
+                }
+            }
+        }
+
+        // flushes the directory. overridden in tests.
+        void force() throws IOException {
+            try (FileChannel channel = FileChannel.open(dir, READ)) {
+                channel.force(true);
+            } catch (AccessDeniedException ignored) {
+                // some platforms (e.g. Windows) do not allow opening directories
+            }
+        }
+    }
+}
@@ -0,0 +1,1316 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+import revxrsal.autolaunch.AutoLaunchMetrics.Operation;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static revxrsal.autolaunch.AutoLaunchMetrics.Operation.*;
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * The entrypoint class for creating and configuring applications
+ * on system start-up.
+ * <p>
+ * This class is immutable, hence is safe to share across threads. The
+ * startup entries rendered from it are cached on the instance.
+ */
+public final class AutoLaunch {
+
+    /**
+     * The corresponding {@link PlatformAutoLaunch} for this platform.
+     */
+    private static final PlatformAutoLaunch PLATFORM_AUTO_LAUNCH = PlatformAutoLaunch.create();
+
+    /**
+     * The watcher shared by all subscriptions to state changes
+     */
+    private static final StateWatcher STATE_WATCHER = new StateWatcher(PLATFORM_AUTO_LAUNCH);
+
+    /**
+     * The backend name reported to {@link AutoLaunchMetrics}
+     */
+    private static final String BACKEND = PLATFORM_AUTO_LAUNCH.getClass().getSimpleName();
+
+    /**
+     * Caches the state of applications that opted in to it. All operations
+     * go through this, so that they can invalidate the cache.
+     */
+    private static final CachingPlatformAutoLaunch STATE_CACHE = new CachingPlatformAutoLaunch(PLATFORM_AUTO_LAUNCH, STATE_WATCHER);
+
+    /**
+     * The application name. This is used mostly as an identifier key, so it
+     * is arbitrary. It should be the application name, and should be unique
+     * from other applications.
+     * <p>
+     * In Windows, this is the name that appears in Task Manager's {@literal Startup}
+     * menu.
+     */
+    private final @NotNull String appName;
+
+    /**
+     * The binary file of this application to be started.
+     * <p>
+     * This file must exist, and macOS requires the file to be absolute.
+     */
+    private final @NotNull File appFile;
+
+    /**
+     * The arguments to launch the application with
+     */
+    private final @NotNull @Unmodifiable List<String> args;
+
+    /**
+     * (macOS only)
+     * Whether to use the launch agent or not. If disabled, it will be
+     * launched using AppleScript.
+     */
+    private final boolean useLaunchAgent;
+
+    /**
+     * (Linux only)
+     * Whether to use a systemd user unit instead of an XDG autostart entry
+     */
+    private final boolean useSystemdUnit;
+
+    /**
+     * (Linux systemd units only)
+     * The names of the applications that this application is started after
+     */
+    private final @NotNull @Unmodifiable List<String> startAfter;
+
+    /**
+     * The time to wait after login before launching the application
+     */
+    private final @NotNull Duration launchDelay;
+
+    /**
+     * The resources the application is launched with, or {@code null} to
+     * launch it normally
+     */
+    private final @Nullable ResourceProfile resourceProfile;
+
+    /**
+     * Whether launches are marked, so that the application can tell it was
+     * auto-launched
+     */
+    private final boolean markLaunches;
+
+    /**
+     * (macOS launch agents only)
+     * The format that the launch agent is written in
+     */
+    private final @NotNull PlistFormat launchAgentFormat;
+
+    /**
+     * The executor that asynchronous operations run on, or {@code null}
+     * to use the default one
+     */
+    private final @Nullable Executor executor;
+
+    /**
+     * (Linux and macOS launch agents only)
+     * How startup entries are flushed to disk when written
+     */
+    private final @NotNull Durability durability;
+
+    /**
+     * Whether changes to the startup entry are locked against other processes
+     */
+    private final boolean lockAcrossProcesses;
+
+    /**
+     * The metrics listener of this application, or {@code null} if there is none
+     */
+    private final @Nullable AutoLaunchMetrics metrics;
+
+    /**
+     * How long the result of {@link #isEnabled()} is cached for, or {@code null}
+     * if it is not cached
+     */
+    private final @Nullable Duration stateCacheTtl;
+
+    /**
+     * Whether the name, path and arguments need no escaping in any format
+     */
+    private final boolean plainValues;
+
+    /**
+     * The rendered payloads, indexed by {@link Payload#ordinal()}
+     */
+    private final AtomicReferenceArray<byte[]> payloads = new AtomicReferenceArray<>(Payload.values().length);
+
+    AutoLaunch(
+            @NotNull String appName,
+            @NotNull File appFile,
+            @NotNull List<String> args,
+            boolean useLaunchAgent,
+            boolean useSystemdUnit,
+            @NotNull List<String> startAfter,
+            @NotNull Duration launchDelay,
+            @Nullable ResourceProfile resourceProfile,
+            boolean markLaunches,
+            @NotNull PlistFormat launchAgentFormat,
+            @Nullable Executor executor,
+            @NotNull Durability durability,
+            boolean lockAcrossProcesses,
+            @Nullable AutoLaunchMetrics metrics,
+            @Nullable Duration stateCacheTtl
+    ) {
+        this.appName = notNull(appName, "app name");
+        this.appFile = notNull(appFile, "app file");
+        this.args = Collections.unmodifiableList(new ArrayList<>(notNull(args, "args")));
+        this.useLaunchAgent = useLaunchAgent;
+        this.useSystemdUnit = useSystemdUnit;
+        this.startAfter = Collections.unmodifiableList(new ArrayList<>(notNull(startAfter, "start after")));
+        this.launchDelay = notNull(launchDelay, "launch delay");
+        this.resourceProfile = resourceProfile;
+        this.markLaunches = markLaunches;
+        this.launchAgentFormat = notNull(launchAgentFormat, "launch agent format");
+        this.executor = executor;
+        this.durability = notNull(durability, "durability");
+        this.lockAcrossProcesses = lockAcrossProcesses;
+        this.metrics = metrics;
+        this.stateCacheTtl = stateCacheTtl;
+        boolean plain = Encoders.isPlain(this.appName) && Encoders.isPlain(this.appFile.getAbsolutePath());
+        for (int i = 0; plain && i < this.args.size(); i++)
+            plain = Encoders.isPlain(this.args.get(i));
+        this.plainValues = plain;
+    }
+
+    /**
+     * The application name. This is used mostly as an identifier key, so it
+     * is arbitrary. It should be the application name, and should be unique
+     * from other applications.
+     * <p>
+     * In Windows, this is the name that appears in Task Manager's {@literal Startup}
+     * menu.
+     *
+     * @return The application name
+     */
+    public @NotNull String getAppName() {
+        return appName;
+    }
+
+    /**
+     * The binary file of this application to be started.
+     * <p>
+     * This file must exist, and macOS requires the file to be absolute.
+     *
+     * @return The binary file
+     */
+    public @NotNull File getAppFile() {
+        return appFile;
+    }
+
+    /**
+     * The arguments to launch the application with
+     *
+     * @return The arguments to launch the application with
+     */
+    public @NotNull @Unmodifiable List<String> getArgs() {
+        return args;
+    }
+
+    /**
+     * (macOS only)
+     * Whether to use the launch agent or not. If disabled, it will be
+     * launched using AppleScript.
+     *
+     * @return Whether to use the launch agent or not
+     */
+    public boolean useLaunchAgent() {
+        return useLaunchAgent;
+    }
+
+    /**
+     * (Linux only)
+     * Whether to use a systemd user unit instead of an XDG autostart entry
+     *
+     * @return Whether to use a systemd user unit or not
+     */
+    public boolean useSystemdUnit() {
+        return useSystemdUnit;
+    }
+
+    /**
+     * (Linux systemd units only)
+     * The names of the applications that this application is started after
+     *
+     * @return The application names
+     */
+    public @NotNull @Unmodifiable List<String> getStartAfter() {
+        return startAfter;
+    }
+
+    /**
+     * The time to wait after login before launching the application. This
+     * includes the delay assigned by the {@link Stagger} policy, if any.
+     *
+     * @return The launch delay
+     */
+    public @NotNull Duration getLaunchDelay() {
+        return launchDelay;
+    }
+
+    /**
+     * The resources the application is launched with
+     *
+     * @return The resource profile, or {@code null} if the application
+     * is launched normally
+     */
+    public @Nullable ResourceProfile getResourceProfile() {
+        return resourceProfile;
+    }
+
+    /**
+     * Whether launches are marked, so that the application can tell it was
+     * auto-launched using {@link #currentLaunchContext()}
+     *
+     * @return if launches are marked
+     */
+    public boolean marksLaunches() {
+        return markLaunches;
+    }
+
+    /**
+     * (macOS launch agents only)
+     * The format that the launch agent is written in
+     *
+     * @return The launch agent format
+     */
+    public @NotNull PlistFormat getLaunchAgentFormat() {
+        return launchAgentFormat;
+    }
+
+    /**
+     * (Linux and macOS launch agents only)
+     * How startup entries are flushed to disk when written
+     *
+     * @return The durability policy
+     */
+    public @NotNull Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Whether changes to the startup entry are locked against other processes,
+     * in addition to other threads
+     *
+     * @return if changes are locked across processes
+     * @see Builder#lockAcrossProcesses()
+     */
+    public boolean locksAcrossProcesses() {
+        return lockAcrossProcesses;
+    }
+
+    /**
+     * How long the result of {@link #isEnabled()} is cached for
+     *
+     * @return The time-to-live of the cached state, or {@code null} if
+     * it is not cached
+     */
+    public @Nullable Duration getStateCacheTtl() {
+        return stateCacheTtl;
+    }
+
+    /**
+     * A shortcut function that joins the absolute path of the {@link #getAppFile()}
+     * to the {@link #getArgs()}, joined by spaces.,
+     *
+     * @return The start-up command
+     */
+    public @NotNull String startupCommand() {
+        return startupCommand(true);
+    }
+
+    /**
+     * A shortcut function that joins the absolute path of the {@link #getAppFile()}
+     * to the {@link #getArgs()}, joined by spaces.,
+     * <p>
+     * If launches are {@link #marksLaunches() marked}, this ends with the
+     * {@link LaunchContext#ARGUMENT marker argument}.
+     *
+     * @param quotes If the file path should be surrounded by quotes
+     * @return The start-up command
+     */
+    public @NotNull String startupCommand(boolean quotes) {
+        String args = String.join(" ", getLaunchArgs());
+        if (quotes)
+            return '"' + appFile.getAbsolutePath() + '"' + " " + args;
+        return appFile.getAbsolutePath() + " " + args;
+    }
+
+    /**
+     * Returns the arguments to launch the application with, followed by the
+     * marker argument if launches are marked. This is for backends that
+     * cannot pass the marker in an environment variable.
+     *
+     * @return The launch arguments
+     */
+    @NotNull List<String> getLaunchArgs() {
+        if (!markLaunches)
+            return args;
+        List<String> launchArgs = new ArrayList<>(args.size() + 1);
+        launchArgs.addAll(args);
+        launchArgs.add(LaunchContext.ARGUMENT);
+        return launchArgs;
+    }
+
+    /**
+     * Tests whether the app name, the absolute path of the app file and the
+     * arguments are all {@link Encoders#isPlain(String) plain}. Renderers can
+     * then write them as-is, without scanning them again.
+     *
+     * @return Whether the values need no escaping
+     */
+    boolean hasPlainValues() {
+        return plainValues;
+    }
+
+    /**
+     * Returns the given payload, rendering it with the given renderer if it
+     * has not been rendered before. The returned array must not be modified.
+     *
+     * @param type     The payload type
+     * @param renderer The renderer of the payload
+     * @return The payload, encoded in UTF-8
+     */
+    byte @NotNull [] payload(@NotNull Payload type, @NotNull Function<AutoLaunch, String> renderer) {
+        byte[] payload = payloads.get(type.ordinal());
+        if (payload == null) {
+            // rendering is idempotent, so racing threads may safely both render
+            payload = renderer.apply(this).getBytes(StandardCharsets.UTF_8);
+            payloads.lazySet(type.ordinal(), payload);
+        }
+        return payload;
+    }
+
+    /**
+     * Returns the given payload, rendering it with the given binary renderer if
+     * it has not been rendered before. The returned array must not be modified.
+     *
+     * @param type     The payload type
+     * @param renderer The renderer of the payload
+     * @return The payload
+     */
+    byte @NotNull [] binaryPayload(@NotNull Payload type, @NotNull Function<AutoLaunch, byte[]> renderer) {
+        byte[] payload = payloads.get(type.ordinal());
+        if (payload == null) {
+            payload = renderer.apply(this);
+            payloads.lazySet(type.ordinal(), payload);
+        }
+        return payload;
+    }
+
+    /**
+     * Enables auto-launching this application. If it is already enabled, this
+     * method will have no effect.
+     */
+    @SuppressWarnings("try")
+    public void enable() {
+        try (EntryLocks.Held ignored = EntryLocks.lock(this, PLATFORM_AUTO_LAUNCH)) {
+            doEnable();
+        }
+    }
+
+    private void doEnable() {
+        Object event = Events.beginOperation(ENABLE);
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            STATE_CACHE.enable(this);
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            completed(ENABLE, event, start, failure, false);
+        }
+    }
+
+    /**
+     * Disables auto-launching this application. If it is already disabled, this
+     * method will have no effect.
+     */
+    @SuppressWarnings("try")
+    public void disable() {
+        try (EntryLocks.Held ignored = EntryLocks.lock(this, PLATFORM_AUTO_LAUNCH)) {
+            doDisable();
+        }
+    }
+
+    private void doDisable() {
+        Object event = Events.beginOperation(DISABLE);
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            STATE_CACHE.disable(this);
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            completed(DISABLE, event, start, failure, false);
+        }
+    }
+
+    /**
+     * Checks if auto-launching this application is enabled or not
+     *
+     * @return whether auto-launching this application is enabled or not
+     */
+    public boolean isEnabled() {
+        Object event = Events.beginOperation(IS_ENABLED);
+        long start = System.nanoTime();
+        Throwable failure = null;
+        boolean enabled = false;
+        try {
+            enabled = STATE_CACHE.isEnabled(this);
+            return enabled;
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            completed(IS_ENABLED, event, start, failure, enabled);
+        }
+    }
+
+    /**
+     * Drops the cached state of this application, if any, and checks whether
+     * auto-launching it is enabled. Use this when the state is known to have
+     * changed in a way the cache cannot detect.
+     *
+     * @return whether auto-launching this application is enabled or not
+     * @see Builder#cacheState(Duration)
+     */
+    public boolean refresh() {
+        STATE_CACHE.invalidate(this);
+        return isEnabled();
+    }
+
+    /**
+     * Reports a completed operation to the flight recorder and metrics listeners
+     */
+    private void completed(
+            @NotNull Operation operation,
+            @Nullable Object event,
+            long start,
+            @Nullable Throwable failure,
+            boolean enabled
+    ) {
+        long duration = System.nanoTime() - start;
+        Events.endOperation(event, this, PLATFORM_AUTO_LAUNCH, failure == null, enabled);
+        Metrics.record(metrics, this, operation, BACKEND, duration, failure);
+    }
+
+    /**
+     * Enables auto-launching this application asynchronously. Concurrent calls
+     * on this instance are coalesced into a single operation.
+     * <p>
+     * Cancelling the returned future destroys any child processes the operation
+     * has spawned, once no other caller is waiting on it.
+     *
+     * @return A future that completes once the application has been enabled
+     */
+    public @NotNull CompletableFuture<Void> enableAsync() {
+        return runAsync("enable", null, () -> {
+            enable();
+            return null;
+        });
+    }
+
+    /**
+     * Enables auto-launching this application asynchronously, failing with a
+     * {@link java.util.concurrent.TimeoutException} if it does not complete
+     * within the given timeout.
+     *
+     * @param timeout The maximum time to wait
+     * @return A future that completes once the application has been enabled
+     * @see #enableAsync()
+     */
+    public @NotNull CompletableFuture<Void> enableAsync(@NotNull Duration timeout) {
+        return runAsync("enable", notNull(timeout, "timeout"), () -> {
+            enable();
+            return null;
+        });
+    }
+
+    /**
+     * Disables auto-launching this application asynchronously. Concurrent calls
+     * on this instance are coalesced into a single operation.
+     * <p>
+     * Cancelling the returned future destroys any child processes the operation
+     * has spawned, once no other caller is waiting on it.
+     *
+     * @return A future that completes once the application has been disabled
+     */
+    public @NotNull CompletableFuture<Void> disableAsync() {
+        return runAsync("disable", null, () -> {
+            disable();
+            return null;
+        });
+    }
+
+    /**
+     * Disables auto-launching this application asynchronously, failing with a
+     * {@link java.util.concurrent.TimeoutException} if it does not complete
+     * within the given timeout.
+     *
+     * @param timeout The maximum time to wait
+     * @return A future that completes once the application has been disabled
+     * @see #disableAsync()
+     */
+    public @NotNull CompletableFuture<Void> disableAsync(@NotNull Duration timeout) {
+        return runAsync("disable", notNull(timeout, "timeout"), () -> {
+            disable();
+            return null;
+        });
+    }
+
+    /**
+     * Checks if auto-launching this application is enabled or not, asynchronously.
+     * Concurrent calls on this instance are coalesced into a single operation.
+     *
+     * @return A future of whether auto-launching this application is enabled or not
+     */
+    public @NotNull CompletableFuture<Boolean> isEnabledAsync() {
+        return runAsync("isEnabled", null, this::isEnabled);
+    }
+
+    /**
+     * Checks if auto-launching this application is enabled or not, asynchronously,
+     * failing with a {@link java.util.concurrent.TimeoutException} if it does not
+     * complete within the given timeout.
+     *
+     * @param timeout The maximum time to wait
+     * @return A future of whether auto-launching this application is enabled or not
+     * @see #isEnabledAsync()
+     */
+    public @NotNull CompletableFuture<Boolean> isEnabledAsync(@NotNull Duration timeout) {
+        return runAsync("isEnabled", notNull(timeout, "timeout"), this::isEnabled);
+    }
+
+    private <T> @NotNull CompletableFuture<T> runAsync(
+            @NotNull String operation,
+            @Nullable Duration timeout,
+            @NotNull Supplier<T> task
+    ) {
+        Executor executor = this.executor == null ? OperationExecutor.defaultExecutor() : this.executor;
+        return OperationExecutor.submit(this, operation, executor, timeout, task);
+    }
+
+    /**
+     * A utility function for toggling the state of this auto-launcher.
+     * <p>
+     * The check and the change are made under the lock of this application,
+     * so concurrent toggles never cancel out or interleave. The state is read
+     * from the operating system, bypassing the cached state, if any.
+     *
+     * @return whether auto-launching this application is enabled after toggling
+     * @see Builder#lockAcrossProcesses()
+     */
+    @SuppressWarnings("try")
+    public boolean toggle() {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try (EntryLocks.Held ignored = EntryLocks.lock(this, PLATFORM_AUTO_LAUNCH)) {
+            // the entry is changed by this thread only, and is not re-locked,
+            // as file locks are not reentrant
+            if (refresh()) {
+                doDisable();
+                return false;
+            }
+            doEnable();
+            return true;
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            Metrics.record(metrics, this, TOGGLE, BACKEND, System.nanoTime() - start, failure);
+        }
+    }
+
+    /**
+     * Compares the startup entry of this application against the entry its
+     * current configuration would produce, such as after the application was
+     * moved or its arguments changed.
+     * <p>
+     * Entries are compared byte by byte against the payload that {@link #enable()}
+     * would write, without parsing them. On Windows, the command line in the
+     * {@literal Run} key is compared. macOS login items are only compared by name.
+     *
+     * @return The drift of the entry
+     * @see #reconcile()
+     */
+    public @NotNull Drift checkDrift() {
+        return STATE_CACHE.checkDrift(this);
+    }
+
+    /**
+     * Tests whether this application is enabled, and its startup entry is exactly
+     * what its current configuration would produce
+     *
+     * @return if the entry is up-to-date
+     * @see #checkDrift()
+     */
+    public boolean isUpToDate() {
+        return checkDrift() == Drift.UP_TO_DATE;
+    }
+
+    /**
+     * Rewrites the startup entry of this application if it is {@link Drift#STALE stale},
+     * so that it matches the current configuration. Entries that are up-to-date are
+     * left untouched, and an application that is not enabled stays disabled.
+     * <p>
+     * This is meant to be called on every start of the application, so that
+     * entries written by older versions converge with a single write, and without
+     * any writes when nothing changed.
+     *
+     * @return The drift that was found. {@link Drift#STALE} entries have been rewritten.
+     */
+    @SuppressWarnings("try")
+    public @NotNull Drift reconcile() {
+        Object event = Events.beginOperation(RECONCILE);
+        long start = System.nanoTime();
+        Throwable failure = null;
+        Drift drift = null;
+        try (EntryLocks.Held ignored = EntryLocks.lock(this, PLATFORM_AUTO_LAUNCH)) {
+            drift = STATE_CACHE.reconcile(this);
+            return drift;
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            Events.endReconcile(event, this, PLATFORM_AUTO_LAUNCH, failure == null, drift);
+            Metrics.record(metrics, this, RECONCILE, BACKEND, System.nanoTime() - start, failure);
+        }
+    }
+
+    /**
+     * Subscribes to changes in the state of this auto-launcher, such as when the
+     * user toggles it from the system settings. This is considerably cheaper
+     * than polling {@link #isEnabled()}.
+     * <p>
+     * Changes are debounced, and are delivered on a single daemon thread that
+     * is shared by all subscriptions.
+     *
+     * Failures, such as the state not being readable or the listener throwing,
+     * are ignored. Use {@link #watch(Consumer, Consumer)} to handle them.
+     *
+     * @param listener The listener to notify when the state changes
+     * @return The subscription. Close it to stop receiving changes.
+     * @throws UnsupportedOperationException if watching is not supported on this
+     *                                       platform (i.e. Windows)
+     */
+    public @NotNull Subscription watch(@NotNull Consumer<StateChange> listener) {
+        return watch(listener, failure -> {
+        });
+    }
+
+    /**
+     * Subscribes to changes in the state of this auto-launcher, like
+     * {@link #watch(Consumer)}, and passes failures to the given handler.
+     * The handler is called on the same thread as the listener.
+     *
+     * @param listener     The listener to notify when the state changes
+     * @param errorHandler The handler of failures to check the state, or to
+     *                     notify the listener
+     * @return The subscription. Close it to stop receiving changes.
+     * @throws UnsupportedOperationException if watching is not supported on this
+     *                                       platform (i.e. Windows)
+     */
+    public @NotNull Subscription watch(@NotNull Consumer<StateChange> listener, @NotNull Consumer<Throwable> errorHandler) {
+        return STATE_WATCHER.subscribe(this, notNull(listener, "listener"), notNull(errorHandler, "error handler"));
+    }
+
+    /**
+     * Creates a new {@link Builder}
+     *
+     * @return A new builder
+     */
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Detects how the current process was launched: whether it was started by
+     * a startup entry written with {@link Builder#markLaunches()}, and (on Linux)
+     * how long after boot and login it was started.
+     * <p>
+     * On Windows, this looks for the marker argument in the command line that
+     * the runtime reports. Use {@link #currentLaunchContext(String[])} on runtimes
+     * that do not report it.
+     *
+     * @return The launch context
+     */
+    public static @NotNull LaunchContext currentLaunchContext() {
+        return LaunchContext.detect(null);
+    }
+
+    /**
+     * Detects how the current process was launched, looking for the marker
+     * argument in the given program arguments.
+     *
+     * @param args The program arguments, as passed to {@code main}
+     * @return The launch context
+     * @see #currentLaunchContext()
+     */
+    public static @NotNull LaunchContext currentLaunchContext(String @NotNull [] args) {
+        return LaunchContext.detect(notNull(args, "args"));
+    }
+
+    /**
+     * Creates a new {@link Batch}, for enabling and disabling many applications
+     * in a single pass.
+     *
+     * @return A new batch
+     */
+    public static @NotNull Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Creates a new {@link Provisioning}, for placing startup entries into
+     * the home directories of many users at once.
+     *
+     * @return A new provisioning
+     */
+    public static @NotNull Provisioning provision() {
+        return new Provisioning();
+    }
+
+    /**
+     * A batch of applications to enable or disable together. Backends coalesce
+     * the work, so applying a batch is considerably cheaper than calling
+     * {@link #enable()} or {@link #disable()} on each entry.
+     * <p>
+     * This class is not thread-safe.
+     */
+    public static final class Batch {
+
+        private final List<AutoLaunch> toEnable = new ArrayList<>();
+        private final List<AutoLaunch> toDisable = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Adds the given applications to be enabled
+         *
+         * @param autoLaunches Apps to enable
+         * @return this batch instance
+         */
+        public Batch enable(@NotNull AutoLaunch @NotNull ... autoLaunches) {
+            return enable(Arrays.asList(notNull(autoLaunches, "auto launches")));
+        }
+
+        /**
+         * Adds the given applications to be enabled
+         *
+         * @param autoLaunches Apps to enable
+         * @return this batch instance
+         */
+        public Batch enable(@NotNull Collection<@NotNull AutoLaunch> autoLaunches) {
+            for (AutoLaunch autoLaunch : notNull(autoLaunches, "auto launches"))
+                toEnable.add(notNull(autoLaunch, "auto launch"));
+            return this;
+        }
+
+        /**
+         * Adds the given applications to be disabled
+         *
+         * @param autoLaunches Apps to disable
+         * @return this batch instance
+         */
+        public Batch disable(@NotNull AutoLaunch @NotNull ... autoLaunches) {
+            return disable(Arrays.asList(notNull(autoLaunches, "auto launches")));
+        }
+
+        /**
+         * Adds the given applications to be disabled
+         *
+         * @param autoLaunches Apps to disable
+         * @return this batch instance
+         */
+        public Batch disable(@NotNull Collection<@NotNull AutoLaunch> autoLaunches) {
+            for (AutoLaunch autoLaunch : notNull(autoLaunches, "auto launches"))
+                toDisable.add(notNull(autoLaunch, "auto launch"));
+            return this;
+        }
+
+        /**
+         * Applies all the entries in this batch. Failures do not stop the
+         * batch, and are reported in the returned {@link BatchResult}.
+         * <p>
+         * The entries of the batch are locked together for the whole batch.
+         * <p>
+         * Each entry is reported to the flight recorder and metrics listeners as an
+         * {@link Operation#ENABLE} or {@link Operation#DISABLE}. The flight recorder
+         * events span the whole batch, while metrics get the duration of the batch
+         * divided by the number of entries.
+         *
+         * @return A per-entry report
+         */
+        @SuppressWarnings("try")
+        public @NotNull BatchResult apply() {
+            List<AutoLaunch> all = new ArrayList<>(toEnable.size() + toDisable.size());
+            all.addAll(toEnable);
+            all.addAll(toDisable);
+            // the events all begin together, so any event of an operation can be
+            // ended for any entry of that operation
+            Deque<Object> enableEvents = new ArrayDeque<>(toEnable.size());
+            Deque<Object> disableEvents = new ArrayDeque<>(toDisable.size());
+            for (int i = 0; i < all.size(); i++) {
+                Object event = Events.beginOperation(i < toEnable.size() ? ENABLE : DISABLE);
+                if (event != null)
+                    (i < toEnable.size() ? enableEvents : disableEvents).add(event);
+            }
+            long start = System.nanoTime();
+            BatchResult result = null;
+            Throwable failure = null;
+            try (EntryLocks.Held ignored = EntryLocks.lockAll(all, PLATFORM_AUTO_LAUNCH)) {
+                result = STATE_CACHE.applyAll(toEnable, toDisable);
+                return result;
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                long duration = all.isEmpty() ? 0 : (System.nanoTime() - start) / all.size();
+                if (result != null) {
+                    for (BatchResult.Entry entry : result.getEntries()) {
+                        boolean enable = entry.getAction() == BatchResult.Action.ENABLE;
+                        completed(entry.getAutoLaunch(), enable ? ENABLE : DISABLE,
+                                (enable ? enableEvents : disableEvents).poll(), duration, entry.getFailure(), all.size());
+                    }
+                } else {
+                    for (int i = 0; i < all.size(); i++) {
+                        boolean enable = i < toEnable.size();
+                        completed(all.get(i), enable ? ENABLE : DISABLE,
+                                (enable ? enableEvents : disableEvents).poll(), duration, failure, all.size());
+                    }
+                }
+            }
+        }
+
+        private static void completed(
+                @NotNull AutoLaunch autoLaunch,
+                @NotNull Operation operation,
+                @Nullable Object event,
+                long durationNanos,
+                @Nullable Throwable failure,
+                int batchSize
+        ) {
+            Events.endBatchOperation(event, autoLaunch, PLATFORM_AUTO_LAUNCH, failure == null, batchSize);
+            Metrics.record(autoLaunch.metrics, autoLaunch, operation, BACKEND, durationNanos, failure);
+        }
+    }
+
+    /**
+     * A builder for creating {@link AutoLaunch} instances.
+     */
+    public static class Builder {
+
+        /**
+         * The application name. This is used mostly as an identifier key, so it
+         * is arbitrary. It should be the application name.
+         * <p>
+         * In Windows, this is the name that appears in Task Manager's {@literal Startup}
+         * menu.
+         */
+        private String appName;
+
+        /**
+         * The binary file of this application to be started.
+         * <p>
+         * This file must exist, and macOS requires the file to be absolute.
+         */
+        private File appFile;
+
+        /**
+         * The arguments to launch the application with
+         */
+        private List<String> args = Collections.emptyList();
+
+        /**
+         * (macOS only)
+         * Whether to use the launch agent or not. If disabled, it will be
+         * launched using AppleScript.
+         */
+        private boolean useLaunchAgent = false;
+
+        /**
+         * (Linux only)
+         * Whether to use a systemd user unit instead of an XDG autostart entry
+         */
+        private boolean useSystemdUnit = false;
+
+        /**
+         * (Linux systemd units only)
+         * The names of the applications that this application is started after
+         */
+        private List<String> startAfter = Collections.emptyList();
+
+        /**
+         * The time to wait after login before launching the application
+         */
+        private Duration delay = Duration.ZERO;
+
+        /**
+         * The policy that spreads the launches of a group of applications,
+         * or {@code null} if there is none
+         */
+        private Stagger stagger = null;
+
+        /**
+         * The resources the application is launched with, or {@code null}
+         * to launch it normally
+         */
+        private ResourceProfile resourceProfile = null;
+
+        /**
+         * Whether launches are marked
+         */
+        private boolean markLaunches = false;
+
+        /**
+         * The format that launch agents are written in
+         */
+        private PlistFormat launchAgentFormat = PlistFormat.XML;
+
+        /**
+         * The executor that asynchronous operations run on, or {@code null}
+         * to use the default one
+         */
+        private Executor executor = null;
+
+        /**
+         * (Linux and macOS launch agents only)
+         * How startup entries are flushed to disk when written
+         */
+        private Durability durability = Durability.FILE;
+
+        /**
+         * Whether changes to the startup entry are locked against other processes
+         */
+        private boolean lockAcrossProcesses = false;
+
+        /**
+         * The metrics listener, or {@code null} if there is none
+         */
+        private AutoLaunchMetrics metrics = null;
+
+        /**
+         * How long the result of {@link AutoLaunch#isEnabled()} is cached for,
+         * or {@code null} to not cache it
+         */
+        private Duration stateCacheTtl = null;
+
+        /**
+         * Sets the application name. This is used mostly as an identifier key, so it
+         * is arbitrary. It should be the application name, and should be unique
+         * from other applications.
+         * <p>
+         * In Windows, this is the name that appears in Task Manager's {@literal Startup}
+         * menu.
+         *
+         * @param appName The application name
+         * @return this builder instance
+         */
+        public Builder appName(@NotNull String appName) {
+            this.appName = notNull(appName, "app name");
+            if (appName.isEmpty())
+                throw new IllegalArgumentException("Application name cannot be empty!");
+            return this;
+        }
+
+        /**
+         * Sets the binary file of this application to be started.
+         * <p>
+         * This file must exist, and macOS requires the file to be absolute.
+         *
+         * @param appFile The application file
+         * @return this builder instance
+         */
+        public Builder appFile(@NotNull File appFile) {
+            this.appFile = notNull(appFile, "app file");
+            return this;
+        }
+
+        /**
+         * (macOS only)
+         * Whether to use the launch agent or not. If disabled, it will be
+         * launched using AppleScript.
+         *
+         * @return this builder instance
+         */
+        public Builder useLaunchAgent() {
+            this.useLaunchAgent = true;
+            return this;
+        }
+
+        /**
+         * (Linux only)
+         * Starts the application through a systemd user unit, written to
+         * {@literal ~/.config/systemd/user}, instead of an XDG autostart entry.
+         * <p>
+         * Units are started by the user's service manager, in parallel with each other,
+         * and also in sessions that have no desktop environment (such as SSH or headless
+         * sessions with lingering enabled). This requires {@literal systemctl --user}
+         * to be usable.
+         *
+         * @return this builder instance
+         */
+        public Builder useSystemdUnit() {
+            this.useSystemdUnit = true;
+            return this;
+        }
+
+        /**
+         * (Linux systemd units only)
+         * Starts the application after the given applications, if they are
+         * started in the same session. This only orders them, it does not cause
+         * the given applications to start.
+         *
+         * @param appNames The names of the applications to start after
+         * @return this builder instance
+         * @see #useSystemdUnit()
+         */
+        public Builder startAfter(@NotNull String @NotNull ... appNames) {
+            this.startAfter = Arrays.asList(notNull(appNames, "app names"));
+            return this;
+        }
+
+        /**
+         * Delays launching the application by the given time after login.
+         * Delays are rounded up to whole seconds.
+         * <p>
+         * Each backend expresses the delay natively where it can:
+         * <ul>
+         *     <li>Linux autostart entries use {@literal X-GNOME-Autostart-Delay} (and its MATE
+         *     counterpart). Other desktop environments launch the application right away.</li>
+         *     <li>systemd units sleep in {@literal ExecStartPre}.</li>
+         *     <li>macOS launch agents and Windows go through a tiny wrapper that sleeps first.</li>
+         *     <li>macOS login items cannot be delayed, and ignore this.</li>
+         * </ul>
+         *
+         * @param delay The launch delay
+         * @return this builder instance
+         * @see #stagger(Stagger)
+         */
+        public Builder delay(@NotNull Duration delay) {
+            notNull(delay, "delay");
+            if (delay.isNegative())
+                throw new IllegalArgumentException("delay cannot be negative");
+            this.delay = delay;
+            return this;
+        }
+
+        /**
+         * Adds the delay assigned by the given policy to the launch delay. Share
+         * the same policy between all the applications of a group to spread
+         * their launches apart. If the policy has a spacing, the application
+         * name must be part of its group.
+         *
+         * @param stagger The stagger policy
+         * @return this builder instance
+         * @see #delay(Duration)
+         */
+        public Builder stagger(@NotNull Stagger stagger) {
+            this.stagger = notNull(stagger, "stagger");
+            return this;
+        }
+
+        /**
+         * Sets the CPU, I/O and memory resources the application is launched with.
+         * See {@link ResourceProfile} for what each platform supports.
+         *
+         * @param resourceProfile The resource profile
+         * @return this builder instance
+         * @see ResourceProfile#BACKGROUND
+         */
+        public Builder resources(@NotNull ResourceProfile resourceProfile) {
+            this.resourceProfile = notNull(resourceProfile, "resource profile");
+            return this;
+        }
+
+        /**
+         * Marks launches from the startup entry, so that the application can tell
+         * it was auto-launched using {@link AutoLaunch#currentLaunchContext()}.
+         * <p>
+         * The marker is the {@link LaunchContext#ENVIRONMENT_VARIABLE} environment
+         * variable on Linux and macOS launch agents, and the {@link LaunchContext#ARGUMENT}
+         * argument on Windows. macOS login items cannot be marked.
+         *
+         * @return this builder instance
+         */
+        public Builder markLaunches() {
+            this.markLaunches = true;
+            return this;
+        }
+
+        /**
+         * (macOS launch agents only)
+         * Sets the format that the launch agent property list is written in.
+         * <p>
+         * Defaults to {@link PlistFormat#XML}.
+         *
+         * @param format The property list format
+         * @return this builder instance
+         */
+        public Builder launchAgentFormat(@NotNull PlistFormat format) {
+            this.launchAgentFormat = notNull(format, "format");
+            return this;
+        }
+
+        /**
+         * Sets the executor that asynchronous operations (such as {@link AutoLaunch#enableAsync()})
+         * run on. By default, this uses virtual threads where the runtime supports them,
+         * and a pool of daemon threads otherwise.
+         *
+         * @param executor The executor
+         * @return this builder instance
+         */
+        public Builder executor(@NotNull Executor executor) {
+            this.executor = notNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * (Linux and macOS launch agents only)
+         * Sets how startup entries are flushed to disk when written. Entries are
+         * always written atomically, this only controls whether they are guaranteed
+         * to survive a crash or a power loss.
+         * <p>
+         * Defaults to {@link Durability#FILE}.
+         *
+         * @param durability The durability policy
+         * @return this builder instance
+         */
+        public Builder durability(@NotNull Durability durability) {
+            this.durability = notNull(durability, "durability");
+            return this;
+        }
+
+        /**
+         * Locks changes to the startup entry against other processes, and not only
+         * against other threads. Use this when several processes (such as an installer
+         * and the application itself, or several instances of it) may change the entry
+         * at the same time.
+         * <p>
+         * The lock is held on a hidden {@literal .lock} file next to the entry, which is
+         * left in place afterwards. Where entries are not files (Windows, and macOS login
+         * items), the lock file is placed in the temporary directory.
+         *
+         * @return this builder instance
+         */
+        public Builder lockAcrossProcesses() {
+            this.lockAcrossProcesses = true;
+            return this;
+        }
+
+        /**
+         * Sets the listener that is notified when operations on the built
+         * {@link AutoLaunch} complete. This is in addition to any listeners
+         * registered through {@link java.util.ServiceLoader}.
+         *
+         * @param metrics The metrics listener
+         * @return this builder instance
+         * @see DefaultAutoLaunchMetrics
+         */
+        public Builder metrics(@NotNull AutoLaunchMetrics metrics) {
+            this.metrics = notNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * Caches the result of {@link AutoLaunch#isEnabled()} for up to the given
+         * time, so that repeated checks do not go to the operating system.
+         * <p>
+         * The cached state is dropped as soon as the application is enabled or
+         * disabled through this library, or when an entry is added, changed or
+         * removed in the directory that backs it (Linux and macOS). Changes that the
+         * cache cannot detect, such as the user toggling the entry in the Windows Task
+         * Manager, are picked up once the time-to-live passes, or on {@link AutoLaunch#refresh()}.
+         * <p>
+         * By default, the state is not cached.
+         *
+         * @param ttl The maximum time to cache the state for
+         * @return this builder instance
+         */
+        public Builder cacheState(@NotNull Duration ttl) {
+            notNull(ttl, "ttl");
+            if (ttl.isNegative() || ttl.isZero())
+                throw new IllegalArgumentException("ttl must be positive");
+            this.stateCacheTtl = ttl;
+            return this;
+        }
+
+        /**
+         * Sets the arguments to launch the application with.
+         *
+         * @param args Arguments to launch with
+         * @return this builder instance
+         */
+        public Builder args(@NotNull List<@NotNull String> args) {
+            this.args = notNull(args, "args");
+            return this;
+        }
+
+        /**
+         * Sets the arguments to launch the application with.
+         *
+         * @param args Arguments to launch with
+         * @return this builder instance
+         */
+        public Builder args(String @NotNull ... args) {
+            this.args = Arrays.asList(notNull(args, "args"));
+            return this;
+        }
+
+        /**
+         * Constructs a new {@link AutoLaunch} based on the given configuration.
+         *
+         * @return The new {@link AutoLaunch} instance.
+         */
+        public @NotNull AutoLaunch build() {
+            notNull(appName, "app name");
+            notNull(appFile, "app file");
+            notNull(args, "app name");
+            if (!appFile.exists())
+                throw new IllegalStateException("File " + appFile + " does not exist!");
+            return new AutoLaunch(
+                    appName,
+                    appFile,
+                    args,
+                    useLaunchAgent,
+                    useSystemdUnit,
+                    startAfter,
+                    stagger == null ? delay : delay.plus(stagger.getDelay(appName)),
+                    resourceProfile,
+                    markLaunches,
+                    launchAgentFormat,
+                    executor,
+                    durability,
+                    lockAcrossProcesses,
+                    metrics,
+                    stateCacheTtl
+            );
+        }
+    }
+}
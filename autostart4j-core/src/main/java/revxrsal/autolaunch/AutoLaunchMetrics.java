@@ -0,0 +1,74 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A listener that is notified every time an {@link AutoLaunch} operation
+ * completes, for exporting call counts, failures and latencies to a
+ * monitoring system.
+ * <p>
+ * Listeners are registered either per instance, using {@link AutoLaunch.Builder#metrics(AutoLaunchMetrics)},
+ * or globally, by listing the implementation class in
+ * {@literal META-INF/services/revxrsal.autolaunch.AutoLaunchMetrics}. Global
+ * listeners are loaded with {@link java.util.ServiceLoader} the first time an operation
+ * completes, and must have a public no-arg constructor.
+ * <p>
+ * Listeners are called on the thread that ran the operation, so they must be
+ * thread-safe and should return quickly. Exceptions thrown by listeners are ignored.
+ *
+ * @see DefaultAutoLaunchMetrics
+ */
+public interface AutoLaunchMetrics {
+
+    /**
+     * Invoked when an operation completes, successfully or not
+     *
+     * @param autoLaunch    The application the operation ran for
+     * @param operation     The operation
+     * @param backend       The name of the backend that ran the operation, such
+     *                      as {@literal LinuxAutoLaunch}
+     * @param durationNanos The time the operation took, in nanoseconds
+     * @param failure       The exception that the operation failed with, or {@code null}
+     *                      if it completed successfully
+     */
+    void record(
+            @NotNull AutoLaunch autoLaunch,
+            @NotNull Operation operation,
+            @NotNull String backend,
+            long durationNanos,
+            @Nullable Throwable failure
+    );
+
+    /**
+     * The operations that are recorded
+     */
+    enum Operation {
+
+        /**
+         * {@link AutoLaunch#enable()}, and applications enabled by a {@link AutoLaunch.Batch batch}
+         */
+        ENABLE,
+
+        /**
+         * {@link AutoLaunch#disable()}, and applications disabled by a {@link AutoLaunch.Batch batch}
+         */
+        DISABLE,
+
+        /**
+         * {@link AutoLaunch#isEnabled()}
+         */
+        IS_ENABLED,
+
+        /**
+         * {@link AutoLaunch#toggle()}. The {@link #IS_ENABLED} check and the
+         * {@link #ENABLE} or {@link #DISABLE} it runs are recorded as well.
+         */
+        TOGGLE,
+
+        /**
+         * {@link AutoLaunch#reconcile()}
+         */
+        RECONCILE
+    }
+}
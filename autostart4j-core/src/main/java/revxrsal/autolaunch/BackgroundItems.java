@@ -0,0 +1,169 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+/**
+ * Reads the names of the login items of the current user from the background
+ * items store of macOS ({@literal backgrounditems.btm}), rather than asking
+ * System Events for them through AppleScript.
+ * <p>
+ * The store is a keyed archive, which is decoded with {@link KeyedArchive}. Every
+ * archived item (such as a {@literal BackgroundItem}) that has a name is collected,
+ * wherever it is in the archive, so that small differences in the layout between
+ * macOS versions do not matter.
+ * <p>
+ * The names are parsed once, and cached until the modification time or the size of
+ * the store changes, so a lookup costs a single {@code stat}. Whenever the store
+ * cannot be used (it is missing, unreadable, or has no item this recognizes),
+ * callers get {@code null} and fall back to AppleScript.
+ */
+final class BackgroundItems {
+
+    /**
+     * The name of the store, in the login items directory
+     */
+    static final String FILE_NAME = "backgrounditems.btm";
+
+    private static volatile @Nullable Snapshot snapshot;
+
+    private BackgroundItems() {
+    }
+
+    /**
+     * Tests whether the per-user store is where macOS keeps login items on the
+     * given version. This holds from macOS 10.13 until macOS 13, which moved them
+     * into a system-wide store that only root can read.
+     *
+     * @param osVersion The version of macOS, as in the {@literal os.version} property
+     * @return if the store is authoritative
+     */
+    static boolean isAuthoritative(@Nullable String osVersion) {
+        if (osVersion == null)
+            return false;
+        String[] parts = osVersion.split("\\.");
+        try {
+            int major = Integer.parseInt(parts[0]);
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return major == 10 ? minor >= 13 : major == 11 || major == 12;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the names of the login items in the given store
+     *
+     * @param store     The store file
+     * @param notBefore The time, in epoch millis, that the store must have been
+     *                  modified at or after. This keeps changes that the store
+     *                  does not reflect yet from being missed.
+     * @return The names, or {@code null} if the store cannot be used
+     */
+    static @Nullable Set<String> loginItemNames(@NotNull Path store, long notBefore) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(store, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        if (attributes.lastModifiedTime().toMillis() < notBefore)
+            return null;
+        Snapshot cached = snapshot;
+        if (cached != null && cached.matches(store, attributes))
+            return cached.names;
+
+        // the attributes are read before the content, so that a change made in
+        // between is picked up by the next lookup
+        Set<String> names;
+        try {
+            names = parse(Files.readAllBytes(store));
+        } catch (IOException e) {
+            return null;
+        }
+        snapshot = new Snapshot(store, attributes, names);
+        return names;
+    }
+
+    /**
+     * Parses the names of the login items in the given store
+     *
+     * @param data The content of the store
+     * @return The names, or {@code null} if the store is not recognized. As an
+     * empty store cannot be told apart from a layout this does not understand,
+     * a store without any item is not recognized either.
+     */
+    static @Nullable Set<String> parse(byte @NotNull [] data) {
+        Object root;
+        try {
+            root = KeyedArchive.decode(data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!(root instanceof KeyedArchive.Instance))
+            return null;
+        Set<String> names = new LinkedHashSet<>();
+        collectNames(root, names, Collections.newSetFromMap(new IdentityHashMap<>()));
+        if (names.isEmpty())
+            return null;
+        return Collections.unmodifiableSet(names);
+    }
+
+    private static void collectNames(@Nullable Object value, @NotNull Set<String> names, @NotNull Set<Object> visited) {
+        // containers are walked once, as archives may share objects or contain cycles
+        if (value instanceof KeyedArchive.Instance) {
+            if (!visited.add(value))
+                return;
+            KeyedArchive.Instance instance = (KeyedArchive.Instance) value;
+            Object name = instance.get("name");
+            if (name instanceof String && instance.getClassName().contains("Item"))
+                names.add((String) name);
+            for (Object field : instance.getFields().values())
+                collectNames(field, names, visited);
+        } else if (value instanceof Map) {
+            if (!visited.add(value))
+                return;
+            for (Object element : ((Map<?, ?>) value).values())
+                collectNames(element, names, visited);
+        } else if (value instanceof List) {
+            if (!visited.add(value))
+                return;
+            for (Object element : (List<?>) value)
+                collectNames(element, names, visited);
+        }
+    }
+
+    /**
+     * The names parsed from a store, along with the attributes the store had
+     */
+    private static final class Snapshot {
+
+        private final Path store;
+        private final FileTime modified;
+        private final long size;
+        private final @Nullable Object fileKey;
+        private final @Nullable Set<String> names;
+
+        Snapshot(@NotNull Path store, @NotNull BasicFileAttributes attributes, @Nullable Set<String> names) {
+            this.store = store;
+            this.modified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.fileKey = attributes.fileKey();
+            this.names = names;
+        }
+
+        boolean matches(@NotNull Path store, @NotNull BasicFileAttributes attributes) {
+            return this.store.equals(store)
+                    && modified.equals(attributes.lastModifiedTime())
+                    && size == attributes.size()
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+}
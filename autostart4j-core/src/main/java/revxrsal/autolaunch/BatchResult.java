@@ -0,0 +1,153 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * A per-entry report of a batch operation, as created by {@link AutoLaunch#batch()}.
+ * <p>
+ * This class is immutable, hence is safe to share across threads.
+ */
+public final class BatchResult {
+
+    private final @NotNull @Unmodifiable List<Entry> entries;
+
+    BatchResult(@NotNull List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(notNull(entries, "entries")));
+    }
+
+    /**
+     * Returns the results of every entry in the batch, in the order
+     * they were added.
+     *
+     * @return All entries
+     */
+    public @NotNull @Unmodifiable List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the entries that failed to be applied
+     *
+     * @return The failed entries
+     */
+    public @NotNull @Unmodifiable List<Entry> getFailures() {
+        List<Entry> failures = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!entry.isSuccessful())
+                failures.add(entry);
+        }
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Tests whether all the entries were applied successfully
+     *
+     * @return if all entries were applied successfully
+     */
+    public boolean isSuccessful() {
+        for (Entry entry : entries) {
+            if (!entry.isSuccessful())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Throws the failure of the first entry that failed, if any. Other
+     * failures are added as suppressed exceptions.
+     */
+    public void throwIfFailed() {
+        Throwable first = null;
+        for (Entry entry : entries) {
+            Throwable failure = entry.getFailure();
+            if (failure == null)
+                continue;
+            if (first == null)
+                first = failure;
+            else if (first != failure)
+                first.addSuppressed(failure);
+        }
+        if (first != null)
+            Utils.sneakyThrow(first);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{entries=" + entries + '}';
+    }
+
+    /**
+     * The action applied to an entry
+     */
+    public enum Action {
+        ENABLE,
+        DISABLE
+    }
+
+    /**
+     * The result of applying a single {@link AutoLaunch} in a batch.
+     */
+    public static final class Entry {
+
+        private final @NotNull AutoLaunch autoLaunch;
+        private final @NotNull Action action;
+        private final @Nullable Throwable failure;
+
+        Entry(@NotNull AutoLaunch autoLaunch, @NotNull Action action, @Nullable Throwable failure) {
+            this.autoLaunch = notNull(autoLaunch, "auto launch");
+            this.action = notNull(action, "action");
+            this.failure = failure;
+        }
+
+        /**
+         * The {@link AutoLaunch} this entry is for
+         *
+         * @return The auto launch
+         */
+        public @NotNull AutoLaunch getAutoLaunch() {
+            return autoLaunch;
+        }
+
+        /**
+         * The action that was applied
+         *
+         * @return The action
+         */
+        public @NotNull Action getAction() {
+            return action;
+        }
+
+        /**
+         * The exception that caused this entry to fail, or {@code null}
+         * if it was applied successfully.
+         *
+         * @return The failure cause
+         */
+        public @Nullable Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * Tests whether this entry was applied successfully
+         *
+         * @return if the entry was applied
+         */
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{appName=" + autoLaunch.getAppName() + ", action=" + action +
+                    (failure == null ? "" : ", failure=" + failure) + '}';
+        }
+    }
+}
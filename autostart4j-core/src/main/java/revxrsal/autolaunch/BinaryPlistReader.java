@@ -0,0 +1,294 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads binary property lists ({@literal bplist00}).
+ * <p>
+ * Objects are decoded into plain Java types:
+ * <ul>
+ *     <li>dictionaries into {@link Map}s, in the order they were written</li>
+ *     <li>arrays and sets into {@link List}s</li>
+ *     <li>strings into {@link String}s</li>
+ *     <li>integers into {@link Long}s, and reals into {@link Double}s</li>
+ *     <li>booleans into {@link Boolean}s, and nulls into {@code null}</li>
+ *     <li>dates into {@link Instant}s</li>
+ *     <li>data into byte arrays</li>
+ *     <li>keyed archiver references into {@link Uid}s</li>
+ * </ul>
+ * Every object is decoded at most once, so shared objects are shared in the
+ * result as well. Malformed input, including out-of-bounds offsets and
+ * reference cycles, is rejected with an {@link IllegalArgumentException}.
+ *
+ * @see BinaryPlistWriter
+ */
+final class BinaryPlistReader {
+
+    /**
+     * The difference between the Unix epoch and the plist epoch,
+     * 2001-01-01T00:00:00Z, in seconds
+     */
+    private static final long EPOCH_OFFSET = 978307200L;
+
+    /**
+     * The largest date, in seconds from the plist epoch in either direction,
+     * that is accepted. This is well within the range of {@link Instant}.
+     */
+    private static final double MAX_DATE_SECONDS = 1e15;
+
+    private static final int MAX_DEPTH = 512;
+
+    private final byte[] data;
+    private final int offsetSize;
+    private final int refSize;
+    private final int objectCount;
+    private final int offsetTableOffset;
+    private final Object[] decoded;
+    private final boolean[] decoding;
+    private int depth;
+
+    private BinaryPlistReader(byte @NotNull [] data) {
+        this.data = data;
+        byte[] magic = BinaryPlistWriter.MAGIC;
+        if (data.length < magic.length + 32)
+            throw malformed();
+        // only the "bplist" prefix is checked, as the version varies
+        for (int i = 0; i < 6; i++)
+            if (data[i] != magic[i])
+                throw malformed();
+        int trailer = data.length - 32;
+        offsetSize = data[trailer + 6] & 0xFF;
+        refSize = data[trailer + 7] & 0xFF;
+        long objects = readSized(trailer + 8, 8);
+        long tableOffset = readSized(trailer + 24, 8);
+        if (offsetSize < 1 || offsetSize > 8 || refSize < 1 || refSize > 8
+                || objects < 1 || tableOffset < magic.length
+                || objects > (trailer - tableOffset) / offsetSize)
+            throw malformed();
+        objectCount = (int) objects;
+        offsetTableOffset = (int) tableOffset;
+        decoded = new Object[objectCount];
+        decoding = new boolean[objectCount];
+    }
+
+    /**
+     * Decodes the given binary property list
+     *
+     * @param data The encoded property list
+     * @return The top-level object
+     * @throws IllegalArgumentException if the data is not a valid binary property list
+     */
+    static Object parse(byte @NotNull [] data) {
+        BinaryPlistReader reader = new BinaryPlistReader(data);
+        long root = reader.readSized(data.length - 16, 8);
+        if (root < 0 || root >= reader.objectCount)
+            throw malformed();
+        return reader.object((int) root);
+    }
+
+    /**
+     * Tests whether the given data starts like a binary property list
+     *
+     * @param data The data
+     * @return true if it is a binary property list
+     */
+    static boolean isBinaryPlist(byte @NotNull [] data) {
+        if (data.length < 8)
+            return false;
+        for (int i = 0; i < 6; i++)
+            if (data[i] != BinaryPlistWriter.MAGIC[i])
+                return false;
+        return true;
+    }
+
+    private Object object(int ref) {
+        if (ref < 0 || ref >= objectCount)
+            throw malformed();
+        Object value = decoded[ref];
+        if (value != null)
+            return value;
+        if (decoding[ref] || ++depth > MAX_DEPTH)
+            throw malformed();
+        decoding[ref] = true;
+        value = decode(offsetOf(ref));
+        decoding[ref] = false;
+        depth--;
+        decoded[ref] = value;
+        return value;
+    }
+
+    private int offsetOf(int ref) {
+        long offset = readSized(offsetTableOffset + (long) ref * offsetSize, offsetSize);
+        if (offset < BinaryPlistWriter.MAGIC.length || offset >= offsetTableOffset)
+            throw malformed();
+        return (int) offset;
+    }
+
+    private Object decode(int offset) {
+        int marker = data[offset] & 0xFF;
+        int type = marker >> 4;
+        int info = marker & 0xF;
+        switch (type) {
+            case 0x0:
+                if (info == 0x8)
+                    return Boolean.FALSE;
+                if (info == 0x9)
+                    return Boolean.TRUE;
+                if (info == 0x0)
+                    return null;
+                throw malformed();
+            case 0x1:
+                if (info > 3)
+                    throw malformed();
+                return readSized(offset + 1, 1 << info);
+            case 0x2:
+                if (info == 2)
+                    return (double) Float.intBitsToFloat((int) readSized(offset + 1, 4));
+                if (info == 3)
+                    return Double.longBitsToDouble(readSized(offset + 1, 8));
+                throw malformed();
+            case 0x3: {
+                if (info != 3)
+                    throw malformed();
+                double seconds = Double.longBitsToDouble(readSized(offset + 1, 8));
+                if (!(Math.abs(seconds) <= MAX_DATE_SECONDS))
+                    throw malformed();
+                long whole = (long) Math.floor(seconds);
+                return Instant.ofEpochSecond(EPOCH_OFFSET + whole, (long) ((seconds - whole) * 1_000_000_000L));
+            }
+            case 0x4: {
+                int start = contentStart(offset);
+                int length = length(offset);
+                checkRange(start, length);
+                return Arrays.copyOfRange(data, start, start + length);
+            }
+            case 0x5: {
+                int start = contentStart(offset);
+                int length = length(offset);
+                checkRange(start, length);
+                return new String(data, start, length, StandardCharsets.US_ASCII);
+            }
+            case 0x6: {
+                int start = contentStart(offset);
+                int length = length(offset);
+                checkRange(start, length * 2L);
+                return new String(data, start, length * 2, StandardCharsets.UTF_16BE);
+            }
+            case 0x8:
+                if (info > 7)
+                    throw malformed();
+                return new Uid(readSized(offset + 1, info + 1));
+            case 0xA:
+            case 0xC: {
+                int start = contentStart(offset);
+                int length = length(offset);
+                checkRange(start, (long) length * refSize);
+                List<Object> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++)
+                    list.add(object(ref(start + i * refSize)));
+                return Collections.unmodifiableList(list);
+            }
+            case 0xD: {
+                int start = contentStart(offset);
+                int length = length(offset);
+                checkRange(start, (long) length * refSize * 2);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                int values = start + length * refSize;
+                for (int i = 0; i < length; i++) {
+                    Object key = object(ref(start + i * refSize));
+                    map.put(key, object(ref(values + i * refSize)));
+                }
+                return Collections.unmodifiableMap(map);
+            }
+            default:
+                throw malformed();
+        }
+    }
+
+    private int ref(int offset) {
+        long ref = readSized(offset, refSize);
+        if (ref < 0 || ref >= objectCount)
+            throw malformed();
+        return (int) ref;
+    }
+
+    // the number of elements or characters of the object at the given offset
+    private int length(int offset) {
+        int info = data[offset] & 0xF;
+        if (info != 0xF)
+            return info;
+        checkRange(offset + 1, 1);
+        int marker = data[offset + 1] & 0xFF;
+        if ((marker >> 4) != 0x1 || (marker & 0xF) > 3)
+            throw malformed();
+        long length = readSized(offset + 2, 1 << (marker & 0xF));
+        if (length < 0 || length > data.length)
+            throw malformed();
+        return (int) length;
+    }
+
+    // the offset of the content of the object at the given offset, which follows its length
+    private int contentStart(int offset) {
+        if ((data[offset] & 0xF) != 0xF)
+            return offset + 1;
+        return offset + 2 + (1 << (data[offset + 1] & 0x3));
+    }
+
+    private void checkRange(long start, long length) {
+        if (start < 0 || length < 0 || start + length > data.length)
+            throw malformed();
+    }
+
+    // reads a big-endian integer of the given width
+    private long readSized(long offset, int width) {
+        checkRange(offset, width);
+        long value = 0;
+        for (int i = 0; i < width; i++)
+            value = (value << 8) | (data[(int) offset + i] & 0xFF);
+        return value;
+    }
+
+    private static IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed binary plist");
+    }
+
+    /**
+     * A reference to another object, as written by keyed archivers
+     */
+    static final class Uid {
+
+        private final long value;
+
+        Uid(long value) {
+            this.value = value;
+        }
+
+        long getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Uid && ((Uid) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return "Uid{" + value + "}";
+        }
+    }
+}
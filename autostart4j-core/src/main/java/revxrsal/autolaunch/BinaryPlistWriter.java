@@ -0,0 +1,299 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes binary property lists ({@literal bplist00}).
+ * <p>
+ * Objects are written bottom-up: each method writes an object and returns its
+ * reference, which is then passed to the containers that hold it. Scalars are
+ * encoded straight into the output buffer. Containers only record the references
+ * of their children, and are encoded once {@link #finish(int)} knows how many
+ * objects there are, and therefore how wide references need to be.
+ * <p>
+ * Equal strings and booleans are written once, and share a reference.
+ * <p>
+ * This class is not thread-safe, and a writer can only be finished once.
+ *
+ * @see BinaryPlistReader
+ */
+final class BinaryPlistWriter {
+
+    static final byte[] MAGIC = "bplist00".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int ARRAY = 0xA0;
+    private static final int DICT = 0xD0;
+
+    private byte[] buffer = new byte[256];
+    private int size;
+
+    /**
+     * The offset of every object, indexed by reference. Containers are
+     * assigned their offsets in {@link #finish(int)}.
+     */
+    private long[] offsets = new long[16];
+    private int objects;
+
+    /**
+     * The containers, as (reference, marker, count, first child) tuples, with the
+     * child references stored contiguously in {@link #children}. A dictionary has
+     * its key references followed by its value references.
+     */
+    private int[] containers = new int[16];
+    private int containerCount;
+    private int[] children = new int[32];
+    private int childCount;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private int trueRef = -1;
+    private int falseRef = -1;
+
+    BinaryPlistWriter() {
+        write(MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Writes a string. Strings that are pure ASCII are written in ASCII,
+     * and the rest in UTF-16.
+     *
+     * @param value The string
+     * @return The reference to the string
+     */
+    int string(@NotNull String value) {
+        Integer existing = strings.get(value);
+        if (existing != null)
+            return existing;
+        int ref = newObject();
+        boolean ascii = true;
+        for (int i = 0; i < value.length() && ascii; i++)
+            ascii = value.charAt(i) < 128;
+        if (ascii) {
+            writeMarker(0x50, value.length());
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); i++)
+                buffer[size++] = (byte) value.charAt(i);
+        } else {
+            writeMarker(0x60, value.length());
+            ensureCapacity(value.length() * 2);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                buffer[size++] = (byte) (c >> 8);
+                buffer[size++] = (byte) c;
+            }
+        }
+        strings.put(value, ref);
+        return ref;
+    }
+
+    /**
+     * Writes an integer
+     *
+     * @param value The integer
+     * @return The reference to the integer
+     */
+    int integer(long value) {
+        int ref = newObject();
+        // negative integers are always written in 8 bytes
+        int width = value < 0 ? 8 : widthOf(value);
+        int exponent = Integer.numberOfTrailingZeros(width);
+        writeByte(0x10 | exponent);
+        writeSized(value, width);
+        return ref;
+    }
+
+    /**
+     * Writes a boolean
+     *
+     * @param value The boolean
+     * @return The reference to the boolean
+     */
+    int bool(boolean value) {
+        if (value && trueRef != -1)
+            return trueRef;
+        if (!value && falseRef != -1)
+            return falseRef;
+        int ref = newObject();
+        writeByte(value ? 0x09 : 0x08);
+        if (value)
+            trueRef = ref;
+        else
+            falseRef = ref;
+        return ref;
+    }
+
+    /**
+     * Writes a reference to an object of a keyed archive
+     *
+     * @param value The index of the object in the archive
+     * @return The reference to the UID
+     */
+    int uid(long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("UIDs cannot be negative");
+        int ref = newObject();
+        int width = widthOf(value);
+        writeByte(0x80 | (width - 1));
+        writeSized(value, width);
+        return ref;
+    }
+
+    /**
+     * Writes an array of the given objects
+     *
+     * @param elements The references of the elements
+     * @param count    The number of elements
+     * @return The reference to the array
+     */
+    int array(int @NotNull [] elements, int count) {
+        return container(ARRAY, count, elements, null);
+    }
+
+    /**
+     * Writes a dictionary of the given keys and values
+     *
+     * @param keys   The references of the keys, which should be strings
+     * @param values The references of the values
+     * @param count  The number of entries
+     * @return The reference to the dictionary
+     */
+    int dict(int @NotNull [] keys, int @NotNull [] values, int count) {
+        return container(DICT, count, keys, values);
+    }
+
+    /**
+     * Writes the containers, the offset table and the trailer, and returns
+     * the encoded property list
+     *
+     * @param root The reference to the top-level object
+     * @return The encoded property list
+     */
+    byte @NotNull [] finish(int root) {
+        if (root < 0 || root >= objects)
+            throw new IllegalArgumentException("Invalid root reference: " + root);
+        int refSize = widthOf(objects - 1);
+        for (int i = 0; i < containerCount; i++) {
+            int base = i * 4;
+            int ref = containers[base];
+            int marker = containers[base + 1];
+            int count = containers[base + 2];
+            int first = containers[base + 3];
+            offsets[ref] = size;
+            writeMarker(marker, count);
+            int refs = marker == DICT ? count * 2 : count;
+            ensureCapacity(refs * refSize);
+            for (int j = 0; j < refs; j++)
+                writeSized(children[first + j], refSize);
+        }
+
+        long offsetTableOffset = size;
+        int offsetSize = widthOf(offsetTableOffset);
+        ensureCapacity(objects * offsetSize + 32);
+        for (int i = 0; i < objects; i++)
+            writeSized(offsets[i], offsetSize);
+
+        // trailer: 5 unused bytes, the sort version, the offset and reference
+        // sizes, and then the object count, root object and offset table offset
+        for (int i = 0; i < 6; i++)
+            buffer[size++] = 0;
+        buffer[size++] = (byte) offsetSize;
+        buffer[size++] = (byte) refSize;
+        writeSized(objects, 8);
+        writeSized(root, 8);
+        writeSized(offsetTableOffset, 8);
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private int container(int marker, int count, int @NotNull [] first, int[] second) {
+        if (count < 0 || count > first.length || (second != null && count > second.length))
+            throw new IllegalArgumentException("Invalid count: " + count);
+        int ref = newObject();
+        int refs = second == null ? count : count * 2;
+        if (childCount + refs > children.length)
+            children = Arrays.copyOf(children, Math.max(children.length * 2, childCount + refs));
+        for (int i = 0; i < count; i++)
+            children[childCount + i] = checkRef(first[i]);
+        if (second != null) {
+            for (int i = 0; i < count; i++)
+                children[childCount + count + i] = checkRef(second[i]);
+        }
+        if ((containerCount + 1) * 4 > containers.length)
+            containers = Arrays.copyOf(containers, containers.length * 2);
+        int base = containerCount++ * 4;
+        containers[base] = ref;
+        containers[base + 1] = marker;
+        containers[base + 2] = count;
+        containers[base + 3] = childCount;
+        childCount += refs;
+        return ref;
+    }
+
+    private int checkRef(int ref) {
+        if (ref < 0 || ref >= objects)
+            throw new IllegalArgumentException("Invalid reference: " + ref);
+        return ref;
+    }
+
+    private int newObject() {
+        if (objects == offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[objects] = size;
+        return objects++;
+    }
+
+    /**
+     * Writes an object marker. Counts of 15 and above do not fit in the
+     * marker, and follow it as an integer object instead.
+     */
+    private void writeMarker(int marker, int count) {
+        if (count < 15) {
+            writeByte(marker | count);
+            return;
+        }
+        writeByte(marker | 0xF);
+        int width = widthOf(count);
+        writeByte(0x10 | Integer.numberOfTrailingZeros(width));
+        writeSized(count, width);
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    // writes the value as a big-endian, unsigned integer of the given width
+    private void writeSized(long value, int width) {
+        ensureCapacity(width);
+        for (int i = width - 1; i >= 0; i--)
+            buffer[size++] = (byte) (value >>> (i * 8));
+    }
+
+    private void write(byte @NotNull [] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+    }
+
+    /**
+     * Returns the number of bytes (1, 2, 4 or 8) needed to hold the given
+     * non-negative value
+     */
+    static int widthOf(long value) {
+        if (value < 0x100)
+            return 1;
+        if (value < 0x10000)
+            return 2;
+        if (value < 0x100000000L)
+            return 4;
+        return 8;
+    }
+}
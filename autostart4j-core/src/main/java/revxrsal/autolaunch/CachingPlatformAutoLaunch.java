@@ -0,0 +1,223 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link PlatformAutoLaunch} that caches the results of {@link #isEnabled(AutoLaunch)}
+ * for applications that opted in with {@link AutoLaunch.Builder#cacheState(Duration)}.
+ * <p>
+ * A cached state is dropped when:
+ * <ul>
+ *     <li>Its time-to-live has passed</li>
+ *     <li>The application is enabled or disabled through this instance</li>
+ *     <li>An entry in the directory that backs the application is created, modified
+ *     or deleted, as reported by the {@link StateWatcher}</li>
+ *     <li>It is {@link #invalidate(AutoLaunch) invalidated} explicitly</li>
+ * </ul>
+ * A cache hit is a single map read: nothing is checked on the file system. The
+ * directory is registered with the watcher before the state is first read, so
+ * changes made after the read always invalidate it. States that cannot be watched
+ * (such as registry values on Windows) are only dropped by the other means.
+ * <p>
+ * All other operations are passed through to the delegate as-is.
+ * <p>
+ * This class is thread-safe.
+ */
+final class CachingPlatformAutoLaunch implements PlatformAutoLaunch {
+
+    private final PlatformAutoLaunch delegate;
+    private final StateWatcher watcher;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * The directories that are registered with the watcher
+     */
+    private final Set<Path> watched = ConcurrentHashMap.newKeySet();
+
+    CachingPlatformAutoLaunch(@NotNull PlatformAutoLaunch delegate, @NotNull StateWatcher watcher) {
+        this.delegate = delegate;
+        this.watcher = watcher;
+    }
+
+    @Override
+    public void enable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            delegate.enable(autoLaunch);
+        } finally {
+            invalidate(autoLaunch);
+        }
+    }
+
+    @Override
+    public void disable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            delegate.disable(autoLaunch);
+        } finally {
+            invalidate(autoLaunch);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(@NotNull AutoLaunch autoLaunch) {
+        Duration ttl = autoLaunch.getStateCacheTtl();
+        if (ttl == null)
+            return delegate.isEnabled(autoLaunch);
+        Slot slot = slots.get(autoLaunch.getAppName());
+        CachedState cached = slot == null ? null : slot.state;
+        if (cached != null && System.nanoTime() - cached.expiresAt < 0)
+            return cached.enabled;
+        return load(autoLaunch, ttl);
+    }
+
+    private boolean load(@NotNull AutoLaunch autoLaunch, @NotNull Duration ttl) {
+        Path dir = delegate.getWatchedDirectory(autoLaunch);
+        if (dir != null) {
+            dir = dir.toAbsolutePath().normalize();
+            if (!watch(dir))
+                return delegate.isEnabled(autoLaunch);
+        }
+        Slot slot = slot(autoLaunch);
+        // the directory is watched before the state is read, so changes made
+        // after the read always invalidate it
+        long version;
+        synchronized (slot) {
+            slot.dir = dir;
+            version = slot.version;
+        }
+        boolean enabled = delegate.isEnabled(autoLaunch);
+        synchronized (slot) {
+            if (slot.version == version)
+                slot.state = new CachedState(enabled, System.nanoTime() + ttl.toNanos());
+        }
+        return enabled;
+    }
+
+    // registers the directory with the watcher, once. states that cannot be invalidated are not cached.
+    private boolean watch(@NotNull Path dir) {
+        if (watched.contains(dir))
+            return true;
+        synchronized (watched) {
+            if (watched.contains(dir))
+                return true;
+            try {
+                watcher.watchDirectory(dir, () -> invalidate(dir));
+            } catch (IOException | RuntimeException e) {
+                return false;
+            }
+            watched.add(dir);
+            return true;
+        }
+    }
+
+    @Override
+    public @NotNull Drift checkDrift(@NotNull AutoLaunch autoLaunch) {
+        return delegate.checkDrift(autoLaunch);
+    }
+
+    @Override
+    public @NotNull Drift reconcile(@NotNull AutoLaunch autoLaunch) {
+        try {
+            return delegate.reconcile(autoLaunch);
+        } finally {
+            invalidate(autoLaunch);
+        }
+    }
+
+    @Override
+    public @NotNull BatchResult applyAll(@NotNull Collection<AutoLaunch> toEnable, @NotNull Collection<AutoLaunch> toDisable) {
+        try {
+            return delegate.applyAll(toEnable, toDisable);
+        } finally {
+            for (AutoLaunch autoLaunch : toEnable)
+                invalidate(autoLaunch);
+            for (AutoLaunch autoLaunch : toDisable)
+                invalidate(autoLaunch);
+        }
+    }
+
+    @Override
+    public @Nullable Path getWatchedDirectory(@NotNull AutoLaunch autoLaunch) {
+        return delegate.getWatchedDirectory(autoLaunch);
+    }
+
+    @Override
+    public @Nullable Path getLockDirectory(@NotNull AutoLaunch autoLaunch) {
+        return delegate.getLockDirectory(autoLaunch);
+    }
+
+    /**
+     * Drops the cached state of the given application, if any. Reads that are
+     * in progress will not cache their result.
+     *
+     * @param autoLaunch The application
+     */
+    void invalidate(@NotNull AutoLaunch autoLaunch) {
+        Slot slot = slots.get(autoLaunch.getAppName());
+        if (slot == null)
+            return;
+        synchronized (slot) {
+            slot.version++;
+            slot.state = null;
+        }
+    }
+
+    // drops the cached states of every application in the given directory
+    private void invalidate(@NotNull Path dir) {
+        for (Slot slot : slots.values()) {
+            if (!dir.equals(slot.dir))
+                continue;
+            synchronized (slot) {
+                slot.version++;
+                slot.state = null;
+            }
+        }
+    }
+
+    private @NotNull Slot slot(@NotNull AutoLaunch autoLaunch) {
+        Slot slot = slots.get(autoLaunch.getAppName());
+        if (slot == null)
+            slot = slots.computeIfAbsent(autoLaunch.getAppName(), k -> new Slot());
+        return slot;
+    }
+
+    /**
+     * Holds the cached state of a single application name
+     */
+    private static final class Slot {
+
+        /**
+         * Incremented on every invalidation. Guarded by the slot's monitor.
+         */
+        private volatile long version;
+
+        /**
+         * The cached state, or {@code null} if there is none
+         */
+        private volatile @Nullable CachedState state;
+
+        /**
+         * The watched directory of the cached state, or {@code null} if it is not watched
+         */
+        private volatile @Nullable Path dir;
+    }
+
+    private static final class CachedState {
+
+        private final boolean enabled;
+        private final long expiresAt;
+
+        CachedState(boolean enabled, long expiresAt) {
+            this.enabled = enabled;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * An {@link AutoLaunchMetrics} that keeps call counts, failure counts and
+ * {@link LatencyHistogram latency histograms} for every operation, broken down
+ * by backend. Snapshots can be taken at any time with {@link #snapshot()}.
+ * <p>
+ * Recording is lock-free, and does not allocate once a backend has been seen.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class DefaultAutoLaunchMetrics implements AutoLaunchMetrics {
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final Map<String, OperationMetrics[]> backends = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(
+            @NotNull AutoLaunch autoLaunch,
+            @NotNull Operation operation,
+            @NotNull String backend,
+            long durationNanos,
+            @Nullable Throwable failure
+    ) {
+        OperationMetrics[] metrics = backends.get(backend);
+        if (metrics == null)
+            metrics = backends.computeIfAbsent(backend, k -> newOperationMetrics());
+        metrics[operation.ordinal()].record(durationNanos, failure != null);
+    }
+
+    /**
+     * Takes a snapshot of the recorded metrics, keyed by backend name and
+     * then by operation. Operations that were never run are included, with
+     * zero calls.
+     *
+     * @return The snapshot
+     */
+    public @NotNull @Unmodifiable Map<String, Map<Operation, OperationSnapshot>> snapshot() {
+        Map<String, Map<Operation, OperationSnapshot>> snapshot = new TreeMap<>();
+        for (Map.Entry<String, OperationMetrics[]> backend : backends.entrySet()) {
+            Map<Operation, OperationSnapshot> operations = new EnumMap<>(Operation.class);
+            for (Operation operation : OPERATIONS)
+                operations.put(operation, backend.getValue()[operation.ordinal()].snapshot());
+            snapshot.put(backend.getKey(), Collections.unmodifiableMap(operations));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Takes a snapshot of the recorded metrics of the given backend and operation
+     *
+     * @param backend   The backend name, such as {@literal LinuxAutoLaunch}
+     * @param operation The operation
+     * @return The snapshot. This has zero calls if the operation was never run.
+     */
+    public @NotNull OperationSnapshot snapshot(@NotNull String backend, @NotNull Operation operation) {
+        notNull(operation, "operation");
+        OperationMetrics[] metrics = backends.get(notNull(backend, "backend"));
+        if (metrics == null)
+            return new OperationMetrics().snapshot();
+        return metrics[operation.ordinal()].snapshot();
+    }
+
+    private static OperationMetrics @NotNull [] newOperationMetrics() {
+        OperationMetrics[] metrics = new OperationMetrics[OPERATIONS.length];
+        for (int i = 0; i < metrics.length; i++)
+            metrics[i] = new OperationMetrics();
+        return metrics;
+    }
+
+    private static final class OperationMetrics {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(long durationNanos, boolean failed) {
+            calls.increment();
+            if (failed)
+                failures.increment();
+            latency.record(durationNanos);
+        }
+
+        @NotNull OperationSnapshot snapshot() {
+            return new OperationSnapshot(calls.sum(), failures.sum(), latency.snapshot());
+        }
+    }
+
+    /**
+     * An immutable snapshot of the metrics of a single operation
+     */
+    public static final class OperationSnapshot {
+
+        private final long calls;
+        private final long failures;
+        private final LatencyHistogram.Snapshot latency;
+
+        OperationSnapshot(long calls, long failures, @NotNull LatencyHistogram.Snapshot latency) {
+            this.calls = calls;
+            this.failures = failures;
+            this.latency = latency;
+        }
+
+        /**
+         * Returns the number of times the operation was run
+         *
+         * @return The number of calls
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * Returns the number of times the operation has failed
+         *
+         * @return The number of failures
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the latencies of the operation, including failed calls
+         *
+         * @return The latency histogram
+         */
+        public @NotNull LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return "OperationSnapshot{calls=" + calls + ", failures=" + failures + ", latency=" + latency + '}';
+        }
+    }
+}
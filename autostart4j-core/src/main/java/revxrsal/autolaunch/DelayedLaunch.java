@@ -0,0 +1,51 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers for backends that express {@link AutoLaunch#getLaunchDelay()}.
+ * Backends that have no native way to delay a launch wrap the command
+ * in a tiny shell script that sleeps first.
+ */
+final class DelayedLaunch {
+
+    private DelayedLaunch() {
+    }
+
+    /**
+     * Returns the launch delay of the given application in whole seconds,
+     * rounded up
+     *
+     * @param autoLaunch The application
+     * @return The delay in seconds, or 0 if it is not delayed
+     */
+    static long seconds(@NotNull AutoLaunch autoLaunch) {
+        long millis = autoLaunch.getLaunchDelay().toMillis();
+        return (millis + 999) / 1000;
+    }
+
+    /**
+     * Returns the command line that launches the given application, wrapped
+     * in {@literal /bin/sh} if it is delayed. The program and arguments are passed
+     * as positional parameters, so they are never interpreted by the shell.
+     *
+     * @param autoLaunch The application
+     * @return The program and its arguments
+     */
+    static @NotNull List<String> shellCommand(@NotNull AutoLaunch autoLaunch) {
+        long seconds = seconds(autoLaunch);
+        List<String> command = new ArrayList<>(autoLaunch.getArgs().size() + 5);
+        if (seconds > 0) {
+            command.add("/bin/sh");
+            command.add("-c");
+            command.add("sleep " + seconds + " && exec \"$@\"");
+            command.add("autostart4j-delay");
+        }
+        command.add(autoLaunch.getAppFile().getAbsolutePath());
+        command.addAll(autoLaunch.getArgs());
+        return command;
+    }
+}
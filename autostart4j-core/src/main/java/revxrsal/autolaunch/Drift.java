@@ -0,0 +1,30 @@
+package revxrsal.autolaunch;
+
+/**
+ * How the startup entry of an application compares to the entry its current
+ * configuration would produce.
+ *
+ * @see AutoLaunch#checkDrift()
+ * @see AutoLaunch#reconcile()
+ */
+public enum Drift {
+
+    /**
+     * The application is not enabled, so there is no entry to compare. On Linux,
+     * this is also the case for desktop entries that the user turned off from the
+     * session settings ({@literal Hidden=true} or {@literal X-GNOME-Autostart-enabled=false}).
+     */
+    NOT_ENABLED,
+
+    /**
+     * The entry is exactly what the current configuration produces
+     */
+    UP_TO_DATE,
+
+    /**
+     * The entry differs from what the current configuration produces. This
+     * happens when the application path or arguments changed since the entry was
+     * written, such as after an upgrade, or when the entry was edited by hand.
+     */
+    STALE
+}
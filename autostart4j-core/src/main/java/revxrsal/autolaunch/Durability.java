@@ -0,0 +1,33 @@
+package revxrsal.autolaunch;
+
+/**
+ * Controls how much effort is made to ensure that startup entries written
+ * to disk survive a crash or a power loss.
+ * <p>
+ * Entries are always written to a temporary file first, and then atomically
+ * moved into place, so a partially-written entry is never visible. The durability
+ * controls whether the data is flushed to the storage device before and after
+ * the move.
+ */
+public enum Durability {
+
+    /**
+     * Nothing is flushed. This is the fastest, but a crash shortly after
+     * writing may leave an empty entry behind.
+     */
+    NONE,
+
+    /**
+     * The file contents are flushed before it is moved into place. After a crash,
+     * the entry either exists with its full contents, or does not exist at all.
+     */
+    FILE,
+
+    /**
+     * The file contents are flushed before it is moved into place, and the directory
+     * is flushed afterwards, so the entry is guaranteed to exist after a crash.
+     * <p>
+     * Concurrent writers in the same directory share a single directory flush.
+     */
+    FILE_AND_DIRECTORY
+}
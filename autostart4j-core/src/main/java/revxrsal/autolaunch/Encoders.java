@@ -0,0 +1,574 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escapes values for the formats that startup entries are written in.
+ * <p>
+ * Each format has a lookup table of the ASCII characters that need escaping. Values
+ * that contain none of them (which is almost always the case) are returned as-is,
+ * without allocating. Otherwise, they are escaped into a reusable, per-thread buffer.
+ * <p>
+ * Whole payloads are rendered with the {@literal append} variants, which escape
+ * straight into the {@link #document() document buffer} in a single pass, so
+ * a payload is only copied once more, when it is turned into a string.
+ */
+final class Encoders {
+
+    /**
+     * Marks characters that require an {@literal ExecStart} argument to be quoted
+     */
+    private static final byte SYSTEMD_RESERVED = 1;
+
+    /**
+     * Marks characters that systemd expands as specifiers or variables, which
+     * must be doubled wherever they appear
+     */
+    private static final byte SYSTEMD_EXPANDED = 2;
+
+    private static final boolean[] XML = new boolean[128];
+    private static final boolean[] APPLE_SCRIPT = new boolean[128];
+    private static final boolean[] DESKTOP_STRING = new boolean[128];
+    // characters that require an Exec argument to be quoted
+    private static final boolean[] EXEC = new boolean[128];
+    private static final byte[] SYSTEMD = new byte[128];
+    private static final boolean[] SYSTEMD_UNIT_NAME = new boolean[128];
+    // characters that any of the text formats escape
+    private static final boolean[] SPECIAL = new boolean[128];
+
+    static {
+        for (char c = 0; c < 32; c++) {
+            XML[c] = true;
+            APPLE_SCRIPT[c] = true;
+            DESKTOP_STRING[c] = true;
+            EXEC[c] = true;
+            SYSTEMD[c] = SYSTEMD_RESERVED;
+        }
+        for (char c : "&<>\"'".toCharArray())
+            XML[c] = true;
+        for (char c : "\"\\".toCharArray())
+            APPLE_SCRIPT[c] = true;
+        DESKTOP_STRING['\\'] = true;
+        // https://specifications.freedesktop.org/desktop-entry-spec/latest/exec-variables.html
+        for (char c : " \t\n\"'\\><~|&;$*?#()`".toCharArray())
+            EXEC[c] = true;
+        // https://www.freedesktop.org/software/systemd/man/latest/systemd.service.html#Command%20lines
+        for (char c : " \"'\\;".toCharArray())
+            SYSTEMD[c] |= SYSTEMD_RESERVED;
+        SYSTEMD['%'] |= SYSTEMD_EXPANDED;
+        SYSTEMD['$'] |= SYSTEMD_EXPANDED;
+        SYSTEMD[127] = SYSTEMD_RESERVED;
+        for (char c = 0; c < 128; c++) {
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ':' || c == '_' || c == '.' || c == '-';
+            SYSTEMD_UNIT_NAME[c] = !allowed;
+            SPECIAL[c] = XML[c] || APPLE_SCRIPT[c] || DESKTOP_STRING[c] || EXEC[c] || SYSTEMD[c] != 0 || c == '%';
+        }
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * The per-thread buffer that payloads are rendered into. This is separate
+     * from {@link #BUFFER}, so values can still be escaped while a payload is
+     * being rendered.
+     */
+    private static final ThreadLocal<StringBuilder> DOCUMENT = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private Encoders() {
+    }
+
+    /**
+     * Tests whether the given value is written as-is in every format, that is,
+     * it is not empty and none of its characters need escaping or quoting.
+     *
+     * @param value Value to test
+     * @return Whether the value is plain
+     */
+    public static boolean isPlain(@NotNull String value) {
+        return !value.isEmpty() && firstEscaped(value, SPECIAL) == -1;
+    }
+
+    /**
+     * Escapes the given value for use as XML text or an attribute value.
+     * Control characters that are not allowed in XML are dropped.
+     *
+     * @param value Value to escape
+     * @return The escaped value
+     */
+    public static @NotNull String xml(@NotNull String value) {
+        int i = firstEscaped(value, XML);
+        if (i == -1)
+            return value;
+        StringBuilder out = buffer(value, i);
+        appendXml(out, value, i);
+        return out.toString();
+    }
+
+    /**
+     * Appends the given value, escaped like {@link #xml(String)}
+     *
+     * @param out   The buffer to append to
+     * @param value Value to escape
+     */
+    public static void appendXml(@NotNull StringBuilder out, @NotNull String value) {
+        int i = firstEscaped(value, XML);
+        if (i == -1) {
+            out.append(value);
+            return;
+        }
+        out.append(value, 0, i);
+        appendXml(out, value, i);
+    }
+
+    private static void appendXml(@NotNull StringBuilder out, @NotNull String value, int from) {
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                case '\'':
+                    out.append("&apos;");
+                    break;
+                case '\t':
+                case '\n':
+                case '\r':
+                    out.append(c);
+                    break;
+                default:
+                    if (c >= 32)
+                        out.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Creates an AppleScript string literal, including the surrounding quotes
+     *
+     * @param value Value of the literal
+     * @return The literal
+     */
+    public static @NotNull String appleScriptLiteral(@NotNull String value) {
+        StringBuilder out = buffer(value, 0);
+        appendAppleScriptLiteral(out, value);
+        return out.toString();
+    }
+
+    /**
+     * Appends an AppleScript string literal, like {@link #appleScriptLiteral(String)}
+     *
+     * @param out   The buffer to append to
+     * @param value Value of the literal
+     */
+    public static void appendAppleScriptLiteral(@NotNull StringBuilder out, @NotNull String value) {
+        int i = firstEscaped(value, APPLE_SCRIPT);
+        out.append('"');
+        if (i == -1) {
+            out.append(value).append('"');
+            return;
+        }
+        out.append(value, 0, i);
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append(c);
+                    break;
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Escapes the given value for use as a {@literal string} value in
+     * a desktop entry, such as {@literal Name} or {@literal Comment}.
+     *
+     * @param value Value to escape
+     * @return The escaped value
+     */
+    public static @NotNull String desktopString(@NotNull String value) {
+        int i = firstEscaped(value, DESKTOP_STRING);
+        boolean leadingSpace = !value.isEmpty() && value.charAt(0) == ' ';
+        if (i == -1 && !leadingSpace)
+            return value;
+        StringBuilder out = buffer(value, 0);
+        appendDesktopString(out, value);
+        return out.toString();
+    }
+
+    /**
+     * Appends the given value, escaped like {@link #desktopString(String)}
+     *
+     * @param out   The buffer to append to
+     * @param value Value to escape
+     */
+    public static void appendDesktopString(@NotNull StringBuilder out, @NotNull String value) {
+        if (firstEscaped(value, DESKTOP_STRING) == -1 && (value.isEmpty() || value.charAt(0) != ' ')) {
+            out.append(value);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case ' ':
+                    out.append(i == 0 ? "\\s" : " ");
+                    break;
+                default:
+                    if (c >= 32)
+                        out.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reverses {@link #desktopString(String)}, reading a {@literal string} value
+     * of a desktop entry. Unknown escapes are kept as they are.
+     *
+     * @param value Value to unescape
+     * @return The unescaped value
+     */
+    static @NotNull String parseDesktopString(@NotNull String value) {
+        int i = value.indexOf('\\');
+        if (i == -1)
+            return value;
+        StringBuilder out = new StringBuilder(value.length()).append(value, 0, i);
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                out.append(c);
+                continue;
+            }
+            char escaped = value.charAt(++i);
+            switch (escaped) {
+                case 's':
+                    out.append(' ');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case '\\':
+                    out.append('\\');
+                    break;
+                default:
+                    out.append('\\').append(escaped);
+                    break;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Creates the value of an {@literal Exec} key in a desktop entry, from the given
+     * program and arguments. Arguments are quoted where needed, and the result
+     * is escaped as a desktop entry string.
+     *
+     * @param program   The program to execute
+     * @param arguments The program arguments
+     * @return The {@literal Exec} value
+     */
+    public static @NotNull String exec(@NotNull String program, @NotNull Iterable<String> arguments) {
+        StringBuilder command = buffer(program, 0);
+        appendExecArgument(command, program);
+        for (String argument : arguments)
+            appendExecArgument(command.append(' '), argument);
+        return command.toString();
+    }
+
+    /**
+     * Appends a single argument of an {@literal Exec} value, like {@link #exec(String, Iterable)}
+     * does. The argument is quoted if needed, and escaped as a desktop entry
+     * string, in one pass.
+     *
+     * @param out      The buffer to append to
+     * @param argument The argument
+     */
+    public static void appendExecArgument(@NotNull StringBuilder out, @NotNull String argument) {
+        boolean quote = argument.isEmpty();
+        boolean fieldCode = false;
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            if (c >= 128)
+                continue;
+            if (c == '%')
+                fieldCode = true;
+            else if (EXEC[c])
+                quote = true;
+        }
+        if (!quote && !fieldCode) {
+            // no reserved characters also means no backslashes or control characters
+            out.append(argument);
+            return;
+        }
+        if (!quote) {
+            for (int i = 0; i < argument.length(); i++) {
+                char c = argument.charAt(i);
+                if (c == '%')
+                    out.append('%');
+                out.append(c);
+            }
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            switch (c) {
+                case '%':
+                    out.append("%%");
+                    break;
+                // quoting escapes these with a backslash, and the string rules then double every backslash
+                case '\\':
+                    out.append("\\\\\\\\");
+                    break;
+                case '"':
+                case '`':
+                case '$':
+                    out.append("\\\\").append(c);
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    if (c >= 32)
+                        out.append(c);
+                    break;
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Creates the value of an {@literal ExecStart} key in a systemd unit, from the
+     * given program and arguments. Arguments are quoted where needed, and
+     * specifiers ({@literal %}) and variables ({@literal $}) are escaped so that
+     * they are passed through verbatim.
+     *
+     * @param program   The program to execute. This must be an absolute path.
+     * @param arguments The program arguments
+     * @return The {@literal ExecStart} value
+     */
+    public static @NotNull String systemdExec(@NotNull String program, @NotNull Iterable<String> arguments) {
+        StringBuilder command = BUFFER.get();
+        command.setLength(0);
+        appendSystemdArgument(command, program);
+        for (String argument : arguments) {
+            command.append(' ');
+            appendSystemdArgument(command, argument);
+        }
+        return command.toString();
+    }
+
+    /**
+     * Escapes the given value for use as a single-line value in a systemd unit,
+     * such as {@literal Description}. Specifiers are escaped, and control
+     * characters are replaced with spaces.
+     *
+     * @param value Value to escape
+     * @return The escaped value
+     */
+    public static @NotNull String systemdValue(@NotNull String value) {
+        StringBuilder out = buffer(value, 0);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%')
+                out.append("%%");
+            else if (c < 32 || c == 127)
+                out.append(' ');
+            else
+                out.append(c);
+        }
+        // a trailing backslash would continue the value on the next line
+        if (out.length() > 0 && out.charAt(out.length() - 1) == '\\')
+            out.append(' ');
+        return out.toString();
+    }
+
+    /**
+     * Creates a quoted {@literal NAME=value} assignment for the {@literal Environment}
+     * key of a systemd unit
+     *
+     * @param name  The variable name
+     * @param value The variable value
+     * @return The quoted assignment
+     */
+    public static @NotNull String systemdEnvironment(@NotNull String name, @NotNull String value) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.append('"').append(name).append('=');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%')
+                out.append("%%");
+            else if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c < 32 || c == 127)
+                out.append(' ');
+            else
+                out.append(c);
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Escapes the given name for use as the name of a systemd unit. Characters
+     * outside of {@literal [a-zA-Z0-9:_.-]} are replaced with {@literal \xNN}, for
+     * each byte of their UTF-8 encoding, like {@literal systemd-escape} does. Dashes
+     * are kept, as they are only special in path-based unit names.
+     *
+     * @param name Name to escape
+     * @return The escaped name, without the unit suffix
+     */
+    public static @NotNull String systemdUnitName(@NotNull String name) {
+        int i = firstEscaped(name, SYSTEMD_UNIT_NAME);
+        boolean leadingDot = !name.isEmpty() && name.charAt(0) == '.';
+        if (i == -1 && !leadingDot)
+            return name;
+        StringBuilder out = buffer(name, 0);
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int j = 0; j < bytes.length; j++) {
+            int b = bytes[j] & 0xFF;
+            if (b < 128 && !SYSTEMD_UNIT_NAME[b] && !(j == 0 && b == '.'))
+                out.append((char) b);
+            else
+                out.append("\\x").append(HEX[b >> 4]).append(HEX[b & 0xF]);
+        }
+        return out.toString();
+    }
+
+    private static void appendSystemdArgument(@NotNull StringBuilder out, @NotNull String argument) {
+        boolean quote = argument.isEmpty();
+        boolean expanded = false;
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            if (c >= 128)
+                continue;
+            if ((SYSTEMD[c] & SYSTEMD_RESERVED) != 0)
+                quote = true;
+            if ((SYSTEMD[c] & SYSTEMD_EXPANDED) != 0)
+                expanded = true;
+        }
+        if (!quote && !expanded) {
+            out.append(argument);
+            return;
+        }
+        if (quote)
+            out.append('"');
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            switch (c) {
+                case '%':
+                    out.append("%%");
+                    break;
+                case '$':
+                    out.append("$$");
+                    break;
+                case '"':
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    if (c < 32 || c == 127)
+                        out.append("\\x").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    else
+                        out.append(c);
+                    break;
+            }
+        }
+        if (quote)
+            out.append('"');
+    }
+
+    /**
+     * Returns the index of the first character in the given value that needs
+     * escaping according to the given table, or -1 if there is none.
+     */
+    private static int firstEscaped(@NotNull String value, boolean @NotNull [] table) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128 && table[c])
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the per-thread buffer that payloads are rendered into, emptied.
+     * Only the {@literal append} methods may be used while rendering into it.
+     *
+     * @return The document buffer
+     */
+    static @NotNull StringBuilder document() {
+        StringBuilder document = DOCUMENT.get();
+        document.setLength(0);
+        return document;
+    }
+
+    /**
+     * Returns the per-thread buffer, filled with the given prefix of the value
+     */
+    private static @NotNull StringBuilder buffer(@NotNull String value, int prefix) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return buffer.append(value, 0, prefix);
+    }
+}
@@ -0,0 +1,211 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static revxrsal.autolaunch.Utils.sneakyThrow;
+
+/**
+ * Serializes the operations that change the startup entry of an application.
+ * <p>
+ * Within the JVM, entries are locked by application name, using a fixed set of
+ * striped locks. Operations on different entries almost always land on different
+ * stripes, so they proceed in parallel, and no lock is ever held for the whole library.
+ * <p>
+ * Applications built with {@link AutoLaunch.Builder#lockAcrossProcesses()} are
+ * additionally locked across processes, with {@link FileChannel#lock()} on a hidden
+ * sidecar file next to the entry (such as {@literal ~/.config/autostart/.MyApp.lock}).
+ * Lock files are never deleted, as deleting a lock file that another process is
+ * about to lock would let two processes hold the lock at once.
+ * <p>
+ * Locks are acquired in a fixed order (stripes by index, files by path), so
+ * locking several entries at once cannot deadlock. The kernel does not know
+ * about that order, and may refuse to wait for a lock file while another thread
+ * of this process holds a different one, in which case the lock is polled instead.
+ */
+final class EntryLocks {
+
+    /**
+     * The number of stripes. This bounds the memory used by the locks, and
+     * makes two unrelated entries contend with a probability of 1/64.
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * The longest time to wait between attempts, when polling a lock file
+     */
+    private static final long MAX_POLL_MILLIS = 20;
+
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++)
+            LOCKS[i] = new ReentrantLock();
+    }
+
+    private EntryLocks() {
+    }
+
+    /**
+     * Locks the entry of the given application
+     *
+     * @param autoLaunch The application
+     * @param platform   The backend, which decides where lock files go
+     * @return The held lock. Close it to release it.
+     */
+    static @NotNull Held lock(@NotNull AutoLaunch autoLaunch, @NotNull PlatformAutoLaunch platform) {
+        return lockAll(Collections.singletonList(autoLaunch), platform);
+    }
+
+    /**
+     * Locks the entries of all the given applications
+     *
+     * @param autoLaunches The applications
+     * @param platform     The backend, which decides where lock files go
+     * @return The held locks. Close them to release them.
+     */
+    static @NotNull Held lockAll(@NotNull Collection<AutoLaunch> autoLaunches, @NotNull PlatformAutoLaunch platform) {
+        BitSet stripes = new BitSet(STRIPES);
+        SortedSet<Path> files = new TreeSet<>();
+        for (AutoLaunch autoLaunch : autoLaunches) {
+            stripes.set(stripeOf(autoLaunch.getAppName()));
+            if (autoLaunch.locksAcrossProcesses())
+                files.add(lockFileOf(autoLaunch, platform));
+        }
+        Held held = new Held();
+        try {
+            for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+                LOCKS[i].lock();
+                held.locks.add(LOCKS[i]);
+            }
+            for (Path file : files)
+                held.channels.add(lockFile(file));
+        } catch (Throwable t) {
+            held.close();
+            throw t;
+        }
+        return held;
+    }
+
+    static int stripeOf(@NotNull String appName) {
+        int hash = appName.hashCode();
+        // spread the higher bits, as names often differ only in their last characters
+        hash ^= (hash >>> 16);
+        hash *= 0x45d9f3b;
+        hash ^= (hash >>> 16);
+        return hash & (STRIPES - 1);
+    }
+
+    /**
+     * Returns the sidecar lock file of the given application
+     *
+     * @param autoLaunch The application
+     * @param platform   The backend
+     * @return The lock file
+     */
+    static @NotNull Path lockFileOf(@NotNull AutoLaunch autoLaunch, @NotNull PlatformAutoLaunch platform) {
+        Path dir = platform.getLockDirectory(autoLaunch);
+        if (dir == null)
+            dir = Paths.get(System.getProperty("java.io.tmpdir"));
+        return dir.resolve(".autostart4j-" + fileNameOf(autoLaunch.getAppName()) + ".lock").toAbsolutePath();
+    }
+
+    // a file name that is valid on every platform, and unique for each application name
+    private static @NotNull String fileNameOf(@NotNull String appName) {
+        StringBuilder name = new StringBuilder(appName.length() + 9);
+        boolean replaced = false;
+        for (int i = 0; i < appName.length(); i++) {
+            char c = appName.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.') {
+                name.append(c);
+            } else {
+                name.append('_');
+                replaced = true;
+            }
+        }
+        if (replaced)
+            name.append('-').append(Integer.toHexString(appName.hashCode()));
+        return name.toString();
+    }
+
+    private static @NotNull FileChannel lockFile(@NotNull Path file) {
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                channel.lock();
+            } catch (FileLockInterruptionException e) {
+                throw e;
+            } catch (IOException e) {
+                // the kernel detects deadlocks between processes rather than threads, so
+                // it may refuse to wait while other threads hold other lock files
+                // (EDEADLK). Polling never waits in the kernel, and the fixed locking
+                // order rules out actual deadlocks.
+                pollLock(channel);
+            }
+            return channel;
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            sneakyThrow(e);
+            throw new AssertionError();
+        }
+    }
+
+    private static void pollLock(@NotNull FileChannel channel) throws IOException {
+        long backoff = 1;
+        while (channel.tryLock() == null) {
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FileLockInterruptionException();
+            }
+            backoff = Math.min(backoff * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * A set of held locks
+     */
+    static final class Held implements AutoCloseable {
+
+        private final List<ReentrantLock> locks = new ArrayList<>();
+        private final List<FileChannel> channels = new ArrayList<>();
+
+        private Held() {
+        }
+
+        /**
+         * Releases all the locks, in the reverse order they were acquired
+         */
+        @Override
+        public void close() {
+            for (int i = channels.size() - 1; i >= 0; i--) {
+                try {
+                    // closing the channel releases its lock
+                    channels.get(i).close();
+                } catch (IOException ignored) {
+                    // the lock is released when the process exits regardless
+                }
+            }
+            for (int i = locks.size() - 1; i >= 0; i--)
+                locks.get(i).unlock();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Emits Java Flight Recorder events for autostart4j operations, if JFR
+ * is available in the running JVM. Otherwise, all methods are no-ops.
+ * <p>
+ * Each {@literal begin} method returns an opaque event, or {@code null} if the
+ * event is not being recorded. The event must be passed to the matching
+ * {@literal end} method, which ignores {@code null}s. This keeps the cost down
+ * to a single check when no recording is active.
+ *
+ * @see JfrEvents
+ */
+final class Events {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private Events() {
+    }
+
+    static @Nullable Object beginOperation(@NotNull AutoLaunchMetrics.Operation operation) {
+        return AVAILABLE ? JfrEvents.beginOperation(operation) : null;
+    }
+
+    static void endOperation(@Nullable Object event, @NotNull AutoLaunch autoLaunch, @NotNull PlatformAutoLaunch backend, boolean success) {
+        endOperation(event, autoLaunch, backend, success, false);
+    }
+
+    static void endOperation(@Nullable Object event, @NotNull AutoLaunch autoLaunch, @NotNull PlatformAutoLaunch backend, boolean success, boolean enabled) {
+        if (event != null)
+            JfrEvents.endOperation(event, autoLaunch, backend.getClass().getSimpleName(), success, enabled, 0, null);
+    }
+
+    static void endBatchOperation(@Nullable Object event, @NotNull AutoLaunch autoLaunch, @NotNull PlatformAutoLaunch backend, boolean success, int batchSize) {
+        if (event != null)
+            JfrEvents.endOperation(event, autoLaunch, backend.getClass().getSimpleName(), success, false, batchSize, null);
+    }
+
+    static void endReconcile(@Nullable Object event, @NotNull AutoLaunch autoLaunch, @NotNull PlatformAutoLaunch backend, boolean success, @Nullable Drift drift) {
+        if (event != null)
+            JfrEvents.endOperation(event, autoLaunch, backend.getClass().getSimpleName(), success, false, 0, drift);
+    }
+
+    static @Nullable Object beginProcessSpawn() {
+        return AVAILABLE ? JfrEvents.beginProcessSpawn() : null;
+    }
+
+    static void endProcessSpawn(@Nullable Object event, @NotNull String command, int exitCode) {
+        if (event != null)
+            JfrEvents.endProcessSpawn(event, command, exitCode);
+    }
+
+    static @Nullable Object beginFileWrite() {
+        return AVAILABLE ? JfrEvents.beginFileWrite() : null;
+    }
+
+    static void endFileWrite(@Nullable Object event, @NotNull Object path, long bytesWritten) {
+        if (event != null)
+            JfrEvents.endFileWrite(event, path.toString(), bytesWritten);
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, Events.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.*;
+import java.util.Set;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * The owner, group and permissions given to files that are written on behalf
+ * of another user, such as when {@link Provisioning provisioning} home directories.
+ */
+final class FileOwner {
+
+    /**
+     * The permissions of written files, {@literal rw-r--r--}
+     */
+    static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    /**
+     * The permissions of created directories, {@literal rwxr-xr-x}
+     */
+    static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwxr-xr-x");
+
+    /**
+     * The user running this process, or {@code null} if it cannot be looked up
+     */
+    private static final @Nullable UserPrincipal CURRENT_USER = lookupCurrentUser();
+
+    private final UserPrincipal user;
+    private final GroupPrincipal group;
+
+    private FileOwner(@NotNull UserPrincipal user, @NotNull GroupPrincipal group) {
+        this.user = notNull(user, "user");
+        this.group = notNull(group, "group");
+    }
+
+    /**
+     * Returns the owner of the given file
+     *
+     * @param file The file, usually a home directory
+     * @return The owner, or {@code null} if the file system does not support
+     * POSIX ownership
+     * @throws IOException if the file cannot be read
+     */
+    static @Nullable FileOwner of(@NotNull Path file) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (view == null)
+            return null;
+        PosixFileAttributes attributes = view.readAttributes();
+        return new FileOwner(attributes.owner(), attributes.group());
+    }
+
+    /**
+     * Gives the given file to this owner, with the given permissions. Symbolic
+     * links are changed themselves, and keep their permissions.
+     *
+     * @param file        The file
+     * @param permissions The permissions
+     * @throws IOException if the owner or permissions cannot be changed
+     */
+    void applyTo(@NotNull Path file, @NotNull Set<PosixFilePermission> permissions) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        if (view == null)
+            return;
+        if (!Files.isSymbolicLink(file))
+            view.setPermissions(permissions);
+        view.setOwner(user);
+        view.setGroup(group);
+    }
+
+    /**
+     * Tests whether the given attributes belong to a file that is owned by this
+     * owner, or by the user running this process
+     *
+     * @param attributes The attributes of the file
+     * @return if the file is owned by either
+     */
+    boolean ownsOrIsCurrentUser(@NotNull PosixFileAttributes attributes) {
+        UserPrincipal owner = attributes.owner();
+        return user.equals(owner) || owner.equals(CURRENT_USER);
+    }
+
+    /**
+     * Gives the file of the given view to this owner, with the given permissions.
+     * This is how files of an open directory are changed, through a view that
+     * does not follow symbolic links.
+     *
+     * @param view        The view of the file
+     * @param permissions The permissions
+     * @throws IOException if the owner or permissions cannot be changed
+     */
+    void applyTo(@NotNull PosixFileAttributeView view, @NotNull Set<PosixFilePermission> permissions) throws IOException {
+        view.setPermissions(permissions);
+        view.setOwner(user);
+        view.setGroup(group);
+    }
+
+    private static @Nullable UserPrincipal lookupCurrentUser() {
+        try {
+            return FileSystems.getDefault().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileOwner{user=" + user.getName() + ", group=" + group.getName() + '}';
+    }
+}
@@ -0,0 +1,105 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compares startup entries on disk against their expected payloads.
+ * <p>
+ * The fingerprint of an entry is its size followed by its bytes. Sizes are
+ * compared first, which settles most stale entries (a changed path or argument
+ * rarely keeps the same length) with a single {@literal stat}. Otherwise, the
+ * file is streamed and compared until the first differing byte. Entries are
+ * never parsed.
+ */
+final class Fingerprint {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final Set<OpenOption> READ_NOFOLLOW = new HashSet<>(Arrays.asList(StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS));
+
+    private Fingerprint() {
+    }
+
+    /**
+     * Compares the given entry against its expected payload
+     *
+     * @param file     The entry file
+     * @param expected The expected payload
+     * @return {@link Drift#NOT_ENABLED} if the file is absent or empty, and whether
+     * it matches the payload otherwise
+     */
+    static @NotNull Drift driftOf(@NotNull Path file, byte @NotNull [] expected) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            return Drift.NOT_ENABLED;
+        }
+        // empty files are left behind by interrupted writes, see AtomicWriter.isAbsentOrEmpty
+        if (size == 0)
+            return Drift.NOT_ENABLED;
+        if (size != expected.length)
+            return Drift.STALE;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return matches(channel, expected) ? Drift.UP_TO_DATE : Drift.STALE;
+        } catch (IOException e) {
+            // deleted in between
+            return Drift.NOT_ENABLED;
+        }
+    }
+
+    /**
+     * Compares the given entry of an open directory against its expected payload.
+     * The entry is opened relative to the directory, and symbolic links are not
+     * followed: a link is reported as {@link Drift#NOT_ENABLED}, so that it is
+     * replaced.
+     *
+     * @param dir      The directory of the entry
+     * @param name     The entry name, relative to the directory
+     * @param expected The expected payload
+     * @return {@link Drift#NOT_ENABLED} if the file is absent, empty or a link, and
+     * whether it matches the payload otherwise
+     */
+    static @NotNull Drift driftOf(@NotNull SecureDirectoryStream<Path> dir, @NotNull Path name, byte @NotNull [] expected) {
+        try (SeekableByteChannel channel = dir.newByteChannel(name, READ_NOFOLLOW)) {
+            long size = channel.size();
+            if (size == 0)
+                return Drift.NOT_ENABLED;
+            if (size != expected.length)
+                return Drift.STALE;
+            return matches(channel, expected) ? Drift.UP_TO_DATE : Drift.STALE;
+        } catch (IOException e) {
+            return Drift.NOT_ENABLED;
+        }
+    }
+
+    private static boolean matches(@NotNull ReadableByteChannel channel, byte @NotNull [] expected) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(CHUNK_SIZE, expected.length + 1));
+        int position = 0;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read == -1)
+                return position == expected.length;
+            // the file grew since its size was read
+            if (position + read > expected.length)
+                return false;
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] != expected[position + i])
+                    return false;
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package revxrsal.autolaunch;
+
+import jdk.jfr.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The Java Flight Recorder events emitted by autostart4j.
+ * <p>
+ * This class must only be accessed through {@link Events}, which checks
+ * that JFR is available in the running JVM first.
+ */
+final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    static @Nullable Event beginOperation(@NotNull AutoLaunchMetrics.Operation operation) {
+        OperationEvent event;
+        switch (operation) {
+            case ENABLE:
+                event = new EnableEvent();
+                break;
+            case DISABLE:
+                event = new DisableEvent();
+                break;
+            case IS_ENABLED:
+                event = new IsEnabledEvent();
+                break;
+            case RECONCILE:
+                event = new ReconcileEvent();
+                break;
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+        return begin(event);
+    }
+
+    static void endOperation(
+            @NotNull Object event,
+            @NotNull AutoLaunch autoLaunch,
+            @NotNull String backend,
+            boolean success,
+            boolean enabled,
+            int batchSize,
+            @Nullable Drift drift
+    ) {
+        OperationEvent operation = (OperationEvent) event;
+        operation.end();
+        if (!operation.shouldCommit())
+            return;
+        operation.appName = autoLaunch.getAppName();
+        operation.backend = backend;
+        operation.success = success;
+        operation.batchSize = batchSize;
+        if (operation instanceof IsEnabledEvent)
+            ((IsEnabledEvent) operation).enabled = enabled;
+        if (operation instanceof ReconcileEvent && drift != null)
+            ((ReconcileEvent) operation).drift = drift.name();
+        operation.commit();
+    }
+
+    static @Nullable Event beginProcessSpawn() {
+        return begin(new ProcessSpawnEvent());
+    }
+
+    static void endProcessSpawn(@NotNull Object event, @NotNull String command, int exitCode) {
+        ProcessSpawnEvent spawn = (ProcessSpawnEvent) event;
+        spawn.end();
+        if (!spawn.shouldCommit())
+            return;
+        spawn.command = command;
+        spawn.exitCode = exitCode;
+        spawn.commit();
+    }
+
+    static @Nullable Event beginFileWrite() {
+        return begin(new FileWriteEvent());
+    }
+
+    static void endFileWrite(@NotNull Object event, @NotNull String path, long bytesWritten) {
+        FileWriteEvent write = (FileWriteEvent) event;
+        write.end();
+        if (!write.shouldCommit())
+            return;
+        write.path = path;
+        write.bytesWritten = bytesWritten;
+        write.commit();
+    }
+
+    // returns null when the event is disabled, so the caller can skip ending it
+    private static @Nullable Event begin(@NotNull Event event) {
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Category("autostart4j")
+    @StackTrace(false)
+    abstract static class OperationEvent extends Event {
+
+        @Label("App Name")
+        String appName;
+
+        @Label("Backend")
+        String backend;
+
+        @Label("Success")
+        boolean success;
+
+        @Label("Batch Size")
+        @Description("The number of entries in the batch the operation was part of, or 0 if it was not")
+        int batchSize;
+    }
+
+    @Name("autostart4j.Enable")
+    @Label("Enable")
+    @Description("Enabling auto-launch of an application")
+    static final class EnableEvent extends OperationEvent {
+    }
+
+    @Name("autostart4j.Disable")
+    @Label("Disable")
+    @Description("Disabling auto-launch of an application")
+    static final class DisableEvent extends OperationEvent {
+    }
+
+    @Name("autostart4j.IsEnabled")
+    @Label("Is Enabled")
+    @Description("Checking whether auto-launch of an application is enabled")
+    static final class IsEnabledEvent extends OperationEvent {
+
+        @Label("Enabled")
+        boolean enabled;
+    }
+
+    @Name("autostart4j.Reconcile")
+    @Label("Reconcile")
+    @Description("Comparing the startup entry of an application against its configuration, and rewriting it if stale")
+    static final class ReconcileEvent extends OperationEvent {
+
+        @Label("Drift")
+        String drift;
+    }
+
+    @Name("autostart4j.ProcessSpawn")
+    @Label("Process Spawn")
+    @Description("A child process spawned by autostart4j, from start until exit")
+    @Category("autostart4j")
+    @StackTrace(false)
+    static final class ProcessSpawnEvent extends Event {
+
+        @Label("Command")
+        String command;
+
+        @Label("Exit Code")
+        int exitCode;
+    }
+
+    @Name("autostart4j.FileWrite")
+    @Label("File Write")
+    @Description("A startup entry written to disk, including any flushes")
+    @Category("autostart4j")
+    @StackTrace(false)
+    static final class FileWriteEvent extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+    }
+}
@@ -0,0 +1,233 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Decodes archives written by {@literal NSKeyedArchiver}, on top of the property
+ * lists decoded by {@link BinaryPlistReader}.
+ * <p>
+ * A keyed archive stores its objects in a flat {@literal $objects} array, and objects
+ * refer to each other through {@link BinaryPlistReader.Uid}s. This resolves those
+ * references, starting from the {@literal root} object:
+ * <ul>
+ *     <li>dictionaries ({@literal NSDictionary} and subclasses) into {@link Map}s</li>
+ *     <li>arrays and sets ({@literal NSArray}, {@literal NSSet} and subclasses) into {@link List}s</li>
+ *     <li>strings, data, dates and UUIDs into {@link String}s, byte arrays, {@link Instant}s and {@link UUID}s</li>
+ *     <li>any other class into an {@link Instance}, holding its encoded fields</li>
+ * </ul>
+ * Every object is resolved at most once, so shared objects, and cycles between
+ * them, are preserved. Malformed archives are rejected with an {@link IllegalArgumentException}.
+ */
+final class KeyedArchive {
+
+    /**
+     * The difference between the Unix epoch and the epoch of {@literal NSDate},
+     * 2001-01-01T00:00:00Z, in seconds
+     */
+    private static final long EPOCH_OFFSET = 978307200L;
+
+    private static final int MAX_DEPTH = 512;
+
+    private final List<?> objects;
+    private final Object[] resolved;
+    private final boolean[] resolving;
+    private int depth;
+
+    private KeyedArchive(@NotNull List<?> objects) {
+        this.objects = objects;
+        this.resolved = new Object[objects.size()];
+        this.resolving = new boolean[objects.size()];
+    }
+
+    /**
+     * Decodes the given keyed archive
+     *
+     * @param data The archive, as a binary property list
+     * @return The root object
+     * @throws IllegalArgumentException if the data is not a valid keyed archive
+     */
+    static @Nullable Object decode(byte @NotNull [] data) {
+        Object plist = BinaryPlistReader.parse(data);
+        if (!(plist instanceof Map))
+            throw malformed();
+        Map<?, ?> archive = (Map<?, ?>) plist;
+        Object objects = archive.get("$objects");
+        Object top = archive.get("$top");
+        if (!(archive.get("$archiver") instanceof String) || !(objects instanceof List) || !(top instanceof Map))
+            throw malformed();
+        Object root = ((Map<?, ?>) top).get("root");
+        if (!(root instanceof BinaryPlistReader.Uid))
+            throw malformed();
+        return new KeyedArchive((List<?>) objects).resolve(root);
+    }
+
+    // resolves a field value, which may be a reference or an inline value
+    private @Nullable Object resolve(@Nullable Object value) {
+        if (value instanceof BinaryPlistReader.Uid)
+            return object(((BinaryPlistReader.Uid) value).getValue());
+        if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            List<Object> list = new ArrayList<>(values.size());
+            for (Object element : values)
+                list.add(resolve(element));
+            return list;
+        }
+        return value;
+    }
+
+    private @Nullable Object object(long ref) {
+        if (ref < 0 || ref >= objects.size())
+            throw malformed();
+        int index = (int) ref;
+        if (resolved[index] != null)
+            return resolved[index];
+        Object raw = objects.get(index);
+        if ("$null".equals(raw))
+            return null;
+        if (!(raw instanceof Map))
+            return raw;
+        // containers are published before their contents are resolved, which is fine
+        // for cycles, but any other object that is reached again while resolving is not
+        if (resolving[index] || ++depth > MAX_DEPTH)
+            throw malformed();
+        resolving[index] = true;
+        Map<?, ?> fields = (Map<?, ?>) raw;
+        Object value = instantiate(index, fields);
+        resolving[index] = false;
+        depth--;
+        resolved[index] = value;
+        return value;
+    }
+
+    private @NotNull Object instantiate(int index, @NotNull Map<?, ?> fields) {
+        Object classRef = fields.get("$class");
+        if (!(classRef instanceof BinaryPlistReader.Uid))
+            throw malformed();
+        long classIndex = ((BinaryPlistReader.Uid) classRef).getValue();
+        if (classIndex < 0 || classIndex >= objects.size() || !(objects.get((int) classIndex) instanceof Map))
+            throw malformed();
+        Map<?, ?> classInfo = (Map<?, ?>) objects.get((int) classIndex);
+        Object className = classInfo.get("$classname");
+        Object hierarchy = classInfo.get("$classes");
+        if (!(className instanceof String))
+            throw malformed();
+        List<?> classes = hierarchy instanceof List ? (List<?>) hierarchy : Collections.singletonList(className);
+
+        if (classes.contains("NSDictionary")) {
+            List<?> keys = list(fields.get("NS.keys"));
+            List<?> values = list(fields.get("NS.objects"));
+            if (keys.size() != values.size())
+                throw malformed();
+            Map<Object, Object> map = new LinkedHashMap<>();
+            publish(index, map);
+            for (int i = 0; i < keys.size(); i++)
+                map.put(resolve(keys.get(i)), resolve(values.get(i)));
+            return map;
+        }
+        if (classes.contains("NSArray") || classes.contains("NSSet") || classes.contains("NSOrderedSet")) {
+            List<?> values = list(fields.get("NS.objects"));
+            List<Object> list = new ArrayList<>(values.size());
+            publish(index, list);
+            for (Object value : values)
+                list.add(resolve(value));
+            return list;
+        }
+        if (classes.contains("NSString"))
+            return typed(resolve(fields.get("NS.string")), String.class);
+        if (classes.contains("NSData"))
+            return typed(resolve(fields.get("NS.data")), byte[].class);
+        if (classes.contains("NSDate")) {
+            Object time = fields.get("NS.time");
+            if (!(time instanceof Number))
+                throw malformed();
+            double seconds = ((Number) time).doubleValue();
+            if (!(Math.abs(seconds) <= 1e15))
+                throw malformed();
+            long whole = (long) Math.floor(seconds);
+            return Instant.ofEpochSecond(EPOCH_OFFSET + whole, (long) ((seconds - whole) * 1_000_000_000L));
+        }
+        if (classes.contains("NSUUID")) {
+            byte[] bytes = typed(resolve(fields.get("NS.uuidbytes")), byte[].class);
+            if (bytes.length != 16)
+                throw malformed();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        Instance instance = new Instance((String) className, Collections.unmodifiableMap(values));
+        publish(index, instance);
+        for (Map.Entry<?, ?> field : fields.entrySet()) {
+            if (!"$class".equals(field.getKey()))
+                values.put(String.valueOf(field.getKey()), resolve(field.getValue()));
+        }
+        return instance;
+    }
+
+    // makes a container visible to the objects it contains, so that cycles resolve to it
+    private void publish(int index, @NotNull Object container) {
+        resolved[index] = container;
+        resolving[index] = false;
+    }
+
+    private static @NotNull List<?> list(@Nullable Object value) {
+        if (value == null)
+            return Collections.emptyList();
+        if (!(value instanceof List))
+            throw malformed();
+        return (List<?>) value;
+    }
+
+    private static <T> @NotNull T typed(@Nullable Object value, @NotNull Class<T> type) {
+        if (!type.isInstance(value))
+            throw malformed();
+        return type.cast(value);
+    }
+
+    private static IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed keyed archive");
+    }
+
+    /**
+     * An archived object of a class that is not decoded into a Java type
+     */
+    static final class Instance {
+
+        private final String className;
+        private final Map<String, Object> fields;
+
+        Instance(@NotNull String className, @NotNull Map<String, Object> fields) {
+            this.className = className;
+            this.fields = fields;
+        }
+
+        /**
+         * The name of the archived class, such as {@literal BackgroundItem}
+         */
+        @NotNull String getClassName() {
+            return className;
+        }
+
+        /**
+         * The encoded fields, with references resolved
+         */
+        @NotNull Map<String, Object> getFields() {
+            return fields;
+        }
+
+        @Nullable Object get(@NotNull String field) {
+            return fields.get(field);
+        }
+
+        @Override
+        public String toString() {
+            // only the field names, as fields may refer back to this instance
+            return className + fields.keySet();
+        }
+    }
+}
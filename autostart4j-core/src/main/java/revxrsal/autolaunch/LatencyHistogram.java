@@ -0,0 +1,252 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * A fixed-bucket histogram of latencies. Recording is lock-free and does
+ * not allocate.
+ * <p>
+ * Buckets grow exponentially, with four buckets per power of two, so a recorded
+ * value is never off by more than 25%. The smallest bucket covers up to
+ * 1024 nanoseconds, and the largest one covers everything above roughly two hours.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of buckets
+     */
+    public static final int BUCKETS = 128;
+
+    /**
+     * Values are bucketed in units of 2^UNIT_SHIFT nanoseconds
+     */
+    private static final int UNIT_SHIFT = 10;
+
+    /**
+     * The number of bits below the highest one-bit that select a sub-bucket
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the given latency. Negative values are recorded as zero.
+     *
+     * @param nanos The latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        total.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            // retry
+        }
+    }
+
+    /**
+     * Adds the values of the given snapshot to this histogram, for example to
+     * combine the histograms of several threads or processes
+     *
+     * @param snapshot The snapshot to add
+     */
+    public void add(@NotNull Snapshot snapshot) {
+        notNull(snapshot, "snapshot");
+        for (int i = 0; i < BUCKETS; i++) {
+            if (snapshot.counts[i] != 0)
+                counts.addAndGet(i, snapshot.counts[i]);
+        }
+        total.addAndGet(snapshot.totalNanos);
+        long current;
+        while (snapshot.maxNanos > (current = max.get()) && !max.compareAndSet(current, snapshot.maxNanos)) {
+            // retry
+        }
+    }
+
+    /**
+     * Takes a snapshot of this histogram. Each bucket is read atomically, but
+     * values recorded while the snapshot is being taken may be partially included.
+     *
+     * @return The snapshot
+     */
+    public @NotNull Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        return new Snapshot(snapshot, count, total.get(), max.get());
+    }
+
+    /**
+     * Returns the bucket the given value falls in
+     *
+     * @param nanos The value, in nanoseconds
+     * @return The bucket index
+     */
+    static int bucketOf(long nanos) {
+        long units = nanos >>> UNIT_SHIFT;
+        if (units < SUB_BUCKETS)
+            return (int) units;
+        int exponent = 63 - Long.numberOfLeadingZeros(units);
+        int subBucket = (int) (units >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        int bucket = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * Returns the exclusive upper bound of the given bucket, in nanoseconds.
+     * The last bucket has no upper bound, so {@link Long#MAX_VALUE} is returned
+     * for it.
+     *
+     * @param bucket The bucket index
+     * @return The upper bound of the bucket
+     */
+    public static long getBucketUpperBound(int bucket) {
+        if (bucket < 0 || bucket >= BUCKETS)
+            throw new IndexOutOfBoundsException("bucket: " + bucket);
+        if (bucket == BUCKETS - 1)
+            return Long.MAX_VALUE;
+        if (bucket < SUB_BUCKETS)
+            return (long) (bucket + 1) << UNIT_SHIFT;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long upper = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << (exponent - SUB_BUCKET_BITS);
+        return upper << UNIT_SHIFT;
+    }
+
+    /**
+     * An immutable snapshot of a {@link LatencyHistogram}
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Creates a snapshot from the values of another one, for example one
+         * that was sent from another process
+         *
+         * @param counts The number of values in each bucket, of length {@link LatencyHistogram#BUCKETS}
+         * @param total  The sum of the values
+         * @param max    The largest value
+         * @return The snapshot
+         * @see #getCount(int)
+         * @see #getTotal()
+         */
+        public static @NotNull Snapshot of(long @NotNull [] counts, @NotNull Duration total, @NotNull Duration max) {
+            if (notNull(counts, "counts").length != BUCKETS)
+                throw new IllegalArgumentException("counts must have " + BUCKETS + " buckets");
+            notNull(total, "total");
+            notNull(max, "max");
+            long[] copy = counts.clone();
+            long count = 0;
+            for (long c : copy) {
+                if (c < 0)
+                    throw new IllegalArgumentException("counts cannot be negative");
+                count += c;
+            }
+            return new Snapshot(copy, count, total.toNanos(), max.toNanos());
+        }
+
+        /**
+         * Returns the number of recorded values
+         *
+         * @return The number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the number of values recorded in the given bucket
+         *
+         * @param bucket The bucket index
+         * @return The number of values in the bucket
+         * @see #getBucketUpperBound(int)
+         */
+        public long getCount(int bucket) {
+            return counts[bucket];
+        }
+
+        /**
+         * Returns the sum of the recorded values
+         *
+         * @return The sum
+         */
+        public @NotNull Duration getTotal() {
+            return Duration.ofNanos(totalNanos);
+        }
+
+        /**
+         * Returns the largest recorded value
+         *
+         * @return The largest value
+         */
+        public @NotNull Duration getMax() {
+            return Duration.ofNanos(maxNanos);
+        }
+
+        /**
+         * Returns the mean of the recorded values, or zero if none were recorded
+         *
+         * @return The mean
+         */
+        public @NotNull Duration getMean() {
+            return count == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos / count);
+        }
+
+        /**
+         * Returns an estimate of the value at the given percentile, which is the
+         * upper bound of the bucket it falls in (but never more than {@link #getMax()})
+         *
+         * @param percentile The percentile, between 0 and 100
+         * @return The estimated value, or zero if no values were recorded
+         */
+        public @NotNull Duration getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            if (count == 0)
+                return Duration.ZERO;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Duration.ofNanos(Math.min(getBucketUpperBound(i), maxNanos));
+            }
+            return Duration.ofNanos(maxNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{count=" + count +
+                    ", mean=" + getMean().toNanos() / 1000 + "us" +
+                    ", p50=" + getPercentile(50).toNanos() / 1000 + "us" +
+                    ", p99=" + getPercentile(99).toNanos() / 1000 + "us" +
+                    ", max=" + maxNanos / 1000 + "us}";
+        }
+    }
+}
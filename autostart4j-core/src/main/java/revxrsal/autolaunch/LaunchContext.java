@@ -0,0 +1,286 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how the current process was launched, as returned by
+ * {@link AutoLaunch#currentLaunchContext()}.
+ * <p>
+ * A process is known to be auto-launched if its startup entry was written with
+ * {@link AutoLaunch.Builder#markLaunches()}, in which case the backends pass
+ * the {@link #ENVIRONMENT_VARIABLE} (or, on Windows, the {@link #ARGUMENT}) to it.
+ * <p>
+ * Timings are read from {@literal /proc} on Linux, and are {@code null} on other platforms.
+ * <p>
+ * This class is immutable, hence is safe to share across threads.
+ */
+public final class LaunchContext {
+
+    /**
+     * The environment variable that is set for marked launches. Its value
+     * is the application name.
+     * <p>
+     * Like any environment variable, it is inherited by the processes that the
+     * application starts, which would then see themselves as auto-launched too.
+     * Remove it from the environment of child processes that should not, e.g.
+     * with {@code processBuilder.environment().remove(ENVIRONMENT_VARIABLE)}.
+     */
+    public static final String ENVIRONMENT_VARIABLE = "AUTOSTART4J_LAUNCH";
+
+    /**
+     * The argument that is appended to marked launches on platforms that
+     * cannot set environment variables (i.e. Windows)
+     */
+    public static final String ARGUMENT = "--autostart4j-launch";
+
+    /**
+     * The number of clock ticks per second in {@literal /proc}. This is fixed
+     * to 100 on every architecture that Linux runs Java on.
+     */
+    private static final long CLOCK_TICKS = 100;
+
+    private final boolean autoLaunched;
+    private final @Nullable String appName;
+    private final @Nullable Duration bootToLaunch;
+    private final @Nullable Duration sessionToLaunch;
+    private final @Nullable Duration processAge;
+
+    LaunchContext(
+            boolean autoLaunched,
+            @Nullable String appName,
+            @Nullable Duration bootToLaunch,
+            @Nullable Duration sessionToLaunch,
+            @Nullable Duration processAge
+    ) {
+        this.autoLaunched = autoLaunched;
+        this.appName = appName;
+        this.bootToLaunch = bootToLaunch;
+        this.sessionToLaunch = sessionToLaunch;
+        this.processAge = processAge;
+    }
+
+    /**
+     * Detects the launch context of the current process
+     *
+     * @param args The program arguments, or {@code null} to look them up
+     *             from the runtime
+     * @return The launch context
+     */
+    static @NotNull LaunchContext detect(String @Nullable [] args) {
+        String appName = System.getenv(ENVIRONMENT_VARIABLE);
+        boolean autoLaunched = appName != null || hasArgument(args);
+        if (OperatingSystem.current() != OperatingSystem.LINUX)
+            return new LaunchContext(autoLaunched, appName, null, null, null);
+
+        Duration bootToLaunch = null;
+        Duration sessionToLaunch = null;
+        Duration processAge = null;
+        String[] self = readStat(Paths.get("/proc/self/stat"));
+        if (self != null) {
+            long startTicks = Long.parseLong(self[19]);
+            bootToLaunch = ticks(startTicks);
+            Double uptime = readUptime();
+            if (uptime != null)
+                processAge = Duration.ofMillis(Math.max(0, (long) (uptime * 1000) - bootToLaunch.toMillis()));
+            String sessionStart = findSessionStart(self[3]);
+            String[] start = sessionStart == null ? null : readStat(Paths.get("/proc", sessionStart, "stat"));
+            if (start != null)
+                sessionToLaunch = ticks(Math.max(0, startTicks - Long.parseLong(start[19])));
+        }
+        return new LaunchContext(autoLaunched, appName, bootToLaunch, sessionToLaunch, processAge);
+    }
+
+    /**
+     * Finds a process that was started along with the login session of the current
+     * process. On systemd desktops, applications (including autostart entries) are
+     * started by the user's service manager in sessions of their own, so the manager
+     * is used, as it is started at login. Otherwise, the leader of the session is.
+     *
+     * @param sessionId The session ID of the current process
+     * @return The process ID, or {@code null} if the current process leads its own
+     * session, which says nothing about when the user logged in
+     */
+    private static @Nullable String findSessionStart(@NotNull String sessionId) {
+        try {
+            List<String> cgroups = Files.readAllLines(Paths.get("/proc/self/cgroup"), StandardCharsets.UTF_8);
+            String manager = findUserManager(cgroups, Paths.get("/sys/fs/cgroup"));
+            if (manager != null)
+                return manager;
+            String self = Files.readSymbolicLink(Paths.get("/proc/self")).toString();
+            return self.equals(sessionId) ? null : sessionId;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the systemd user manager ({@literal systemd --user}) that the current
+     * process runs under, from the control groups of the process. The manager is the
+     * only process in the {@literal init.scope} of its {@literal user@<uid>.service}.
+     *
+     * @param cgroups    The lines of {@literal /proc/self/cgroup}
+     * @param cgroupRoot Where the control group hierarchies are mounted
+     * @return The process ID of the manager, or {@code null} if the process does
+     * not run under one
+     */
+    static @Nullable String findUserManager(@NotNull List<String> cgroups, @NotNull Path cgroupRoot) {
+        for (String line : cgroups) {
+            // hierarchy-ID:controller-list:cgroup-path. the unified hierarchy has no
+            // controllers, and the legacy systemd one is named 'name=systemd'
+            String[] fields = line.split(":", 3);
+            if (fields.length < 3)
+                continue;
+            List<Path> mounts;
+            if (fields[1].isEmpty())
+                mounts = Arrays.asList(cgroupRoot, cgroupRoot.resolve("unified"));
+            else if (fields[1].equals("name=systemd"))
+                mounts = Collections.singletonList(cgroupRoot.resolve("systemd"));
+            else
+                continue;
+            String path = fields[2];
+            int start = path.indexOf("/user@");
+            if (start == -1)
+                continue;
+            int end = path.indexOf('/', start + 1);
+            String service = end == -1 ? path.substring(start + 1) : path.substring(start + 1, end);
+            if (!service.endsWith(".service"))
+                continue;
+            String relative = path.substring(1, start + 1) + service;
+            for (Path mount : mounts) {
+                Path procs = mount.resolve(relative).resolve("init.scope").resolve("cgroup.procs");
+                try {
+                    for (String pid : Files.readAllLines(procs, StandardCharsets.UTF_8)) {
+                        if (!pid.trim().isEmpty())
+                            return pid.trim();
+                    }
+                } catch (IOException | RuntimeException ignored) {
+                    // not mounted here
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasArgument(String @Nullable [] args) {
+        if (args != null) {
+            for (String arg : args) {
+                if (ARGUMENT.equals(arg))
+                    return true;
+            }
+            return false;
+        }
+        // set by HotSpot and OpenJ9 to the main class followed by the arguments
+        String command = System.getProperty("sun.java.command");
+        if (command == null)
+            return false;
+        for (String token : command.split(" ")) {
+            if (ARGUMENT.equals(token))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the fields of a {@literal /proc/<pid>/stat} file that come after the
+     * command name, so that the state is at index 0, and field {@literal N}
+     * (as numbered in {@literal proc(5)}) is at index {@literal N - 3}.
+     */
+    private static String @Nullable [] readStat(@NotNull Path file) {
+        try {
+            String stat = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            // the command name may contain spaces and parentheses
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+            return fields.length > 19 ? fields : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable Double readUptime() {
+        try {
+            String uptime = new String(Files.readAllBytes(Paths.get("/proc/uptime")), StandardCharsets.UTF_8);
+            return Double.parseDouble(uptime.substring(0, uptime.indexOf(' ')));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static @NotNull Duration ticks(long ticks) {
+        return Duration.ofMillis(ticks * 1000 / CLOCK_TICKS);
+    }
+
+    /**
+     * Whether the current process was started by a marked startup entry, rather
+     * than by the user
+     *
+     * @return if the process was auto-launched
+     */
+    public boolean isAutoLaunched() {
+        return autoLaunched;
+    }
+
+    /**
+     * The name of the application whose startup entry launched this process
+     *
+     * @return The application name, or {@code null} if the process was not
+     * auto-launched, or the name is not known (i.e. on Windows)
+     */
+    public @Nullable String getAppName() {
+        return appName;
+    }
+
+    /**
+     * The time from system boot until the current process was started
+     *
+     * @return The time, or {@code null} if it is not known
+     */
+    public @Nullable Duration getBootToLaunch() {
+        return bootToLaunch;
+    }
+
+    /**
+     * The time from the start of the login session until the current process was
+     * started. For processes launched by startup entries, this approximates the time
+     * from login to launch.
+     * <p>
+     * The start of the session is taken from the systemd user manager if the process
+     * runs under one (as is the case on most systemd desktops, for both autostart
+     * entries and systemd units), and from the leader of the process session otherwise.
+     *
+     * @return The time, or {@code null} if it is not known, such as for processes
+     * that lead their own session outside of a systemd user manager
+     */
+    public @Nullable Duration getSessionToLaunch() {
+        return sessionToLaunch;
+    }
+
+    /**
+     * The time since the current process was started, at the time this
+     * context was created
+     *
+     * @return The time, or {@code null} if it is not known
+     */
+    public @Nullable Duration getProcessAge() {
+        return processAge;
+    }
+
+    @Override
+    public String toString() {
+        return "LaunchContext{autoLaunched=" + autoLaunched +
+                ", appName=" + appName +
+                ", bootToLaunch=" + bootToLaunch +
+                ", sessionToLaunch=" + sessionToLaunch +
+                ", processAge=" + processAge + '}';
+    }
+}
@@ -0,0 +1,296 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static revxrsal.autolaunch.Utils.sneakyThrow;
+
+/**
+ * The {@link PlatformAutoLaunch} implementation for Linux. Applications are
+ * started through XDG autostart entries, unless they opted in to systemd
+ * units, in which case they are handed over to {@link SystemdAutoLaunch}.
+ */
+final class LinuxAutoLaunch implements PlatformAutoLaunch {
+
+    public static final LinuxAutoLaunch INSTANCE = new LinuxAutoLaunch();
+
+    private LinuxAutoLaunch() {
+    }
+
+    public static String formatDoc(AutoLaunch autoLaunch) {
+        String name = autoLaunch.hasPlainValues() ? autoLaunch.getAppName() : Encoders.desktopString(autoLaunch.getAppName());
+        long delay = DelayedLaunch.seconds(autoLaunch);
+        return "[Desktop Entry]\n" +
+                "Type=Application\n" +
+                "Version=1.0\n" +
+                "Name=" + name + "\n" +
+                "Comment=" + name + " startup script\n" +
+                "Exec=" + createExec(autoLaunch) + "\n" +
+                (delay > 0 ? "X-GNOME-Autostart-Delay=" + delay + "\n" + "X-MATE-Autostart-Delay=" + delay + "\n" : "") +
+                "StartupNotify=false\n" +
+                "Terminal=false";
+    }
+
+    // the Exec value. Plain values without command prefixes are written as-is, otherwise it is rendered in one pass
+    private static String createExec(AutoLaunch autoLaunch) {
+        List<String> args = autoLaunch.getArgs();
+        if (autoLaunch.hasPlainValues() && autoLaunch.getResourceProfile() == null && !autoLaunch.marksLaunches()) {
+            String path = autoLaunch.getAppFile().getAbsolutePath();
+            return args.isEmpty() ? path : path + " " + String.join(" ", args);
+        }
+        StringBuilder exec = Encoders.document();
+        appendExec(exec, autoLaunch);
+        return exec.toString();
+    }
+
+    // appends the Exec value, with the launch marker and resource profile applied through command prefixes
+    private static void appendExec(StringBuilder doc, AutoLaunch autoLaunch) {
+        ResourceProfile profile = autoLaunch.getResourceProfile();
+        if (autoLaunch.marksLaunches()) {
+            doc.append("env ");
+            Encoders.appendExecArgument(doc, LaunchContext.ENVIRONMENT_VARIABLE + "=" + autoLaunch.getAppName());
+            doc.append(' ');
+        }
+        if (profile != null && profile.hasCgroupSettings()) {
+            doc.append("systemd-run --user --scope --quiet ");
+            for (String property : SystemdAutoLaunch.createCgroupProperties(profile)) {
+                doc.append("-p ");
+                Encoders.appendExecArgument(doc, property);
+                doc.append(' ');
+            }
+            doc.append("-- ");
+        }
+        if (profile != null && profile.getNice() != null)
+            doc.append("nice -n ").append(profile.getNice()).append(' ');
+        if (profile != null && profile.getIoClass() != null) {
+            doc.append("ionice -c ").append(profile.getIoClass().getId()).append(' ');
+            if (profile.getIoClass() != ResourceProfile.IoClass.IDLE)
+                doc.append("-n ").append(profile.getIoPriority()).append(' ');
+        }
+        Encoders.appendExecArgument(doc, autoLaunch.getAppFile().getAbsolutePath());
+        for (String arg : autoLaunch.getArgs())
+            Encoders.appendExecArgument(doc.append(' '), arg);
+    }
+
+    // get the .desktop file path
+    private static Path getFile(AutoLaunch autoLaunch) {
+        return getAutoStartDir().resolve(autoLaunch.getAppName() + ".desktop");
+    }
+
+    static Path getAutoStartDir() {
+        return getAutoStartDir(Paths.get(System.getProperty("user.home")));
+    }
+
+    static Path getAutoStartDir(@NotNull Path home) {
+        return home.resolve(".config").resolve("autostart");
+    }
+
+    @Override
+    public void enable(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useSystemdUnit()) {
+            SystemdAutoLaunch.INSTANCE.enable(autoLaunch);
+            return;
+        }
+        try {
+            byte[] data = autoLaunch.payload(Payload.DESKTOP_ENTRY, LinuxAutoLaunch::formatDoc);
+            Files.createDirectories(getAutoStartDir());
+
+            Path file = getFile(autoLaunch);
+            if (AtomicWriter.isAbsentOrEmpty(file))
+                AtomicWriter.write(file, data, autoLaunch.getDurability());
+        } catch (IOException e) {
+            sneakyThrow(e);
+        }
+    }
+
+    @Override
+    public @NotNull BatchResult applyAll(
+            @NotNull Collection<AutoLaunch> toEnable,
+            @NotNull Collection<AutoLaunch> toDisable
+    ) {
+        List<AutoLaunch> unitsToEnable = new ArrayList<>();
+        List<AutoLaunch> unitsToDisable = new ArrayList<>();
+        toEnable = partition(toEnable, unitsToEnable);
+        toDisable = partition(toDisable, unitsToDisable);
+        List<BatchResult.Entry> entries = new ArrayList<>(toEnable.size() + toDisable.size());
+        Path dir = getAutoStartDir();
+        IOException dirFailure = null;
+        if (!toEnable.isEmpty()) {
+            try {
+                Files.createDirectories(dir);
+            } catch (IOException e) {
+                dirFailure = e;
+            }
+        }
+        boolean syncDirectory = false;
+        for (AutoLaunch autoLaunch : toEnable) {
+            Throwable failure = dirFailure;
+            if (failure == null) {
+                Path file = dir.resolve(autoLaunch.getAppName() + ".desktop");
+                try {
+                    if (AtomicWriter.isAbsentOrEmpty(file)) {
+                        // the directory is flushed once for the entire batch
+                        Durability durability = autoLaunch.getDurability();
+                        if (durability == Durability.FILE_AND_DIRECTORY) {
+                            syncDirectory = true;
+                            durability = Durability.FILE;
+                        }
+                        AtomicWriter.write(file, autoLaunch.payload(Payload.DESKTOP_ENTRY, LinuxAutoLaunch::formatDoc), durability);
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.ENABLE, failure));
+        }
+        if (syncDirectory) {
+            try {
+                AtomicWriter.syncDirectory(dir);
+            } catch (IOException e) {
+                for (int i = 0; i < entries.size(); i++) {
+                    BatchResult.Entry entry = entries.get(i);
+                    if (entry.isSuccessful() && entry.getAutoLaunch().getDurability() == Durability.FILE_AND_DIRECTORY)
+                        entries.set(i, new BatchResult.Entry(entry.getAutoLaunch(), BatchResult.Action.ENABLE, e));
+                }
+            }
+        }
+        for (AutoLaunch autoLaunch : toDisable) {
+            Throwable failure = null;
+            try {
+                Files.deleteIfExists(dir.resolve(autoLaunch.getAppName() + ".desktop"));
+            } catch (Throwable t) {
+                failure = t;
+            }
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.DISABLE, failure));
+        }
+        if (!unitsToEnable.isEmpty() || !unitsToDisable.isEmpty())
+            entries.addAll(SystemdAutoLaunch.INSTANCE.applyAll(unitsToEnable, unitsToDisable).getEntries());
+        return new BatchResult(entries);
+    }
+
+    /**
+     * Moves the applications that use systemd units into the given list, and
+     * returns the rest
+     */
+    private static @NotNull Collection<AutoLaunch> partition(@NotNull Collection<AutoLaunch> autoLaunches, @NotNull List<AutoLaunch> units) {
+        List<AutoLaunch> rest = new ArrayList<>(autoLaunches.size());
+        for (AutoLaunch autoLaunch : autoLaunches) {
+            if (autoLaunch.useSystemdUnit())
+                units.add(autoLaunch);
+            else
+                rest.add(autoLaunch);
+        }
+        return rest;
+    }
+
+    @Override
+    public void disable(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useSystemdUnit()) {
+            SystemdAutoLaunch.INSTANCE.disable(autoLaunch);
+            return;
+        }
+        try {
+            Path file = getFile(autoLaunch);
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            sneakyThrow(e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useSystemdUnit())
+            return SystemdAutoLaunch.INSTANCE.isEnabled(autoLaunch);
+        return !AtomicWriter.isAbsentOrEmpty(getFile(autoLaunch));
+    }
+
+    @Override
+    public @NotNull Drift checkDrift(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useSystemdUnit())
+            return SystemdAutoLaunch.INSTANCE.checkDrift(autoLaunch);
+        return driftOf(getFile(autoLaunch), autoLaunch.payload(Payload.DESKTOP_ENTRY, LinuxAutoLaunch::formatDoc));
+    }
+
+    @Override
+    public @NotNull Drift reconcile(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useSystemdUnit())
+            return SystemdAutoLaunch.INSTANCE.reconcile(autoLaunch);
+        byte[] data = autoLaunch.payload(Payload.DESKTOP_ENTRY, LinuxAutoLaunch::formatDoc);
+        Path file = getFile(autoLaunch);
+        Drift drift = driftOf(file, data);
+        if (drift == Drift.STALE) {
+            try {
+                AtomicWriter.write(file, data, autoLaunch.getDurability());
+            } catch (IOException e) {
+                sneakyThrow(e);
+            }
+        }
+        return drift;
+    }
+
+    // entries that the user turned off from the session settings are reported as not
+    // enabled, so that reconcile() does not turn them back on. the generated entry never
+    // has these keys, so only entries that differ from it need to be parsed.
+    private static @NotNull Drift driftOf(@NotNull Path file, byte @NotNull [] data) {
+        Drift drift = Fingerprint.driftOf(file, data);
+        return drift == Drift.STALE && isDisabledByUser(file) ? Drift.NOT_ENABLED : drift;
+    }
+
+    /**
+     * Tests whether the given desktop entry was turned off, through either
+     * {@literal Hidden=true} or {@literal X-GNOME-Autostart-enabled=false}
+     *
+     * @param file The desktop entry
+     * @return true if the entry is turned off
+     */
+    static boolean isDisabledByUser(@NotNull Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            boolean inSection = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith("[")) {
+                    if (inSection)
+                        break;
+                    inSection = line.equals("[Desktop Entry]");
+                    continue;
+                }
+                int eq = line.indexOf('=');
+                if (!inSection || eq == -1)
+                    continue;
+                String key = line.substring(0, eq).trim();
+                String value = line.substring(eq + 1).trim();
+                if (key.equals("Hidden") && value.equalsIgnoreCase("true"))
+                    return true;
+                if (key.equals("X-GNOME-Autostart-enabled") && value.equalsIgnoreCase("false"))
+                    return true;
+            }
+        } catch (IOException | RuntimeException e) {
+            // unreadable or malformed, so rewriting it is the best we can do
+        }
+        return false;
+    }
+
+    @Override
+    public @NotNull Path getWatchedDirectory(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useSystemdUnit())
+            return SystemdAutoLaunch.INSTANCE.getWatchedDirectory(autoLaunch);
+        return getAutoStartDir();
+    }
+
+    @Override
+    public @NotNull Path getLockDirectory(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useSystemdUnit())
+            return SystemdAutoLaunch.INSTANCE.getLockDirectory(autoLaunch);
+        return getAutoStartDir();
+    }
+}
@@ -0,0 +1,516 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static revxrsal.autolaunch.Utils.sneakyThrow;
+
+/**
+ * The {@link PlatformAutoLaunch} implementation for macOS
+ */
+final class MacOSAutoLaunch implements PlatformAutoLaunch {
+
+    public static final MacOSAutoLaunch INSTANCE = new MacOSAutoLaunch();
+
+    /**
+     * The time after which an idle AppleScript interpreter is closed
+     */
+    private static final long SESSION_IDLE_TIMEOUT = 30_000;
+
+    /**
+     * Whether to use the shared {@link #SESSION}, or spawn an {@literal osascript}
+     * process for every command. The latter can be selected by setting the
+     * {@literal autostart4j.osascript.session} system property to {@code false}.
+     */
+    private static final boolean USE_SESSION = !"false".equals(System.getProperty("autostart4j.osascript.session"));
+
+    /**
+     * The time after which one-off {@literal osascript} processes are killed
+     */
+    private static final Duration OSASCRIPT_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * The prefix of the status lines of batch programs
+     *
+     * @see #createBatchScript(List)
+     */
+    static final String BATCH_STATUS_PREFIX = "as4j-status ";
+
+    /**
+     * The AppleScript interpreter shared by all operations. A script that does not
+     * respond within {@link #OSASCRIPT_TIMEOUT} kills the interpreter.
+     */
+    private static final AppleScriptSession SESSION = new AppleScriptSession(
+            AppleScriptSession.OSASCRIPT, SESSION_IDLE_TIMEOUT, OSASCRIPT_TIMEOUT.toMillis()
+    );
+
+    /**
+     * Whether login items are looked up in the background items store, rather than
+     * through AppleScript. The layout of the store is undocumented, so this is opt-in,
+     * by setting the {@literal autostart4j.backgrounditems} system property to
+     * {@code true}. It is only done on the versions of macOS that keep the store per user.
+     */
+    private static final boolean READ_BACKGROUND_ITEMS = "true".equals(System.getProperty("autostart4j.backgrounditems"))
+            && BackgroundItems.isAuthoritative(System.getProperty("os.version"));
+
+    /**
+     * When login items were last changed through AppleScript, in epoch millis. The
+     * store is only trusted once it has been written after that.
+     */
+    private static volatile long lastLoginItemChange;
+
+    private MacOSAutoLaunch() {
+    }
+
+    @Override
+    public void enable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            if (!autoLaunch.getAppFile().isAbsolute())
+                throw new IllegalArgumentException("AutoLaunch.getAppFile() must be absolute");
+            if (autoLaunch.useLaunchAgent()) {
+                Files.createDirectories(getLaunchAgentDirectory());
+
+                byte[] data = launchAgent(autoLaunch);
+                Path file = getFile(autoLaunch);
+
+                if (AtomicWriter.isAbsentOrEmpty(file))
+                    AtomicWriter.write(file, data, autoLaunch.getDurability());
+            } else {
+                runAppleScript(createLoginItemCommand(autoLaunch));
+            }
+        } catch (Throwable t) {
+            sneakyThrow(t);
+        }
+    }
+
+    @Override
+    public @NotNull BatchResult applyAll(
+            @NotNull Collection<AutoLaunch> toEnable,
+            @NotNull Collection<AutoLaunch> toDisable
+    ) {
+        Map<AutoLaunch, Throwable> enableFailures = new IdentityHashMap<>();
+        Map<AutoLaunch, Throwable> disableFailures = new IdentityHashMap<>();
+        List<AutoLaunch> scriptEnabled = new ArrayList<>();
+        List<AutoLaunch> scriptDisabled = new ArrayList<>();
+        List<AutoLaunch> syncDirectory = new ArrayList<>();
+        List<String> commands = new ArrayList<>();
+
+        Path dir = getLaunchAgentDirectory();
+        boolean dirChecked = false;
+        IOException dirFailure = null;
+        for (AutoLaunch autoLaunch : toEnable) {
+            if (!autoLaunch.getAppFile().isAbsolute()) {
+                enableFailures.put(autoLaunch, new IllegalArgumentException("AutoLaunch.getAppFile() must be absolute"));
+            } else if (autoLaunch.useLaunchAgent()) {
+                if (!dirChecked) {
+                    dirChecked = true;
+                    try {
+                        Files.createDirectories(dir);
+                    } catch (IOException e) {
+                        dirFailure = e;
+                    }
+                }
+                if (dirFailure != null) {
+                    enableFailures.put(autoLaunch, dirFailure);
+                    continue;
+                }
+                Path file = dir.resolve(autoLaunch.getAppName() + ".plist");
+                try {
+                    if (AtomicWriter.isAbsentOrEmpty(file)) {
+                        // the directory is flushed once for the entire batch
+                        Durability durability = autoLaunch.getDurability();
+                        if (durability == Durability.FILE_AND_DIRECTORY) {
+                            syncDirectory.add(autoLaunch);
+                            durability = Durability.FILE;
+                        }
+                        AtomicWriter.write(file, launchAgent(autoLaunch), durability);
+                    }
+                } catch (Throwable t) {
+                    enableFailures.put(autoLaunch, t);
+                }
+            } else {
+                scriptEnabled.add(autoLaunch);
+                commands.add(createLoginItemCommand(autoLaunch));
+            }
+        }
+        for (AutoLaunch autoLaunch : toDisable) {
+            if (autoLaunch.useLaunchAgent()) {
+                try {
+                    Files.deleteIfExists(dir.resolve(autoLaunch.getAppName() + ".plist"));
+                } catch (Throwable t) {
+                    disableFailures.put(autoLaunch, t);
+                }
+            } else {
+                scriptDisabled.add(autoLaunch);
+                commands.add(createDeleteLoginItemCommand(autoLaunch));
+            }
+        }
+
+        if (!syncDirectory.isEmpty()) {
+            try {
+                AtomicWriter.syncDirectory(dir);
+            } catch (IOException e) {
+                for (AutoLaunch autoLaunch : syncDirectory)
+                    enableFailures.putIfAbsent(autoLaunch, e);
+            }
+        }
+
+        // all login items are applied by a single AppleScript program, in which
+        // every command reports its own status
+        if (!commands.isEmpty()) {
+            Throwable[] failures = new Throwable[commands.size()];
+            try {
+                String[] errors = parseBatchStatuses(runAppleScript(createBatchScript(commands)), commands.size());
+                for (int i = 0; i < errors.length; i++)
+                    if (errors[i] != null)
+                        failures[i] = new RuntimeException("AppleScript failed to execute: " + errors[i]);
+            } catch (Throwable t) {
+                Arrays.fill(failures, t);
+            }
+            for (int i = 0; i < scriptEnabled.size(); i++)
+                if (failures[i] != null)
+                    enableFailures.put(scriptEnabled.get(i), failures[i]);
+            for (int i = 0; i < scriptDisabled.size(); i++)
+                if (failures[scriptEnabled.size() + i] != null)
+                    disableFailures.put(scriptDisabled.get(i), failures[scriptEnabled.size() + i]);
+        }
+
+        List<BatchResult.Entry> entries = new ArrayList<>(toEnable.size() + toDisable.size());
+        for (AutoLaunch autoLaunch : toEnable)
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.ENABLE, enableFailures.get(autoLaunch)));
+        for (AutoLaunch autoLaunch : toDisable)
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.DISABLE, disableFailures.get(autoLaunch)));
+        return new BatchResult(entries);
+    }
+
+    // the launch agent, in the format selected by the application
+    static byte @NotNull [] launchAgent(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.getLaunchAgentFormat() == PlistFormat.BINARY)
+            return autoLaunch.binaryPayload(Payload.LAUNCH_AGENT, MacOSAutoLaunch::createBinaryLaunchAgentDoc);
+        return autoLaunch.payload(Payload.LAUNCH_AGENT, MacOSAutoLaunch::createLaunchAgentDoc);
+    }
+
+    static @NotNull String createLaunchAgentDoc(@NotNull AutoLaunch autoLaunch) {
+        boolean plain = autoLaunch.hasPlainValues();
+        StringBuilder doc = Encoders.document().append(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n" +
+                        "<plist version=\"1.0\">\n" +
+                        "    <dict>\n" +
+                        "        <key>Label</key>\n" +
+                        "        ");
+        appendString(doc, autoLaunch.getAppName(), plain);
+        doc.append("\n" +
+                "        <key>ProgramArguments</key>\n" +
+                "        <array>");
+        // launchd cannot delay a RunAtLoad job, so delayed launches go through a shell
+        if (DelayedLaunch.seconds(autoLaunch) > 0) {
+            for (String argument : DelayedLaunch.shellCommand(autoLaunch))
+                appendString(doc, argument, false);
+        } else {
+            appendString(doc, autoLaunch.getAppFile().getAbsolutePath(), plain);
+            for (String argument : autoLaunch.getArgs())
+                appendString(doc, argument, plain);
+        }
+        doc.append("</array>\n" +
+                "        <key>RunAtLoad</key>\n" +
+                "        <true/>\n");
+        if (autoLaunch.marksLaunches()) {
+            doc.append("        <key>EnvironmentVariables</key>\n" +
+                    "        <dict>\n" +
+                    "            <key>" + LaunchContext.ENVIRONMENT_VARIABLE + "</key>\n" +
+                    "            ");
+            appendString(doc, autoLaunch.getAppName(), plain);
+            doc.append("\n" +
+                    "        </dict>\n");
+        }
+        appendResourceKeys(doc, autoLaunch.getResourceProfile());
+        return doc.append("    </dict>\n" +
+                "</plist>").toString();
+    }
+
+    // plain values are known to need no escaping, so they are not scanned again
+    private static void appendString(@NotNull StringBuilder doc, @NotNull String value, boolean plain) {
+        doc.append("<string>");
+        if (plain)
+            doc.append(value);
+        else
+            Encoders.appendXml(doc, value);
+        doc.append("</string>");
+    }
+
+    /**
+     * Renders the same launch agent as {@link #createLaunchAgentDoc(AutoLaunch)},
+     * in the binary format
+     */
+    static byte @NotNull [] createBinaryLaunchAgentDoc(@NotNull AutoLaunch autoLaunch) {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int[] keys = new int[7];
+        int[] values = new int[7];
+        int entries = 0;
+
+        keys[entries] = writer.string("Label");
+        values[entries++] = writer.string(autoLaunch.getAppName());
+
+        List<String> command = DelayedLaunch.shellCommand(autoLaunch);
+        int[] arguments = new int[command.size()];
+        for (int i = 0; i < arguments.length; i++)
+            arguments[i] = writer.string(command.get(i));
+        keys[entries] = writer.string("ProgramArguments");
+        values[entries++] = writer.array(arguments, arguments.length);
+
+        keys[entries] = writer.string("RunAtLoad");
+        values[entries++] = writer.bool(true);
+
+        if (autoLaunch.marksLaunches()) {
+            int[] variable = {writer.string(LaunchContext.ENVIRONMENT_VARIABLE)};
+            int[] value = {writer.string(autoLaunch.getAppName())};
+            keys[entries] = writer.string("EnvironmentVariables");
+            values[entries++] = writer.dict(variable, value, 1);
+        }
+
+        ResourceProfile profile = autoLaunch.getResourceProfile();
+        if (profile != null && profile.getNice() != null) {
+            keys[entries] = writer.string("Nice");
+            values[entries++] = writer.integer(profile.getNice());
+        }
+        if (profile != null && profile.getIoClass() == ResourceProfile.IoClass.IDLE) {
+            keys[entries] = writer.string("LowPriorityIO");
+            values[entries++] = writer.bool(true);
+        }
+        if (profile != null && profile.isBackground()) {
+            keys[entries] = writer.string("ProcessType");
+            values[entries++] = writer.string("Background");
+        }
+        return writer.finish(writer.dict(keys, values, entries));
+    }
+
+    // the launchd keys of the resource profile. memory and CPU caps have no equivalent.
+    private static void appendResourceKeys(@NotNull StringBuilder doc, @Nullable ResourceProfile profile) {
+        if (profile == null)
+            return;
+        if (profile.getNice() != null)
+            doc.append("        <key>Nice</key>\n")
+                    .append("        <integer>").append(profile.getNice()).append("</integer>\n");
+        if (profile.getIoClass() == ResourceProfile.IoClass.IDLE)
+            doc.append("        <key>LowPriorityIO</key>\n")
+                    .append("        <true/>\n");
+        if (profile.isBackground())
+            doc.append("        <key>ProcessType</key>\n")
+                    .append("        <string>Background</string>\n");
+    }
+
+    private static @NotNull String createLoginItemCommand(@NotNull AutoLaunch autoLaunch) {
+        boolean hidden = autoLaunch.getArgs()
+                .stream()
+                .anyMatch(v -> v.equals("--hidden") || v.equals("--minimized"));
+        String props = "{name:" + Encoders.appleScriptLiteral(autoLaunch.getAppName()) +
+                ",path:" + Encoders.appleScriptLiteral(autoLaunch.getAppFile().getAbsolutePath()) +
+                ",hidden:" + hidden + "}";
+        return "make login item at end with properties " + props;
+    }
+
+    private static @NotNull String createDeleteLoginItemCommand(@NotNull AutoLaunch autoLaunch) {
+        return "delete login item " + Encoders.appleScriptLiteral(autoLaunch.getAppName());
+    }
+
+    /**
+     * Creates a program that runs each of the given commands in its own {@literal try}
+     * block, and returns a status line for every command, in order. The line is
+     * {@literal <prefix><index> ok} if the command succeeded, and
+     * {@literal <prefix><index> error <message>} otherwise.
+     *
+     * @param commands The commands
+     * @return The program
+     * @see #parseBatchStatuses(String, int)
+     */
+    static @NotNull String createBatchScript(@NotNull List<String> commands) {
+        StringBuilder script = new StringBuilder("set statuses to \"\"\n");
+        for (int i = 0; i < commands.size(); i++) {
+            String status = "set statuses to statuses & \"" + BATCH_STATUS_PREFIX + i;
+            script.append("try\n")
+                    .append(commands.get(i)).append('\n')
+                    .append(status).append(" ok\" & linefeed\n")
+                    .append("on error errorMessage\n")
+                    .append(status).append(" error \" & errorMessage & linefeed\n")
+                    .append("end try\n");
+        }
+        return script.append("return statuses").toString();
+    }
+
+    /**
+     * Parses the output of a program created by {@link #createBatchScript(List)}.
+     * Lines that do not start with the status prefix belong to the error message
+     * of the line before them.
+     *
+     * @param output The output of the program
+     * @param count  The number of commands
+     * @return The error message of each command, or {@code null} for the commands
+     * that succeeded
+     */
+    static @Nullable String @NotNull [] parseBatchStatuses(@NotNull String output, int count) {
+        StringBuilder[] errors = new StringBuilder[count];
+        boolean[] reported = new boolean[count];
+        int current = -1;
+        for (String line : output.split("\r\n|\r|\n")) {
+            int index = -1;
+            int space = line.indexOf(' ', BATCH_STATUS_PREFIX.length());
+            if (line.startsWith(BATCH_STATUS_PREFIX) && space != -1) {
+                try {
+                    index = Integer.parseInt(line.substring(BATCH_STATUS_PREFIX.length(), space));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            if (index >= 0 && index < count && !reported[index]) {
+                current = index;
+                reported[index] = true;
+                String status = line.substring(space + 1);
+                if (status.startsWith("error"))
+                    errors[index] = new StringBuilder(status.substring("error".length()).trim());
+            } else if (current != -1 && errors[current] != null) {
+                errors[current].append('\n').append(line);
+            }
+        }
+        String[] messages = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (!reported[i])
+                messages[i] = "No status was reported for the command";
+            else if (errors[i] != null)
+                messages[i] = errors[i].toString().trim();
+        }
+        return messages;
+    }
+
+    // runs the given commands in System Events, returning the result of the program
+    private static @NotNull String runAppleScript(@NotNull String script) throws IOException, InterruptedException {
+        String program = "tell application \"System Events\"\n" + script + "\nend tell";
+        try {
+            if (USE_SESSION)
+                return SESSION.execute(program);
+            return osascript(program).run().throwIfFailed().getStdout();
+        } finally {
+            // a failed script may still have changed some login items
+            lastLoginItemChange = System.currentTimeMillis();
+        }
+    }
+
+    // runs the given script in a new osascript process
+    private static @NotNull ProcessRunner osascript(@NotNull String script) {
+        return new ProcessRunner(Arrays.asList("osascript", "-e", script)).timeout(OSASCRIPT_TIMEOUT);
+    }
+
+    // get the plist file path
+    private static Path getFile(AutoLaunch autoLaunch) {
+        return getLaunchAgentDirectory().resolve(autoLaunch.getAppName() + ".plist");
+    }
+
+    static Path getLaunchAgentDirectory() {
+        return getLaunchAgentDirectory(Paths.get(System.getProperty("user.home")));
+    }
+
+    static Path getLaunchAgentDirectory(@NotNull Path home) {
+        return home.resolve("Library").resolve("LaunchAgents");
+    }
+
+    // the directory of the background task management agent, which stores login items
+    private static Path getLoginItemsDirectory() {
+        String home = System.getProperty("user.home");
+        return Paths.get(home)
+                .resolve("Library")
+                .resolve("Application Support")
+                .resolve("com.apple.backgroundtaskmanagementagent");
+    }
+
+    @Override
+    public @NotNull Path getWatchedDirectory(@NotNull AutoLaunch autoLaunch) {
+        if (autoLaunch.useLaunchAgent())
+            return getLaunchAgentDirectory();
+        return getLoginItemsDirectory();
+    }
+
+    @Override
+    public @Nullable Path getLockDirectory(@NotNull AutoLaunch autoLaunch) {
+        // the login items directory belongs to the system
+        return autoLaunch.useLaunchAgent() ? getLaunchAgentDirectory() : null;
+    }
+
+    @Override
+    public @NotNull Drift checkDrift(@NotNull AutoLaunch autoLaunch) {
+        // login items are only compared by name
+        if (!autoLaunch.useLaunchAgent())
+            return isEnabled(autoLaunch) ? Drift.UP_TO_DATE : Drift.NOT_ENABLED;
+        return Fingerprint.driftOf(getFile(autoLaunch), launchAgent(autoLaunch));
+    }
+
+    @Override
+    public @NotNull Drift reconcile(@NotNull AutoLaunch autoLaunch) {
+        Drift drift = checkDrift(autoLaunch);
+        if (drift == Drift.STALE) {
+            try {
+                // launchd picks up the new agent at the next login
+                AtomicWriter.write(getFile(autoLaunch), launchAgent(autoLaunch), autoLaunch.getDurability());
+            } catch (IOException e) {
+                sneakyThrow(e);
+            }
+        }
+        return drift;
+    }
+
+    @Override
+    public void disable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            if (autoLaunch.useLaunchAgent()) {
+                Path path = getFile(autoLaunch);
+                Files.deleteIfExists(path);
+            } else {
+                runAppleScript(createDeleteLoginItemCommand(autoLaunch));
+            }
+        } catch (Throwable e) {
+            sneakyThrow(e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(@NotNull AutoLaunch autoLaunch) {
+        try {
+            if (autoLaunch.useLaunchAgent()) {
+                return !AtomicWriter.isAbsentOrEmpty(getFile(autoLaunch));
+            } else {
+                if (READ_BACKGROUND_ITEMS) {
+                    Path store = getLoginItemsDirectory().resolve(BackgroundItems.FILE_NAME);
+                    Set<String> names = BackgroundItems.loginItemNames(store, lastLoginItemChange);
+                    if (names != null)
+                        return names.contains(autoLaunch.getAppName());
+                }
+                String script = "tell application \"System Events\" to get the name of every login item";
+                if (USE_SESSION) {
+                    return Arrays
+                            .stream(SESSION.execute(script).split(","))
+                            .map(String::trim)
+                            .anyMatch(i -> i.equals(autoLaunch.getAppName()));
+                }
+                // names are matched as they are read, rather than after the entire list
+                AtomicBoolean found = new AtomicBoolean();
+                osascript(script)
+                        .onToken(',', name -> {
+                            if (name.equals(autoLaunch.getAppName()))
+                                found.set(true);
+                        })
+                        .run()
+                        .throwIfFailed();
+                return found.get();
+            }
+        } catch (Throwable e) {
+            sneakyThrow(e);
+            return false;
+        }
+    }
+}
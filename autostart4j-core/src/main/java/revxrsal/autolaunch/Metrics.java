@@ -0,0 +1,72 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Dispatches completed operations to the {@link AutoLaunchMetrics} of an
+ * {@link AutoLaunch}, and to the ones registered through {@link ServiceLoader}.
+ */
+final class Metrics {
+
+    private Metrics() {
+    }
+
+    static void record(
+            @Nullable AutoLaunchMetrics own,
+            @NotNull AutoLaunch autoLaunch,
+            @NotNull AutoLaunchMetrics.Operation operation,
+            @NotNull String backend,
+            long durationNanos,
+            @Nullable Throwable failure
+    ) {
+        if (own != null)
+            notify(own, autoLaunch, operation, backend, durationNanos, failure);
+        for (AutoLaunchMetrics metrics : Loaded.METRICS)
+            notify(metrics, autoLaunch, operation, backend, durationNanos, failure);
+    }
+
+    private static void notify(
+            @NotNull AutoLaunchMetrics metrics,
+            @NotNull AutoLaunch autoLaunch,
+            @NotNull AutoLaunchMetrics.Operation operation,
+            @NotNull String backend,
+            long durationNanos,
+            @Nullable Throwable failure
+    ) {
+        try {
+            metrics.record(autoLaunch, operation, backend, durationNanos, failure);
+        } catch (RuntimeException ignored) {
+            // a broken listener should never fail the operation itself
+        }
+    }
+
+    /**
+     * Lazily loads the global listeners, on the first completed operation
+     */
+    private static final class Loaded {
+
+        static final AutoLaunchMetrics[] METRICS = load();
+
+        private static AutoLaunchMetrics @NotNull [] load() {
+            List<AutoLaunchMetrics> metrics = new ArrayList<>();
+            Iterator<AutoLaunchMetrics> iterator = ServiceLoader.load(AutoLaunchMetrics.class, Metrics.class.getClassLoader()).iterator();
+            while (true) {
+                try {
+                    if (!iterator.hasNext())
+                        break;
+                    metrics.add(iterator.next());
+                } catch (ServiceConfigurationError ignored) {
+                    // skip providers that cannot be loaded
+                }
+            }
+            return metrics.toArray(new AutoLaunchMetrics[0]);
+        }
+    }
+}
@@ -6,7 +6,18 @@ enum OperatingSystem {
     MAC_OS,
     UNKNOWN;
 
+    /**
+     * The operating system this runs on. Native images initialize this class
+     * at build time (see {@literal META-INF/native-image}), which turns this into
+     * a constant, so the backends of other platforms are left out of the image.
+     */
+    private static final OperatingSystem CURRENT = detect();
+
     public static OperatingSystem current() {
+        return CURRENT;
+    }
+
+    private static OperatingSystem detect() {
         String name = System.getProperty("os.name").toLowerCase();
         if (name.startsWith("linux"))
             return OperatingSystem.LINUX;
@@ -16,4 +27,4 @@ enum OperatingSystem {
             return OperatingSystem.MAC_OS;
         return OperatingSystem.UNKNOWN;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the state of an asynchronous operation while it is running, so that
+ * it can be cancelled. Cancelling an operation destroys any child processes
+ * it has spawned, and interrupts the thread running it.
+ * <p>
+ * Backends register the processes they spawn with {@link #track(Process)}.
+ * This has no effect for synchronous calls.
+ */
+final class OperationContext {
+
+    private static final ThreadLocal<OperationContext> CURRENT = new ThreadLocal<>();
+
+    private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private volatile @Nullable Thread thread;
+
+    /**
+     * Returns the context of the operation running in the current thread
+     *
+     * @return The current context, or {@code null} if this is not an async operation
+     */
+    static @Nullable OperationContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Registers the given process with the current operation, if any. If the
+     * operation has already been cancelled, the process is destroyed immediately.
+     *
+     * @param process Process to register
+     * @return The same process
+     */
+    static @NotNull Process track(@NotNull Process process) {
+        OperationContext context = CURRENT.get();
+        if (context != null) {
+            context.processes.add(process);
+            if (context.cancelled)
+                process.destroyForcibly();
+        }
+        return process;
+    }
+
+    /**
+     * Binds this context to the current thread
+     */
+    synchronized void enter() {
+        thread = Thread.currentThread();
+        CURRENT.set(this);
+    }
+
+    /**
+     * Unbinds this context from the current thread
+     */
+    synchronized void exit() {
+        CURRENT.remove();
+        thread = null;
+        processes.clear();
+        // clear any interrupt that was aimed at this operation
+        Thread.interrupted();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the operation, destroying all of its processes.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        for (Process process : processes)
+            process.destroyForcibly();
+        Thread t = thread;
+        if (t != null)
+            t.interrupt();
+    }
+}
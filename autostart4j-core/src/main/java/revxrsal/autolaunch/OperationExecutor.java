@@ -0,0 +1,230 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs auto-launch operations asynchronously.
+ * <p>
+ * Concurrent calls of the same operation on the same {@link AutoLaunch} are
+ * coalesced into a single in-flight operation. Instances are never coalesced
+ * with each other, even if they share a name, as their configuration may differ. The operation is only cancelled
+ * (destroying any child processes) once every caller waiting on it has cancelled
+ * or timed out.
+ */
+final class OperationExecutor {
+
+    private static final Map<Key, InFlight<?>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private OperationExecutor() {
+    }
+
+    /**
+     * Submits the given operation, or joins an identical one that is
+     * already in flight.
+     *
+     * @param autoLaunch The application
+     * @param operation  The operation name
+     * @param executor   The executor to run on
+     * @param timeout    The timeout, or {@code null} to wait indefinitely
+     * @param task       The task to run
+     * @param <T>        The result type
+     * @return A future for this caller. Cancelling it or timing out does not
+     * affect other callers of the same operation.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> @NotNull CompletableFuture<T> submit(
+            @NotNull AutoLaunch autoLaunch,
+            @NotNull String operation,
+            @NotNull Executor executor,
+            @Nullable Duration timeout,
+            @NotNull Supplier<T> task
+    ) {
+        Key key = new Key(autoLaunch, operation);
+        while (true) {
+            InFlight<T> inFlight = (InFlight<T>) IN_FLIGHT.computeIfAbsent(key, k -> new InFlight<>(k, task));
+            CompletableFuture<T> caller = inFlight.join();
+            if (caller == null)
+                continue; // raced with the operation completing
+            if (inFlight.start(executor))
+                IN_FLIGHT.remove(key, inFlight); // the executor rejected the task
+            if (timeout != null)
+                Timeouts.schedule(caller, timeout);
+            return caller;
+        }
+    }
+
+    /**
+     * Returns the default executor. This uses virtual threads where the runtime
+     * supports them, and falls back to a cached pool of daemon threads.
+     * <p>
+     * The executor is created lazily, on first use.
+     *
+     * @return The default executor
+     */
+    static @NotNull Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    private static @NotNull Executor createDefaultExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "autostart4j-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static final class DefaultExecutor {
+
+        private static final Executor INSTANCE = createDefaultExecutor();
+    }
+
+    /**
+     * An operation that is in flight, along with the callers waiting on it
+     */
+    private static final class InFlight<T> {
+
+        private final Key key;
+        private final Supplier<T> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final OperationContext context = new OperationContext();
+        private final AtomicInteger started = new AtomicInteger();
+
+        /**
+         * The number of callers waiting on this operation. Once the operation
+         * is done, or every caller gave up, this is set to -1.
+         */
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        InFlight(Key key, Supplier<T> task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        @Nullable CompletableFuture<T> join() {
+            int current;
+            do {
+                current = waiters.get();
+                if (current < 0)
+                    return null;
+            } while (!waiters.compareAndSet(current, current + 1));
+
+            CompletableFuture<T> caller = new CompletableFuture<>();
+            result.whenComplete((v, t) -> {
+                if (t != null)
+                    caller.completeExceptionally(t);
+                else
+                    caller.complete(v);
+            });
+            caller.whenComplete((v, t) -> {
+                if (result.isDone())
+                    return;
+                // the caller cancelled or timed out
+                if (waiters.decrementAndGet() == 0 && waiters.compareAndSet(0, -1))
+                    cancel();
+            });
+            return caller;
+        }
+
+        /**
+         * Starts the operation, if not already started
+         *
+         * @param executor Executor to run on
+         * @return true if the task was rejected by the executor
+         */
+        boolean start(@NotNull Executor executor) {
+            if (!started.compareAndSet(0, 1))
+                return false;
+            try {
+                executor.execute(this::run);
+                return false;
+            } catch (RejectedExecutionException e) {
+                waiters.set(-1);
+                result.completeExceptionally(e);
+                return true;
+            }
+        }
+
+        private void run() {
+            if (context.isCancelled())
+                return;
+            context.enter();
+            try {
+                T value = task.get();
+                finish();
+                result.complete(value);
+            } catch (Throwable t) {
+                finish();
+                result.completeExceptionally(context.isCancelled() ? new CancellationException() : t);
+            } finally {
+                context.exit();
+            }
+        }
+
+        private void finish() {
+            waiters.set(-1);
+            IN_FLIGHT.remove(key, this);
+        }
+
+        private void cancel() {
+            IN_FLIGHT.remove(key, this);
+            context.cancel();
+            result.cancel(false);
+        }
+    }
+
+    private static final class Key {
+
+        private final AutoLaunch autoLaunch;
+        private final String operation;
+
+        Key(AutoLaunch autoLaunch, String operation) {
+            this.autoLaunch = autoLaunch;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return autoLaunch == key.autoLaunch && operation.equals(key.operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(autoLaunch) + operation.hashCode();
+        }
+    }
+
+    /**
+     * Completes futures that have exceeded their timeout
+     */
+    private static final class Timeouts {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autostart4j-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static void schedule(@NotNull CompletableFuture<?> future, @NotNull Duration timeout) {
+            ScheduledFuture<?> task = SCHEDULER.schedule(
+                    () -> future.completeExceptionally(new TimeoutException("Operation timed out after " + timeout)),
+                    timeout.toNanos(),
+                    TimeUnit.NANOSECONDS
+            );
+            future.whenComplete((v, t) -> task.cancel(false));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package revxrsal.autolaunch;
+
+/**
+ * The kinds of payloads that are rendered from an {@link AutoLaunch}, and
+ * cached on it.
+ *
+ * @see AutoLaunch#payload(Payload, java.util.function.Function)
+ */
+enum Payload {
+
+    /**
+     * The XDG .desktop file, written by {@link LinuxAutoLaunch}
+     */
+    DESKTOP_ENTRY,
+
+    /**
+     * The launch agent .plist file, written by {@link MacOSAutoLaunch}
+     */
+    LAUNCH_AGENT,
+
+    /**
+     * The systemd user unit, written by {@link SystemdAutoLaunch}
+     */
+    SYSTEMD_UNIT
+}
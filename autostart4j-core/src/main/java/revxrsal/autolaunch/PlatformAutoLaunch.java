@@ -0,0 +1,170 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An interface for handling the operating-system-dependent operations
+ * for auto-launching.
+ */
+interface PlatformAutoLaunch {
+
+    /**
+     * Enables auto-launching the given application. If it is already enabled, this
+     * method will have no effect.
+     *
+     * @param autoLaunch App to launch
+     */
+    void enable(@NotNull AutoLaunch autoLaunch);
+
+    /**
+     * Disables auto-launching the given application. If it is already disabled, this
+     * method will have no effect.
+     *
+     * @param autoLaunch App to disable
+     */
+    void disable(@NotNull AutoLaunch autoLaunch);
+
+    /**
+     * Checks if auto-launching the given application is enabled or not
+     *
+     * @param autoLaunch App to check for
+     * @return whether auto-launching the given application is enabled or not
+     */
+    boolean isEnabled(@NotNull AutoLaunch autoLaunch);
+
+    /**
+     * Compares the startup entry of the given application against the entry its
+     * current configuration would produce.
+     * <p>
+     * Backends that cannot compare their entries cheaply report every enabled
+     * entry as up-to-date.
+     *
+     * @param autoLaunch App to check for
+     * @return The drift of the entry
+     */
+    default @NotNull Drift checkDrift(@NotNull AutoLaunch autoLaunch) {
+        return isEnabled(autoLaunch) ? Drift.UP_TO_DATE : Drift.NOT_ENABLED;
+    }
+
+    /**
+     * Rewrites the startup entry of the given application if it is {@link Drift#STALE stale}.
+     * Entries that are up-to-date are not touched, and applications that are not
+     * enabled are not enabled.
+     *
+     * @param autoLaunch App to reconcile
+     * @return The drift that was found, before the entry was rewritten
+     */
+    default @NotNull Drift reconcile(@NotNull AutoLaunch autoLaunch) {
+        return checkDrift(autoLaunch);
+    }
+
+    /**
+     * Enables and disables all the given applications in a single pass. Implementations
+     * should coalesce the work where possible, rather than doing it once per entry.
+     * <p>
+     * Failures do not stop the batch; they are recorded in the returned
+     * {@link BatchResult} instead.
+     *
+     * @param toEnable  Apps to enable
+     * @param toDisable Apps to disable
+     * @return A per-entry report
+     */
+    default @NotNull BatchResult applyAll(
+            @NotNull Collection<AutoLaunch> toEnable,
+            @NotNull Collection<AutoLaunch> toDisable
+    ) {
+        List<BatchResult.Entry> entries = new ArrayList<>(toEnable.size() + toDisable.size());
+        for (AutoLaunch autoLaunch : toEnable) {
+            Throwable failure = null;
+            try {
+                enable(autoLaunch);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.ENABLE, failure));
+        }
+        for (AutoLaunch autoLaunch : toDisable) {
+            Throwable failure = null;
+            try {
+                disable(autoLaunch);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.DISABLE, failure));
+        }
+        return new BatchResult(entries);
+    }
+
+    /**
+     * Returns the directory whose contents determine whether the given application
+     * is enabled or not. This is watched for changes by {@link AutoLaunch#watch(java.util.function.Consumer)}.
+     *
+     * @param autoLaunch App to check for
+     * @return The directory, or {@code null} if the state is not backed by the file system.
+     */
+    default @Nullable Path getWatchedDirectory(@NotNull AutoLaunch autoLaunch) {
+        return null;
+    }
+
+    /**
+     * Returns the directory that holds the lock file of the given application, when
+     * it is locked across processes. The directory must be private to the user and
+     * must not be read by the startup mechanism itself.
+     *
+     * @param autoLaunch App to check for
+     * @return The directory, or {@code null} to use the temporary directory.
+     */
+    default @Nullable Path getLockDirectory(@NotNull AutoLaunch autoLaunch) {
+        return getWatchedDirectory(autoLaunch);
+    }
+
+    /**
+     * Creates a {@link PlatformAutoLaunch} for the current platform.
+     * <p>
+     * Only the implementation of the current platform is loaded. Implementations
+     * that live in separate modules (i.e. Windows, which lives in {@literal autostart4j-windows})
+     * are looked up reflectively, so they do not need to be on the classpath of other platforms.
+     *
+     * @return The new {@link PlatformAutoLaunch}
+     * @throws IllegalStateException if the current platform is not supported, or its
+     *                               module is not on the classpath.
+     */
+    static @NotNull PlatformAutoLaunch create() {
+        switch (OperatingSystem.current()) {
+            case LINUX:
+                return LinuxAutoLaunch.INSTANCE;
+            case WINDOWS:
+                return load("revxrsal.autolaunch.WindowsAutoLaunch", "autostart4j-windows");
+            case MAC_OS:
+                return MacOSAutoLaunch.INSTANCE;
+            default:
+                throw new IllegalStateException("Unsupported platform.");
+        }
+    }
+
+    /**
+     * Loads the {@literal INSTANCE} of the given {@link PlatformAutoLaunch} implementation
+     *
+     * @param className The implementation class name
+     * @param module    The module that contains the implementation
+     * @return The implementation
+     * @throws IllegalStateException if the implementation is not on the classpath
+     */
+    static @NotNull PlatformAutoLaunch load(@NotNull String className, @NotNull String module) {
+        try {
+            Class<?> type = Class.forName(className, true, PlatformAutoLaunch.class.getClassLoader());
+            return (PlatformAutoLaunch) type.getField("INSTANCE").get(null);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("This platform requires the " + module + " module to be on the classpath.", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to load " + className, e);
+        }
+    }
+
+}
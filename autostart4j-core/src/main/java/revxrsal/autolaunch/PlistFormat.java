@@ -0,0 +1,20 @@
+package revxrsal.autolaunch;
+
+/**
+ * The format that macOS launch agent property lists are written in.
+ * <p>
+ * launchd reads both formats, and the entries they produce are equivalent.
+ */
+public enum PlistFormat {
+
+    /**
+     * The XML format. This is human-readable, and can be edited by hand.
+     */
+    XML,
+
+    /**
+     * The binary format ({@literal bplist00}). This is more compact, and faster
+     * to write and to parse.
+     */
+    BINARY
+}
@@ -0,0 +1,347 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * Runs child processes and collects their output.
+ * <p>
+ * Standard output and standard error are drained concurrently, so a child that
+ * writes a lot to either can never block on a full pipe. Output is kept up to
+ * a bounded number of characters, and anything beyond that is drained and
+ * discarded. Standard output can additionally be split into tokens that are
+ * delivered as they arrive.
+ * <p>
+ * Processes that exceed their timeout are killed, along with all of their
+ * descendants where the runtime supports it.
+ */
+final class ProcessRunner {
+
+    /**
+     * The default maximum number of characters kept from each stream
+     */
+    static final int DEFAULT_MAX_OUTPUT = 64 * 1024;
+
+    /**
+     * Kills processes that outlive their deadline. Tasks submitted here must never block.
+     */
+    static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "autostart4j-process-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<String> command;
+    private @Nullable Duration timeout;
+    private int maxOutput = DEFAULT_MAX_OUTPUT;
+    private char delimiter;
+    private @Nullable Consumer<String> tokenConsumer;
+
+    ProcessRunner(@NotNull List<String> command) {
+        this.command = new ArrayList<>(notNull(command, "command"));
+    }
+
+    /**
+     * Sets the time after which the process is killed. By default, processes
+     * may run indefinitely.
+     *
+     * @param timeout The timeout
+     * @return this runner instance
+     */
+    @NotNull ProcessRunner timeout(@NotNull Duration timeout) {
+        this.timeout = notNull(timeout, "timeout");
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of characters kept from each of standard output
+     * and standard error.
+     *
+     * @param maxOutput The maximum number of characters
+     * @return this runner instance
+     */
+    @NotNull ProcessRunner maxOutput(int maxOutput) {
+        if (maxOutput < 0)
+            throw new IllegalArgumentException("maxOutput cannot be negative");
+        this.maxOutput = maxOutput;
+        return this;
+    }
+
+    /**
+     * Splits standard output by the given delimiter, and delivers each token,
+     * trimmed, to the consumer as soon as it is read. Empty tokens are skipped.
+     *
+     * @param delimiter The token delimiter
+     * @param consumer  The token consumer
+     * @return this runner instance
+     */
+    @NotNull ProcessRunner onToken(char delimiter, @NotNull Consumer<String> consumer) {
+        this.delimiter = delimiter;
+        this.tokenConsumer = notNull(consumer, "consumer");
+        return this;
+    }
+
+    /**
+     * Starts the process and waits for it to exit
+     *
+     * @return The process result
+     * @throws IOException          if the process could not be started or read
+     * @throws InterruptedException if the current thread was interrupted. The
+     *                              process is killed in that case.
+     */
+    @NotNull Result run() throws IOException, InterruptedException {
+        Object event = Events.beginProcessSpawn();
+        long start = System.nanoTime();
+        Process process = OperationContext.track(new ProcessBuilder(command).start());
+        process.getOutputStream().close();
+        long started = System.nanoTime();
+
+        Watchdog watchdog = new Watchdog(process);
+        ScheduledFuture<?> kill = timeout == null ? null
+                : WATCHDOG.schedule(watchdog, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        Pump stderr = new Pump(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8), maxOutput, '\0', null);
+        int exitCode = -1;
+        Thread stderrThread = new Thread(stderr, "autostart4j-stderr-pump");
+        stderrThread.setDaemon(true);
+        stderrThread.start();
+        try {
+            Pump stdout = new Pump(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8), maxOutput, delimiter, tokenConsumer);
+            stdout.run();
+            exitCode = process.waitFor();
+            stderrThread.join();
+            if (stdout.failure != null)
+                throw stdout.failure;
+            return new Result(
+                    command,
+                    exitCode,
+                    stdout.output.toString(),
+                    stderr.output.toString(),
+                    stdout.truncated || stderr.truncated,
+                    watchdog.fired,
+                    Duration.ofNanos(started - start),
+                    Duration.ofNanos(System.nanoTime() - start)
+            );
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            killTree(process);
+            throw e;
+        } finally {
+            if (kill != null)
+                kill.cancel(false);
+            Events.endProcessSpawn(event, command.get(0), exitCode);
+        }
+    }
+
+    /**
+     * Kills the given process along with all of its descendants
+     *
+     * @param process Process to kill
+     */
+    @SuppressWarnings("unchecked")
+    static void killTree(@NotNull Process process) {
+        try {
+            // Process.descendants() is only available on Java 9+
+            Method descendants = Process.class.getMethod("descendants");
+            Stream<Object> handles = (Stream<Object>) descendants.invoke(process);
+            Method destroy = Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly");
+            Iterator<Object> iterator = handles.iterator();
+            while (iterator.hasNext())
+                destroy.invoke(iterator.next());
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // only the process itself can be killed
+        }
+        process.destroyForcibly();
+    }
+
+    /**
+     * Kills a process along with its descendants, remembering that it did so
+     */
+    static final class Watchdog implements Runnable {
+
+        private final Process process;
+        volatile boolean fired;
+
+        Watchdog(Process process) {
+            this.process = process;
+        }
+
+        @Override
+        public void run() {
+            fired = true;
+            killTree(process);
+        }
+    }
+
+    /**
+     * Drains a stream, keeping a bounded prefix of it and optionally
+     * splitting it into tokens.
+     */
+    private static final class Pump implements Runnable {
+
+        private final Reader reader;
+        private final int maxOutput;
+        private final char delimiter;
+        private final @Nullable Consumer<String> tokenConsumer;
+        private final StringBuilder output = new StringBuilder();
+        private final StringBuilder token = new StringBuilder();
+        private boolean truncated;
+        private @Nullable IOException failure;
+
+        Pump(Reader reader, int maxOutput, char delimiter, @Nullable Consumer<String> tokenConsumer) {
+            this.reader = reader;
+            this.maxOutput = maxOutput;
+            this.delimiter = delimiter;
+            this.tokenConsumer = tokenConsumer;
+        }
+
+        @Override
+        public void run() {
+            char[] buffer = new char[4096];
+            try (Reader reader = this.reader) {
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    int keep = Math.min(read, maxOutput - output.length());
+                    if (keep > 0)
+                        output.append(buffer, 0, keep);
+                    if (keep < read)
+                        truncated = true;
+                    if (tokenConsumer != null)
+                        tokenize(buffer, read);
+                }
+                if (tokenConsumer != null)
+                    emit();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private void tokenize(char[] buffer, int length) {
+            for (int i = 0; i < length; i++) {
+                char c = buffer[i];
+                if (c == delimiter)
+                    emit();
+                else if (token.length() < maxOutput)
+                    token.append(c);
+            }
+        }
+
+        private void emit() {
+            String value = token.toString().trim();
+            token.setLength(0);
+            if (!value.isEmpty())
+                tokenConsumer.accept(value);
+        }
+    }
+
+    /**
+     * The result of running a process
+     */
+    static final class Result {
+
+        private final List<String> command;
+        private final int exitCode;
+        private final String stdout;
+        private final String stderr;
+        private final boolean truncated;
+        private final boolean timedOut;
+        private final Duration spawnTime;
+        private final Duration duration;
+
+        Result(List<String> command, int exitCode, String stdout, String stderr, boolean truncated,
+               boolean timedOut, Duration spawnTime, Duration duration) {
+            this.command = command;
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.truncated = truncated;
+            this.timedOut = timedOut;
+            this.spawnTime = spawnTime;
+            this.duration = duration;
+        }
+
+        int getExitCode() {
+            return exitCode;
+        }
+
+        @NotNull String getStdout() {
+            return stdout;
+        }
+
+        @NotNull String getStderr() {
+            return stderr;
+        }
+
+        /**
+         * Whether any of the output streams exceeded the maximum output size
+         */
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * Whether the process was killed for exceeding its timeout
+         */
+        boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * The time it took to spawn the process
+         */
+        @NotNull Duration getSpawnTime() {
+            return spawnTime;
+        }
+
+        /**
+         * The time from spawning the process until it exited and its
+         * output was drained
+         */
+        @NotNull Duration getDuration() {
+            return duration;
+        }
+
+        boolean isSuccessful() {
+            return exitCode == 0 && !timedOut;
+        }
+
+        /**
+         * Throws an exception describing the failure, if the process did not
+         * exit successfully.
+         *
+         * @return this result instance
+         */
+        @NotNull Result throwIfFailed() {
+            if (isSuccessful())
+                return this;
+            String description = String.join(" ", command.subList(0, Math.min(1, command.size())));
+            if (timedOut)
+                throw new RuntimeException(description + " timed out after " + duration.toMillis() + "ms");
+            throw new RuntimeException(description + " failed with exit code " + exitCode +
+                    (stderr.isEmpty() ? "" : ": " + stderr.trim()));
+        }
+
+        @Override
+        public String toString() {
+            return "Result{exitCode=" + exitCode +
+                    ", timedOut=" + timedOut +
+                    ", truncated=" + truncated +
+                    ", spawnTime=" + spawnTime.toMillis() + "ms" +
+                    ", duration=" + duration.toMillis() + "ms}";
+        }
+    }
+}
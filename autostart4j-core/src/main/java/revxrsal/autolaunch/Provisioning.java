@@ -0,0 +1,517 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * Places startup entries into the home directories of many users at once, such
+ * as when preparing a shared host or a VDI golden image. As created by {@link AutoLaunch#provision()}.
+ * <p>
+ * Unlike {@link AutoLaunch#enable()}, which always targets the home of the current
+ * user, provisioning targets an explicit set of home directories. Every payload is
+ * rendered once and the same bytes are written to every home, and the homes are
+ * processed in parallel on a {@link ForkJoinPool}. Created files and directories
+ * are given to the owner of the home they are in. Entries that already exist are
+ * only rewritten if they differ from the current configuration (see {@link Drift}).
+ * <p>
+ * Only entries that live in files can be provisioned: XDG autostart entries and
+ * systemd user units on Linux, and launch agents on macOS. systemd units are
+ * enabled by creating their symlink directly, exactly like {@literal systemctl --user enable}
+ * does, so no user session is needed. Other entries are reported as failures.
+ * <p>
+ * Symbolic links beneath a home are never followed: a home in which a directory
+ * on the way to an entry is a link, or is owned by another user, fails as a whole.
+ * Every directory is opened relative to the one above it, and entries are read,
+ * written and removed through their open directory, so directories that are
+ * replaced while a home is provisioned cannot redirect the writes either.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class Provisioning {
+
+    private final Set<Path> homes = new LinkedHashSet<>();
+    private final List<AutoLaunch> toEnable = new ArrayList<>();
+    private final List<AutoLaunch> toDisable = new ArrayList<>();
+    private @Nullable ForkJoinPool pool;
+    private boolean setOwnership = true;
+
+    Provisioning() {
+    }
+
+    /**
+     * Adds the given home directories to provision
+     *
+     * @param homes The home directories
+     * @return this provisioning instance
+     */
+    public Provisioning homes(@NotNull Path @NotNull ... homes) {
+        return homes(Arrays.asList(notNull(homes, "homes")));
+    }
+
+    /**
+     * Adds the given home directories to provision
+     *
+     * @param homes The home directories
+     * @return this provisioning instance
+     */
+    public Provisioning homes(@NotNull Collection<@NotNull Path> homes) {
+        for (Path home : notNull(homes, "homes"))
+            this.homes.add(notNull(home, "home").toAbsolutePath().normalize());
+        return this;
+    }
+
+    /**
+     * Adds the given applications to be enabled in every home
+     *
+     * @param autoLaunches Apps to enable
+     * @return this provisioning instance
+     */
+    public Provisioning enable(@NotNull AutoLaunch @NotNull ... autoLaunches) {
+        return enable(Arrays.asList(notNull(autoLaunches, "auto launches")));
+    }
+
+    /**
+     * Adds the given applications to be enabled in every home
+     *
+     * @param autoLaunches Apps to enable
+     * @return this provisioning instance
+     */
+    public Provisioning enable(@NotNull Collection<@NotNull AutoLaunch> autoLaunches) {
+        for (AutoLaunch autoLaunch : notNull(autoLaunches, "auto launches"))
+            toEnable.add(notNull(autoLaunch, "auto launch"));
+        return this;
+    }
+
+    /**
+     * Adds the given applications to be disabled in every home
+     *
+     * @param autoLaunches Apps to disable
+     * @return this provisioning instance
+     */
+    public Provisioning disable(@NotNull AutoLaunch @NotNull ... autoLaunches) {
+        return disable(Arrays.asList(notNull(autoLaunches, "auto launches")));
+    }
+
+    /**
+     * Adds the given applications to be disabled in every home
+     *
+     * @param autoLaunches Apps to disable
+     * @return this provisioning instance
+     */
+    public Provisioning disable(@NotNull Collection<@NotNull AutoLaunch> autoLaunches) {
+        for (AutoLaunch autoLaunch : notNull(autoLaunches, "auto launches"))
+            toDisable.add(notNull(autoLaunch, "auto launch"));
+        return this;
+    }
+
+    /**
+     * Sets the pool that homes are processed on. By default, this uses
+     * {@link ForkJoinPool#commonPool()}.
+     * <p>
+     * Provisioning is dominated by file system calls, so a pool with more
+     * threads than there are processors usually finishes faster.
+     *
+     * @param pool The pool
+     * @return this provisioning instance
+     */
+    public Provisioning pool(@NotNull ForkJoinPool pool) {
+        this.pool = notNull(pool, "pool");
+        return this;
+    }
+
+    /**
+     * Sets whether created files and directories are given to the owner (and group)
+     * of the home directory they are in. Changing the owner usually requires
+     * running as root.
+     * <p>
+     * Defaults to {@code true}. Files are always created with {@literal rw-r--r--}
+     * permissions and directories with {@literal rwxr-xr-x} while this is enabled.
+     *
+     * @param setOwnership Whether to set the ownership
+     * @return this provisioning instance
+     */
+    public Provisioning setOwnership(boolean setOwnership) {
+        this.setOwnership = setOwnership;
+        return this;
+    }
+
+    /**
+     * Provisions all the homes. Failures do not stop the provisioning, and
+     * are reported in the returned {@link ProvisioningResult}.
+     *
+     * @return A per-home, per-entry report
+     */
+    public @NotNull ProvisioningResult apply() {
+        long start = System.nanoTime();
+        OperatingSystem os = OperatingSystem.current();
+        // payloads are rendered here, once, and shared by every home
+        List<Target> targets = new ArrayList<>(toEnable.size() + toDisable.size());
+        for (AutoLaunch autoLaunch : toEnable)
+            targets.add(Target.of(os, autoLaunch, BatchResult.Action.ENABLE));
+        for (AutoLaunch autoLaunch : toDisable)
+            targets.add(Target.of(os, autoLaunch, BatchResult.Action.DISABLE));
+
+        Path[] homes = this.homes.toArray(new Path[0]);
+        List<ProvisioningResult.Entry> entries = Collections.emptyList();
+        if (homes.length > 0) {
+            ForkJoinPool pool = this.pool == null ? ForkJoinPool.commonPool() : this.pool;
+            entries = pool.invoke(new ProvisionTask(homes, targets, setOwnership, 0, homes.length));
+        }
+        return new ProvisioningResult(homes.length, entries, System.nanoTime() - start);
+    }
+
+    /**
+     * Provisions a single home
+     */
+    private static @NotNull List<ProvisioningResult.Entry> provision(
+            @NotNull Path home,
+            @NotNull List<Target> targets,
+            boolean setOwnership
+    ) {
+        List<ProvisioningResult.Entry> entries = new ArrayList<>(targets.size());
+        FileOwner homeOwner = null;
+        FileOwner owner = null;
+        Throwable homeFailure = null;
+        try {
+            if (!Files.isDirectory(home))
+                throw new IOException("Home directory " + home + " does not exist");
+            homeOwner = FileOwner.of(home);
+            if (setOwnership)
+                owner = homeOwner;
+        } catch (Throwable t) {
+            homeFailure = t;
+        }
+        // directories are flushed once per home, after all of its entries are written
+        Set<Path> syncDirectories = new LinkedHashSet<>();
+        for (Target target : targets) {
+            Throwable failure = homeFailure != null ? homeFailure : target.failure;
+            boolean changed = false;
+            if (failure == null) {
+                try {
+                    changed = target.action == BatchResult.Action.ENABLE
+                            ? target.enable(home, homeOwner, owner, syncDirectories)
+                            : target.disable(home, homeOwner);
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+            entries.add(new ProvisioningResult.Entry(home, target.autoLaunch, target.action, changed, failure));
+        }
+        for (Path dir : syncDirectories) {
+            try {
+                AtomicWriter.syncDirectory(dir);
+            } catch (IOException e) {
+                for (int i = 0; i < entries.size(); i++) {
+                    ProvisioningResult.Entry entry = entries.get(i);
+                    if (entry.isSuccessful() && entry.isChanged() && targets.get(i).isIn(home, dir))
+                        entries.set(i, new ProvisioningResult.Entry(home, entry.getAutoLaunch(), entry.getAction(), true, e));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Opens the given directory, walking down from the home one directory at a time.
+     * Each directory is opened relative to the one above it, without following
+     * symbolic links, and is checked once it is open. Provisioning usually runs as
+     * root, so a link planted by the user (such as {@literal ~/.config/autostart} pointing
+     * to {@literal /etc/xdg/autostart}), or a directory swapped for a link after it was
+     * checked, would otherwise make root write into, and give the user, a system directory.
+     *
+     * @param home      The home directory
+     * @param dir       The directory, beneath the home
+     * @param homeOwner The owner of the home, which existing directories must be owned
+     *                  by (or by the user running the provisioning). {@code null}
+     *                  skips the check.
+     * @param create    Whether to create missing directories
+     * @param owner     The owner to give created directories to, or {@code null}
+     * @return The open directory, or {@code null} if it does not exist and is not created
+     * @throws IOException if a directory is a link, is not a directory, or has another owner
+     */
+    private static @Nullable SecureDirectoryStream<Path> openDirectory(
+            @NotNull Path home,
+            @NotNull Path dir,
+            @Nullable FileOwner homeOwner,
+            boolean create,
+            @Nullable FileOwner owner
+    ) throws IOException {
+        DirectoryStream<Path> stream = Files.newDirectoryStream(home);
+        if (!(stream instanceof SecureDirectoryStream)) {
+            stream.close();
+            throw new IOException("The file system of " + home + " cannot open directories securely");
+        }
+        SecureDirectoryStream<Path> current = (SecureDirectoryStream<Path>) stream;
+        Path path = home;
+        try {
+            for (Path name : home.relativize(dir)) {
+                path = path.resolve(name);
+                SecureDirectoryStream<Path> next;
+                boolean created = false;
+                try {
+                    next = openChild(current, name, path);
+                } catch (NoSuchFileException e) {
+                    if (!create) {
+                        current.close();
+                        return null;
+                    }
+                    // directories cannot be created relative to an open one, so it is created
+                    // by path, and then opened and checked like any other
+                    try {
+                        Files.createDirectory(path);
+                        created = true;
+                    } catch (FileAlreadyExistsException ignored) {
+                        // created concurrently
+                    }
+                    next = openChild(current, name, path);
+                }
+                current.close();
+                current = next;
+                PosixFileAttributeView view = current.getFileAttributeView(PosixFileAttributeView.class);
+                if (view == null)
+                    continue;
+                if (created && owner != null)
+                    owner.applyTo(view, FileOwner.DIRECTORY_PERMISSIONS);
+                else if (homeOwner != null && !homeOwner.ownsOrIsCurrentUser(view.readAttributes()))
+                    throw new IOException(path + " is not owned by the owner of " + home);
+            }
+            return current;
+        } catch (IOException | RuntimeException e) {
+            current.close();
+            throw e;
+        }
+    }
+
+    // opens a directory of an open directory, with a clear error if it is a link or a file
+    private static @NotNull SecureDirectoryStream<Path> openChild(
+            @NotNull SecureDirectoryStream<Path> dir,
+            @NotNull Path name,
+            @NotNull Path path
+    ) throws IOException {
+        try {
+            return dir.newDirectoryStream(name, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (NotDirectoryException e) {
+            throw new IOException(path + " is not a directory", e);
+        } catch (FileSystemException e) {
+            BasicFileAttributes attributes = attributesOf(dir, name);
+            if (attributes != null && attributes.isSymbolicLink())
+                throw new IOException("Refusing to follow the symbolic link " + path, e);
+            throw e;
+        }
+    }
+
+    // the attributes of a file of an open directory, or null if it does not exist
+    private static @Nullable BasicFileAttributes attributesOf(@NotNull SecureDirectoryStream<Path> dir, @NotNull Path name) throws IOException {
+        try {
+            return dir.getFileAttributeView(name, BasicFileAttributeView.class, LinkOption.NOFOLLOW_LINKS).readAttributes();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // removes a file of an open directory, which removes links rather than their targets
+    private static boolean deleteIfExists(@Nullable SecureDirectoryStream<Path> dir, @NotNull Path name) throws IOException {
+        if (dir == null)
+            return false;
+        try {
+            dir.deleteFile(name);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * An entry to provision, with its payload rendered and its location relative
+     * to the home directory resolved
+     */
+    private static final class Target {
+
+        private final AutoLaunch autoLaunch;
+        private final BatchResult.Action action;
+        private final @Nullable Path file;
+        private final byte @Nullable [] data;
+        private final @Nullable Path link;
+        private final @Nullable Throwable failure;
+
+        private Target(
+                @NotNull AutoLaunch autoLaunch,
+                @NotNull BatchResult.Action action,
+                @Nullable Path file,
+                byte @Nullable [] data,
+                @Nullable Path link,
+                @Nullable Throwable failure
+        ) {
+            this.autoLaunch = autoLaunch;
+            this.action = action;
+            this.file = file;
+            this.data = data;
+            this.link = link;
+            this.failure = failure;
+        }
+
+        static @NotNull Target of(@NotNull OperatingSystem os, @NotNull AutoLaunch autoLaunch, @NotNull BatchResult.Action action) {
+            // the locations are resolved against an empty path, which is then replaced by each home
+            Path root = Paths.get("");
+            boolean enable = action == BatchResult.Action.ENABLE;
+            try {
+                if (os == OperatingSystem.LINUX && autoLaunch.useSystemdUnit()) {
+                    Path dir = SystemdAutoLaunch.getUnitDirectory(root);
+                    String unit = SystemdAutoLaunch.getUnitName(autoLaunch.getAppName());
+                    return new Target(autoLaunch, action, dir.resolve(unit),
+                            enable ? autoLaunch.payload(Payload.SYSTEMD_UNIT, SystemdAutoLaunch::formatUnit) : null,
+                            SystemdAutoLaunch.getWantsDirectory(dir).resolve(unit), null);
+                }
+                if (os == OperatingSystem.LINUX) {
+                    return new Target(autoLaunch, action,
+                            LinuxAutoLaunch.getAutoStartDir(root).resolve(autoLaunch.getAppName() + ".desktop"),
+                            enable ? autoLaunch.payload(Payload.DESKTOP_ENTRY, LinuxAutoLaunch::formatDoc) : null,
+                            null, null);
+                }
+                if (os == OperatingSystem.MAC_OS && autoLaunch.useLaunchAgent()) {
+                    if (enable && !autoLaunch.getAppFile().isAbsolute())
+                        throw new IllegalArgumentException("AutoLaunch.getAppFile() must be absolute");
+                    return new Target(autoLaunch, action,
+                            MacOSAutoLaunch.getLaunchAgentDirectory(root).resolve(autoLaunch.getAppName() + ".plist"),
+                            enable ? MacOSAutoLaunch.launchAgent(autoLaunch) : null,
+                            null, null);
+                }
+                if (os == OperatingSystem.MAC_OS)
+                    throw new UnsupportedOperationException("Login items cannot be provisioned. Use a launch agent instead.");
+                throw new UnsupportedOperationException("Provisioning is not supported on this platform.");
+            } catch (Throwable t) {
+                return new Target(autoLaunch, action, null, null, null, t);
+            }
+        }
+
+        /**
+         * Writes the entry into the given home
+         *
+         * @return if anything was written
+         */
+        boolean enable(
+                @NotNull Path home,
+                @Nullable FileOwner homeOwner,
+                @Nullable FileOwner owner,
+                @NotNull Set<Path> syncDirectories
+        ) throws IOException {
+            Path file = home.resolve(this.file);
+            boolean changed = false;
+            try (SecureDirectoryStream<Path> dir = openDirectory(home, file.getParent(), homeOwner, true, owner)) {
+                // existing entries are only rewritten if they are stale, so re-provisioning
+                // after an upgrade only writes what changed
+                if (Fingerprint.driftOf(Objects.requireNonNull(dir), file.getFileName(), data) != Drift.UP_TO_DATE) {
+                    Durability durability = autoLaunch.getDurability();
+                    if (durability == Durability.FILE_AND_DIRECTORY)
+                        syncDirectories.add(file.getParent());
+                    AtomicWriter.write(dir, file, data, durability, owner);
+                    changed = true;
+                }
+            }
+            if (link != null) {
+                Path link = home.resolve(this.link);
+                try (SecureDirectoryStream<Path> dir = openDirectory(home, link.getParent(), homeOwner, true, owner)) {
+                    if (attributesOf(Objects.requireNonNull(dir), link.getFileName()) == null) {
+                        // links cannot be created relative to an open directory, so the link is created
+                        // by path, and then looked up through the directory. it points to a relative
+                        // path, so that it stays valid when the image is mounted elsewhere.
+                        Files.createSymbolicLink(link, link.getParent().relativize(file));
+                        BasicFileAttributes attributes = attributesOf(dir, link.getFileName());
+                        if (attributes == null || !attributes.isSymbolicLink())
+                            throw new IOException(link.getParent() + " was replaced while it was provisioned");
+                        if (owner != null)
+                            owner.applyTo(link, FileOwner.FILE_PERMISSIONS);
+                        if (autoLaunch.getDurability() == Durability.FILE_AND_DIRECTORY)
+                            syncDirectories.add(link.getParent());
+                        changed = true;
+                    }
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * Removes the entry from the given home
+         *
+         * @return if anything was removed
+         */
+        boolean disable(@NotNull Path home, @Nullable FileOwner homeOwner) throws IOException {
+            boolean changed = false;
+            // entries are removed through the directories they are in, which must
+            // still be the user's own
+            if (link != null) {
+                Path link = home.resolve(this.link);
+                try (SecureDirectoryStream<Path> dir = openDirectory(home, link.getParent(), homeOwner, false, null)) {
+                    changed = deleteIfExists(dir, link.getFileName());
+                }
+            }
+            Path file = home.resolve(this.file);
+            try (SecureDirectoryStream<Path> dir = openDirectory(home, file.getParent(), homeOwner, false, null)) {
+                changed |= deleteIfExists(dir, file.getFileName());
+            }
+            return changed;
+        }
+
+        // whether this entry writes into the given directory of the home
+        boolean isIn(@NotNull Path home, @NotNull Path dir) {
+            return (file != null && dir.equals(home.resolve(file).getParent()))
+                    || (link != null && dir.equals(home.resolve(link).getParent()));
+        }
+    }
+
+    /**
+     * Splits the homes in halves until each task has a single home, and joins
+     * the entries of both halves in order
+     */
+    private static final class ProvisionTask extends RecursiveTask<List<ProvisioningResult.Entry>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path[] homes;
+        private final List<Target> targets;
+        private final boolean setOwnership;
+        private final int from;
+        private final int to;
+
+        ProvisionTask(
+                Path[] homes,
+                List<Target> targets,
+                boolean setOwnership,
+                int from,
+                int to
+        ) {
+            this.homes = homes;
+            this.targets = targets;
+            this.setOwnership = setOwnership;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ProvisioningResult.Entry> compute() {
+            if (to - from == 1)
+                return provision(homes[from], targets, setOwnership);
+            int middle = (from + to) >>> 1;
+            ProvisionTask first = new ProvisionTask(homes, targets, setOwnership, from, middle);
+            first.fork();
+            List<ProvisioningResult.Entry> second = new ProvisionTask(homes, targets, setOwnership, middle, to).compute();
+            // every task returns a list of its own, so the first one can be extended
+            List<ProvisioningResult.Entry> entries = first.join();
+            entries.addAll(second);
+            return entries;
+        }
+    }
+}
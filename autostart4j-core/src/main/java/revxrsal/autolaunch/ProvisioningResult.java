@@ -0,0 +1,230 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * A per-home, per-entry report of a {@link Provisioning}, as created by
+ * {@link AutoLaunch#provision()}.
+ * <p>
+ * This class is immutable, hence is safe to share across threads.
+ */
+public final class ProvisioningResult {
+
+    private final int homeCount;
+    private final @NotNull @Unmodifiable List<Entry> entries;
+    private final long durationNanos;
+
+    ProvisioningResult(int homeCount, @NotNull List<Entry> entries, long durationNanos) {
+        this.homeCount = homeCount;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(notNull(entries, "entries")));
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Returns the results of every entry in every home, grouped by home in the
+     * order the homes were added, and then in the order the entries were added.
+     *
+     * @return All entries
+     */
+    public @NotNull @Unmodifiable List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the entries that failed to be applied
+     *
+     * @return The failed entries
+     */
+    public @NotNull @Unmodifiable List<Entry> getFailures() {
+        List<Entry> failures = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!entry.isSuccessful())
+                failures.add(entry);
+        }
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Returns the homes that had at least one failed entry
+     *
+     * @return The failed homes
+     */
+    public @NotNull @Unmodifiable Set<Path> getFailedHomes() {
+        Set<Path> homes = new LinkedHashSet<>();
+        for (Entry entry : entries) {
+            if (!entry.isSuccessful())
+                homes.add(entry.getHome());
+        }
+        return Collections.unmodifiableSet(homes);
+    }
+
+    /**
+     * The number of homes that were provisioned
+     *
+     * @return The number of homes
+     */
+    public int getHomeCount() {
+        return homeCount;
+    }
+
+    /**
+     * The number of entries that changed a home, by writing or removing files.
+     * Entries that were already in the requested state did not.
+     *
+     * @return The number of changed entries
+     */
+    public int getChangedCount() {
+        int changed = 0;
+        for (Entry entry : entries) {
+            if (entry.isChanged())
+                changed++;
+        }
+        return changed;
+    }
+
+    /**
+     * The time it took to provision all the homes
+     *
+     * @return The duration
+     */
+    public @NotNull Duration getDuration() {
+        return Duration.ofNanos(durationNanos);
+    }
+
+    /**
+     * Tests whether all the entries were applied successfully
+     *
+     * @return if all entries were applied successfully
+     */
+    public boolean isSuccessful() {
+        for (Entry entry : entries) {
+            if (!entry.isSuccessful())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Throws the failure of the first entry that failed, if any. Other
+     * distinct failures are added as suppressed exceptions.
+     */
+    public void throwIfFailed() {
+        Throwable first = null;
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Entry entry : entries) {
+            Throwable failure = entry.getFailure();
+            if (failure == null || !seen.add(failure))
+                continue;
+            if (first == null)
+                first = failure;
+            else
+                first.addSuppressed(failure);
+        }
+        if (first != null)
+            Utils.sneakyThrow(first);
+    }
+
+    @Override
+    public String toString() {
+        return "ProvisioningResult{homes=" + homeCount +
+                ", entries=" + entries.size() +
+                ", changed=" + getChangedCount() +
+                ", failures=" + getFailures().size() +
+                ", duration=" + getDuration().toMillis() + "ms}";
+    }
+
+    /**
+     * The result of applying a single {@link AutoLaunch} in a single home
+     */
+    public static final class Entry {
+
+        private final @NotNull Path home;
+        private final @NotNull AutoLaunch autoLaunch;
+        private final @NotNull BatchResult.Action action;
+        private final boolean changed;
+        private final @Nullable Throwable failure;
+
+        Entry(
+                @NotNull Path home,
+                @NotNull AutoLaunch autoLaunch,
+                @NotNull BatchResult.Action action,
+                boolean changed,
+                @Nullable Throwable failure
+        ) {
+            this.home = notNull(home, "home");
+            this.autoLaunch = notNull(autoLaunch, "auto launch");
+            this.action = notNull(action, "action");
+            this.changed = changed;
+            this.failure = failure;
+        }
+
+        /**
+         * The home directory this entry was applied in
+         *
+         * @return The home directory
+         */
+        public @NotNull Path getHome() {
+            return home;
+        }
+
+        /**
+         * The {@link AutoLaunch} this entry is for
+         *
+         * @return The auto launch
+         */
+        public @NotNull AutoLaunch getAutoLaunch() {
+            return autoLaunch;
+        }
+
+        /**
+         * The action that was applied
+         *
+         * @return The action
+         */
+        public @NotNull BatchResult.Action getAction() {
+            return action;
+        }
+
+        /**
+         * Whether applying this entry wrote or removed any files
+         *
+         * @return if the home was changed
+         */
+        public boolean isChanged() {
+            return changed;
+        }
+
+        /**
+         * The exception that caused this entry to fail, or {@code null}
+         * if it was applied successfully.
+         *
+         * @return The failure cause
+         */
+        public @Nullable Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * Tests whether this entry was applied successfully
+         *
+         * @return if the entry was applied
+         */
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{home=" + home + ", appName=" + autoLaunch.getAppName() + ", action=" + action +
+                    ", changed=" + changed + (failure == null ? "" : ", failure=" + failure) + '}';
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * The CPU, I/O and memory resources that a launched application is given,
+ * so that background helpers do not slow down the foreground session.
+ * <p>
+ * Each backend renders what it supports, and ignores the rest:
+ * <table>
+ *     <caption>Supported settings</caption>
+ *     <tr><th>Setting</th><th>Linux autostart entries</th><th>systemd units</th><th>macOS launch agents</th></tr>
+ *     <tr><td>{@link Builder#nice(int) nice}</td><td>{@literal nice} prefix</td><td>{@literal Nice=}</td><td>{@literal Nice}</td></tr>
+ *     <tr><td>{@link Builder#ioClass(IoClass, int) I/O class}</td><td>{@literal ionice} prefix</td><td>{@literal IOSchedulingClass=}</td><td>{@literal LowPriorityIO} (idle only)</td></tr>
+ *     <tr><td>{@link Builder#cpuWeight(int) CPU} and {@link Builder#ioWeight(int) I/O} weights,
+ *     {@link Builder#memoryMax(long) memory} and {@link Builder#cpuQuota(int) CPU} caps</td>
+ *     <td>{@literal systemd-run --scope} prefix</td><td>{@literal CPUWeight=}, {@literal IOWeight=},
+ *     {@literal MemoryMax=}, {@literal CPUQuota=}</td><td>-</td></tr>
+ *     <tr><td>{@link Builder#background() background}</td><td>-</td><td>-</td><td>{@literal ProcessType=Background}</td></tr>
+ * </table>
+ * Windows and macOS login items ignore resource profiles.
+ * <p>
+ * This class is immutable, hence is safe to share across threads.
+ */
+public final class ResourceProfile {
+
+    /**
+     * A profile for background helpers: a nice level of 10, idle I/O priority,
+     * and the background process type on macOS.
+     */
+    public static final ResourceProfile BACKGROUND = new Builder()
+            .nice(10)
+            .ioClass(IoClass.IDLE, 0)
+            .background()
+            .build();
+
+    private final @Nullable Integer nice;
+    private final @Nullable IoClass ioClass;
+    private final int ioPriority;
+    private final @Nullable Integer cpuWeight;
+    private final @Nullable Integer ioWeight;
+    private final long memoryMax;
+    private final int cpuQuota;
+    private final boolean background;
+
+    private ResourceProfile(@NotNull Builder builder) {
+        this.nice = builder.nice;
+        this.ioClass = builder.ioClass;
+        this.ioPriority = builder.ioPriority;
+        this.cpuWeight = builder.cpuWeight;
+        this.ioWeight = builder.ioWeight;
+        this.memoryMax = builder.memoryMax;
+        this.cpuQuota = builder.cpuQuota;
+        this.background = builder.background;
+    }
+
+    /**
+     * The nice level, between -20 (highest priority) and 19 (lowest priority)
+     *
+     * @return The nice level, or {@code null} if it is not set
+     */
+    public @Nullable Integer getNice() {
+        return nice;
+    }
+
+    /**
+     * The I/O scheduling class
+     *
+     * @return The I/O class, or {@code null} if it is not set
+     */
+    public @Nullable IoClass getIoClass() {
+        return ioClass;
+    }
+
+    /**
+     * The priority within the {@link #getIoClass() I/O class}, between 0 (highest)
+     * and 7 (lowest). This is ignored for {@link IoClass#IDLE}.
+     *
+     * @return The I/O priority
+     */
+    public int getIoPriority() {
+        return ioPriority;
+    }
+
+    /**
+     * The relative CPU weight, between 1 and 10000. The default weight of
+     * other processes is 100.
+     *
+     * @return The CPU weight, or {@code null} if it is not set
+     */
+    public @Nullable Integer getCpuWeight() {
+        return cpuWeight;
+    }
+
+    /**
+     * The relative I/O weight, between 1 and 10000. The default weight of
+     * other processes is 100.
+     *
+     * @return The I/O weight, or {@code null} if it is not set
+     */
+    public @Nullable Integer getIoWeight() {
+        return ioWeight;
+    }
+
+    /**
+     * The maximum memory the application may use, in bytes
+     *
+     * @return The memory cap, or 0 if there is none
+     */
+    public long getMemoryMax() {
+        return memoryMax;
+    }
+
+    /**
+     * The maximum CPU time the application may use, as a percentage of a
+     * single CPU. Values above 100 allow using more than one CPU.
+     *
+     * @return The CPU cap, or 0 if there is none
+     */
+    public int getCpuQuota() {
+        return cpuQuota;
+    }
+
+    /**
+     * Whether the application is marked as a background process
+     *
+     * @return if the application is a background process
+     */
+    public boolean isBackground() {
+        return background;
+    }
+
+    /**
+     * Tests whether any of the control group settings ({@link #getCpuWeight() CPU weight},
+     * {@link #getIoWeight() I/O weight}, {@link #getMemoryMax() memory cap} or
+     * {@link #getCpuQuota() CPU cap}) are set
+     *
+     * @return if any control group setting is set
+     */
+    boolean hasCgroupSettings() {
+        return cpuWeight != null || ioWeight != null || memoryMax > 0 || cpuQuota > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceProfile{" +
+                "nice=" + nice +
+                ", ioClass=" + ioClass +
+                ", ioPriority=" + ioPriority +
+                ", cpuWeight=" + cpuWeight +
+                ", ioWeight=" + ioWeight +
+                ", memoryMax=" + memoryMax +
+                ", cpuQuota=" + cpuQuota +
+                ", background=" + background +
+                '}';
+    }
+
+    /**
+     * The I/O scheduling classes, as understood by {@literal ionice}
+     */
+    public enum IoClass {
+
+        /**
+         * Gets first access to the disk, regardless of what else is going on
+         */
+        REALTIME(1, "realtime"),
+
+        /**
+         * The default class
+         */
+        BEST_EFFORT(2, "best-effort"),
+
+        /**
+         * Only gets disk time when no other process needs it
+         */
+        IDLE(3, "idle");
+
+        private final int id;
+        private final String systemdName;
+
+        IoClass(int id, String systemdName) {
+            this.id = id;
+            this.systemdName = systemdName;
+        }
+
+        /**
+         * The numeric class, as passed to {@literal ionice -c}
+         */
+        int getId() {
+            return id;
+        }
+
+        /**
+         * The name of the class in {@literal IOSchedulingClass=}
+         */
+        @NotNull String getSystemdName() {
+            return systemdName;
+        }
+    }
+
+    /**
+     * A builder for creating {@link ResourceProfile} instances.
+     */
+    public static class Builder {
+
+        private Integer nice = null;
+        private IoClass ioClass = null;
+        private int ioPriority = 4;
+        private Integer cpuWeight = null;
+        private Integer ioWeight = null;
+        private long memoryMax = 0;
+        private int cpuQuota = 0;
+        private boolean background = false;
+
+        /**
+         * Sets the nice level, between -20 (highest priority) and 19 (lowest priority).
+         * Negative values usually require elevated privileges.
+         *
+         * @param nice The nice level
+         * @return this builder instance
+         */
+        public Builder nice(int nice) {
+            if (nice < -20 || nice > 19)
+                throw new IllegalArgumentException("nice must be between -20 and 19");
+            this.nice = nice;
+            return this;
+        }
+
+        /**
+         * Sets the I/O scheduling class, and the priority within it
+         *
+         * @param ioClass  The I/O class
+         * @param priority The priority within the class, between 0 (highest) and 7 (lowest).
+         *                 This is ignored for {@link IoClass#IDLE}.
+         * @return this builder instance
+         */
+        public Builder ioClass(@NotNull IoClass ioClass, int priority) {
+            if (priority < 0 || priority > 7)
+                throw new IllegalArgumentException("I/O priority must be between 0 and 7");
+            this.ioClass = notNull(ioClass, "I/O class");
+            this.ioPriority = priority;
+            return this;
+        }
+
+        /**
+         * Sets the relative CPU weight, between 1 and 10000. The default weight of
+         * other processes is 100.
+         *
+         * @param weight The CPU weight
+         * @return this builder instance
+         */
+        public Builder cpuWeight(int weight) {
+            this.cpuWeight = checkWeight(weight);
+            return this;
+        }
+
+        /**
+         * Sets the relative I/O weight, between 1 and 10000. The default weight of
+         * other processes is 100.
+         *
+         * @param weight The I/O weight
+         * @return this builder instance
+         */
+        public Builder ioWeight(int weight) {
+            this.ioWeight = checkWeight(weight);
+            return this;
+        }
+
+        /**
+         * Caps the memory the application may use
+         *
+         * @param bytes The maximum memory, in bytes
+         * @return this builder instance
+         */
+        public Builder memoryMax(long bytes) {
+            if (bytes <= 0)
+                throw new IllegalArgumentException("memory cap must be positive");
+            this.memoryMax = bytes;
+            return this;
+        }
+
+        /**
+         * Caps the CPU time the application may use
+         *
+         * @param percent The maximum CPU time, as a percentage of a single CPU.
+         *                Values above 100 allow using more than one CPU.
+         * @return this builder instance
+         */
+        public Builder cpuQuota(int percent) {
+            if (percent <= 0)
+                throw new IllegalArgumentException("CPU cap must be positive");
+            this.cpuQuota = percent;
+            return this;
+        }
+
+        /**
+         * Marks the application as a background process, which macOS
+         * throttles in favor of the applications the user interacts with
+         *
+         * @return this builder instance
+         */
+        public Builder background() {
+            this.background = true;
+            return this;
+        }
+
+        /**
+         * Constructs a new {@link ResourceProfile} based on the given configuration.
+         *
+         * @return The new {@link ResourceProfile} instance.
+         */
+        public @NotNull ResourceProfile build() {
+            return new ResourceProfile(this);
+        }
+
+        private static int checkWeight(int weight) {
+            if (weight < 1 || weight > 10000)
+                throw new IllegalArgumentException("weight must be between 1 and 10000");
+            return weight;
+        }
+    }
+}
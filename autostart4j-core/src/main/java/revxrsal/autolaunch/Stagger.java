@@ -0,0 +1,115 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * A policy that spreads the launches of a group of applications over time,
+ * so that they do not all compete for the disk and CPU right after login.
+ * <p>
+ * Share a single instance between the {@link AutoLaunch.Builder builders} of
+ * the group, using {@link AutoLaunch.Builder#stagger(Stagger)}. Each application
+ * is then delayed by:
+ * <ul>
+ *     <li>its slot times the spacing, where the slot is the position of the
+ *     application name among the sorted names of the group, and</li>
+ *     <li>a jitter between zero and the maximum jitter, which is derived from
+ *     the application name.</li>
+ * </ul>
+ * Both only depend on the names, so an application gets the same delay every
+ * time its entry is written, regardless of the order the group is built in.
+ * This comes in addition to the delay set by {@link AutoLaunch.Builder#delay(Duration)}.
+ * <p>
+ * This class is immutable.
+ */
+public final class Stagger {
+
+    private final long spacingMillis;
+    private final long jitterMillis;
+    private final String[] group;
+
+    private Stagger(@NotNull Duration spacing, @NotNull Duration jitter, String @NotNull [] group) {
+        notNull(spacing, "spacing");
+        notNull(jitter, "jitter");
+        notNull(group, "app names");
+        if (spacing.isNegative() || jitter.isNegative())
+            throw new IllegalArgumentException("spacing and jitter cannot be negative");
+        this.spacingMillis = spacing.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        this.group = new TreeSet<>(Arrays.asList(group)).toArray(new String[0]);
+    }
+
+    /**
+     * Creates a policy that launches the given applications one after the other,
+     * in the order of their names, with the given spacing between each two
+     *
+     * @param spacing  The time between each two launches
+     * @param appNames The names of the applications in the group
+     * @return The new policy
+     */
+    public static @NotNull Stagger spacing(@NotNull Duration spacing, String @NotNull ... appNames) {
+        return new Stagger(spacing, Duration.ZERO, appNames);
+    }
+
+    /**
+     * Creates a policy that delays each application by a stable, pseudo-random
+     * time of up to the given jitter. This can be shared by any number of
+     * applications.
+     *
+     * @param jitter The maximum delay
+     * @return The new policy
+     */
+    public static @NotNull Stagger jitter(@NotNull Duration jitter) {
+        return new Stagger(Duration.ZERO, jitter, new String[0]);
+    }
+
+    /**
+     * Creates a policy that combines both a spacing and a jitter
+     *
+     * @param spacing  The time between each two launches
+     * @param jitter   The maximum delay added to each launch
+     * @param appNames The names of the applications in the group
+     * @return The new policy
+     * @see #spacing(Duration, String...)
+     * @see #jitter(Duration)
+     */
+    public static @NotNull Stagger of(@NotNull Duration spacing, @NotNull Duration jitter, String @NotNull ... appNames) {
+        return new Stagger(spacing, jitter, appNames);
+    }
+
+    /**
+     * Returns the delay of the given application
+     *
+     * @param appName The application name
+     * @return The delay of the application
+     * @throws IllegalArgumentException if this policy has a spacing, and the
+     *                                  application is not part of its group
+     */
+    public @NotNull Duration getDelay(@NotNull String appName) {
+        notNull(appName, "app name");
+        long delay = 0;
+        if (spacingMillis > 0) {
+            int slot = Arrays.binarySearch(group, appName);
+            if (slot < 0)
+                throw new IllegalArgumentException("'" + appName + "' is not part of the stagger group " + Arrays.toString(group));
+            delay += slot * spacingMillis;
+        }
+        if (jitterMillis > 0)
+            delay += Math.floorMod(mix(appName.hashCode()), jitterMillis + 1);
+        return Duration.ofMillis(delay);
+    }
+
+    // spreads similar names (such as 'agent-1' and 'agent-2') apart
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
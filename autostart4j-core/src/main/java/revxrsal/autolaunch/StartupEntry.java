@@ -0,0 +1,112 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * A startup entry that was found by {@link StartupInventory#scan()}. This may
+ * or may not have been registered by an {@link AutoLaunch}.
+ * <p>
+ * This class is immutable, hence is safe to share across threads.
+ */
+public final class StartupEntry {
+
+    private final @NotNull String name;
+    private final @Nullable String exec;
+    private final boolean hidden;
+    private final @NotNull Source source;
+    private final @NotNull Path file;
+
+    StartupEntry(@NotNull String name, @Nullable String exec, boolean hidden, @NotNull Source source, @NotNull Path file) {
+        this.name = notNull(name, "name");
+        this.exec = exec;
+        this.hidden = hidden;
+        this.source = notNull(source, "source");
+        this.file = notNull(file, "file");
+    }
+
+    /**
+     * The name of the entry. This is the {@literal Name} key of a .desktop file,
+     * or the {@literal Label} of a launch agent. If neither is present, the
+     * file name without the extension is used.
+     *
+     * @return The entry name
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * The command executed by this entry, or {@code null} if it could
+     * not be determined.
+     *
+     * @return The command
+     */
+    public @Nullable String getExec() {
+        return exec;
+    }
+
+    /**
+     * Whether this entry is hidden (in .desktop files), or disabled (in
+     * launch agents). Hidden entries are not started.
+     *
+     * @return if the entry is hidden
+     */
+    public boolean isHidden() {
+        return hidden;
+    }
+
+    /**
+     * The location this entry was found in
+     *
+     * @return The entry source
+     */
+    public @NotNull Source getSource() {
+        return source;
+    }
+
+    /**
+     * The file this entry was read from
+     *
+     * @return The entry file
+     */
+    public @NotNull Path getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return "StartupEntry{" +
+                "name='" + name + '\'' +
+                ", exec='" + exec + '\'' +
+                ", hidden=" + hidden +
+                ", source=" + source +
+                ", file=" + file +
+                '}';
+    }
+
+    /**
+     * The locations startup entries are read from
+     */
+    public enum Source {
+
+        /**
+         * The user's XDG autostart directory, {@literal $XDG_CONFIG_HOME/autostart}
+         */
+        USER_AUTOSTART,
+
+        /**
+         * The system-wide XDG autostart directory, {@literal /etc/xdg/autostart}
+         */
+        SYSTEM_AUTOSTART,
+
+        /**
+         * The user's launch agents directory, {@literal ~/Library/LaunchAgents}
+         */
+        LAUNCH_AGENT
+    }
+}
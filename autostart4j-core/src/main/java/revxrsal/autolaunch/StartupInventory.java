@@ -0,0 +1,321 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Enumerates every startup entry registered on this machine, regardless of whether
+ * it was registered by an {@link AutoLaunch} or not.
+ * <p>
+ * This looks up the following locations:
+ * <ul>
+ *     <li>{@literal $XDG_CONFIG_HOME/autostart} (or {@literal ~/.config/autostart})</li>
+ *     <li>{@literal /etc/xdg/autostart}</li>
+ *     <li>{@literal ~/Library/LaunchAgents}</li>
+ * </ul>
+ * Locations that do not exist are skipped. Launch agents may be either XML
+ * or binary property lists.
+ */
+public final class StartupInventory {
+
+    private static final String DESKTOP_SECTION = "[Desktop Entry]";
+
+    private StartupInventory() {
+    }
+
+    /**
+     * Scans all startup locations. Entries are parsed in parallel, and
+     * files that cannot be read are skipped.
+     *
+     * @return A stream of all the startup entries
+     */
+    public static @NotNull Stream<StartupEntry> scan() {
+        Map<Path, StartupEntry.Source> locations = new LinkedHashMap<>();
+        locations.put(getUserAutoStartDir(), StartupEntry.Source.USER_AUTOSTART);
+        locations.put(Paths.get("/etc/xdg/autostart"), StartupEntry.Source.SYSTEM_AUTOSTART);
+        locations.put(getLaunchAgentDir(), StartupEntry.Source.LAUNCH_AGENT);
+        return scan(locations);
+    }
+
+    static @NotNull Stream<StartupEntry> scan(@NotNull Map<Path, StartupEntry.Source> locations) {
+        // directory listing is cheap, so it is done eagerly. the parsing is what's parallelized
+        List<Map.Entry<Path, StartupEntry.Source>> files = new ArrayList<>();
+        for (Map.Entry<Path, StartupEntry.Source> location : locations.entrySet()) {
+            Path dir = location.getKey();
+            if (!Files.isDirectory(dir))
+                continue;
+            String glob = location.getValue() == StartupEntry.Source.LAUNCH_AGENT ? "*.plist" : "*.desktop";
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+                for (Path file : stream)
+                    files.add(new AbstractMap.SimpleImmutableEntry<>(file, location.getValue()));
+            } catch (IOException ignored) {
+                // unreadable directory
+            }
+        }
+        return files.parallelStream()
+                .map(e -> parse(e.getKey(), e.getValue()))
+                .filter(Objects::nonNull);
+    }
+
+    static @NotNull Path getUserAutoStartDir() {
+        return getUserAutoStartDir(System.getenv("XDG_CONFIG_HOME"), Paths.get(System.getProperty("user.home")));
+    }
+
+    // relative values of XDG_CONFIG_HOME are invalid, and are ignored like unset ones
+    static @NotNull Path getUserAutoStartDir(@Nullable String configHome, @NotNull Path home) {
+        if (configHome != null && !configHome.isEmpty() && Paths.get(configHome).isAbsolute())
+            return Paths.get(configHome).resolve("autostart");
+        return home.resolve(".config").resolve("autostart");
+    }
+
+    private static @NotNull Path getLaunchAgentDir() {
+        return Paths.get(System.getProperty("user.home")).resolve("Library").resolve("LaunchAgents");
+    }
+
+    private static @Nullable StartupEntry parse(@NotNull Path file, @NotNull StartupEntry.Source source) {
+        try {
+            if (source == StartupEntry.Source.LAUNCH_AGENT)
+                return parseLaunchAgent(file);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return parseDesktopEntry(file, source, reader);
+            }
+        } catch (IOException | RuntimeException e) {
+            // malformed or unreadable
+            return null;
+        }
+    }
+
+    static @NotNull StartupEntry parseLaunchAgent(@NotNull Path file) throws IOException {
+        // launch agents are small, so they are read whole to tell binary and XML plists apart
+        byte[] data = Files.readAllBytes(file);
+        if (BinaryPlistReader.isBinaryPlist(data))
+            return parseBinaryPlist(file, BinaryPlistReader.parse(data));
+        return parsePlist(file, new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+    }
+
+    static @NotNull StartupEntry parseDesktopEntry(
+            @NotNull Path file,
+            @NotNull StartupEntry.Source source,
+            @NotNull BufferedReader reader
+    ) throws IOException {
+        String name = null, exec = null, hidden = null;
+        boolean inSection = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+            if (line.charAt(0) == '[') {
+                // only the [Desktop Entry] section matters, so nothing after it is read
+                if (inSection)
+                    break;
+                inSection = line.equals(DESKTOP_SECTION);
+                continue;
+            }
+            if (!inSection)
+                continue;
+            int eq = line.indexOf('=');
+            if (eq == -1)
+                continue;
+            String key = line.substring(0, eq).trim();
+            String value = line.substring(eq + 1).trim();
+            if (name == null && key.equals("Name"))
+                name = Encoders.parseDesktopString(value);
+            else if (exec == null && key.equals("Exec"))
+                exec = value;
+            else if (hidden == null && key.equals("Hidden"))
+                hidden = value;
+            // Hidden is usually appended after the other keys, so the section is read on until it is found
+            if (name != null && exec != null && hidden != null)
+                break;
+        }
+        if (name == null)
+            name = stripExtension(file);
+        return new StartupEntry(name, exec, "true".equalsIgnoreCase(hidden), source, file);
+    }
+
+    static @NotNull StartupEntry parsePlist(@NotNull Path file, @NotNull Reader reader) throws IOException {
+        PlistScanner scanner = new PlistScanner(reader);
+        String label = null, program = null;
+        List<String> programArguments = null;
+        Boolean disabled = null;
+
+        String tag;
+        while ((tag = scanner.nextTag()) != null) {
+            if (!tag.equals("key"))
+                continue;
+            String key = scanner.text();
+            if (label == null && key.equals("Label")) {
+                label = scanner.nextString();
+            } else if (program == null && key.equals("Program")) {
+                program = scanner.nextString();
+            } else if (programArguments == null && key.equals("ProgramArguments")) {
+                programArguments = scanner.nextStringArray();
+            } else if (disabled == null && key.equals("Disabled")) {
+                disabled = scanner.nextBoolean();
+            }
+            if (label != null && (program != null || programArguments != null) && disabled != null)
+                break;
+        }
+
+        return launchAgentEntry(file, label, program, programArguments, disabled != null && disabled);
+    }
+
+    static @NotNull StartupEntry parseBinaryPlist(@NotNull Path file, @Nullable Object plist) {
+        if (!(plist instanceof Map))
+            throw new IllegalArgumentException("Launch agent is not a dictionary");
+        Map<?, ?> dict = (Map<?, ?>) plist;
+        List<String> programArguments = null;
+        Object arguments = dict.get("ProgramArguments");
+        if (arguments instanceof List) {
+            programArguments = new ArrayList<>();
+            for (Object argument : (List<?>) arguments)
+                if (argument instanceof String)
+                    programArguments.add((String) argument);
+        }
+        return launchAgentEntry(
+                file,
+                stringOrNull(dict.get("Label")),
+                stringOrNull(dict.get("Program")),
+                programArguments,
+                Boolean.TRUE.equals(dict.get("Disabled"))
+        );
+    }
+
+    private static @NotNull StartupEntry launchAgentEntry(
+            @NotNull Path file,
+            @Nullable String label,
+            @Nullable String program,
+            @Nullable List<String> programArguments,
+            boolean disabled
+    ) {
+        String exec = program;
+        if (programArguments != null && !programArguments.isEmpty()) {
+            if (program != null)
+                programArguments.set(0, program);
+            exec = String.join(" ", programArguments);
+        }
+        if (label == null)
+            label = stripExtension(file);
+        return new StartupEntry(label, exec, disabled, StartupEntry.Source.LAUNCH_AGENT, file);
+    }
+
+    private static @Nullable String stringOrNull(@Nullable Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static @NotNull String stripExtension(@NotNull Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? name : name.substring(0, dot);
+    }
+
+    /**
+     * A minimal, forward-only scanner over XML property lists. This only understands
+     * enough of the format to pull out values of top-level keys, and never reads
+     * further than it is asked to.
+     */
+    private static final class PlistScanner {
+
+        private final Reader reader;
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder tag = new StringBuilder();
+
+        PlistScanner(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Advances to the next element tag, skipping declarations and comments.
+         *
+         * @return The tag name, or null if the end of the file was reached
+         */
+        @Nullable String nextTag() throws IOException {
+            while (true) {
+                String t = readTag();
+                if (t == null)
+                    return null;
+                if (t.isEmpty() || t.charAt(0) == '?' || t.charAt(0) == '!')
+                    continue;
+                return t;
+            }
+        }
+
+        // reads the text content up to the closing tag
+        @NotNull String text() throws IOException {
+            readTag();
+            return unescape(text.toString().trim());
+        }
+
+        @Nullable String nextString() throws IOException {
+            String t = nextTag();
+            if (t == null || !t.equals("string"))
+                return null;
+            return text();
+        }
+
+        @Nullable Boolean nextBoolean() throws IOException {
+            String t = nextTag();
+            if (t == null)
+                return null;
+            if (t.startsWith("true"))
+                return true;
+            if (t.startsWith("false"))
+                return false;
+            return null;
+        }
+
+        @NotNull List<String> nextStringArray() throws IOException {
+            List<String> values = new ArrayList<>();
+            String t = nextTag();
+            if (t == null || !t.equals("array"))
+                return values;
+            while ((t = readTag()) != null) {
+                if (t.equals("/array"))
+                    break;
+                if (t.equals("string"))
+                    values.add(text());
+            }
+            return values;
+        }
+
+        // reads until the next tag, storing the text before it
+        private @Nullable String readTag() throws IOException {
+            text.setLength(0);
+            tag.setLength(0);
+            int c;
+            while ((c = reader.read()) != -1 && c != '<')
+                text.append((char) c);
+            if (c == -1)
+                return null;
+            while ((c = reader.read()) != -1 && c != '>')
+                tag.append((char) c);
+            if (c == -1)
+                return null;
+            return tag.toString().trim();
+        }
+
+        private static @NotNull String unescape(@NotNull String value) {
+            if (value.indexOf('&') == -1)
+                return value;
+            return value.replace("&lt;", "<")
+                    .replace("&gt;", ">")
+                    .replace("&quot;", "\"")
+                    .replace("&apos;", "'")
+                    .replace("&amp;", "&");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * Represents a change in the auto-launch state of an application, as delivered
+ * to listeners registered with {@link AutoLaunch#watch(java.util.function.Consumer)}.
+ * <p>
+ * This class is immutable, hence is safe to share across threads.
+ */
+public final class StateChange {
+
+    private final @NotNull AutoLaunch autoLaunch;
+    private final boolean enabled;
+
+    StateChange(@NotNull AutoLaunch autoLaunch, boolean enabled) {
+        this.autoLaunch = notNull(autoLaunch, "auto launch");
+        this.enabled = enabled;
+    }
+
+    /**
+     * The application whose state has changed
+     *
+     * @return The application
+     */
+    public @NotNull AutoLaunch getAutoLaunch() {
+        return autoLaunch;
+    }
+
+    /**
+     * Whether auto-launching the application is now enabled or not
+     *
+     * @return The new state
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String toString() {
+        return "StateChange{appName=" + autoLaunch.getAppName() + ", enabled=" + enabled + '}';
+    }
+}
@@ -0,0 +1,304 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static revxrsal.autolaunch.Utils.sneakyThrow;
+
+/**
+ * Watches the directories that back auto-launch entries, and notifies
+ * subscribers when the state of their application changes.
+ * <p>
+ * A single {@link WatchService} and a single daemon thread are shared by all
+ * subscriptions. Events are debounced per directory, so a burst of file system
+ * events results in a single state check.
+ */
+final class StateWatcher {
+
+    /**
+     * The time to wait after the last event in a directory before checking
+     * the state of its subscribers
+     */
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private static final WatchEvent.Kind<?>[] ALL_KINDS = {ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY};
+    private static final WatchEvent.Kind<?>[] CREATE_ONLY = {ENTRY_CREATE};
+
+    private final PlatformAutoLaunch platform;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * The registered watch keys, mapped to the directory they watch
+     */
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+
+    /**
+     * The watched directories, mapped to the kinds of events they are
+     * registered for
+     */
+    private final Map<Path, WatchEvent.Kind<?>[]> registered = new ConcurrentHashMap<>();
+
+    /**
+     * Directories we would like to watch, but do not exist yet. Their
+     * closest existing parent is watched instead.
+     */
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Directories mapped to the listeners that are told about every event in
+     * them. Unlike subscribers, they are not debounced.
+     */
+    private final Map<Path, List<Runnable>> directoryListeners = new ConcurrentHashMap<>();
+
+    /**
+     * Directories that received events, mapped to the time they should be
+     * checked at. Only accessed by the watcher thread.
+     */
+    private final Map<Path, Long> dirty = new HashMap<>();
+
+    private WatchService watchService;
+
+    StateWatcher(@NotNull PlatformAutoLaunch platform) {
+        this.platform = platform;
+    }
+
+    /**
+     * Subscribes to changes in the state of the given application
+     *
+     * @param autoLaunch   The application
+     * @param listener     The listener to notify
+     * @param errorHandler The handler of failures to check or deliver the state
+     * @return The subscription
+     * @throws UnsupportedOperationException if the platform does not support watching
+     *                                       the given application
+     */
+    public @NotNull Subscription subscribe(
+            @NotNull AutoLaunch autoLaunch,
+            @NotNull Consumer<StateChange> listener,
+            @NotNull Consumer<Throwable> errorHandler
+    ) {
+        Path dir = platform.getWatchedDirectory(autoLaunch);
+        if (dir == null)
+            throw new UnsupportedOperationException("Watching " + autoLaunch.getAppName() + " is not supported on this platform");
+        dir = dir.toAbsolutePath().normalize();
+        Subscriber subscriber = new Subscriber(autoLaunch, listener, errorHandler, dir, platform.isEnabled(autoLaunch));
+        synchronized (this) {
+            try {
+                ensureStarted();
+                watch(dir);
+            } catch (IOException e) {
+                sneakyThrow(e);
+            }
+            subscribers.add(subscriber);
+        }
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Calls the given listener on the watcher thread whenever an entry in the
+     * given directory is created, modified or deleted. If the directory does not
+     * exist yet, the listener is also called once it is created.
+     *
+     * @param dir      The directory, which must be absolute and normalized
+     * @param listener The listener
+     * @throws IOException if the directory cannot be watched
+     */
+    void watchDirectory(@NotNull Path dir, @NotNull Runnable listener) throws IOException {
+        synchronized (this) {
+            ensureStarted();
+            watch(dir);
+            directoryListeners.computeIfAbsent(dir, k -> new CopyOnWriteArrayList<>()).add(listener);
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        if (watchService != null)
+            return;
+        watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this::run, "autostart4j-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(@NotNull Path dir) throws IOException {
+        if (registered.get(dir) == ALL_KINDS)
+            return;
+        if (Files.isDirectory(dir)) {
+            // registering again replaces the kinds of the existing key, if any
+            register(dir, ALL_KINDS);
+            pending.remove(dir);
+            return;
+        }
+        pending.add(dir);
+        Path parent = dir.getParent();
+        while (parent != null && !Files.isDirectory(parent))
+            parent = parent.getParent();
+        if (parent != null && !registered.containsKey(parent))
+            register(parent, CREATE_ONLY);
+    }
+
+    private void register(@NotNull Path dir, WatchEvent.Kind<?> @NotNull [] kinds) throws IOException {
+        keys.put(dir.register(watchService, kinds), dir);
+        registered.put(dir, kinds);
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                WatchKey key = dirty.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(nextDeadline() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                if (key != null)
+                    process(key);
+                flushDue();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void process(@NotNull WatchKey key) {
+        Path dir = keys.get(key);
+        List<WatchEvent<?>> events = key.pollEvents();
+        if (!key.reset()) {
+            keys.remove(key);
+            // the directory was deleted: wait for it, and the directories beneath it, to come back
+            if (dir != null)
+                rewatch(dir);
+        }
+        if (dir == null)
+            return;
+        boolean created = false;
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == ENTRY_CREATE)
+                created = true;
+        }
+        if (created && !pending.isEmpty()) {
+            synchronized (this) {
+                for (Path path : new ArrayList<>(pending)) {
+                    if (!path.startsWith(dir))
+                        continue;
+                    try {
+                        watch(path);
+                    } catch (IOException e) {
+                        fail(path, e);
+                        continue;
+                    }
+                    // the directory may have been created along with its entries
+                    if (!pending.contains(path))
+                        changed(path);
+                }
+            }
+        }
+        changed(dir);
+    }
+
+    // watches the wanted directories at or beneath a directory that can no longer be watched
+    private synchronized void rewatch(@NotNull Path dir) {
+        // the directories beneath it are gone as well, even if their keys were not cancelled yet
+        registered.keySet().removeIf(path -> path.startsWith(dir));
+        Set<Path> wanted = new LinkedHashSet<>(pending);
+        for (Subscriber subscriber : subscribers)
+            wanted.add(subscriber.dir);
+        wanted.addAll(directoryListeners.keySet());
+        for (Path path : wanted) {
+            if (!path.startsWith(dir))
+                continue;
+            try {
+                watch(path);
+            } catch (IOException e) {
+                fail(path, e);
+            }
+        }
+    }
+
+    // notifies the directory listeners right away, and the subscribers once the events settle
+    private void changed(@NotNull Path dir) {
+        List<Runnable> listeners = directoryListeners.get(dir);
+        if (listeners != null) {
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (Throwable ignored) {
+                    // the watcher thread must survive broken listeners
+                }
+            }
+        }
+        dirty.put(dir, System.currentTimeMillis() + DEBOUNCE_MILLIS);
+    }
+
+    private long nextDeadline() {
+        long min = Long.MAX_VALUE;
+        for (long deadline : dirty.values())
+            min = Math.min(min, deadline);
+        return min;
+    }
+
+    private void flushDue() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Long>> iterator = dirty.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getValue() > now)
+                continue;
+            iterator.remove();
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.dir.equals(entry.getKey()))
+                    subscriber.check();
+            }
+        }
+    }
+
+    // passes the failure to the subscribers of the given directory
+    private void fail(@NotNull Path dir, @NotNull Throwable failure) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.dir.equals(dir))
+                subscriber.fail(failure);
+        }
+    }
+
+    private final class Subscriber {
+
+        private final AutoLaunch autoLaunch;
+        private final Consumer<StateChange> listener;
+        private final Consumer<Throwable> errorHandler;
+        private final Path dir;
+        private boolean lastState;
+
+        Subscriber(AutoLaunch autoLaunch, Consumer<StateChange> listener, Consumer<Throwable> errorHandler, Path dir, boolean state) {
+            this.autoLaunch = autoLaunch;
+            this.listener = listener;
+            this.errorHandler = errorHandler;
+            this.dir = dir;
+            this.lastState = state;
+        }
+
+        void check() {
+            try {
+                boolean state = platform.isEnabled(autoLaunch);
+                if (lastState == state)
+                    return;
+                lastState = state;
+                listener.accept(new StateChange(autoLaunch, state));
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        void fail(@NotNull Throwable failure) {
+            try {
+                errorHandler.accept(failure);
+            } catch (Throwable ignored) {
+                // the watcher thread must survive broken handlers
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package revxrsal.autolaunch;
+
+/**
+ * Represents a subscription to state changes, as returned by
+ * {@link AutoLaunch#watch(java.util.function.Consumer)}.
+ */
+public interface Subscription extends AutoCloseable {
+
+    /**
+     * Cancels this subscription. Changes are no longer delivered
+     * once this subscription is closed. Calling this more than once has no effect.
+     */
+    @Override
+    void close();
+
+}
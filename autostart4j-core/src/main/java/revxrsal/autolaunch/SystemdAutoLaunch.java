@@ -0,0 +1,309 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static revxrsal.autolaunch.Utils.sneakyThrow;
+
+/**
+ * The {@link PlatformAutoLaunch} implementation for Linux that uses systemd
+ * user units, rather than XDG autostart entries. Units are started by the user's
+ * service manager at login, in parallel, including in sessions that have no
+ * desktop environment.
+ * <p>
+ * Units are written to {@literal ~/.config/systemd/user}, and are enabled and
+ * disabled through {@literal systemctl --user}. The {@literal systemctl} command
+ * can be replaced by setting the {@literal autostart4j.systemctl} system property.
+ *
+ * @see AutoLaunch.Builder#useSystemdUnit()
+ */
+final class SystemdAutoLaunch implements PlatformAutoLaunch {
+
+    public static final SystemdAutoLaunch INSTANCE = new SystemdAutoLaunch();
+
+    /**
+     * The target that units are installed into
+     */
+    private static final String TARGET = "default.target";
+
+    /**
+     * The {@literal systemctl} command
+     */
+    private static final String SYSTEMCTL = System.getProperty("autostart4j.systemctl", "systemctl");
+
+    /**
+     * The time after which {@literal systemctl} is killed
+     */
+    private static final Duration SYSTEMCTL_TIMEOUT = Duration.ofSeconds(30);
+
+    private SystemdAutoLaunch() {
+    }
+
+    public static String formatUnit(AutoLaunch autoLaunch) {
+        StringBuilder unit = new StringBuilder(256)
+                .append("[Unit]\n")
+                .append("Description=").append(Encoders.systemdValue(autoLaunch.getAppName())).append(" startup script\n");
+        if (!autoLaunch.getStartAfter().isEmpty()) {
+            unit.append("After=");
+            for (String appName : autoLaunch.getStartAfter())
+                unit.append(getUnitName(appName)).append(' ');
+            unit.setCharAt(unit.length() - 1, '\n');
+        }
+        unit.append('\n')
+                .append("[Service]\n")
+                .append("Type=simple\n");
+        long delay = DelayedLaunch.seconds(autoLaunch);
+        if (delay > 0) {
+            // units ordered after this one wait for the delay as well. sleep is looked
+            // up on the search path (systemd 239+), as it is not in /bin everywhere
+            unit.append("ExecStartPre=sleep ").append(delay).append('\n')
+                    .append("TimeoutStartSec=infinity\n");
+        }
+        if (autoLaunch.marksLaunches())
+            unit.append("Environment=").append(Encoders.systemdEnvironment(LaunchContext.ENVIRONMENT_VARIABLE, autoLaunch.getAppName())).append('\n');
+        ResourceProfile profile = autoLaunch.getResourceProfile();
+        if (profile != null) {
+            if (profile.getNice() != null)
+                unit.append("Nice=").append(profile.getNice()).append('\n');
+            if (profile.getIoClass() != null) {
+                unit.append("IOSchedulingClass=").append(profile.getIoClass().getSystemdName()).append('\n');
+                if (profile.getIoClass() != ResourceProfile.IoClass.IDLE)
+                    unit.append("IOSchedulingPriority=").append(profile.getIoPriority()).append('\n');
+            }
+            for (String property : createCgroupProperties(profile))
+                unit.append(property).append('\n');
+        }
+        return unit.append("ExecStart=").append(Encoders.systemdExec(autoLaunch.getAppFile().getAbsolutePath(), autoLaunch.getArgs())).append('\n')
+                .append('\n')
+                .append("[Install]\n")
+                .append("WantedBy=").append(TARGET).append('\n')
+                .toString();
+    }
+
+    /**
+     * Returns the control group settings of the given profile, as unit
+     * properties. These are shared with {@literal systemd-run}.
+     *
+     * @param profile The resource profile
+     * @return The properties, in {@literal Key=Value} form
+     */
+    static @NotNull List<String> createCgroupProperties(@NotNull ResourceProfile profile) {
+        List<String> properties = new ArrayList<>(4);
+        if (profile.getCpuWeight() != null)
+            properties.add("CPUWeight=" + profile.getCpuWeight());
+        if (profile.getIoWeight() != null)
+            properties.add("IOWeight=" + profile.getIoWeight());
+        if (profile.getMemoryMax() > 0)
+            properties.add("MemoryMax=" + profile.getMemoryMax());
+        if (profile.getCpuQuota() > 0)
+            properties.add("CPUQuota=" + profile.getCpuQuota() + "%");
+        return properties;
+    }
+
+    /**
+     * Returns the name of the unit of the given application
+     *
+     * @param appName The application name
+     * @return The unit name
+     */
+    static @NotNull String getUnitName(@NotNull String appName) {
+        return Encoders.systemdUnitName(appName) + ".service";
+    }
+
+    static Path getUnitDirectory() {
+        return getUnitDirectory(Paths.get(System.getProperty("user.home")));
+    }
+
+    static Path getUnitDirectory(@NotNull Path home) {
+        return home.resolve(".config").resolve("systemd").resolve("user");
+    }
+
+    // the directory that holds the symlinks of the enabled units
+    private static Path getWantsDirectory() {
+        return getWantsDirectory(getUnitDirectory());
+    }
+
+    static Path getWantsDirectory(@NotNull Path unitDirectory) {
+        return unitDirectory.resolve(TARGET + ".wants");
+    }
+
+    @Override
+    public void enable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            writeUnit(autoLaunch, autoLaunch.getDurability());
+            if (!isEnabled(autoLaunch))
+                systemctl("enable", Collections.singletonList(autoLaunch));
+        } catch (IOException | InterruptedException e) {
+            sneakyThrow(e);
+        }
+    }
+
+    @Override
+    public void disable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            Path unit = getUnitDirectory().resolve(getUnitName(autoLaunch.getAppName()));
+            if (isEnabled(autoLaunch))
+                systemctl("disable", Collections.singletonList(autoLaunch));
+            else
+                Files.deleteIfExists(getWantsDirectory().resolve(unit.getFileName()));
+            Files.deleteIfExists(unit);
+        } catch (IOException | InterruptedException e) {
+            sneakyThrow(e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(@NotNull AutoLaunch autoLaunch) {
+        // this is exactly what 'systemctl is-enabled' checks, without the process
+        return Files.exists(getWantsDirectory().resolve(getUnitName(autoLaunch.getAppName())));
+    }
+
+    @Override
+    public @NotNull Drift checkDrift(@NotNull AutoLaunch autoLaunch) {
+        String unitName = getUnitName(autoLaunch.getAppName());
+        // unlike isEnabled(), the link itself is checked, as it dangles when the unit file is gone
+        if (!Files.exists(getWantsDirectory().resolve(unitName), LinkOption.NOFOLLOW_LINKS))
+            return Drift.NOT_ENABLED;
+        Path unit = getUnitDirectory().resolve(unitName);
+        Drift drift = Fingerprint.driftOf(unit, autoLaunch.payload(Payload.SYSTEMD_UNIT, SystemdAutoLaunch::formatUnit));
+        // an enabled unit whose file is gone is stale, not disabled
+        return drift == Drift.NOT_ENABLED ? Drift.STALE : drift;
+    }
+
+    @Override
+    public @NotNull Drift reconcile(@NotNull AutoLaunch autoLaunch) {
+        Drift drift = checkDrift(autoLaunch);
+        if (drift == Drift.STALE) {
+            try {
+                Path unit = getUnitDirectory().resolve(getUnitName(autoLaunch.getAppName()));
+                AtomicWriter.write(unit, autoLaunch.payload(Payload.SYSTEMD_UNIT, SystemdAutoLaunch::formatUnit), autoLaunch.getDurability());
+            } catch (IOException e) {
+                sneakyThrow(e);
+            }
+            // the unit is read again at the next login regardless, so a
+            // reload failure (i.e. no user session) is not a failure
+            try {
+                new ProcessRunner(Arrays.asList(SYSTEMCTL, "--user", "daemon-reload")).timeout(SYSTEMCTL_TIMEOUT).run();
+            } catch (IOException ignored) {
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return drift;
+    }
+
+    @Override
+    public @NotNull BatchResult applyAll(
+            @NotNull Collection<AutoLaunch> toEnable,
+            @NotNull Collection<AutoLaunch> toDisable
+    ) {
+        List<BatchResult.Entry> entries = new ArrayList<>(toEnable.size() + toDisable.size());
+
+        // write all units, then enable the ones that need it in a single systemctl call
+        List<AutoLaunch> enabling = new ArrayList<>();
+        List<Integer> enablingEntries = new ArrayList<>();
+        for (AutoLaunch autoLaunch : toEnable) {
+            Throwable failure = null;
+            try {
+                writeUnit(autoLaunch, autoLaunch.getDurability());
+                if (!isEnabled(autoLaunch)) {
+                    enabling.add(autoLaunch);
+                    enablingEntries.add(entries.size());
+                }
+            } catch (Throwable t) {
+                failure = t;
+            }
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.ENABLE, failure));
+        }
+        failAll(entries, enablingEntries, BatchResult.Action.ENABLE, run("enable", enabling));
+
+        List<AutoLaunch> disabling = new ArrayList<>();
+        List<Integer> disablingEntries = new ArrayList<>();
+        for (AutoLaunch autoLaunch : toDisable) {
+            if (isEnabled(autoLaunch)) {
+                disabling.add(autoLaunch);
+                disablingEntries.add(entries.size());
+            }
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.DISABLE, null));
+        }
+        failAll(entries, disablingEntries, BatchResult.Action.DISABLE, run("disable", disabling));
+        int offset = toEnable.size();
+        for (AutoLaunch autoLaunch : toDisable) {
+            if (entries.get(offset).isSuccessful()) {
+                try {
+                    Files.deleteIfExists(getUnitDirectory().resolve(getUnitName(autoLaunch.getAppName())));
+                } catch (Throwable t) {
+                    entries.set(offset, new BatchResult.Entry(autoLaunch, BatchResult.Action.DISABLE, t));
+                }
+            }
+            offset++;
+        }
+        return new BatchResult(entries);
+    }
+
+    @Override
+    public @NotNull Path getWatchedDirectory(@NotNull AutoLaunch autoLaunch) {
+        return getWantsDirectory();
+    }
+
+    @Override
+    public @NotNull Path getLockDirectory(@NotNull AutoLaunch autoLaunch) {
+        // the wants directory should only contain unit links
+        return getUnitDirectory();
+    }
+
+    private static void writeUnit(@NotNull AutoLaunch autoLaunch, @NotNull Durability durability) throws IOException {
+        byte[] data = autoLaunch.payload(Payload.SYSTEMD_UNIT, SystemdAutoLaunch::formatUnit);
+        Path dir = getUnitDirectory();
+        Files.createDirectories(dir);
+        Path file = dir.resolve(getUnitName(autoLaunch.getAppName()));
+        if (AtomicWriter.isAbsentOrEmpty(file))
+            AtomicWriter.write(file, data, durability);
+    }
+
+    // runs 'systemctl --user <verb> <units...>', returning the failure if any
+    private static @Nullable Throwable run(@NotNull String verb, @NotNull List<AutoLaunch> autoLaunches) {
+        if (autoLaunches.isEmpty())
+            return null;
+        try {
+            systemctl(verb, autoLaunches);
+            return null;
+        } catch (Throwable t) {
+            return t;
+        }
+    }
+
+    private static void systemctl(@NotNull String verb, @NotNull List<AutoLaunch> autoLaunches) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(autoLaunches.size() + 3);
+        command.add(SYSTEMCTL);
+        command.add("--user");
+        command.add(verb);
+        for (AutoLaunch autoLaunch : autoLaunches)
+            command.add(getUnitName(autoLaunch.getAppName()));
+        new ProcessRunner(command).timeout(SYSTEMCTL_TIMEOUT).run().throwIfFailed();
+    }
+
+    private static void failAll(
+            @NotNull List<BatchResult.Entry> entries,
+            @NotNull List<Integer> indices,
+            @NotNull BatchResult.Action action,
+            @Nullable Throwable failure
+    ) {
+        if (failure == null)
+            return;
+        for (int index : indices)
+            entries.set(index, new BatchResult.Entry(entries.get(index).getAutoLaunch(), action, failure));
+    }
+}
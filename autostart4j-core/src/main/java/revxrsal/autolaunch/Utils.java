@@ -1,7 +1,6 @@
 package revxrsal.autolaunch;
 
 import org.jetbrains.annotations.Contract;
-import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
 
@@ -25,28 +24,6 @@ final class Utils {
         throw (E) e;
     }
 
-    public static @NotNull String getOutput(@NotNull Process process) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append('\n');
-            }
-
-            // Wait for the process to finish
-            int exitCode = process.waitFor();
-
-            if (exitCode == 0) {
-                return output.toString().trim();
-            } else {
-                throw new RuntimeException("Command execution failed with exit code: " + exitCode);
-            }
-        } catch (Throwable e) {
-            sneakyThrow(e);
-            return "unreachable";
-        }
-    }
-
     /* Copied and modified from Apache Commons Text */
 
     public static String escapeJava(String str) {
@@ -102,14 +79,20 @@ final class Utils {
         if (str == null) {
             return null;
         }
+        // fast path: nothing to escape
+        int first = firstEscaped(str, escapeSingleQuotes);
+        if (first == -1) {
+            return str;
+        }
+        StringBuilder out = new StringBuilder(str.length() + 16);
+        out.append(str, 0, first);
         try {
-            StringWriter writer = new StringWriter(str.length() * 2);
-            escapeJavaStyleString(writer, str, escapeSingleQuotes);
-            return writer.toString();
+            escapeJavaStyleString(out, str, first, escapeSingleQuotes);
         } catch (IOException ioe) {
-            // this should never ever happen while writing to a StringWriter
+            // this should never ever happen while writing to a StringBuilder
             return null;
         }
+        return out.toString();
     }
 
     private static void escapeJavaStyleString(Writer out, String str, boolean escapeSingleQuote) throws IOException {
@@ -119,73 +102,79 @@ final class Utils {
         if (str == null) {
             return;
         }
+        escapeJavaStyleString(out, str, 0, escapeSingleQuote);
+    }
+
+    private static int firstEscaped(String str, boolean escapeSingleQuote) {
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if (ch > 0x7f || ch < 32 || ch == '"' || ch == '\\' || (escapeSingleQuote && ch == '\'')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void escapeJavaStyleString(Appendable out, String str, int from, boolean escapeSingleQuote) throws IOException {
         int sz;
         sz = str.length();
-        for (int i = 0; i < sz; i++) {
+        for (int i = from; i < sz; i++) {
             char ch = str.charAt(i);
 
             // handle unicode
-            if (ch > 0xfff) {
-                out.write("\\u" + hex(ch));
-            } else if (ch > 0xff) {
-                out.write("\\u0" + hex(ch));
-            } else if (ch > 0x7f) {
-                out.write("\\u00" + hex(ch));
+            if (ch > 0x7f) {
+                unicode(out, ch);
             } else if (ch < 32) {
                 switch (ch) {
                     case '\b':
-                        out.write('\\');
-                        out.write('b');
+                        out.append('\\').append('b');
                         break;
                     case '\n':
-                        out.write('\\');
-                        out.write('n');
+                        out.append('\\').append('n');
                         break;
                     case '\t':
-                        out.write('\\');
-                        out.write('t');
+                        out.append('\\').append('t');
                         break;
                     case '\f':
-                        out.write('\\');
-                        out.write('f');
+                        out.append('\\').append('f');
                         break;
                     case '\r':
-                        out.write('\\');
-                        out.write('r');
+                        out.append('\\').append('r');
                         break;
                     default :
-                        if (ch > 0xf) {
-                            out.write("\\u00" + hex(ch));
-                        } else {
-                            out.write("\\u000" + hex(ch));
-                        }
+                        unicode(out, ch);
                         break;
                 }
             } else {
                 switch (ch) {
                     case '\'':
                         if (escapeSingleQuote) {
-                            out.write('\\');
+                            out.append('\\');
                         }
-                        out.write('\'');
+                        out.append('\'');
                         break;
                     case '"':
-                        out.write('\\');
-                        out.write('"');
+                        out.append('\\').append('"');
                         break;
                     case '\\':
-                        out.write('\\');
-                        out.write('\\');
+                        out.append('\\').append('\\');
                         break;
                     default :
-                        out.write(ch);
+                        out.append(ch);
                         break;
                 }
             }
         }
     }
 
-    private static String hex(char ch) {
-        return Integer.toHexString(ch).toUpperCase();
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // writes the unicode escape of the given character, without allocating
+    private static void unicode(Appendable out, char ch) throws IOException {
+        out.append('\\').append('u')
+                .append(HEX_DIGITS[(ch >> 12) & 0xF])
+                .append(HEX_DIGITS[(ch >> 8) & 0xF])
+                .append(HEX_DIGITS[(ch >> 4) & 0xF])
+                .append(HEX_DIGITS[ch & 0xF]);
     }
 }
@@ -0,0 +1,99 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link AppleScriptSession} against a shell script that speaks the same
+ * protocol as the {@literal osascript} interpreter. Scripts are interpreted
+ * as follows:
+ * <ul>
+ *     <li>{@literal pid} prints a line of noise, then returns the process ID</li>
+ *     <li>{@literal fail} returns an error</li>
+ *     <li>{@literal hang} never responds</li>
+ *     <li>{@literal exit} exits without responding</li>
+ *     <li>Anything else is echoed back</li>
+ * </ul>
+ */
+@DisabledOnOs(OS.WINDOWS)
+class AppleScriptSessionTest {
+
+    private static final String STAND_IN = String.join("\n",
+            "while IFS= read -r line; do",
+            "  line=${line#\\\"}; line=${line%\\\"}",
+            "  case \"$line\" in",
+            "    pid) printf 'noise\\n\\001as4j\\001 OK %s\\n' \"$$\" ;;",
+            "    fail) printf '\\001as4j\\001 ERR boom\\n' ;;",
+            "    hang) exec sleep 60 ;;",
+            "    exit) exit 0 ;;",
+            "    *) printf '\\001as4j\\001 OK %s\\n' \"$line\" ;;",
+            "  esac",
+            "done"
+    );
+
+    private static final long READ_TIMEOUT = 500;
+
+    private AppleScriptSession session;
+
+    @BeforeEach
+    void start() {
+        session = new AppleScriptSession(Arrays.asList("sh", "-c", STAND_IN), 30_000, READ_TIMEOUT);
+    }
+
+    @AfterEach
+    void close() {
+        session.close();
+    }
+
+    @Test
+    void returnsResults() throws IOException {
+        assertEquals("hello", session.execute("hello"));
+        assertEquals("world", session.execute("world"));
+    }
+
+    @Test
+    void reusesTheInterpreter() throws IOException {
+        String pid = session.execute("pid");
+        assertEquals(pid, session.execute("pid"));
+    }
+
+    @Test
+    void failedScriptsThrow() throws IOException {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> session.execute("fail"));
+        assertTrue(e.getMessage().endsWith("boom"));
+        assertEquals("still alive", session.execute("still alive"));
+    }
+
+    @Test
+    void restartsAfterExit() throws IOException {
+        String pid = session.execute("pid");
+        assertThrows(IOException.class, () -> session.execute("exit"));
+        assertNotEquals(pid, session.execute("pid"));
+    }
+
+    @Test
+    void killsUnresponsiveInterpreter() throws IOException {
+        String pid = session.execute("pid");
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class, () -> session.execute("hang"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(e.getMessage().contains("did not respond"), e.getMessage());
+        assertTrue(elapsedMillis < 10_000, "took " + elapsedMillis + "ms");
+        assertNotEquals(pid, session.execute("pid"));
+    }
+
+    @Test
+    void restartsAfterClose() throws IOException {
+        String pid = session.execute("pid");
+        session.close();
+        assertNotEquals(pid, session.execute("pid"));
+    }
+}
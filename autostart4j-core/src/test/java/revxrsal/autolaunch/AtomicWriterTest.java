@@ -0,0 +1,172 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replacesTheTargetWithEachDurability() throws IOException {
+        Path target = dir.resolve("entry.desktop");
+        for (Durability durability : Durability.values()) {
+            AtomicWriter.write(target, durability.name().getBytes(StandardCharsets.UTF_8), durability);
+            assertEquals(durability.name(), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        }
+        assertEquals(Collections.singletonList(target), list(dir));
+    }
+
+    @Test
+    void failedMovesLeaveNoTemporaryFile() throws IOException {
+        // a directory that is not empty cannot be replaced by a file
+        Path target = Files.createDirectory(dir.resolve("entry.desktop"));
+        Files.createFile(target.resolve("child"));
+        assertThrows(IOException.class, () -> AtomicWriter.write(target, new byte[]{1}, Durability.FILE));
+        assertEquals(Collections.singletonList(target), list(dir));
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void failedMovesInOpenDirectoriesLeaveNoTemporaryFile() throws IOException {
+        Path target = Files.createDirectory(dir.resolve("entry.desktop"));
+        Files.createFile(target.resolve("child"));
+        try (SecureDirectoryStream<Path> open = (SecureDirectoryStream<Path>) Files.newDirectoryStream(dir)) {
+            assertThrows(IOException.class, () -> AtomicWriter.write(open, target, new byte[]{1}, Durability.FILE, null));
+            AtomicWriter.write(open, dir.resolve("other"), new byte[]{1}, Durability.FILE, null);
+        }
+        assertEquals(2, list(dir).size());
+    }
+
+    @Test
+    void readersNeverSeePartialContents() throws Exception {
+        Path target = dir.resolve("entry.desktop");
+        byte[] small = "small".getBytes(StandardCharsets.UTF_8);
+        byte[] large = new byte[256 * 1024];
+        AtomicWriter.write(target, small, Durability.NONE);
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> reader = executor.submit(() -> {
+                int reads = 0;
+                while (!done.get()) {
+                    int length = Files.readAllBytes(target).length;
+                    assertTrue(length == small.length || length == large.length, "read " + length + " bytes");
+                    reads++;
+                }
+                return reads;
+            });
+            for (int i = 0; i < 200; i++)
+                AtomicWriter.write(target, i % 2 == 0 ? large : small, Durability.NONE);
+            done.set(true);
+            assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singletonList(target), list(dir));
+    }
+
+    @Test
+    void concurrentDirectoryFlushesAreShared() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger flushes = new AtomicInteger();
+        AtomicWriter.GroupSync sync = new AtomicWriter.GroupSync(dir) {
+            @Override
+            void force() {
+                if (flushes.incrementAndGet() == 1) {
+                    firstStarted.countDown();
+                    awaitQuietly(releaseFirst);
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Future<?> first = executor.submit(() -> sync(sync));
+            assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+            // these arrive while the first flush is running, so none of them is covered by it
+            List<Thread> waiting = new CopyOnWriteArrayList<>();
+            List<Future<?>> others = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                others.add(executor.submit(() -> {
+                    waiting.add(Thread.currentThread());
+                    sync(sync);
+                }));
+            }
+            awaitWaiting(waiting, 8);
+            releaseFirst.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            for (Future<?> other : others)
+                other.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        // one flush for the first writer, and a single one for all the others
+        assertEquals(2, flushes.get());
+    }
+
+    @Test
+    void failedFlushesDoNotCoverAnyone() throws Exception {
+        AtomicInteger flushes = new AtomicInteger();
+        AtomicWriter.GroupSync sync = new AtomicWriter.GroupSync(dir) {
+            @Override
+            void force() throws IOException {
+                if (flushes.incrementAndGet() == 1)
+                    throw new IOException("flush failed");
+            }
+        };
+        assertThrows(IOException.class, sync::sync);
+        sync.sync();
+        assertEquals(2, flushes.get());
+    }
+
+    private static void sync(AtomicWriter.GroupSync sync) {
+        try {
+            sync.sync();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // waits until the given number of threads are waiting for a flush
+    private static void awaitWaiting(List<Thread> threads, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (threads.size() < count || !threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING)) {
+            assertTrue(System.nanoTime() - deadline < 0, "the writers did not wait for the flush");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parses keyed archives shaped like the background items store. These are
+ * synthesized rather than captured from a real machine, which is why reading
+ * the store is opt-in.
+ */
+class BackgroundItemsTest {
+
+    @Test
+    void collectsItemNames() {
+        byte[] store = store("BackgroundItem", "Example", "Other App");
+        assertEquals(new LinkedHashSet<>(Arrays.asList("Example", "Other App")), BackgroundItems.parse(store));
+    }
+
+    @Test
+    void storesWithoutItemsAreNotRecognized() {
+        assertNull(BackgroundItems.parse(store("BackgroundItem")));
+        // named objects that are not items
+        assertNull(BackgroundItems.parse(store("Container", "Example")));
+    }
+
+    @Test
+    void malformedStoresAreNotRecognized() {
+        assertNull(BackgroundItems.parse(new byte[]{1, 2, 3}));
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        assertNull(BackgroundItems.parse(writer.finish(writer.string("not an archive"))));
+    }
+
+    @Test
+    void onlyPerUserStoresAreAuthoritative() {
+        assertFalse(BackgroundItems.isAuthoritative("10.12.6"));
+        assertTrue(BackgroundItems.isAuthoritative("10.13"));
+        assertTrue(BackgroundItems.isAuthoritative("12.7.1"));
+        assertFalse(BackgroundItems.isAuthoritative("13.0"));
+        assertFalse(BackgroundItems.isAuthoritative(null));
+        assertFalse(BackgroundItems.isAuthoritative("unknown"));
+    }
+
+    private static byte[] store(String itemClass, String... names) {
+        return BackgroundItemsStore.of(itemClass, names);
+    }
+}
@@ -0,0 +1,142 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round-trips property lists through {@link BinaryPlistWriter} and {@link BinaryPlistReader}
+ */
+class BinaryPlistTest {
+
+    @Test
+    void roundTripsScalars() {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int[] elements = {
+                writer.string("short"),
+                writer.integer(0),
+                writer.integer(255),
+                writer.integer(65_536),
+                writer.integer(Long.MAX_VALUE),
+                writer.bool(true),
+                writer.bool(false),
+                writer.uid(300)
+        };
+        List<?> list = (List<?>) read(writer, writer.array(elements, elements.length));
+        assertEquals(Arrays.asList(
+                "short", 0L, 255L, 65_536L, Long.MAX_VALUE, true, false, new BinaryPlistReader.Uid(300)
+        ), list);
+    }
+
+    @Test
+    void roundTripsNegativeIntegers() {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int[] elements = {writer.integer(-1), writer.integer(-20), writer.integer(Long.MIN_VALUE)};
+        List<?> list = (List<?>) read(writer, writer.array(elements, elements.length));
+        assertEquals(Arrays.asList(-1L, -20L, Long.MIN_VALUE), list);
+    }
+
+    @Test
+    void roundTripsLongStrings() {
+        // 15 characters and above no longer fit in the marker
+        String fifteen = "abcdefghijklmno";
+        String longer = repeat("x", 70_000);
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int[] elements = {writer.string(fifteen), writer.string(longer)};
+        List<?> list = (List<?>) read(writer, writer.array(elements, elements.length));
+        assertEquals(Arrays.asList(fifteen, longer), list);
+    }
+
+    @Test
+    void roundTripsUtf16Strings() {
+        String accented = "Caf\u00e9";
+        String emoji = "Launch \uD83D\uDE80 at login, please";
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int[] elements = {writer.string(accented), writer.string(emoji)};
+        List<?> list = (List<?>) read(writer, writer.array(elements, elements.length));
+        assertEquals(Arrays.asList(accented, emoji), list);
+    }
+
+    @Test
+    void deduplicatesStringsAndBooleans() {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int a = writer.string("Label");
+        assertEquals(a, writer.string("Label"));
+        assertNotEquals(a, writer.string("label"));
+        int t = writer.bool(true);
+        assertEquals(t, writer.bool(true));
+        int f = writer.bool(false);
+        assertEquals(f, writer.bool(false));
+
+        int[] elements = {a, a, t, f, t};
+        List<?> list = (List<?>) read(writer, writer.array(elements, elements.length));
+        assertEquals(Arrays.asList("Label", "Label", true, false, true), list);
+        // shared objects are decoded once
+        assertSame(list.get(0), list.get(1));
+    }
+
+    @Test
+    void roundTripsWideReferences() {
+        // more than 256 objects need two-byte references, and more than
+        // 65536 need four-byte ones
+        for (int count : new int[]{300, 70_000}) {
+            BinaryPlistWriter writer = new BinaryPlistWriter();
+            int[] keys = new int[count];
+            int[] values = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = writer.string("key" + i);
+                values[i] = writer.integer(i);
+            }
+            byte[] data = writer.finish(writer.dict(keys, values, count));
+            int refSize = data[data.length - 32 + 7];
+            assertEquals(count > 65_536 ? 4 : 2, refSize);
+
+            Map<?, ?> dict = (Map<?, ?>) BinaryPlistReader.parse(data);
+            assertEquals(count, dict.size());
+            for (int i = 0; i < count; i++)
+                assertEquals((long) i, dict.get("key" + i));
+        }
+    }
+
+    @Test
+    void roundTripsNestedContainers() {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int[] arguments = {writer.string("/bin/app"), writer.string("--minimized")};
+        int[] keys = {writer.string("Label"), writer.string("ProgramArguments")};
+        int[] values = {writer.string("app"), writer.array(arguments, arguments.length)};
+        Map<?, ?> dict = (Map<?, ?>) read(writer, writer.dict(keys, values, keys.length));
+        assertEquals("app", dict.get("Label"));
+        assertEquals(Arrays.asList("/bin/app", "--minimized"), dict.get("ProgramArguments"));
+    }
+
+    @Test
+    void detectsBinaryPlists() {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        assertTrue(BinaryPlistReader.isBinaryPlist(writer.finish(writer.string("a"))));
+        assertFalse(BinaryPlistReader.isBinaryPlist("<?xml version=\"1.0\"?>".getBytes()));
+        assertFalse(BinaryPlistReader.isBinaryPlist(new byte[0]));
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        byte[] data = writer.finish(writer.string("truncated"));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryPlistReader.parse(Arrays.copyOf(data, data.length - 1)));
+    }
+
+    private static Object read(BinaryPlistWriter writer, int root) {
+        return BinaryPlistReader.parse(writer.finish(root));
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++)
+            builder.append(s);
+        return builder.toString();
+    }
+}
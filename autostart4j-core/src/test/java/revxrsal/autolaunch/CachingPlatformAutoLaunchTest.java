@@ -0,0 +1,100 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the cache against a platform whose entries are files in a temporary
+ * directory, and that counts how often it is asked for the state
+ */
+class CachingPlatformAutoLaunchTest {
+
+    @TempDir
+    Path dir;
+
+    private FilePlatform platform;
+    private CachingPlatformAutoLaunch cache;
+    private Path app;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        platform = new FilePlatform(dir.resolve("entries"));
+        cache = new CachingPlatformAutoLaunch(platform, new StateWatcher(platform));
+        app = Files.createFile(dir.resolve("app"));
+    }
+
+    @Test
+    void hitsDoNotReachThePlatform() {
+        AutoLaunch autoLaunch = autoLaunch(Duration.ofHours(1));
+        assertFalse(cache.isEnabled(autoLaunch));
+        int reads = platform.reads.get(), lookups = platform.lookups.get();
+        for (int i = 0; i < 100; i++)
+            assertFalse(cache.isEnabled(autoLaunch));
+        assertEquals(reads, platform.reads.get());
+        assertEquals(lookups, platform.lookups.get());
+    }
+
+    @Test
+    void expiresAfterTheTtl() throws InterruptedException {
+        AutoLaunch autoLaunch = autoLaunch(Duration.ofMillis(50));
+        cache.isEnabled(autoLaunch);
+        cache.isEnabled(autoLaunch);
+        assertEquals(1, platform.reads.get());
+        Thread.sleep(100);
+        cache.isEnabled(autoLaunch);
+        assertEquals(2, platform.reads.get());
+    }
+
+    @Test
+    void ownChangesInvalidate() {
+        AutoLaunch autoLaunch = autoLaunch(Duration.ofHours(1));
+        assertFalse(cache.isEnabled(autoLaunch));
+        cache.enable(autoLaunch);
+        assertTrue(cache.isEnabled(autoLaunch));
+        cache.disable(autoLaunch);
+        assertFalse(cache.isEnabled(autoLaunch));
+        assertEquals(3, platform.reads.get());
+    }
+
+    @Test
+    void externalChangesInvalidate() throws IOException, InterruptedException {
+        AutoLaunch autoLaunch = autoLaunch(Duration.ofHours(1));
+        assertFalse(cache.isEnabled(autoLaunch));
+
+        // created behind the cache's back, along with the directory
+        platform.enable(autoLaunch);
+        awaitState(autoLaunch, true);
+
+        // edited in place, which keeps the directory's modification time
+        Files.write(platform.fileOf(autoLaunch), "off".getBytes());
+        awaitState(autoLaunch, false);
+
+        Files.delete(platform.fileOf(autoLaunch));
+        Files.write(platform.fileOf(autoLaunch), "on".getBytes());
+        awaitState(autoLaunch, true);
+    }
+
+    private void awaitState(AutoLaunch autoLaunch, boolean expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (cache.isEnabled(autoLaunch) != expected) {
+            assertTrue(System.nanoTime() - deadline < 0, "the cache was not invalidated");
+            Thread.sleep(10);
+        }
+    }
+
+    private AutoLaunch autoLaunch(Duration ttl) {
+        return AutoLaunch.builder()
+                .appName("Agent")
+                .appFile(app.toFile())
+                .cacheState(ttl)
+                .build();
+    }
+}
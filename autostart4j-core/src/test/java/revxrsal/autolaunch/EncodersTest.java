@@ -0,0 +1,102 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodersTest {
+
+    @Test
+    void plainExecArgumentsAreNotQuoted() {
+        assertEquals("/usr/bin/app --minimized --level=2 caf\u00e9",
+                Encoders.exec("/usr/bin/app", Arrays.asList("--minimized", "--level=2", "caf\u00e9")));
+    }
+
+    @Test
+    void execQuotesReservedCharacters() {
+        assertEquals("\"/opt/My App/app\"", Encoders.exec("/opt/My App/app", Collections.emptyList()));
+        assertEquals("/app \"\" \"it's\" \"a;b\" \"a|b\" \"~\"",
+                Encoders.exec("/app", Arrays.asList("", "it's", "a;b", "a|b", "~")));
+    }
+
+    @Test
+    void execDoublesPercentSigns() {
+        // field codes are expanded inside and outside of quotes
+        assertEquals("/app 50%% \"50%% off\"", Encoders.exec("/app", Arrays.asList("50%", "50% off")));
+    }
+
+    @Test
+    void execEscapesInsideQuotes() {
+        // each of these is escaped with a backslash, and the backslash is then doubled as a string escape
+        assertEquals("/app \"\\\\$HOME\"", Encoders.exec("/app", Collections.singletonList("$HOME")));
+        assertEquals("/app \"\\\\`id\\\\`\"", Encoders.exec("/app", Collections.singletonList("`id`")));
+        assertEquals("/app \"say \\\\\"hi\\\\\"\"", Encoders.exec("/app", Collections.singletonList("say \"hi\"")));
+        assertEquals("/app \"C:\\\\\\\\dir\"", Encoders.exec("/app", Collections.singletonList("C:\\dir")));
+    }
+
+    @Test
+    void execEscapesControlCharacters() {
+        assertEquals("/app \"a\\nb\\tc\"", Encoders.exec("/app", Collections.singletonList("a\nb\tc")));
+        // characters that cannot be escaped are dropped
+        assertEquals("/app \"ab\"", Encoders.exec("/app", Collections.singletonList("a\u0001b")));
+    }
+
+    @Test
+    void appendedExecArgumentsMatch() {
+        StringBuilder out = new StringBuilder("Exec=");
+        Encoders.appendExecArgument(out, "/opt/My App/app");
+        Encoders.appendExecArgument(out.append(' '), "$HOME");
+        assertEquals("Exec=" + Encoders.exec("/opt/My App/app", Collections.singletonList("$HOME")), out.toString());
+    }
+
+    @Test
+    void plainValues() {
+        assertTrue(Encoders.isPlain("/opt/app/bin/app"));
+        assertTrue(Encoders.isPlain("--log-level=info"));
+        assertTrue(Encoders.isPlain("caf\u00e9"));
+        for (String value : new String[]{"", "my app", "50%", "$HOME", "a\\b", "R&D", "it's", "a;b", "a\tb", "\u007f"})
+            assertFalse(Encoders.isPlain(value), value);
+    }
+
+    @Test
+    void desktopStrings() {
+        String plain = "My App";
+        assertSame(plain, Encoders.desktopString(plain));
+        assertEquals("\\sleading", Encoders.desktopString(" leading"));
+        assertEquals("a\\\\b\\nc", Encoders.desktopString("a\\b\nc"));
+        StringBuilder out = new StringBuilder();
+        Encoders.appendDesktopString(out, " a\\b");
+        assertEquals("\\sa\\\\b", out.toString());
+    }
+
+    @Test
+    void parsesDesktopStrings() {
+        for (String value : new String[]{"My App", " leading", "a\\b\nc\td\re", "trailing\\"})
+            assertEquals(value, Encoders.parseDesktopString(Encoders.desktopString(value)));
+        // unknown escapes are kept
+        assertEquals("a\\qb", Encoders.parseDesktopString("a\\qb"));
+    }
+
+    @Test
+    void xmlEntities() {
+        String plain = "/Applications/My App.app";
+        assertSame(plain, Encoders.xml(plain));
+        assertEquals("Tom &amp; Jerry &lt;3 &gt; &quot;x&quot; &apos;y&apos;", Encoders.xml("Tom & Jerry <3 > \"x\" 'y'"));
+        // tabs and line breaks are allowed, other control characters are not
+        assertEquals("a\tb\nc\rde", Encoders.xml("a\tb\nc\rd\u0000e"));
+        StringBuilder out = new StringBuilder("<string>");
+        Encoders.appendXml(out, "R&D");
+        assertEquals("<string>R&amp;D", out.toString());
+    }
+
+    @Test
+    void appleScriptLiterals() {
+        assertEquals("\"My App\"", Encoders.appleScriptLiteral("My App"));
+        assertEquals("\"say \\\"hi\\\" \\\\ bye\"", Encoders.appleScriptLiteral("say \"hi\" \\ bye"));
+        assertEquals("\"a\\nb\\rc\\td\"", Encoders.appleScriptLiteral("a\nb\rc\td"));
+        assertEquals("\"caf\u00e9 & co\"", Encoders.appleScriptLiteral("caf\u00e9 & co"));
+    }
+}
@@ -0,0 +1,178 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Locks entries from several threads, and from child JVMs for the lock files
+ */
+@EnabledOnOs(OS.LINUX)
+class EntryLocksTest {
+
+    @TempDir
+    Path dir;
+
+    private String previousHome;
+    private FilePlatform platform;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        previousHome = System.getProperty("user.home");
+        System.setProperty("user.home", dir.toString());
+        platform = new FilePlatform(dir.resolve("entries"));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        System.setProperty("user.home", previousHome);
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void locksOnlyTheStripeOfTheEntry() throws Exception {
+        AutoLaunch a = autoLaunch(dir, "A", false);
+        AutoLaunch other = autoLaunch(dir, nameInAnotherStripe("A"), false);
+        try (EntryLocks.Held ignored = EntryLocks.lock(a, platform)) {
+            Future<?> same = executor.submit(() -> EntryLocks.lock(a, platform).close());
+            assertThrows(TimeoutException.class, () -> same.get(200, TimeUnit.MILLISECONDS));
+            executor.submit(() -> EntryLocks.lock(other, platform).close()).get(10, TimeUnit.SECONDS);
+            assertFalse(same.isDone());
+        }
+    }
+
+    @Test
+    void locksEntriesAcrossProcesses() throws Exception {
+        AutoLaunch autoLaunch = autoLaunch(dir, "Agent", true);
+        Process holder = startHolder("hold", "Agent");
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(holder.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("locked", output.readLine());
+            Future<?> waiting = executor.submit(() -> EntryLocks.lock(autoLaunch, platform).close());
+            assertThrows(TimeoutException.class, () -> waiting.get(300, TimeUnit.MILLISECONDS));
+            // releasing the lock lets it through
+            holder.getOutputStream().close();
+            waiting.get(30, TimeUnit.SECONDS);
+            assertTrue(Files.exists(EntryLocks.lockFileOf(autoLaunch, platform)));
+        } finally {
+            holder.destroyForcibly();
+        }
+    }
+
+    @Test
+    void lockFilesTakenInOppositeOrdersDoNotDeadlock() throws Exception {
+        List<AutoLaunch> forward = Arrays.asList(autoLaunch(dir, "First", true), autoLaunch(dir, "Second", true));
+        List<AutoLaunch> backward = new ArrayList<>(forward);
+        Collections.reverse(backward);
+        Process other = startHolder("cycle", "Second", "First");
+        try {
+            Future<?> threads = executor.submit(() -> {
+                for (int i = 0; i < 200; i++)
+                    EntryLocks.lockAll(i % 2 == 0 ? forward : backward, platform).close();
+            });
+            threads.get(60, TimeUnit.SECONDS);
+            assertTrue(other.waitFor(60, TimeUnit.SECONDS), "the other process is stuck");
+            assertEquals(0, other.exitValue());
+        } finally {
+            other.destroyForcibly();
+        }
+    }
+
+    @Test
+    void concurrentTogglesNeverCancelOut() throws Exception {
+        AutoLaunch autoLaunch = autoLaunch(dir, "Toggled", true);
+        AtomicInteger enabled = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    if (autoLaunch.toggle())
+                        enabled.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(60, TimeUnit.SECONDS);
+        // each toggle saw the state the one before it left behind
+        assertEquals(50, enabled.get());
+        assertFalse(autoLaunch.isEnabled());
+    }
+
+    private Process startHolder(String mode, String... names) throws IOException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                Holder.class.getName(), mode, dir.toString()
+        ));
+        command.addAll(Arrays.asList(names));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    private static String nameInAnotherStripe(String name) {
+        for (int i = 0; ; i++) {
+            if (EntryLocks.stripeOf(name + i) != EntryLocks.stripeOf(name))
+                return name + i;
+        }
+    }
+
+    private static AutoLaunch autoLaunch(Path dir, String name, boolean acrossProcesses) throws IOException {
+        Path app = dir.resolve("app");
+        if (!Files.exists(app))
+            Files.createFile(app);
+        AutoLaunch.Builder builder = AutoLaunch.builder()
+                .appName(name)
+                .appFile(app.toFile());
+        if (acrossProcesses)
+            builder.lockAcrossProcesses();
+        return builder.build();
+    }
+
+    /**
+     * Locks entries in a separate JVM. Run with a mode, the directory of the
+     * test, and the application names:
+     * <ul>
+     *     <li>{@literal hold} locks the entries until standard input is closed</li>
+     *     <li>{@literal cycle} locks and releases the entries repeatedly</li>
+     * </ul>
+     */
+    static final class Holder {
+
+        @SuppressWarnings("try")
+        public static void main(String[] args) throws IOException {
+            Path dir = Paths.get(args[1]);
+            FilePlatform platform = new FilePlatform(dir.resolve("entries"));
+            List<AutoLaunch> autoLaunches = new ArrayList<>();
+            for (int i = 2; i < args.length; i++)
+                autoLaunches.add(autoLaunch(dir, args[i], true));
+            if (args[0].equals("hold")) {
+                try (EntryLocks.Held ignored = EntryLocks.lockAll(autoLaunches, platform)) {
+                    System.out.println("locked");
+                    System.out.flush();
+                    while (System.in.read() != -1) {
+                        // wait for the test to close standard input
+                    }
+                }
+            } else {
+                for (int i = 0; i < 200; i++)
+                    EntryLocks.lockAll(autoLaunches, platform).close();
+            }
+        }
+    }
+}
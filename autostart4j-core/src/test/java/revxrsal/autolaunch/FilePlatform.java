@@ -0,0 +1,64 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A platform that keeps each entry in a file of a single directory. The app
+ * is enabled if its file reads {@literal on}. Reads and directory lookups are
+ * counted.
+ */
+final class FilePlatform implements PlatformAutoLaunch {
+
+    private final Path dir;
+    final AtomicInteger reads = new AtomicInteger();
+    final AtomicInteger lookups = new AtomicInteger();
+
+    FilePlatform(@NotNull Path dir) {
+        this.dir = dir;
+    }
+
+    Path fileOf(@NotNull AutoLaunch autoLaunch) {
+        return dir.resolve(autoLaunch.getAppName());
+    }
+
+    @Override
+    public void enable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            Files.createDirectories(dir);
+            Files.write(fileOf(autoLaunch), "on".getBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void disable(@NotNull AutoLaunch autoLaunch) {
+        try {
+            Files.deleteIfExists(fileOf(autoLaunch));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(@NotNull AutoLaunch autoLaunch) {
+        reads.incrementAndGet();
+        try {
+            return new String(Files.readAllBytes(fileOf(autoLaunch))).equals("on");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public @Nullable Path getWatchedDirectory(@NotNull AutoLaunch autoLaunch) {
+        lookups.incrementAndGet();
+        return dir;
+    }
+}
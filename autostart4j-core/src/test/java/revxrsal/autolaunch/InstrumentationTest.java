@@ -0,0 +1,110 @@
+package revxrsal.autolaunch;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that batches and reconciliation are reported to the flight recorder
+ * and to metrics listeners, like single operations are
+ */
+@EnabledOnOs(OS.LINUX)
+class InstrumentationTest {
+
+    @TempDir
+    Path home;
+
+    private String previousHome;
+    private final List<String> records = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        previousHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", previousHome);
+    }
+
+    @Test
+    void reportsBatchEntriesAndReconciliation() throws IOException {
+        AutoLaunch a = autoLaunch("A"), b = autoLaunch("B"), c = autoLaunch("C");
+        c.enable();
+        records.clear();
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("autostart4j.Enable");
+            recording.enable("autostart4j.Disable");
+            recording.enable("autostart4j.Reconcile");
+            recording.start();
+
+            BatchResult result = AutoLaunch.batch().enable(a, b).disable(c).apply();
+            assertTrue(result.isSuccessful());
+            assertEquals(Drift.UP_TO_DATE, a.reconcile());
+
+            recording.stop();
+            Path file = home.resolve("recording.jfr");
+            recording.dump(file);
+            // file writes and the JDK's own bookkeeping are recorded as well
+            events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getFields().stream().anyMatch(f -> f.getName().equals("batchSize")))
+                    .collect(Collectors.toList());
+        }
+
+        assertEquals(asSet("ENABLE A", "ENABLE B", "DISABLE C", "RECONCILE A"), asSet(records));
+        assertEquals(asSet(
+                "autostart4j.Enable A 3", "autostart4j.Enable B 3", "autostart4j.Disable C 3", "autostart4j.Reconcile A 0"
+        ), asSet(events.stream()
+                .map(e -> e.getEventType().getName() + " " + shortName(e.getString("appName")) + " " + e.getInt("batchSize"))
+                .collect(Collectors.toList())));
+        RecordedEvent reconcile = events.stream()
+                .filter(e -> e.getEventType().getName().equals("autostart4j.Reconcile"))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertEquals("UP_TO_DATE", reconcile.getString("drift"));
+        assertTrue(reconcile.getBoolean("success"));
+    }
+
+    private AutoLaunch autoLaunch(String name) throws IOException {
+        Path app = home.resolve(name);
+        if (!Files.exists(app))
+            Files.createFile(app);
+        return AutoLaunch.builder()
+                .appName("instrumentation-" + name)
+                .appFile(app.toFile())
+                .metrics((autoLaunch, operation, backend, durationNanos, failure) -> {
+                    assertNull(failure);
+                    records.add(operation + " " + shortName(autoLaunch.getAppName()));
+                })
+                .build();
+    }
+
+    private static String shortName(String appName) {
+        return appName.substring("instrumentation-".length());
+    }
+
+    private static Set<String> asSet(String... values) {
+        return asSet(Arrays.asList(values));
+    }
+
+    private static Set<String> asSet(List<String> values) {
+        return new HashSet<>(values);
+    }
+}
@@ -0,0 +1,43 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void addsSnapshots() {
+        LatencyHistogram a = new LatencyHistogram(), b = new LatencyHistogram();
+        a.record(2_000);
+        a.record(50_000);
+        b.record(1_000_000);
+
+        a.add(b.snapshot());
+        LatencyHistogram.Snapshot snapshot = a.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(Duration.ofNanos(1_052_000), snapshot.getTotal());
+        assertEquals(Duration.ofNanos(1_000_000), snapshot.getMax());
+        assertEquals(1, snapshot.getCount(LatencyHistogram.bucketOf(1_000_000)));
+    }
+
+    @Test
+    void rebuildsSnapshotsFromTheirValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1_000; nanos < 10_000_000; nanos *= 3)
+            histogram.record(nanos);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = snapshot.getCount(i);
+        LatencyHistogram.Snapshot copy = LatencyHistogram.Snapshot.of(counts, snapshot.getTotal(), snapshot.getMax());
+        assertEquals(snapshot.toString(), copy.toString());
+        assertEquals(snapshot.getPercentile(90), copy.getPercentile(90));
+
+        assertThrows(IllegalArgumentException.class, () -> LatencyHistogram.Snapshot.of(new long[3], Duration.ZERO, Duration.ZERO));
+        assertThrows(NullPointerException.class, () -> LatencyHistogram.Snapshot.of(counts, null, Duration.ZERO));
+    }
+}
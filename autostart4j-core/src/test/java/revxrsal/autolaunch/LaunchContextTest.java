@@ -0,0 +1,62 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaunchContextTest {
+
+    private static final String MANAGER = "user.slice/user-1000.slice/user@1000.service";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void findsTheManagerOnTheUnifiedHierarchy() throws IOException {
+        procs(root.resolve(MANAGER), "1234");
+        assertEquals("1234", LaunchContext.findUserManager(Collections.singletonList(
+                "0::/" + MANAGER + "/app.slice/app-gnome-agent-5678.scope"
+        ), root));
+    }
+
+    @Test
+    void findsTheManagerOnHybridAndLegacyHierarchies() throws IOException {
+        procs(root.resolve("unified").resolve(MANAGER), "42");
+        assertEquals("42", LaunchContext.findUserManager(Collections.singletonList(
+                "0::/" + MANAGER + "/app.slice/agent.service"
+        ), root));
+
+        Path legacy = root.resolve("legacy");
+        procs(legacy.resolve("systemd").resolve(MANAGER), "7");
+        assertEquals("7", LaunchContext.findUserManager(Arrays.asList(
+                "4:memory:/" + MANAGER,
+                "1:name=systemd:/" + MANAGER + "/app.slice/agent.service"
+        ), legacy));
+    }
+
+    @Test
+    void processesOutsideOfAManagerHaveNone() throws IOException {
+        procs(root.resolve(MANAGER), "1234");
+        assertNull(LaunchContext.findUserManager(Collections.singletonList(
+                "0::/user.slice/user-1000.slice/session-2.scope"
+        ), root));
+        assertNull(LaunchContext.findUserManager(Collections.singletonList("0::/"), root));
+        // the manager's cgroup is not mounted
+        assertNull(LaunchContext.findUserManager(Collections.singletonList(
+                "0::/user.slice/user-1001.slice/user@1001.service/app.slice/agent.service"
+        ), root));
+    }
+
+    private static void procs(Path service, String pid) throws IOException {
+        Path scope = Files.createDirectories(service.resolve("init.scope"));
+        Files.write(scope.resolve("cgroup.procs"), (pid + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
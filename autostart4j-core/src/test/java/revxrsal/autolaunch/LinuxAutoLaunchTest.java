@@ -0,0 +1,152 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinuxAutoLaunchTest {
+
+    @TempDir
+    Path home;
+
+    private String previousHome;
+    private AutoLaunch autoLaunch;
+    private Path entry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        previousHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+        Path app = Files.createFile(home.resolve("app"));
+        autoLaunch = AutoLaunch.builder()
+                .appName("Example")
+                .appFile(app.toFile())
+                .args("--minimized")
+                .build();
+        entry = LinuxAutoLaunch.getAutoStartDir().resolve("Example.desktop");
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", previousHome);
+    }
+
+    @Test
+    void reconcileRewritesStaleEntries() throws IOException {
+        assertEquals(Drift.NOT_ENABLED, LinuxAutoLaunch.INSTANCE.reconcile(autoLaunch));
+        LinuxAutoLaunch.INSTANCE.enable(autoLaunch);
+        assertEquals(Drift.UP_TO_DATE, LinuxAutoLaunch.INSTANCE.checkDrift(autoLaunch));
+
+        String stale = read().replace("--minimized", "--old-flag");
+        Files.write(entry, stale.getBytes(StandardCharsets.UTF_8));
+        assertEquals(Drift.STALE, LinuxAutoLaunch.INSTANCE.reconcile(autoLaunch));
+        assertEquals(LinuxAutoLaunch.formatDoc(autoLaunch), read());
+    }
+
+    @Test
+    void reconcileKeepsEntriesTurnedOffByTheUser() throws IOException {
+        LinuxAutoLaunch.INSTANCE.enable(autoLaunch);
+        for (String key : new String[]{"X-GNOME-Autostart-enabled=false", "Hidden=true"}) {
+            String disabled = LinuxAutoLaunch.formatDoc(autoLaunch) + "\n" + key + "\n";
+            Files.write(entry, disabled.getBytes(StandardCharsets.UTF_8));
+
+            assertTrue(LinuxAutoLaunch.isDisabledByUser(entry));
+            assertEquals(Drift.NOT_ENABLED, LinuxAutoLaunch.INSTANCE.checkDrift(autoLaunch));
+            assertEquals(Drift.NOT_ENABLED, LinuxAutoLaunch.INSTANCE.reconcile(autoLaunch));
+            assertEquals(disabled, read());
+        }
+    }
+
+    @Test
+    void ignoresKeysOfOtherSections() throws IOException {
+        LinuxAutoLaunch.INSTANCE.enable(autoLaunch);
+        String entry = LinuxAutoLaunch.formatDoc(autoLaunch) + "\n[Desktop Action Quit]\nHidden=true\n";
+        Files.write(this.entry, entry.getBytes(StandardCharsets.UTF_8));
+        assertFalse(LinuxAutoLaunch.isDisabledByUser(this.entry));
+        assertEquals(Drift.STALE, LinuxAutoLaunch.INSTANCE.reconcile(autoLaunch));
+    }
+
+    @Test
+    void writesPlainValuesAsIs() {
+        assertTrue(autoLaunch.hasPlainValues());
+        assertTrue(LinuxAutoLaunch.formatDoc(autoLaunch).contains(
+                "\nName=Example\nComment=Example startup script\nExec=" + home.resolve("app") + " --minimized\n"));
+    }
+
+    @Test
+    void escapesValuesThatAreNotPlain() throws IOException {
+        Path app = Files.createFile(home.resolve("my app"));
+        AutoLaunch escaped = AutoLaunch.builder()
+                .appName(" My\\App")
+                .appFile(app.toFile())
+                .args("--minimized", "$HOME")
+                .build();
+        assertFalse(escaped.hasPlainValues());
+        assertTrue(LinuxAutoLaunch.formatDoc(escaped).contains(
+                "\nName=\\sMy\\\\App\nComment=\\sMy\\\\App startup script\nExec=\"" + app + "\" --minimized \"\\\\$HOME\"\n"));
+    }
+
+    @Test
+    void backgroundProfilesPrefixNiceAndIonice() {
+        AutoLaunch background = AutoLaunch.builder()
+                .appName("Example")
+                .appFile(autoLaunch.getAppFile())
+                .args("--minimized")
+                .resources(ResourceProfile.BACKGROUND)
+                .build();
+        assertEquals("[Desktop Entry]\n" +
+                "Type=Application\n" +
+                "Version=1.0\n" +
+                "Name=Example\n" +
+                "Comment=Example startup script\n" +
+                "Exec=nice -n 10 ionice -c 3 " + home.resolve("app") + " --minimized\n" +
+                "StartupNotify=false\n" +
+                "Terminal=false", LinuxAutoLaunch.formatDoc(background));
+    }
+
+    @Test
+    void prefixesChainInAFixedOrder() {
+        ResourceProfile profile = new ResourceProfile.Builder()
+                .ioClass(ResourceProfile.IoClass.BEST_EFFORT, 6)
+                .nice(5)
+                .cpuWeight(50)
+                .ioWeight(20)
+                .memoryMax(512 * 1024 * 1024)
+                .cpuQuota(150)
+                .build();
+        AutoLaunch prefixed = AutoLaunch.builder()
+                .appName("Example")
+                .appFile(autoLaunch.getAppFile())
+                .args("--minimized")
+                .resources(profile)
+                .markLaunches()
+                .build();
+        // percent signs are field codes, so they are doubled
+        assertTrue(LinuxAutoLaunch.formatDoc(prefixed).contains("\nExec=env AUTOSTART4J_LAUNCH=Example " +
+                "systemd-run --user --scope --quiet -p CPUWeight=50 -p IOWeight=20 -p MemoryMax=536870912 -p CPUQuota=150%% -- " +
+                "nice -n 5 ionice -c 2 -n 6 " + home.resolve("app") + " --minimized\n"));
+    }
+
+    @Test
+    void cgroupSettingsAloneOnlyUseSystemdRun() {
+        AutoLaunch capped = AutoLaunch.builder()
+                .appName("Example")
+                .appFile(autoLaunch.getAppFile())
+                .resources(new ResourceProfile.Builder().memoryMax(1024).build())
+                .build();
+        assertTrue(LinuxAutoLaunch.formatDoc(capped).contains(
+                "\nExec=systemd-run --user --scope --quiet -p MemoryMax=1024 -- " + home.resolve("app") + "\n"));
+    }
+
+    private String read() throws IOException {
+        return new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+    }
+}
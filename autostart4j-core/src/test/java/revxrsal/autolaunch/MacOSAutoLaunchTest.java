@@ -0,0 +1,125 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MacOSAutoLaunchTest {
+
+    private static final String PREFIX = MacOSAutoLaunch.BATCH_STATUS_PREFIX;
+
+    @Test
+    void batchScriptsReportEveryCommand() {
+        String script = MacOSAutoLaunch.createBatchScript(Arrays.asList("delete login item \"A\"", "delete login item \"B\""));
+        assertEquals(2, count(script, "on error"));
+        assertTrue(script.contains(PREFIX + "0 ok"));
+        assertTrue(script.contains(PREFIX + "1 error"));
+        assertTrue(script.endsWith("return statuses"));
+    }
+
+    @Test
+    void mapsStatusesToCommands() {
+        String output = PREFIX + "0 ok\n" +
+                PREFIX + "1 error Can't get login item \"B\".\n" +
+                PREFIX + "2 ok\n";
+        assertArrayEquals(
+                new String[]{null, "Can't get login item \"B\".", null},
+                MacOSAutoLaunch.parseBatchStatuses(output, 3)
+        );
+    }
+
+    @Test
+    void keepsMultiLineErrors() {
+        String output = PREFIX + "0 error first line\rsecond line\r" + PREFIX + "1 ok\r";
+        assertArrayEquals(
+                new String[]{"first line\nsecond line", null},
+                MacOSAutoLaunch.parseBatchStatuses(output, 2)
+        );
+    }
+
+    @Test
+    void missingStatusesAreFailures() {
+        String[] errors = MacOSAutoLaunch.parseBatchStatuses(PREFIX + "0 ok\n" + PREFIX + "7 ok\n", 2);
+        assertNull(errors[0]);
+        assertNotNull(errors[1]);
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i != -1; i = text.indexOf(part, i + 1))
+            count++;
+        return count;
+    }
+
+    @Test
+    void launchAgentsCarryTheResourceKeys(@TempDir Path dir) throws IOException {
+        Path app = Files.createFile(dir.resolve("Agent"));
+        AutoLaunch autoLaunch = AutoLaunch.builder()
+                .appName("com.example.agent")
+                .appFile(app.toFile())
+                .args("--minimized")
+                .useLaunchAgent()
+                .resources(ResourceProfile.BACKGROUND)
+                .markLaunches()
+                .build();
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n" +
+                "<plist version=\"1.0\">\n" +
+                "    <dict>\n" +
+                "        <key>Label</key>\n" +
+                "        <string>com.example.agent</string>\n" +
+                "        <key>ProgramArguments</key>\n" +
+                "        <array><string>" + app + "</string><string>--minimized</string></array>\n" +
+                "        <key>RunAtLoad</key>\n" +
+                "        <true/>\n" +
+                "        <key>EnvironmentVariables</key>\n" +
+                "        <dict>\n" +
+                "            <key>AUTOSTART4J_LAUNCH</key>\n" +
+                "            <string>com.example.agent</string>\n" +
+                "        </dict>\n" +
+                "        <key>Nice</key>\n" +
+                "        <integer>10</integer>\n" +
+                "        <key>LowPriorityIO</key>\n" +
+                "        <true/>\n" +
+                "        <key>ProcessType</key>\n" +
+                "        <string>Background</string>\n" +
+                "    </dict>\n" +
+                "</plist>", MacOSAutoLaunch.createLaunchAgentDoc(autoLaunch));
+
+        Map<?, ?> binary = (Map<?, ?>) BinaryPlistReader.parse(MacOSAutoLaunch.createBinaryLaunchAgentDoc(autoLaunch));
+        assertEquals(10L, binary.get("Nice"));
+        assertEquals(true, binary.get("LowPriorityIO"));
+        assertEquals("Background", binary.get("ProcessType"));
+    }
+
+    @Test
+    void onlyTheIdleClassLowersTheIoPriority(@TempDir Path dir) throws IOException {
+        AutoLaunch autoLaunch = AutoLaunch.builder()
+                .appName("com.example.agent")
+                .appFile(Files.createFile(dir.resolve("Agent")).toFile())
+                .useLaunchAgent()
+                .resources(new ResourceProfile.Builder()
+                        .nice(-5)
+                        .ioClass(ResourceProfile.IoClass.BEST_EFFORT, 0)
+                        .cpuWeight(10)
+                        .build())
+                .build();
+        String doc = MacOSAutoLaunch.createLaunchAgentDoc(autoLaunch);
+        assertTrue(doc.endsWith("        <true/>\n" +
+                "        <key>Nice</key>\n" +
+                "        <integer>-5</integer>\n" +
+                "    </dict>\n" +
+                "</plist>"), doc);
+        Map<?, ?> binary = (Map<?, ?>) BinaryPlistReader.parse(MacOSAutoLaunch.createBinaryLaunchAgentDoc(autoLaunch));
+        assertEquals(-5L, binary.get("Nice"));
+        assertFalse(binary.containsKey("LowPriorityIO"));
+        assertFalse(binary.containsKey("ProcessType"));
+    }
+}
@@ -0,0 +1,127 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationExecutorTest {
+
+    @TempDir
+    Path dir;
+
+    private ExecutorService executor;
+    private AutoLaunch autoLaunch;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        autoLaunch = autoLaunch();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void coalescesCallsOnTheSameInstance() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Callable<CompletableFuture<Integer>> submit = () -> OperationExecutor.submit(autoLaunch, "test", executor, null, () -> {
+            await(release);
+            return runs.incrementAndGet();
+        });
+        CompletableFuture<Integer> first = submit.call(), second = submit.call();
+        assertNotSame(first, second);
+        release.countDown();
+        assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+
+        // the operation is no longer in flight
+        assertEquals(2, submit.call().get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void doesNotCoalesceInstancesWithTheSameName() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Integer> first = OperationExecutor.submit(autoLaunch, "test", executor, null, () -> {
+            await(release);
+            return runs.incrementAndGet();
+        });
+        CompletableFuture<Integer> second = OperationExecutor.submit(autoLaunch(), "test", executor, null, () -> {
+            await(release);
+            return runs.incrementAndGet();
+        });
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void timesOutWithoutAffectingOtherCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> waiting = OperationExecutor.submit(autoLaunch, "test", executor, null, () -> {
+            await(release);
+            return "done";
+        });
+        CompletableFuture<String> timed = OperationExecutor.submit(autoLaunch, "test", executor, Duration.ofMillis(50), () -> "unused");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> timed.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertFalse(waiting.isDone());
+        release.countDown();
+        assertEquals("done", waiting.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void cancellingDestroysChildProcesses() throws Exception {
+        CompletableFuture<Process> started = new CompletableFuture<>();
+        CompletableFuture<Integer> operation = OperationExecutor.submit(autoLaunch, "test", executor, null, () -> {
+            try {
+                Process process = OperationContext.track(new ProcessBuilder("sleep", "60").start());
+                started.complete(process);
+                return process.waitFor();
+            } catch (IOException | InterruptedException e) {
+                started.completeExceptionally(e);
+                throw new IllegalStateException(e);
+            }
+        });
+        Process process = started.get(10, TimeUnit.SECONDS);
+        assertTrue(operation.cancel(true));
+        assertTrue(process.waitFor(10, TimeUnit.SECONDS), "the child process is still running");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AutoLaunch autoLaunch() throws IOException {
+        Path app = dir.resolve("app");
+        if (!Files.exists(app))
+            Files.createFile(app);
+        return AutoLaunch.builder()
+                .appName("Agent")
+                .appFile(app.toFile())
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs small shell scripts through {@link ProcessRunner}
+ */
+@EnabledOnOs(OS.LINUX)
+class ProcessRunnerTest {
+
+    @Test
+    void keepsABoundedPrefixOfTheOutput() throws IOException, InterruptedException {
+        ProcessRunner.Result result = sh("head -c 100000 /dev/zero | tr '\\0' a").maxOutput(1000).run();
+        assertTrue(result.isSuccessful(), result::toString);
+        assertTrue(result.isTruncated());
+        assertEquals(repeat('a', 1000), result.getStdout());
+
+        ProcessRunner.Result small = sh("printf abc").maxOutput(3).run();
+        assertEquals("abc", small.getStdout());
+        assertFalse(small.isTruncated());
+    }
+
+    @Test
+    void drainsStandardErrorWhileReadingStandardOutput() throws IOException, InterruptedException {
+        // far more than a pipe holds, so the child blocks unless standard error is drained too
+        ProcessRunner.Result result = sh("head -c 200000 /dev/zero | tr '\\0' e >&2; echo done")
+                .timeout(Duration.ofSeconds(30))
+                .run();
+        assertTrue(result.isSuccessful(), result::toString);
+        assertEquals("done\n", result.getStdout());
+        assertEquals(repeat('e', ProcessRunner.DEFAULT_MAX_OUTPUT), result.getStderr());
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    void killsTheProcessTreeOnTimeout() throws Exception {
+        List<String> pids = new ArrayList<>();
+        // the grandchild holds standard output open, so the run only ends once it is killed as well
+        ProcessRunner.Result result = sh("sleep 60 & echo $!; wait")
+                .timeout(Duration.ofMillis(500))
+                .onToken('\n', pids::add)
+                .run();
+        assertTrue(result.isTimedOut());
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getDuration().getSeconds() < 30, result::toString);
+        assertEquals(1, pids.size());
+        // it may take a moment to be reaped
+        ProcessHandle sleep = ProcessHandle.of(Long.parseLong(pids.get(0))).orElse(null);
+        if (sleep != null)
+            sleep.onExit().get(10, TimeUnit.SECONDS);
+        RuntimeException e = assertThrows(RuntimeException.class, result::throwIfFailed);
+        assertTrue(e.getMessage().startsWith("sh timed out after"), e.getMessage());
+    }
+
+    @Test
+    void deliversTokensAsTheyArrive() throws IOException, InterruptedException {
+        List<String> tokens = new ArrayList<>();
+        long[] firstAt = new long[1];
+        ProcessRunner.Result result = sh("printf ' first ,, second,'; sleep 2; printf 'third'")
+                .onToken(',', token -> {
+                    if (tokens.isEmpty())
+                        firstAt[0] = System.nanoTime();
+                    tokens.add(token);
+                })
+                .run();
+        long end = System.nanoTime();
+        assertTrue(result.isSuccessful(), result::toString);
+        // trimmed, without the empty token, and with the last one flushed at the end
+        assertEquals(Arrays.asList("first", "second", "third"), tokens);
+        assertTrue(Duration.ofNanos(end - firstAt[0]).toMillis() >= 1000, "the first token was only delivered at the end");
+    }
+
+    @Test
+    void boundsTokensByTheMaximumOutput() throws IOException, InterruptedException {
+        List<String> tokens = new ArrayList<>();
+        sh("printf '123456789,ab'").maxOutput(4).onToken(',', tokens::add).run();
+        assertEquals(Arrays.asList("1234", "ab"), tokens);
+    }
+
+    private static ProcessRunner sh(String script) {
+        return new ProcessRunner(Arrays.asList("sh", "-c", script));
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
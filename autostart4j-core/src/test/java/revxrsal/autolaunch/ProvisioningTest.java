@@ -0,0 +1,163 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Provisions homes beneath a temporary directory. Ownership is left alone, so
+ * this runs as any user.
+ */
+@EnabledOnOs(OS.LINUX)
+class ProvisioningTest {
+
+    @TempDir
+    Path root;
+
+    private Path alice;
+    private Path bob;
+    private AutoLaunch desktopEntry;
+    private AutoLaunch unit;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        alice = Files.createDirectory(root.resolve("alice"));
+        bob = Files.createDirectory(root.resolve("bob"));
+        Path app = Files.createFile(root.resolve("app"));
+        desktopEntry = AutoLaunch.builder()
+                .appName("Agent")
+                .appFile(app.toFile())
+                .args("--minimized")
+                .build();
+        unit = AutoLaunch.builder()
+                .appName("Daemon")
+                .appFile(app.toFile())
+                .useSystemdUnit()
+                .build();
+    }
+
+    @Test
+    void reprovisioningWritesNothing() throws IOException {
+        ProvisioningResult first = provision().enable(desktopEntry, unit).apply();
+        assertTrue(first.isSuccessful(), first::toString);
+        assertEquals(4, first.getChangedCount());
+        Path entry = LinuxAutoLaunch.getAutoStartDir(alice).resolve("Agent.desktop");
+        assertArrayEquals(desktopEntry.payload(Payload.DESKTOP_ENTRY, LinuxAutoLaunch::formatDoc), Files.readAllBytes(entry));
+
+        ProvisioningResult second = provision().enable(desktopEntry, unit).apply();
+        assertTrue(second.isSuccessful(), second::toString);
+        assertEquals(0, second.getChangedCount());
+        for (ProvisioningResult.Entry e : second.getEntries())
+            assertFalse(e.isChanged(), e::toString);
+        // nothing was left behind by the writes
+        try (Stream<Path> files = Files.list(entry.getParent())) {
+            assertEquals(Collections.singletonList(entry), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void staleEntriesAreRewritten() throws IOException {
+        provision().enable(desktopEntry).apply().throwIfFailed();
+        Path entry = LinuxAutoLaunch.getAutoStartDir(bob).resolve("Agent.desktop");
+        Files.write(entry, "[Desktop Entry]\n".getBytes());
+
+        ProvisioningResult result = provision().enable(desktopEntry).apply();
+        assertEquals(1, result.getChangedCount());
+        // entries are reported in the order the homes were added
+        assertFalse(result.getEntries().get(0).isChanged());
+        assertTrue(result.getEntries().get(1).isChanged());
+        assertArrayEquals(desktopEntry.payload(Payload.DESKTOP_ENTRY, LinuxAutoLaunch::formatDoc), Files.readAllBytes(entry));
+    }
+
+    @Test
+    void symlinkedDirectoriesFailTheirHome() throws IOException {
+        Path elsewhere = Files.createDirectory(root.resolve("elsewhere"));
+        Files.createDirectories(alice.resolve(".config"));
+        Files.createSymbolicLink(LinuxAutoLaunch.getAutoStartDir(alice), elsewhere);
+
+        ProvisioningResult result = provision().enable(desktopEntry).apply();
+        assertEquals(Collections.singleton(alice), result.getFailedHomes());
+        assertTrue(result.getFailures().get(0).getFailure().getMessage().startsWith("Refusing to follow the symbolic link"));
+        assertEquals(0, list(elsewhere));
+        assertTrue(Files.exists(LinuxAutoLaunch.getAutoStartDir(bob).resolve("Agent.desktop")));
+
+        // removing through the link is refused as well
+        Files.createFile(elsewhere.resolve("Agent.desktop"));
+        assertEquals(Collections.singleton(alice), provision().disable(desktopEntry).apply().getFailedHomes());
+        assertEquals(1, list(elsewhere));
+    }
+
+    @Test
+    void symlinkedEntriesAreReplaced() throws IOException {
+        Path secret = Files.write(root.resolve("secret"), "secret".getBytes());
+        Path entry = LinuxAutoLaunch.getAutoStartDir(alice).resolve("Agent.desktop");
+        Files.createDirectories(entry.getParent());
+        Files.createSymbolicLink(entry, secret);
+
+        provision().enable(desktopEntry).apply().throwIfFailed();
+        assertFalse(Files.isSymbolicLink(entry));
+        assertArrayEquals("secret".getBytes(), Files.readAllBytes(secret));
+    }
+
+    @Test
+    void foreignOwnedDirectoriesFailTheirHome() throws IOException {
+        assumeTrue("root".equals(System.getProperty("user.name")), "changing owners requires root");
+        UserPrincipal nobody = root.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName("nobody");
+        Path config = Files.createDirectories(bob.resolve(".config"));
+        Files.setOwner(config, nobody);
+
+        ProvisioningResult result = provision().enable(desktopEntry).apply();
+        assertEquals(Collections.singleton(bob), result.getFailedHomes());
+        assertTrue(result.getFailures().get(0).getFailure().getMessage().endsWith("is not owned by the owner of " + bob));
+        assertFalse(Files.exists(LinuxAutoLaunch.getAutoStartDir(bob)));
+    }
+
+    @Test
+    void disablingRemovesTheUnitAndItsLink() throws IOException {
+        provision().enable(unit).apply().throwIfFailed();
+        String name = SystemdAutoLaunch.getUnitName("Daemon");
+        Path units = SystemdAutoLaunch.getUnitDirectory(alice);
+        Path link = SystemdAutoLaunch.getWantsDirectory(units).resolve(name);
+        assertTrue(Files.isRegularFile(units.resolve(name)));
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(units.resolve(name), link.resolveSibling(Files.readSymbolicLink(link)).normalize());
+
+        ProvisioningResult result = provision().disable(unit).apply();
+        assertTrue(result.isSuccessful(), result::toString);
+        assertEquals(2, result.getChangedCount());
+        for (Path home : Arrays.asList(alice, bob)) {
+            Path dir = SystemdAutoLaunch.getUnitDirectory(home);
+            assertFalse(Files.exists(dir.resolve(name), LinkOption.NOFOLLOW_LINKS));
+            assertFalse(Files.exists(SystemdAutoLaunch.getWantsDirectory(dir).resolve(name), LinkOption.NOFOLLOW_LINKS));
+        }
+        // already disabled
+        assertEquals(0, provision().disable(unit).apply().getChangedCount());
+    }
+
+    private Provisioning provision() {
+        return AutoLaunch.provision()
+                .homes(alice, bob)
+                .setOwnership(false);
+    }
+
+    private static long list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
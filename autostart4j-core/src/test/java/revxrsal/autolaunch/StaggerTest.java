@@ -0,0 +1,46 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaggerTest {
+
+    @Test
+    void slotsFollowTheSortedNames() {
+        Stagger stagger = Stagger.spacing(Duration.ofSeconds(10), "sync", "updater", "indexer");
+        assertEquals(Duration.ofSeconds(20), stagger.getDelay("updater"));
+        assertEquals(Duration.ZERO, stagger.getDelay("indexer"));
+        assertEquals(Duration.ofSeconds(10), stagger.getDelay("sync"));
+    }
+
+    @Test
+    void delaysDoNotDependOnTheCallOrder() {
+        Duration spacing = Duration.ofSeconds(5);
+        Duration jitter = Duration.ofSeconds(2);
+        Stagger first = Stagger.of(spacing, jitter, "a", "b", "c");
+        Stagger second = Stagger.of(spacing, jitter, "c", "a", "b");
+        Duration a = first.getDelay("a"), b = first.getDelay("b"), c = first.getDelay("c");
+        assertEquals(c, second.getDelay("c"));
+        assertEquals(b, second.getDelay("b"));
+        assertEquals(a, second.getDelay("a"));
+        assertEquals(a, first.getDelay("a"));
+    }
+
+    @Test
+    void rejectsApplicationsOutsideTheGroup() {
+        Stagger stagger = Stagger.spacing(Duration.ofSeconds(10), "a", "b");
+        assertThrows(IllegalArgumentException.class, () -> stagger.getDelay("c"));
+    }
+
+    @Test
+    void jitterAloneNeedsNoGroup() {
+        Stagger stagger = Stagger.jitter(Duration.ofSeconds(3));
+        Duration delay = stagger.getDelay("anything");
+        assertFalse(delay.isNegative());
+        assertTrue(delay.compareTo(Duration.ofSeconds(3)) <= 0);
+        assertEquals(delay, stagger.getDelay("anything"));
+    }
+}
@@ -0,0 +1,196 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupInventoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsXmlAndBinaryLaunchAgents() throws IOException {
+        Files.write(dir.resolve("xml.plist"), (
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<plist version=\"1.0\">\n" +
+                "<dict>\n" +
+                "    <key>Label</key>\n" +
+                "    <string>com.example.xml</string>\n" +
+                "    <key>ProgramArguments</key>\n" +
+                "    <array><string>/bin/xml</string><string>--quiet</string></array>\n" +
+                "</dict>\n" +
+                "</plist>\n"
+        ).getBytes(StandardCharsets.UTF_8));
+
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        int[] arguments = {writer.string("/bin/binary"), writer.string("--quiet")};
+        int[] keys = {writer.string("Label"), writer.string("ProgramArguments"), writer.string("Disabled")};
+        int[] values = {writer.string("com.example.binary"), writer.array(arguments, 2), writer.bool(true)};
+        Files.write(dir.resolve("binary.plist"), writer.finish(writer.dict(keys, values, 3)));
+
+        Files.write(dir.resolve("garbage.plist"), new byte[]{'b', 'p', 'l', 'i', 's', 't', '0', '0', 1, 2, 3});
+
+        List<StartupEntry> entries = StartupInventory.scan(Collections.singletonMap(dir, StartupEntry.Source.LAUNCH_AGENT))
+                .sorted(Comparator.comparing(StartupEntry::getName))
+                .collect(Collectors.toList());
+
+        assertEquals(2, entries.size());
+        StartupEntry binary = entries.get(0);
+        assertEquals("com.example.binary", binary.getName());
+        assertEquals("/bin/binary --quiet", binary.getExec());
+        assertTrue(binary.isHidden());
+
+        StartupEntry xml = entries.get(1);
+        assertEquals("com.example.xml", xml.getName());
+        assertEquals("/bin/xml --quiet", xml.getExec());
+        assertFalse(xml.isHidden());
+    }
+
+    @Test
+    void readsGeneratedLaunchAgentsInBothFormats() throws IOException {
+        Path app = Files.createFile(dir.resolve("app"));
+        AutoLaunch autoLaunch = AutoLaunch.builder()
+                .appName("Generated")
+                .appFile(app.toFile())
+                .args("--minimized")
+                .build();
+        Path xml = Files.write(dir.resolve("xml.plist"),
+                MacOSAutoLaunch.createLaunchAgentDoc(autoLaunch).getBytes(StandardCharsets.UTF_8));
+        Path binary = Files.write(dir.resolve("binary.plist"), MacOSAutoLaunch.createBinaryLaunchAgentDoc(autoLaunch));
+
+        StartupEntry fromXml = StartupInventory.parseLaunchAgent(xml);
+        StartupEntry fromBinary = StartupInventory.parseLaunchAgent(binary);
+        assertEquals("Generated", fromBinary.getName());
+        assertEquals(fromXml.getName(), fromBinary.getName());
+        assertEquals(fromXml.getExec(), fromBinary.getExec());
+        assertEquals(fromXml.isHidden(), fromBinary.isHidden());
+    }
+
+    @Test
+    void stopsReadingAtTheEndOfTheDesktopEntrySection() throws IOException {
+        String entry = "# written by hand\n" +
+                "[Desktop Entry]\n" +
+                "Name[de]=Beispiel\n" +
+                "Name = Example\n" +
+                "Exec=/usr/bin/example --tray\n" +
+                "\n" +
+                "[Desktop Action quit]\n" +
+                "Hidden=true\n";
+        // reading past the header of the next section fails
+        StartupEntry parsed = StartupInventory.parseDesktopEntry(dir.resolve("example.desktop"), StartupEntry.Source.USER_AUTOSTART,
+                readerFailingAfter(entry, "[Desktop Action quit]\n"));
+        assertEquals("Example", parsed.getName());
+        assertEquals("/usr/bin/example --tray", parsed.getExec());
+        assertFalse(parsed.isHidden());
+        assertSame(StartupEntry.Source.USER_AUTOSTART, parsed.getSource());
+    }
+
+    @Test
+    void readsHiddenAfterTheOtherKeys() throws IOException {
+        StartupEntry parsed = parse("[Desktop Entry]\n" +
+                "Name=Example\n" +
+                "Exec=/usr/bin/example\n" +
+                "X-GNOME-Autostart-enabled=false\n" +
+                "Hidden=true\n");
+        assertTrue(parsed.isHidden());
+    }
+
+    @Test
+    void keysOfOtherSectionsAreIgnored() throws IOException {
+        StartupEntry parsed = parse("[Desktop Action hide]\n" +
+                "Hidden=true\n" +
+                "Exec=/usr/bin/other\n" +
+                "[Desktop Entry]\n" +
+                "Exec=/usr/bin/example\n");
+        // without a name, the file name is used
+        assertEquals("example", parsed.getName());
+        assertEquals("/usr/bin/example", parsed.getExec());
+        assertFalse(parsed.isHidden());
+
+        StartupEntry noSection = parse("Name=Loose\nExec=/usr/bin/loose\n");
+        assertEquals("example", noSection.getName());
+        assertNull(noSection.getExec());
+    }
+
+    @Test
+    void readsGeneratedDesktopEntries() throws IOException {
+        Path app = Files.createFile(dir.resolve("my app"));
+        AutoLaunch autoLaunch = AutoLaunch.builder()
+                .appName(" My\\App")
+                .appFile(app.toFile())
+                .args("--minimized")
+                .build();
+        StartupEntry parsed = parse(LinuxAutoLaunch.formatDoc(autoLaunch));
+        assertEquals(" My\\App", parsed.getName());
+        assertEquals("\"" + app + "\" --minimized", parsed.getExec());
+        assertFalse(parsed.isHidden());
+    }
+
+    @Test
+    void userEntriesFollowXdgConfigHome() {
+        Path home = dir.resolve("home");
+        Path config = dir.resolve("config");
+        assertEquals(config.resolve("autostart"), StartupInventory.getUserAutoStartDir(config.toString(), home));
+        // unset, empty and relative values fall back to ~/.config
+        Path fallback = home.resolve(".config").resolve("autostart");
+        assertEquals(fallback, StartupInventory.getUserAutoStartDir(null, home));
+        assertEquals(fallback, StartupInventory.getUserAutoStartDir("", home));
+        assertEquals(fallback, StartupInventory.getUserAutoStartDir("config", home));
+    }
+
+    @Test
+    void scansDesktopEntries() throws IOException {
+        Files.write(dir.resolve("a.desktop"), "[Desktop Entry]\nName=A\nExec=/bin/a\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("b.desktop"), "[Desktop Entry]\nName=B\nExec=/bin/b\nHidden=true\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("ignored.txt"), "[Desktop Entry]\nName=C\n".getBytes(StandardCharsets.UTF_8));
+
+        List<StartupEntry> entries = StartupInventory.scan(Collections.singletonMap(dir, StartupEntry.Source.SYSTEM_AUTOSTART))
+                .sorted(Comparator.comparing(StartupEntry::getName))
+                .collect(Collectors.toList());
+        assertEquals(2, entries.size());
+        assertEquals("A", entries.get(0).getName());
+        assertFalse(entries.get(0).isHidden());
+        assertEquals("B", entries.get(1).getName());
+        assertTrue(entries.get(1).isHidden());
+        assertEquals(dir.resolve("b.desktop"), entries.get(1).getFile());
+    }
+
+    private StartupEntry parse(String entry) throws IOException {
+        return StartupInventory.parseDesktopEntry(dir.resolve("example.desktop"), StartupEntry.Source.USER_AUTOSTART,
+                new BufferedReader(new StringReader(entry)));
+    }
+
+    // a reader of the given text up to the end of the given marker, which then fails
+    private static BufferedReader readerFailingAfter(String text, String marker) {
+        String readable = text.substring(0, text.indexOf(marker) + marker.length());
+        return new BufferedReader(new Reader() {
+            private final StringReader reader = new StringReader(readable);
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int read = reader.read(buffer, offset, length);
+                if (read == -1)
+                    throw new IOException("read past " + marker.trim());
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 1);
+    }
+}
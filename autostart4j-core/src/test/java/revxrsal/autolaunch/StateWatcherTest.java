@@ -0,0 +1,105 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Watches a platform whose entries are files in a temporary directory
+ */
+@EnabledOnOs(OS.LINUX)
+class StateWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private FilePlatform platform;
+    private StateWatcher watcher;
+    private AutoLaunch autoLaunch;
+    private Subscription subscription;
+    private final BlockingQueue<Object> changes = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        platform = new FilePlatform(dir.resolve("entries"));
+        watcher = new StateWatcher(platform);
+        autoLaunch = AutoLaunch.builder()
+                .appName("Agent")
+                .appFile(Files.createFile(dir.resolve("app")).toFile())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (subscription != null)
+            subscription.close();
+    }
+
+    @Test
+    void notifiesChanges() throws Exception {
+        Files.createDirectory(dir.resolve("entries"));
+        subscribe();
+        platform.enable(autoLaunch);
+        assertNextState(true);
+        platform.disable(autoLaunch);
+        assertNextState(false);
+    }
+
+    @Test
+    void watchesDirectoriesThatDoNotExistYet() throws Exception {
+        subscribe();
+        platform.enable(autoLaunch);
+        assertNextState(true);
+    }
+
+    @Test
+    void watchesDeletedDirectoriesOnceTheyComeBack() throws Exception {
+        platform.enable(autoLaunch);
+        subscribe();
+
+        platform.disable(autoLaunch);
+        Files.delete(dir.resolve("entries"));
+        assertNextState(false);
+
+        // the directory is new, so the old watch no longer sees it
+        platform.enable(autoLaunch);
+        assertNextState(true);
+        platform.disable(autoLaunch);
+        assertNextState(false);
+    }
+
+    @Test
+    void watchesAllEventsInAncestorsOfPendingDirectories() throws Exception {
+        Files.createDirectory(dir.resolve("entries"));
+        // only creations are watched in entries while nested does not exist
+        watcher.watchDirectory(dir.resolve("entries").resolve("nested"), () -> {});
+        subscribe();
+        platform.enable(autoLaunch);
+        assertNextState(true);
+        platform.disable(autoLaunch);
+        assertNextState(false);
+    }
+
+    private void subscribe() {
+        subscription = watcher.subscribe(autoLaunch, changes::add, changes::add);
+    }
+
+    private void assertNextState(boolean enabled) throws InterruptedException {
+        Object next = changes.poll(10, TimeUnit.SECONDS);
+        assertNotNull(next, "no change was seen");
+        assertInstanceOf(StateChange.class, next, String.valueOf(next));
+        assertEquals(enabled, ((StateChange) next).isEnabled());
+    }
+}
@@ -0,0 +1,194 @@
+package revxrsal.autolaunch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the systemd backend against a stand-in {@literal systemctl}, installed
+ * at the path the build passes in {@literal autostart4j.systemctl}. The stand-in
+ * links and unlinks units like the real one, and logs every invocation.
+ */
+@EnabledOnOs(OS.LINUX)
+class SystemdAutoLaunchTest {
+
+    private static final SystemdAutoLaunch SYSTEMD = SystemdAutoLaunch.INSTANCE;
+
+    @TempDir
+    Path home;
+
+    private String previousHome;
+    private Path units;
+    private Path wants;
+    private Path log;
+    private Path failFlag;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        previousHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+        units = SystemdAutoLaunch.getUnitDirectory();
+        wants = SystemdAutoLaunch.getWantsDirectory(units);
+        log = home.resolve("systemctl.log");
+        failFlag = home.resolve("systemctl.fail");
+        installSystemctl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", previousHome);
+    }
+
+    @Test
+    void enablesAndDisablesUnits() throws IOException {
+        AutoLaunch autoLaunch = autoLaunch("Agent");
+        String unit = SystemdAutoLaunch.getUnitName("Agent");
+
+        SYSTEMD.enable(autoLaunch);
+        assertTrue(Files.isRegularFile(units.resolve(unit)));
+        assertTrue(SYSTEMD.isEnabled(autoLaunch));
+        // enabling again does not run systemctl
+        SYSTEMD.enable(autoLaunch);
+        assertEquals(Collections.singletonList("--user enable " + unit), invocations());
+
+        SYSTEMD.disable(autoLaunch);
+        assertFalse(SYSTEMD.isEnabled(autoLaunch));
+        assertFalse(Files.exists(units.resolve(unit)));
+        assertEquals(Arrays.asList("--user enable " + unit, "--user disable " + unit), invocations());
+    }
+
+    @Test
+    void batchesShareASystemctlCall() throws IOException {
+        AutoLaunch a = autoLaunch("A"), b = autoLaunch("B"), c = autoLaunch("C");
+        SYSTEMD.enable(c);
+        Files.delete(log);
+
+        BatchResult result = SYSTEMD.applyAll(Arrays.asList(a, b), Collections.singletonList(c));
+        assertTrue(result.isSuccessful());
+        assertTrue(SYSTEMD.isEnabled(a));
+        assertTrue(SYSTEMD.isEnabled(b));
+        assertFalse(SYSTEMD.isEnabled(c));
+        assertFalse(Files.exists(units.resolve(SystemdAutoLaunch.getUnitName("C"))));
+        assertEquals(Arrays.asList(
+                "--user enable " + SystemdAutoLaunch.getUnitName("A") + " " + SystemdAutoLaunch.getUnitName("B"),
+                "--user disable " + SystemdAutoLaunch.getUnitName("C")
+        ), invocations());
+    }
+
+    @Test
+    void failedCallsFailTheirEntriesOnly() throws IOException {
+        AutoLaunch a = autoLaunch("A"), b = autoLaunch("B"), c = autoLaunch("C");
+        SYSTEMD.enable(c);
+        Files.createFile(failFlag);
+
+        BatchResult result = SYSTEMD.applyAll(Arrays.asList(a, b, c), Collections.emptyList());
+        assertFalse(result.isSuccessful());
+        List<BatchResult.Entry> entries = result.getEntries();
+        assertNotNull(entries.get(0).getFailure());
+        assertNotNull(entries.get(1).getFailure());
+        // already enabled, so it was never part of the call
+        assertNull(entries.get(2).getFailure());
+    }
+
+    @Test
+    void reconcileRewritesStaleUnits() throws IOException {
+        AutoLaunch autoLaunch = autoLaunch("Agent");
+        Path unit = units.resolve(SystemdAutoLaunch.getUnitName("Agent"));
+        assertEquals(Drift.NOT_ENABLED, SYSTEMD.checkDrift(autoLaunch));
+        SYSTEMD.enable(autoLaunch);
+        assertEquals(Drift.UP_TO_DATE, SYSTEMD.checkDrift(autoLaunch));
+
+        String original = new String(Files.readAllBytes(unit), StandardCharsets.UTF_8);
+        Files.write(unit, original.replace("Type=simple", "Type=oneshot").getBytes(StandardCharsets.UTF_8));
+        assertEquals(Drift.STALE, SYSTEMD.reconcile(autoLaunch));
+        assertEquals(original, new String(Files.readAllBytes(unit), StandardCharsets.UTF_8));
+        assertTrue(invocations().contains("--user daemon-reload"));
+        assertEquals(Drift.UP_TO_DATE, SYSTEMD.reconcile(autoLaunch));
+    }
+
+    @Test
+    void enabledUnitsWithoutAFileAreStale() throws IOException {
+        AutoLaunch autoLaunch = autoLaunch("Agent");
+        SYSTEMD.enable(autoLaunch);
+        Path unit = units.resolve(SystemdAutoLaunch.getUnitName("Agent"));
+        Files.delete(unit);
+        assertTrue(Files.exists(wants.resolve(unit.getFileName()), LinkOption.NOFOLLOW_LINKS));
+
+        assertEquals(Drift.STALE, SYSTEMD.reconcile(autoLaunch));
+        assertTrue(Files.isRegularFile(unit));
+        assertTrue(SYSTEMD.isEnabled(autoLaunch));
+    }
+
+    @Test
+    void delayedUnitsSleepBeforeStarting() throws IOException {
+        Path app = home.resolve("Agent");
+        Files.createFile(app);
+        AutoLaunch autoLaunch = AutoLaunch.builder()
+                .appName("Agent")
+                .appFile(app.toFile())
+                .useSystemdUnit()
+                .delay(Duration.ofSeconds(30))
+                .build();
+        List<String> lines = Arrays.asList(SystemdAutoLaunch.formatUnit(autoLaunch).split("\n"));
+        // not /bin/sleep, which some distributions do not have
+        assertTrue(lines.contains("ExecStartPre=sleep 30"), lines::toString);
+        assertTrue(lines.contains("TimeoutStartSec=infinity"), lines::toString);
+        assertFalse(SystemdAutoLaunch.formatUnit(autoLaunch("Other")).contains("ExecStartPre"));
+    }
+
+    private AutoLaunch autoLaunch(String name) throws IOException {
+        Path app = home.resolve(name);
+        if (!Files.exists(app))
+            Files.createFile(app);
+        return AutoLaunch.builder()
+                .appName(name)
+                .appFile(app.toFile())
+                .useSystemdUnit()
+                .build();
+    }
+
+    private List<String> invocations() throws IOException {
+        return Files.exists(log) ? Files.readAllLines(log, StandardCharsets.UTF_8) : Collections.emptyList();
+    }
+
+    private void installSystemctl() throws IOException {
+        String script = "#!/bin/sh\n" +
+                "echo \"$*\" >> '" + log + "'\n" +
+                "[ -e '" + failFlag + "' ] && { echo 'Failed to connect to bus' >&2; exit 1; }\n" +
+                "[ \"$1\" = --user ] || exit 2\n" +
+                "verb=$2\n" +
+                "shift 2\n" +
+                "case $verb in\n" +
+                "  enable)\n" +
+                "    mkdir -p '" + wants + "'\n" +
+                "    for unit; do\n" +
+                "      [ -f '" + units + "'/\"$unit\" ] || { echo \"Unit $unit does not exist\" >&2; exit 1; }\n" +
+                "      ln -sf '" + units + "'/\"$unit\" '" + wants + "'/\"$unit\"\n" +
+                "    done ;;\n" +
+                "  disable)\n" +
+                "    for unit; do rm -f '" + wants + "'/\"$unit\"; done ;;\n" +
+                "  daemon-reload) ;;\n" +
+                "  *) exit 2 ;;\n" +
+                "esac\n";
+        Path systemctl = Paths.get(System.getProperty("autostart4j.systemctl"));
+        Files.createDirectories(systemctl.getParent());
+        Files.write(systemctl, script.getBytes(StandardCharsets.UTF_8));
+        assertTrue(systemctl.toFile().setExecutable(true));
+    }
+}
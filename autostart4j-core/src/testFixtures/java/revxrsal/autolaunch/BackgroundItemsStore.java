@@ -0,0 +1,67 @@
+package revxrsal.autolaunch;
+
+/**
+ * Builds keyed archives shaped like the background items store, for the
+ * tests and the benchmarks
+ */
+final class BackgroundItemsStore {
+
+    private BackgroundItemsStore() {
+    }
+
+    /**
+     * Creates a keyed archive whose root holds an array of objects of the
+     * given class, one for each name
+     *
+     * @param itemClass The class of the items
+     * @param names     The names of the items
+     * @return The encoded store
+     */
+    static byte[] of(String itemClass, String... names) {
+        BinaryPlistWriter writer = new BinaryPlistWriter();
+        // the archive objects: $null, the root, the item array, three classes, then the items
+        int[] objects = new int[6 + names.length];
+        objects[0] = writer.string("$null");
+        objects[3] = classInfo(writer, "BackgroundItems");
+        objects[4] = classInfo(writer, "NSMutableArray", "NSArray");
+        objects[5] = classInfo(writer, itemClass);
+        int[] itemRefs = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            objects[6 + i] = writer.dict(
+                    new int[]{writer.string("$class"), writer.string("name"), writer.string("type")},
+                    new int[]{writer.uid(5), writer.string(names[i]), writer.integer(4)},
+                    3
+            );
+            itemRefs[i] = writer.uid(6 + i);
+        }
+        objects[2] = writer.dict(
+                new int[]{writer.string("$class"), writer.string("NS.objects")},
+                new int[]{writer.uid(4), writer.array(itemRefs, names.length)},
+                2
+        );
+        objects[1] = writer.dict(
+                new int[]{writer.string("$class"), writer.string("allItems")},
+                new int[]{writer.uid(3), writer.uid(2)},
+                2
+        );
+        int top = writer.dict(new int[]{writer.string("root")}, new int[]{writer.uid(1)}, 1);
+        int root = writer.dict(
+                new int[]{writer.string("$archiver"), writer.string("$version"), writer.string("$top"), writer.string("$objects")},
+                new int[]{writer.string("NSKeyedArchiver"), writer.integer(100000), top, writer.array(objects, objects.length)},
+                4
+        );
+        return writer.finish(root);
+    }
+
+    private static int classInfo(BinaryPlistWriter writer, String... classes) {
+        int[] names = new int[classes.length + 1];
+        for (int i = 0; i < classes.length; i++)
+            names[i] = writer.string(classes[i]);
+        names[classes.length] = writer.string("NSObject");
+        return writer.dict(
+                new int[]{writer.string("$classname"), writer.string("$classes")},
+                new int[]{writer.string(classes[0]), writer.array(names, names.length)},
+                2
+        );
+    }
+}
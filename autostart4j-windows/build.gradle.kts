@@ -0,0 +1,9 @@
+plugins {
+    `java-library`
+}
+
+dependencies {
+    api(project(":autostart4j-core"))
+    implementation("net.java.dev.jna:jna-platform:5.14.0")
+    implementation("net.java.dev.jna:jna:5.14.0")
+}
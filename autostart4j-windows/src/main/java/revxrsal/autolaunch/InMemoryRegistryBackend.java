@@ -0,0 +1,80 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * A {@link RegistryBackend} that keeps the values in memory. This allows running
+ * the Windows logic on any platform, such as in benchmarks.
+ * <p>
+ * Values can be edited directly with {@link #setValue(RegistryBackend.Key, String, Object)},
+ * for example to simulate the user disabling an entry in Task Manager.
+ */
+final class InMemoryRegistryBackend implements RegistryBackend {
+
+    private final Map<Key, Map<String, Object>> keys = new EnumMap<>(Key.class);
+
+    InMemoryRegistryBackend() {
+        for (Key key : Key.values())
+            keys.put(key, new HashMap<>());
+    }
+
+    @Override
+    public synchronized @NotNull Values read(@NotNull String name) {
+        Object command = keys.get(Key.RUN).get(name);
+        Object approved = keys.get(Key.STARTUP_APPROVED).get(name);
+        return new Values(
+                command instanceof String ? (String) command : null,
+                approved instanceof byte[] ? ((byte[]) approved).clone() : null
+        );
+    }
+
+    @Override
+    public synchronized @Nullable Throwable @NotNull [] write(@NotNull List<Write> writes) {
+        Throwable[] failures = new Throwable[writes.size()];
+        for (int i = 0; i < failures.length; i++) {
+            Write write = writes.get(i);
+            setValue(write.getKey(), write.getName(), write.getValue());
+        }
+        return failures;
+    }
+
+    /**
+     * Returns the given value
+     *
+     * @param key  The key
+     * @param name The value name
+     * @return The value, or {@code null} if it does not exist
+     */
+    synchronized @Nullable Object getValue(@NotNull Key key, @NotNull String name) {
+        Object value = keys.get(notNull(key, "key")).get(notNull(name, "name"));
+        return value instanceof byte[] ? ((byte[]) value).clone() : value;
+    }
+
+    /**
+     * Sets or deletes the given value
+     *
+     * @param key   The key
+     * @param name  The value name
+     * @param value The value, which is either a {@link String} or a byte array,
+     *              or {@code null} to delete it
+     */
+    synchronized void setValue(@NotNull Key key, @NotNull String name, @Nullable Object value) {
+        Map<String, Object> values = keys.get(notNull(key, "key"));
+        if (value == null)
+            values.remove(notNull(name, "name"));
+        else if (value instanceof byte[])
+            values.put(notNull(name, "name"), ((byte[]) value).clone());
+        else if (value instanceof String)
+            values.put(notNull(name, "name"), value);
+        else
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+    }
+}
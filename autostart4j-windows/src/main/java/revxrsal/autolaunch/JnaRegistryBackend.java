@@ -0,0 +1,203 @@
+package revxrsal.autolaunch;
+
+import com.sun.jna.platform.win32.Advapi32;
+import com.sun.jna.platform.win32.Win32Exception;
+import com.sun.jna.platform.win32.WinError;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.platform.win32.WinReg.HKEY;
+import com.sun.jna.platform.win32.WinReg.HKEYByReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.sun.jna.platform.win32.Advapi32Util.*;
+import static com.sun.jna.platform.win32.WinReg.HKEY_CURRENT_USER;
+
+/**
+ * The {@link RegistryBackend} that accesses the Windows registry through JNA.
+ * <p>
+ * Each key is opened once, the first time it is used, and its handle is kept
+ * open and shared by all threads, so reads and writes do not pay for opening
+ * and closing the key every time. Reads go through a read-only handle, and
+ * only writes create the keys that do not exist yet. A key that is deleted
+ * while open is reopened on the next access, and its old handle is closed once
+ * the last thread using it is done with it.
+ */
+final class JnaRegistryBackend implements RegistryBackend {
+
+    public static final JnaRegistryBackend INSTANCE = new JnaRegistryBackend();
+
+    /**
+     * The open read-only handles, indexed by {@link Key#ordinal()}
+     */
+    private final AtomicReferenceArray<Handle> readHandles = new AtomicReferenceArray<>(Key.values().length);
+
+    /**
+     * The open handles that can be written to, indexed by {@link Key#ordinal()}
+     */
+    private final AtomicReferenceArray<Handle> writeHandles = new AtomicReferenceArray<>(Key.values().length);
+
+    private JnaRegistryBackend() {
+    }
+
+    @Override
+    public @NotNull Values read(@NotNull String name) {
+        String command = readValue(Key.RUN, run -> registryGetStringValue(run, name));
+        // a missing command means that the entry is not enabled anyway
+        if (command == null)
+            return new Values(null, null);
+        byte[] approved = readValue(Key.STARTUP_APPROVED, startupApproved -> registryGetBinaryValue(startupApproved, name));
+        return new Values(command, approved);
+    }
+
+    // reads a value, which is null if either the value or its key does not exist
+    private <T> @Nullable T readValue(@NotNull Key key, @NotNull KeyAction<T> action) {
+        try {
+            return withKey(key, false, action);
+        } catch (Win32Exception e) {
+            if (e.getErrorCode() == WinError.ERROR_FILE_NOT_FOUND)
+                return null;
+            throw e;
+        }
+    }
+
+    @Override
+    public @Nullable Throwable @NotNull [] write(@NotNull List<Write> writes) {
+        Throwable[] failures = new Throwable[writes.size()];
+        for (int i = 0; i < failures.length; i++) {
+            Write write = writes.get(i);
+            try {
+                withKey(write.getKey(), true, key -> {
+                    Object value = write.getValue();
+                    if (value instanceof String) {
+                        registrySetStringValue(key, write.getName(), (String) value);
+                    } else if (value instanceof byte[]) {
+                        registrySetBinaryValue(key, write.getName(), (byte[]) value);
+                    } else {
+                        try {
+                            registryDeleteValue(key, write.getName());
+                        } catch (Win32Exception e) {
+                            if (e.getErrorCode() != WinError.ERROR_FILE_NOT_FOUND)
+                                throw e;
+                        }
+                    }
+                    return null;
+                });
+            } catch (Throwable t) {
+                failures[i] = t;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Runs the given action on the handle of the given key. If the handle turns out
+     * to be stale, it is reopened and the action is retried once.
+     */
+    private <T> T withKey(@NotNull Key key, boolean write, @NotNull KeyAction<T> action) {
+        AtomicReferenceArray<Handle> handles = write ? writeHandles : readHandles;
+        Handle handle = acquire(handles, key, write);
+        try {
+            return action.run(handle.key);
+        } catch (Win32Exception e) {
+            int code = e.getErrorCode();
+            if (code != WinError.ERROR_KEY_DELETED && code != WinError.ERROR_INVALID_HANDLE)
+                throw e;
+            // other threads may still be using it, so it is only closed once they are done
+            if (handles.compareAndSet(key.ordinal(), handle, null))
+                handle.release();
+        } finally {
+            handle.release();
+        }
+        Handle reopened = acquire(handles, key, write);
+        try {
+            return action.run(reopened.key);
+        } finally {
+            reopened.release();
+        }
+    }
+
+    // returns the open handle of the key, opening it if needed. it must be released once done.
+    private @NotNull Handle acquire(@NotNull AtomicReferenceArray<Handle> handles, @NotNull Key key, boolean write) {
+        while (true) {
+            Handle handle = handles.get(key.ordinal());
+            if (handle != null) {
+                if (handle.acquire())
+                    return handle;
+                // it was retired and closed in the meantime
+                continue;
+            }
+            handle = new Handle(write ? createKey(key) : openKey(key));
+            if (handles.compareAndSet(key.ordinal(), null, handle)) {
+                handle.acquire();
+                return handle;
+            }
+            // another thread opened it first
+            handle.release();
+        }
+    }
+
+    private static @NotNull HKEY openKey(@NotNull Key key) {
+        HKEYByReference result = new HKEYByReference();
+        int status = Advapi32.INSTANCE.RegOpenKeyEx(HKEY_CURRENT_USER, key.getPath(), 0, WinNT.KEY_READ, result);
+        if (status != WinError.ERROR_SUCCESS)
+            throw new Win32Exception(status);
+        return result.getValue();
+    }
+
+    private static @NotNull HKEY createKey(@NotNull Key key) {
+        HKEYByReference result = new HKEYByReference();
+        int status = Advapi32.INSTANCE.RegCreateKeyEx(
+                HKEY_CURRENT_USER, key.getPath(), 0, null, WinNT.REG_OPTION_NON_VOLATILE,
+                WinNT.KEY_WRITE, null, result, null
+        );
+        if (status != WinError.ERROR_SUCCESS)
+            throw new Win32Exception(status);
+        return result.getValue();
+    }
+
+    /**
+     * A shared key handle, which is closed once it is no longer in the table
+     * and no thread is using it
+     */
+    private static final class Handle {
+
+        private final HKEY key;
+
+        // the threads using the handle, plus one while it is in the table
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Handle(@NotNull HKEY key) {
+            this.key = key;
+        }
+
+        boolean acquire() {
+            while (true) {
+                int count = references.get();
+                if (count == 0)
+                    return false;
+                if (references.compareAndSet(count, count + 1))
+                    return true;
+            }
+        }
+
+        void release() {
+            if (references.decrementAndGet() != 0)
+                return;
+            try {
+                registryCloseKey(key);
+            } catch (Win32Exception ignored) {
+                // the handle is unusable either way
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface KeyAction<T> {
+
+        T run(@NotNull HKEY key);
+    }
+}
@@ -0,0 +1,160 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+import static revxrsal.autolaunch.Utils.notNull;
+
+/**
+ * The registry operations that {@link WindowsAutoLaunch} needs.
+ * <p>
+ * Startup entries live in two keys under {@literal HKEY_CURRENT_USER}: the
+ * {@link Key#RUN Run} key holds the command line, and the {@link Key#STARTUP_APPROVED StartupApproved}
+ * key holds the state that Task Manager shows. Both are always read together,
+ * and writes are applied in batches.
+ *
+ * @see JnaRegistryBackend
+ * @see InMemoryRegistryBackend
+ */
+interface RegistryBackend {
+
+    /**
+     * Reads the values of the given entry from both keys
+     *
+     * @param name The value name
+     * @return The values
+     */
+    @NotNull Values read(@NotNull String name);
+
+    /**
+     * Applies the given writes, in order. A failing write does not stop the
+     * ones after it.
+     * <p>
+     * Deleting a value that does not exist is not a failure.
+     *
+     * @param writes The writes to apply
+     * @return The failure of each write, or {@code null} for the writes that
+     * succeeded
+     */
+    @Nullable Throwable @NotNull [] write(@NotNull List<Write> writes);
+
+    /**
+     * The keys that startup entries are stored in
+     */
+    enum Key {
+
+        /**
+         * The key that holds the command lines of the startup entries, as strings
+         */
+        RUN("SOFTWARE\\Microsoft\\Windows\\CurrentVersion\\Run"),
+
+        /**
+         * The key that holds whether startup entries are enabled in Task Manager,
+         * as binary values
+         */
+        STARTUP_APPROVED("SOFTWARE\\Microsoft\\Windows\\CurrentVersion\\Explorer\\StartupApproved\\Run");
+
+        private final String path;
+
+        Key(String path) {
+            this.path = path;
+        }
+
+        /**
+         * The path of the key, relative to {@literal HKEY_CURRENT_USER}
+         *
+         * @return The key path
+         */
+        @NotNull String getPath() {
+            return path;
+        }
+    }
+
+    /**
+     * The values of an entry in both keys
+     */
+    final class Values {
+
+        private final @Nullable String command;
+        private final byte @Nullable [] approved;
+
+        Values(@Nullable String command, byte @Nullable [] approved) {
+            this.command = command;
+            this.approved = approved;
+        }
+
+        /**
+         * The command line in the {@link Key#RUN} key
+         *
+         * @return The command line, or {@code null} if there is none
+         */
+        @Nullable String getCommand() {
+            return command;
+        }
+
+        /**
+         * The state in the {@link Key#STARTUP_APPROVED} key
+         *
+         * @return The state, or {@code null} if there is none
+         */
+        byte @Nullable [] getApproved() {
+            return approved;
+        }
+    }
+
+    /**
+     * A single change to a registry value
+     */
+    final class Write {
+
+        private final Key key;
+        private final String name;
+        private final @Nullable Object value;
+
+        private Write(@NotNull Key key, @NotNull String name, @Nullable Object value) {
+            this.key = notNull(key, "key");
+            this.name = notNull(name, "name");
+            this.value = value;
+        }
+
+        /**
+         * Sets a string value
+         */
+        static @NotNull Write setString(@NotNull Key key, @NotNull String name, @NotNull String value) {
+            return new Write(key, name, notNull(value, "value"));
+        }
+
+        /**
+         * Sets a binary value
+         */
+        static @NotNull Write setBinary(@NotNull Key key, @NotNull String name, byte @NotNull [] value) {
+            return new Write(key, name, notNull(value, "value"));
+        }
+
+        /**
+         * Deletes a value
+         */
+        static @NotNull Write delete(@NotNull Key key, @NotNull String name) {
+            return new Write(key, name, null);
+        }
+
+        @NotNull Key getKey() {
+            return key;
+        }
+
+        @NotNull String getName() {
+            return name;
+        }
+
+        /**
+         * The new value, which is either a {@link String} or a byte array
+         *
+         * @return The new value, or {@code null} if the value is deleted
+         */
+        @Nullable Object getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package revxrsal.autolaunch;
+
+import com.sun.jna.platform.win32.Win32Exception;
+import org.jetbrains.annotations.NotNull;
+import revxrsal.autolaunch.RegistryBackend.Key;
+
+import java.util.*;
+
+import static revxrsal.autolaunch.Utils.notNull;
+import static revxrsal.autolaunch.Utils.sneakyThrow;
+
+/**
+ * The {@link PlatformAutoLaunch} implementation for Windows
+ */
+final class WindowsAutoLaunch implements PlatformAutoLaunch {
+
+    public static final WindowsAutoLaunch INSTANCE = new WindowsAutoLaunch(JnaRegistryBackend.INSTANCE);
+
+    private static final byte[] TASK_MANAGER_OVERRIDE_ENABLED_VALUE = new byte[]{
+            0x02, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    private final RegistryBackend backend;
+
+    WindowsAutoLaunch(@NotNull RegistryBackend backend) {
+        this.backend = notNull(backend, "backend");
+    }
+
+    /**
+     * Creates the command line that is stored in the {@literal Run} key. The Run key
+     * has no way to delay a launch, so delayed launches go through a hidden
+     * PowerShell that sleeps first.
+     * <p>
+     * Run values longer than 260 characters are ignored at login, so the script is
+     * passed as it is rather than encoded, which would more than double its length.
+     */
+    static @NotNull String createRunValue(@NotNull AutoLaunch autoLaunch) {
+        long delay = DelayedLaunch.seconds(autoLaunch);
+        if (delay == 0)
+            return autoLaunch.startupCommand();
+        String script = "Start-Sleep -Seconds " + delay + "; " +
+                "Start-Process -FilePath " + powerShellLiteral(autoLaunch.getAppFile().getAbsolutePath()) +
+                (autoLaunch.getLaunchArgs().isEmpty() ? "" : " -ArgumentList " + powerShellArguments(autoLaunch.getLaunchArgs()));
+        // quoted as a single argument, so PowerShell gets the script back as written
+        return "powershell.exe -NoProfile -NonInteractive -WindowStyle Hidden -Command " + commandLineArgument(script);
+    }
+
+    /**
+     * Creates the PowerShell array of the given arguments. Start-Process joins
+     * the array with spaces into a single command line, so each argument is
+     * quoted for the command line first.
+     */
+    private static @NotNull String powerShellArguments(@NotNull List<String> args) {
+        StringBuilder array = new StringBuilder();
+        for (String arg : args) {
+            if (array.length() > 0)
+                array.append(',');
+            array.append(powerShellLiteral(commandLineArgument(arg)));
+        }
+        return array.toString();
+    }
+
+    // quotes the argument the way CommandLineToArgvW reads it back, if needed
+    private static @NotNull String commandLineArgument(@NotNull String arg) {
+        if (!arg.isEmpty() && arg.chars().noneMatch(c -> c == ' ' || c == '\t' || c == '"'))
+            return arg;
+        StringBuilder quoted = new StringBuilder(arg.length() + 2).append('"');
+        int backslashes = 0;
+        for (int i = 0; i < arg.length(); i++) {
+            char c = arg.charAt(i);
+            if (c == '\\') {
+                backslashes++;
+                continue;
+            }
+            // backslashes are only special right before a quote
+            for (int n = c == '"' ? backslashes * 2 + 1 : backslashes; n > 0; n--)
+                quoted.append('\\');
+            backslashes = 0;
+            quoted.append(c);
+        }
+        // and before the closing one
+        for (int n = backslashes * 2; n > 0; n--)
+            quoted.append('\\');
+        return quoted.append('"').toString();
+    }
+
+    private static @NotNull String powerShellLiteral(@NotNull String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // PowerShell also treats the typographic single quotes as quotes
+            if (c == '\'' || c == '\u2018' || c == '\u2019' || c == '\u201A' || c == '\u201B')
+                literal.append(c);
+            literal.append(c);
+        }
+        return literal.append('\'').toString();
+    }
+
+    @Override
+    public void enable(@NotNull AutoLaunch autoLaunch) {
+        List<RegistryBackend.Write> writes = new ArrayList<>(2);
+        addEnableWrites(autoLaunch, writes);
+        for (Throwable failure : backend.write(writes)) {
+            if (failure != null)
+                sneakyThrow(failure);
+        }
+    }
+
+    @Override
+    public void disable(@NotNull AutoLaunch autoLaunch) {
+        Throwable failure = backend.write(Collections.singletonList(
+                RegistryBackend.Write.delete(Key.RUN, autoLaunch.getAppName())
+        ))[0];
+        if (failure != null)
+            sneakyThrow(failure);
+    }
+
+    // the Run value, and the StartupApproved value that marks it as enabled in Task Manager
+    private static void addEnableWrites(@NotNull AutoLaunch autoLaunch, @NotNull List<RegistryBackend.Write> writes) {
+        writes.add(RegistryBackend.Write.setString(Key.RUN, autoLaunch.getAppName(), createRunValue(autoLaunch)));
+        writes.add(RegistryBackend.Write.setBinary(Key.STARTUP_APPROVED, autoLaunch.getAppName(), TASK_MANAGER_OVERRIDE_ENABLED_VALUE));
+    }
+
+    @Override
+    public @NotNull BatchResult applyAll(
+            @NotNull Collection<AutoLaunch> toEnable,
+            @NotNull Collection<AutoLaunch> toDisable
+    ) {
+        // all the writes go to the backend at once. enabling takes two writes, disabling one.
+        List<RegistryBackend.Write> writes = new ArrayList<>(toEnable.size() * 2 + toDisable.size());
+        for (AutoLaunch autoLaunch : toEnable)
+            addEnableWrites(autoLaunch, writes);
+        for (AutoLaunch autoLaunch : toDisable)
+            writes.add(RegistryBackend.Write.delete(Key.RUN, autoLaunch.getAppName()));
+        Throwable[] failures = backend.write(writes);
+
+        List<BatchResult.Entry> entries = new ArrayList<>(toEnable.size() + toDisable.size());
+        int index = 0;
+        for (AutoLaunch autoLaunch : toEnable) {
+            Throwable failure = failures[index] != null ? failures[index] : failures[index + 1];
+            index += 2;
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.ENABLE, failure));
+        }
+        for (AutoLaunch autoLaunch : toDisable)
+            entries.add(new BatchResult.Entry(autoLaunch, BatchResult.Action.DISABLE, failures[index++]));
+        return new BatchResult(entries);
+    }
+
+    @Override
+    public boolean isEnabled(@NotNull AutoLaunch autoLaunch) {
+        RegistryBackend.Values values;
+        try {
+            values = backend.read(autoLaunch.getAppName());
+        } catch (Win32Exception e) {
+            return false;
+        }
+        // the entry must exist, and must not have been disabled in Task Manager
+        return values.getCommand() != null
+                && values.getApproved() != null
+                && lastEightBytesAllZeroes(values.getApproved());
+    }
+
+    @Override
+    public @NotNull Drift checkDrift(@NotNull AutoLaunch autoLaunch) {
+        RegistryBackend.Values values;
+        try {
+            values = backend.read(autoLaunch.getAppName());
+        } catch (Win32Exception e) {
+            return Drift.NOT_ENABLED;
+        }
+        return driftOf(autoLaunch, values);
+    }
+
+    @Override
+    public @NotNull Drift reconcile(@NotNull AutoLaunch autoLaunch) {
+        Drift drift = checkDrift(autoLaunch);
+        if (drift == Drift.STALE) {
+            // only the command line is rewritten. the Task Manager state is the user's.
+            Throwable failure = backend.write(Collections.singletonList(
+                    RegistryBackend.Write.setString(Key.RUN, autoLaunch.getAppName(), createRunValue(autoLaunch))
+            ))[0];
+            if (failure != null)
+                sneakyThrow(failure);
+        }
+        return drift;
+    }
+
+    private static @NotNull Drift driftOf(@NotNull AutoLaunch autoLaunch, @NotNull RegistryBackend.Values values) {
+        String command = values.getCommand();
+        byte[] approved = values.getApproved();
+        if (command == null || approved == null || !lastEightBytesAllZeroes(approved))
+            return Drift.NOT_ENABLED;
+        return command.equals(createRunValue(autoLaunch)) ? Drift.UP_TO_DATE : Drift.STALE;
+    }
+
+    private static boolean lastEightBytesAllZeroes(byte[] bytes) {
+        if (bytes.length < 8) {
+            return false;
+        }
+        for (int i = bytes.length - 8; i < bytes.length; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
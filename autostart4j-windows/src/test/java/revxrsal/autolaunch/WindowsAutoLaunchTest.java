@@ -0,0 +1,283 @@
+package revxrsal.autolaunch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import revxrsal.autolaunch.RegistryBackend.Key;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Windows logic against an {@link InMemoryRegistryBackend}, so it
+ * can be tested on any platform
+ */
+class WindowsAutoLaunchTest {
+
+    private static final byte[] ENABLED = {0x02, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    // how Task Manager marks a disabled entry: a flag, followed by the time it was disabled
+    private static final byte[] DISABLED_IN_TASK_MANAGER = {0x03, 0, 0, 0, 0x1F, 0x2E, 0x3D, 0x4C, 0x5B, 0x6A, 0x79, 0x01};
+
+    @TempDir
+    Path dir;
+
+    private InMemoryRegistryBackend registry;
+    private FailingBackend backend;
+    private WindowsAutoLaunch windows;
+
+    @BeforeEach
+    void setUp() {
+        registry = new InMemoryRegistryBackend();
+        backend = new FailingBackend(registry);
+        windows = new WindowsAutoLaunch(backend);
+    }
+
+    @Test
+    void enablingWritesTheCommandAndTheTaskManagerState() throws IOException {
+        AutoLaunch autoLaunch = autoLaunch("Agent");
+        windows.enable(autoLaunch);
+        assertEquals(WindowsAutoLaunch.createRunValue(autoLaunch), registry.getValue(Key.RUN, "Agent"));
+        assertArrayEquals(ENABLED, (byte[]) registry.getValue(Key.STARTUP_APPROVED, "Agent"));
+        assertTrue(windows.isEnabled(autoLaunch));
+        assertEquals(Drift.UP_TO_DATE, windows.checkDrift(autoLaunch));
+
+        windows.disable(autoLaunch);
+        assertNull(registry.getValue(Key.RUN, "Agent"));
+        assertFalse(windows.isEnabled(autoLaunch));
+        assertEquals(Drift.NOT_ENABLED, windows.checkDrift(autoLaunch));
+    }
+
+    @Test
+    void entriesDisabledInTaskManagerAreNotEnabled() throws IOException {
+        AutoLaunch autoLaunch = autoLaunch("Agent");
+        windows.enable(autoLaunch);
+        registry.setValue(Key.STARTUP_APPROVED, "Agent", DISABLED_IN_TASK_MANAGER);
+        assertFalse(windows.isEnabled(autoLaunch));
+        assertEquals(Drift.NOT_ENABLED, windows.checkDrift(autoLaunch));
+
+        // the flag alone does not matter, only whether a time was recorded
+        registry.setValue(Key.STARTUP_APPROVED, "Agent", new byte[]{0x06, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+        assertTrue(windows.isEnabled(autoLaunch));
+        // too short to hold a time
+        registry.setValue(Key.STARTUP_APPROVED, "Agent", new byte[]{0, 0, 0, 0});
+        assertFalse(windows.isEnabled(autoLaunch));
+        registry.setValue(Key.STARTUP_APPROVED, "Agent", null);
+        assertFalse(windows.isEnabled(autoLaunch));
+
+        // enabling again overrides the user's choice
+        windows.enable(autoLaunch);
+        assertTrue(windows.isEnabled(autoLaunch));
+    }
+
+    @Test
+    void reconcileRewritesOnlyTheCommand() throws IOException {
+        AutoLaunch autoLaunch = autoLaunch("Agent");
+        assertEquals(Drift.NOT_ENABLED, windows.reconcile(autoLaunch));
+        assertNull(registry.getValue(Key.RUN, "Agent"));
+
+        windows.enable(autoLaunch);
+        byte[] approved = {0x02, 0, 0, 0x7F, 0, 0, 0, 0, 0, 0, 0, 0};
+        registry.setValue(Key.STARTUP_APPROVED, "Agent", approved);
+        registry.setValue(Key.RUN, "Agent", "\"C:\\Old\\agent.exe\"");
+        assertEquals(Drift.STALE, windows.reconcile(autoLaunch));
+        assertEquals(WindowsAutoLaunch.createRunValue(autoLaunch), registry.getValue(Key.RUN, "Agent"));
+        assertArrayEquals(approved, (byte[]) registry.getValue(Key.STARTUP_APPROVED, "Agent"));
+        assertEquals(Drift.UP_TO_DATE, windows.reconcile(autoLaunch));
+
+        // entries disabled in Task Manager are left alone
+        registry.setValue(Key.STARTUP_APPROVED, "Agent", DISABLED_IN_TASK_MANAGER);
+        registry.setValue(Key.RUN, "Agent", "\"C:\\Old\\agent.exe\"");
+        assertEquals(Drift.NOT_ENABLED, windows.reconcile(autoLaunch));
+        assertEquals("\"C:\\Old\\agent.exe\"", registry.getValue(Key.RUN, "Agent"));
+    }
+
+    @Test
+    void delayedLaunchesPassEachArgument() throws IOException {
+        Path app = Files.createFile(dir.resolve("agent.exe"));
+        AutoLaunch autoLaunch = AutoLaunch.builder()
+                .appName("Agent")
+                .appFile(app.toFile())
+                .args("--minimized", "two words", "it's", "say \"hi\"", "C:\\dir\\", "C:\\my dir\\", "")
+                .delay(Duration.ofSeconds(5))
+                .build();
+        List<String> command = parseCommandLine(WindowsAutoLaunch.createRunValue(autoLaunch));
+        assertEquals(Arrays.asList("powershell.exe", "-NoProfile", "-NonInteractive", "-WindowStyle", "Hidden", "-Command"),
+                command.subList(0, command.size() - 1));
+        String script = command.get(command.size() - 1);
+        assertTrue(script.startsWith("Start-Sleep -Seconds 5; Start-Process -FilePath '"));
+        assertTrue(script.endsWith(" -ArgumentList '--minimized','\"two words\"','it''s','\"say \\\"hi\\\"\"','C:\\dir\\','\"C:\\my dir\\\\\"','\"\"'"), script);
+    }
+
+    @Test
+    void delayedLaunchesFitInARunValue() {
+        AutoLaunch autoLaunch = AutoLaunch.builder()
+                .appName("MyApp")
+                .appFile(new WindowsFile("C:\\Program Files\\MyApp\\MyApp.exe"))
+                .args("--hidden")
+                .delay(Duration.ofSeconds(30))
+                .build();
+        String command = WindowsAutoLaunch.createRunValue(autoLaunch);
+        assertTrue(command.length() < 260, command);
+        assertEquals("Start-Sleep -Seconds 30; Start-Process -FilePath 'C:\\Program Files\\MyApp\\MyApp.exe' -ArgumentList '--hidden'",
+                parseCommandLine(command).get(6));
+    }
+
+    @Test
+    void batchFailuresMapToTheirEntries() throws IOException {
+        AutoLaunch a = autoLaunch("A"), b = autoLaunch("B"), c = autoLaunch("C"), d = autoLaunch("D");
+        windows.enable(c);
+        windows.enable(d);
+        // B fails on its second write, D on its only one
+        backend.fail(Key.STARTUP_APPROVED, "B");
+        backend.fail(Key.RUN, "D");
+
+        BatchResult result = windows.applyAll(Arrays.asList(a, b), Arrays.asList(c, d));
+        List<BatchResult.Entry> entries = result.getEntries();
+        assertEquals(4, entries.size());
+        assertSame(a, entries.get(0).getAutoLaunch());
+        assertNull(entries.get(0).getFailure());
+        assertSame(b, entries.get(1).getAutoLaunch());
+        assertEquals("STARTUP_APPROVED B", entries.get(1).getFailure().getMessage());
+        assertSame(c, entries.get(2).getAutoLaunch());
+        assertEquals(BatchResult.Action.DISABLE, entries.get(2).getAction());
+        assertNull(entries.get(2).getFailure());
+        assertSame(d, entries.get(3).getAutoLaunch());
+        assertEquals("RUN D", entries.get(3).getFailure().getMessage());
+
+        assertTrue(windows.isEnabled(a));
+        assertFalse(windows.isEnabled(c));
+        assertTrue(windows.isEnabled(d));
+    }
+
+    private AutoLaunch autoLaunch(String name) throws IOException {
+        Path app = dir.resolve(name + ".exe");
+        if (!Files.exists(app))
+            Files.createFile(app);
+        return AutoLaunch.builder()
+                .appName(name)
+                .appFile(app.toFile())
+                .args("--minimized")
+                .build();
+    }
+
+    /**
+     * An existing file at an absolute Windows path, on any platform
+     */
+    private static final class WindowsFile extends File {
+
+        private static final long serialVersionUID = 1L;
+
+        WindowsFile(@NotNull String path) {
+            super(path);
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public @NotNull String getAbsolutePath() {
+            return getPath();
+        }
+    }
+
+    /**
+     * Splits a command line the way CommandLineToArgvW does, past the program name
+     */
+    private static List<String> parseCommandLine(String commandLine) {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = null;
+        boolean quoted = false;
+        for (int i = 0; i < commandLine.length(); i++) {
+            char c = commandLine.charAt(i);
+            if (!quoted && (c == ' ' || c == '\t')) {
+                if (arg != null)
+                    args.add(arg.toString());
+                arg = null;
+                continue;
+            }
+            if (arg == null)
+                arg = new StringBuilder();
+            if (c == '\\') {
+                int backslashes = 0;
+                while (i < commandLine.length() && commandLine.charAt(i) == '\\') {
+                    backslashes++;
+                    i++;
+                }
+                if (i < commandLine.length() && commandLine.charAt(i) == '"') {
+                    // 2n backslashes and a quote are n backslashes, 2n + 1 are n and a literal quote
+                    for (int n = backslashes / 2; n > 0; n--)
+                        arg.append('\\');
+                    if (backslashes % 2 == 1)
+                        arg.append('"');
+                    else
+                        quoted = !quoted;
+                } else {
+                    for (int n = backslashes; n > 0; n--)
+                        arg.append('\\');
+                    i--;
+                }
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else {
+                arg.append(c);
+            }
+        }
+        if (arg != null)
+            args.add(arg.toString());
+        return args;
+    }
+
+    /**
+     * Fails the writes to chosen values, and passes the rest on
+     */
+    private static final class FailingBackend implements RegistryBackend {
+
+        private final RegistryBackend delegate;
+        private final Set<String> failing = new HashSet<>();
+
+        FailingBackend(@NotNull RegistryBackend delegate) {
+            this.delegate = delegate;
+        }
+
+        void fail(@NotNull Key key, @NotNull String name) {
+            failing.add(key + " " + name);
+        }
+
+        @Override
+        public @NotNull Values read(@NotNull String name) {
+            return delegate.read(name);
+        }
+
+        @Override
+        public @Nullable Throwable @NotNull [] write(@NotNull List<Write> writes) {
+            Throwable[] failures = new Throwable[writes.size()];
+            List<Write> passed = new ArrayList<>();
+            List<Integer> passedIndices = new ArrayList<>();
+            for (int i = 0; i < failures.length; i++) {
+                Write write = writes.get(i);
+                String value = write.getKey() + " " + write.getName();
+                if (failing.contains(value))
+                    failures[i] = new IllegalStateException(value);
+                else {
+                    passed.add(write);
+                    passedIndices.add(i);
+                }
+            }
+            Throwable[] delegated = delegate.write(passed);
+            for (int i = 0; i < delegated.length; i++)
+                failures[passedIndices.get(i)] = delegated[i];
+            return failures;
+        }
+    }
+}
@@ -1,25 +1,53 @@
-plugins {
-    id("java")
-    `maven-publish`
+allprojects {
+    group = "revxrsal"
+    version = "1.1"
+
+    repositories {
+        mavenCentral()
+    }
 }
 
-group = "revxrsal"
-version = "1.1"
+subprojects {
+    apply(plugin = "java-library")
+
+    dependencies {
+        "compileOnly"("org.jetbrains:annotations:24.1.0")
+        "testCompileOnly"("org.jetbrains:annotations:24.1.0")
+        "testImplementation"("org.junit.jupiter:junit-jupiter:5.10.2")
+        "testRuntimeOnly"("org.junit.platform:junit-platform-launcher:1.10.2")
+    }
 
-repositories {
-    mavenCentral()
+    tasks.withType<Test> {
+        useJUnitPlatform()
+    }
 }
 
-dependencies {
-    compileOnly("org.jetbrains:annotations:24.1.0")
-    implementation("net.java.dev.jna:jna-platform:5.14.0")
-    implementation("net.java.dev.jna:jna:5.14.0")
+project(":autostart4j-core") {
+    // builders shared by the tests and the benchmarks
+    apply(plugin = "java-test-fixtures")
+
+    tasks.withType<Test> {
+        // the systemd tests install a stand-in systemctl here, so the real one is never run
+        systemProperty("autostart4j.systemctl", layout.buildDirectory.file("test-bin/systemctl").get().asFile.absolutePath)
+    }
 }
 
-publishing {
-    publications {
-        create<MavenPublication>("maven") {
-            from(components["java"])
+// only the library modules are published
+configure(subprojects.filter { it.name.startsWith("autostart4j-") }) {
+    apply(plugin = "maven-publish")
+
+    // the test fixtures are not part of the published library
+    plugins.withId("java-test-fixtures") {
+        val java = components["java"] as AdhocComponentWithVariants
+        java.withVariantsFromConfiguration(configurations["testFixturesApiElements"]) { skip() }
+        java.withVariantsFromConfiguration(configurations["testFixturesRuntimeElements"]) { skip() }
+    }
+
+    configure<PublishingExtension> {
+        publications {
+            create<MavenPublication>("maven") {
+                from(components["java"])
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+plugins {
+    application
+    id("org.graalvm.buildtools.native") version "0.10.6"
+}
+
+dependencies {
+    implementation(project(":autostart4j-core"))
+    runtimeOnly(project(":autostart4j-windows"))
+}
+
+application {
+    applicationName = "autostart4j"
+    mainClass.set("revxrsal.autolaunch.cli.AutoLaunchCli")
+}
+
+graalvmNative {
+    // pulls in the reachability metadata of third-party libraries, i.e. JNA on Windows
+    metadataRepository {
+        enabled.set(true)
+    }
+    binaries {
+        named("main") {
+            imageName.set("autostart4j")
+            // the CLI is short-lived, so the serial GC and a small heap are enough
+            buildArgs.addAll("--no-fallback", "--gc=serial", "-R:MaxHeapSize=64m")
+        }
+    }
+}
+
+/**
+ * Compares the startup time of the JVM and native launchers, by running a
+ * `status` command `-Pstartup.runs` times (20 by default) with each of them.
+ *
+ * The native launcher is only measured if it was built with `nativeCompile` first.
+ */
+tasks.register("startupBenchmark") {
+    group = "benchmark"
+    description = "Compares the startup time of the JVM and native launchers"
+    dependsOn("installDist")
+    doLast {
+        val runs = (findProperty("startup.runs") as String?)?.toInt() ?: 20
+        val windows = System.getProperty("os.name").lowercase().startsWith("win")
+        val launchers = linkedMapOf(
+            "jvm" to layout.buildDirectory.file("install/autostart4j/bin/autostart4j" + if (windows) ".bat" else "").get().asFile,
+            "native" to layout.buildDirectory.file("native/nativeCompile/autostart4j" + if (windows) ".exe" else "").get().asFile
+        )
+        for ((name, launcher) in launchers) {
+            if (!launcher.exists()) {
+                println(String.format("%-8s not built (%s)", name, launcher))
+                continue
+            }
+            val command = listOf(launcher.absolutePath, "--json", "status", "autostart4j-startup-benchmark")
+            // the first run warms up the file system cache
+            ProcessBuilder(command).redirectErrorStream(true).start().apply { inputStream.readBytes() }.waitFor()
+            val times = (1..runs).map {
+                val start = System.nanoTime()
+                val process = ProcessBuilder(command).redirectErrorStream(true).start()
+                process.inputStream.readBytes()
+                process.waitFor()
+                (System.nanoTime() - start) / 1_000_000.0
+            }.sorted()
+            println(String.format(
+                "%-8s mean %8.1f ms   p50 %8.1f ms   p90 %8.1f ms   min %8.1f ms",
+                name, times.average(), times[runs / 2], times[(runs * 9) / 10], times.first()
+            ))
+        }
+    }
+}
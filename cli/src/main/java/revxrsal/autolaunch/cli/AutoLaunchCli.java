@@ -0,0 +1,245 @@
+package revxrsal.autolaunch.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import revxrsal.autolaunch.AutoLaunch;
+import revxrsal.autolaunch.BatchResult;
+import revxrsal.autolaunch.StartupEntry;
+import revxrsal.autolaunch.StartupInventory;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The command line front end of autostart4j. Runs any number of commands in a
+ * single invocation, and prints their results as text or JSON.
+ * <p>
+ * Consecutive {@literal enable} and {@literal disable} commands are applied
+ * together as a single {@link AutoLaunch#batch() batch}, unless they name the same
+ * application, in which case they are applied in order.
+ * <p>
+ * Exits with 0 if every command succeeded, 1 if any command failed, and
+ * 2 if the command line is invalid.
+ */
+public final class AutoLaunchCli {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: autostart4j [--json] <command> [<command>...]",
+            "",
+            "Commands:",
+            "  enable <name> --exec <file> [--arg <arg>]... [options]",
+            "  disable <name> [options]",
+            "  status <name> [options]",
+            "  list",
+            "",
+            "Options:",
+            "  --launch-agent    (macOS) use a launch agent rather than a login item",
+            "  --binary-plist    (macOS) use a launch agent, written as a binary plist",
+            "  --systemd         (Linux) use a systemd user unit",
+            "  --delay <seconds> delay the launch after login",
+            "  --mark            mark launches, so the application can detect them",
+            "",
+            "Example:",
+            "  autostart4j --json enable Agent --exec /opt/agent/bin/agent --arg --hidden disable OldAgent status Agent"
+    );
+
+    private AutoLaunchCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(Arrays.asList(args), System.out, System.err));
+    }
+
+    /**
+     * Runs the given command line
+     *
+     * @param args The command line arguments
+     * @param out  The stream results are printed to
+     * @param err  The stream usage errors are printed to
+     * @return The exit code
+     */
+    static int run(@NotNull List<String> args, @NotNull PrintStream out, @NotNull PrintStream err) {
+        boolean json = false;
+        List<String> tokens = new ArrayList<>(args);
+        for (Iterator<String> iterator = tokens.iterator(); iterator.hasNext(); ) {
+            String token = iterator.next();
+            if (token.equals("--json")) {
+                json = true;
+                iterator.remove();
+            } else if (token.equals("--help") || token.equals("-h")) {
+                out.println(USAGE);
+                return 0;
+            } else {
+                // global options only come before the first command
+                break;
+            }
+        }
+
+        List<Command> commands;
+        try {
+            commands = Command.parseAll(tokens);
+        } catch (Command.UsageException e) {
+            err.println("error: " + e.getMessage());
+            err.println();
+            err.println(USAGE);
+            return 2;
+        }
+
+        List<Result> results = execute(commands);
+        out.println(json ? toJson(results) : toText(results));
+        for (Result result : results) {
+            if (result.failure != null)
+                return 1;
+        }
+        return 0;
+    }
+
+    private static @NotNull List<Result> execute(@NotNull List<Command> commands) {
+        Result[] results = new Result[commands.size()];
+        // indices of the pending enable and disable commands, applied as one batch
+        List<Integer> pending = new ArrayList<>();
+        Set<String> pendingNames = new HashSet<>();
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            switch (command.getVerb()) {
+                case ENABLE:
+                case DISABLE:
+                    // a batch applies all enables before all disables, so a command for an
+                    // application that is already in the batch starts a new one
+                    if (!pendingNames.add(command.getAppName())) {
+                        applyBatch(commands, pending, results);
+                        pendingNames.clear();
+                        pendingNames.add(command.getAppName());
+                    }
+                    pending.add(i);
+                    continue;
+                default:
+                    applyBatch(commands, pending, results);
+                    pendingNames.clear();
+                    results[i] = executeQuery(command);
+            }
+        }
+        applyBatch(commands, pending, results);
+        return Arrays.asList(results);
+    }
+
+    private static void applyBatch(@NotNull List<Command> commands, @NotNull List<Integer> pending, Result @NotNull [] results) {
+        if (pending.isEmpty())
+            return;
+        AutoLaunch.Batch batch = AutoLaunch.batch();
+        Map<AutoLaunch, Integer> indices = new IdentityHashMap<>();
+        for (int index : pending) {
+            Command command = commands.get(index);
+            try {
+                AutoLaunch autoLaunch = command.toAutoLaunch();
+                indices.put(autoLaunch, index);
+                if (command.getVerb() == Command.Verb.ENABLE)
+                    batch.enable(autoLaunch);
+                else
+                    batch.disable(autoLaunch);
+            } catch (RuntimeException e) {
+                results[index] = new Result(command, null, null, e);
+            }
+        }
+        if (!indices.isEmpty()) {
+            for (BatchResult.Entry entry : batch.apply().getEntries()) {
+                int index = indices.get(entry.getAutoLaunch());
+                Command command = commands.get(index);
+                Boolean enabled = entry.isSuccessful() ? command.getVerb() == Command.Verb.ENABLE : null;
+                results[index] = new Result(command, enabled, null, entry.getFailure());
+            }
+        }
+        pending.clear();
+    }
+
+    private static @NotNull Result executeQuery(@NotNull Command command) {
+        try {
+            if (command.getVerb() == Command.Verb.LIST) {
+                List<StartupEntry> entries;
+                try (Stream<StartupEntry> stream = StartupInventory.scan()) {
+                    entries = stream.sorted(Comparator.comparing(StartupEntry::getName)).collect(Collectors.toList());
+                }
+                return new Result(command, null, entries, null);
+            }
+            return new Result(command, command.toAutoLaunch().isEnabled(), null, null);
+        } catch (RuntimeException e) {
+            return new Result(command, null, null, e);
+        }
+    }
+
+    private static @NotNull String toText(@NotNull List<Result> results) {
+        StringJoiner text = new StringJoiner("\n");
+        for (Result result : results) {
+            String verb = result.command.getVerb().getName();
+            if (result.failure != null) {
+                text.add(verb + " " + nameOf(result) + ": failed: " + describe(result.failure));
+            } else if (result.entries != null) {
+                for (StartupEntry entry : result.entries)
+                    text.add(entry.getName() + "\t" + entry.getSource() + "\t" + (entry.getExec() == null ? "" : entry.getExec()));
+            } else if (result.command.getVerb() == Command.Verb.STATUS) {
+                text.add(result.command.getAppName() + ": " + (result.enabled ? "enabled" : "disabled"));
+            } else {
+                text.add(verb + " " + result.command.getAppName() + ": ok");
+            }
+        }
+        return text.toString();
+    }
+
+    private static @NotNull String toJson(@NotNull List<Result> results) {
+        Json json = new Json().beginObject().name("results").beginArray();
+        for (Result result : results) {
+            json.beginObject()
+                    .name("command").value(result.command.getVerb().getName());
+            if (result.command.getAppName() != null)
+                json.name("name").value(result.command.getAppName());
+            json.name("ok").value(result.failure == null);
+            if (result.enabled != null)
+                json.name("enabled").value(result.enabled);
+            if (result.failure != null)
+                json.name("error").value(describe(result.failure));
+            if (result.entries != null) {
+                json.name("entries").beginArray();
+                for (StartupEntry entry : result.entries) {
+                    json.beginObject()
+                            .name("name").value(entry.getName())
+                            .name("exec").value(entry.getExec())
+                            .name("hidden").value(entry.isHidden())
+                            .name("source").value(entry.getSource().name())
+                            .name("file").value(entry.getFile().toString())
+                            .endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private static @NotNull String nameOf(@NotNull Result result) {
+        return result.command.getAppName() == null ? "" : result.command.getAppName();
+    }
+
+    private static @NotNull String describe(@NotNull Throwable failure) {
+        return failure.getMessage() == null ? failure.getClass().getName() : failure.getMessage();
+    }
+
+    /**
+     * The result of a single command
+     */
+    private static final class Result {
+
+        private final Command command;
+        private final @Nullable Boolean enabled;
+        private final @Nullable List<StartupEntry> entries;
+        private final @Nullable Throwable failure;
+
+        Result(@NotNull Command command, @Nullable Boolean enabled, @Nullable List<StartupEntry> entries, @Nullable Throwable failure) {
+            this.command = command;
+            this.enabled = enabled;
+            this.entries = entries;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package revxrsal.autolaunch.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import revxrsal.autolaunch.AutoLaunch;
+import revxrsal.autolaunch.PlistFormat;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single command on the command line, such as {@literal enable MyApp --exec /opt/myapp}
+ */
+final class Command {
+
+    /**
+     * The command verbs
+     */
+    enum Verb {
+        ENABLE,
+        DISABLE,
+        STATUS,
+        LIST;
+
+        @NotNull String getName() {
+            return name().toLowerCase();
+        }
+
+        static @Nullable Verb of(@NotNull String name) {
+            for (Verb verb : values()) {
+                if (verb.getName().equals(name))
+                    return verb;
+            }
+            return null;
+        }
+    }
+
+    private final Verb verb;
+    private final @Nullable String appName;
+    private @Nullable String exec;
+    private final List<String> args = new ArrayList<>();
+    private boolean launchAgent;
+    private boolean binaryPlist;
+    private boolean systemd;
+    private boolean mark;
+    private @Nullable Duration delay;
+
+    private Command(@NotNull Verb verb, @Nullable String appName) {
+        this.verb = verb;
+        this.appName = appName;
+    }
+
+    @NotNull Verb getVerb() {
+        return verb;
+    }
+
+    @Nullable String getAppName() {
+        return appName;
+    }
+
+    /**
+     * Creates the {@link AutoLaunch} this command operates on
+     *
+     * @return The auto launch
+     */
+    @NotNull AutoLaunch toAutoLaunch() {
+        AutoLaunch.Builder builder = AutoLaunch.builder()
+                .appName(appName)
+                // the file only matters when enabling, but the builder needs one that exists
+                .appFile(exec == null ? new File(System.getProperty("user.dir")) : new File(exec).getAbsoluteFile())
+                .args(args);
+        if (launchAgent)
+            builder.useLaunchAgent();
+        if (binaryPlist)
+            builder.launchAgentFormat(PlistFormat.BINARY);
+        if (systemd)
+            builder.useSystemdUnit();
+        if (mark)
+            builder.markLaunches();
+        if (delay != null)
+            builder.delay(delay);
+        return builder.build();
+    }
+
+    /**
+     * Parses all the commands on the command line. A command ends where the next
+     * verb begins.
+     *
+     * @param tokens The command line, without the global options
+     * @return The commands
+     * @throws UsageException if the command line is invalid
+     */
+    static @NotNull List<Command> parseAll(@NotNull List<String> tokens) {
+        List<Command> commands = new ArrayList<>();
+        int i = 0;
+        while (i < tokens.size()) {
+            String token = tokens.get(i++);
+            Verb verb = Verb.of(token);
+            if (verb == null)
+                throw new UsageException("Unknown command: " + token);
+            String appName = null;
+            if (verb != Verb.LIST) {
+                if (i == tokens.size() || tokens.get(i).startsWith("--"))
+                    throw new UsageException(verb.getName() + " requires an application name");
+                appName = tokens.get(i++);
+            }
+            Command command = new Command(verb, appName);
+            while (i < tokens.size() && tokens.get(i).startsWith("--"))
+                i = command.parseOption(tokens, i);
+            if (verb == Verb.ENABLE && command.exec == null)
+                throw new UsageException("enable " + appName + " requires --exec");
+            commands.add(command);
+        }
+        if (commands.isEmpty())
+            throw new UsageException("No command given");
+        return commands;
+    }
+
+    // parses the option at the given index, returning the index after it
+    private int parseOption(@NotNull List<String> tokens, int i) {
+        String option = tokens.get(i++);
+        if (verb == Verb.LIST)
+            throw new UsageException("list does not take " + option);
+        switch (option) {
+            case "--exec":
+                exec = value(tokens, i++, option);
+                break;
+            case "--arg":
+                args.add(value(tokens, i++, option));
+                break;
+            case "--delay":
+                String seconds = value(tokens, i++, option);
+                try {
+                    delay = Duration.ofSeconds(Long.parseLong(seconds));
+                } catch (NumberFormatException e) {
+                    throw new UsageException("Invalid --delay: " + seconds);
+                }
+                break;
+            case "--launch-agent":
+                launchAgent = true;
+                break;
+            case "--binary-plist":
+                launchAgent = true;
+                binaryPlist = true;
+                break;
+            case "--systemd":
+                systemd = true;
+                break;
+            case "--mark":
+                mark = true;
+                break;
+            default:
+                throw new UsageException("Unknown option: " + option);
+        }
+        return i;
+    }
+
+    private static @NotNull String value(@NotNull List<String> tokens, int i, @NotNull String option) {
+        if (i >= tokens.size())
+            throw new UsageException(option + " requires a value");
+        return tokens.get(i);
+    }
+
+    /**
+     * Thrown when the command line is invalid
+     */
+    static final class UsageException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package revxrsal.autolaunch.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A minimal JSON writer, for the command line output
+ */
+final class Json {
+
+    private final StringBuilder out = new StringBuilder();
+
+    /**
+     * Whether the next value in the current object or array needs
+     * a separator before it
+     */
+    private boolean separate;
+
+    Json beginObject() {
+        separator();
+        out.append('{');
+        separate = false;
+        return this;
+    }
+
+    Json endObject() {
+        out.append('}');
+        separate = true;
+        return this;
+    }
+
+    Json beginArray() {
+        separator();
+        out.append('[');
+        separate = false;
+        return this;
+    }
+
+    Json endArray() {
+        out.append(']');
+        separate = true;
+        return this;
+    }
+
+    Json name(@NotNull String name) {
+        separator();
+        string(name);
+        out.append(':');
+        separate = false;
+        return this;
+    }
+
+    Json value(@Nullable String value) {
+        separator();
+        if (value == null)
+            out.append("null");
+        else
+            string(value);
+        separate = true;
+        return this;
+    }
+
+    Json value(boolean value) {
+        separator();
+        out.append(value);
+        separate = true;
+        return this;
+    }
+
+    private void separator() {
+        if (separate)
+            out.append(',');
+    }
+
+    private void string(@NotNull String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029')
+                        out.append(String.format("\\u%04x", (int) c));
+                    else
+                        out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
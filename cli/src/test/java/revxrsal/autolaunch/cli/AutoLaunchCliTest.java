@@ -0,0 +1,77 @@
+package revxrsal.autolaunch.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledOnOs(OS.LINUX)
+class AutoLaunchCliTest {
+
+    @TempDir
+    Path home;
+
+    private String previousHome;
+    private String app;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        previousHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+        app = Files.createFile(home.resolve("agent")).toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", previousHome);
+    }
+
+    @Test
+    void commandsForTheSameApplicationApplyInOrder() {
+        assertEquals("disable Agent: ok\nenable Agent: ok\nAgent: enabled",
+                run("disable", "Agent", "enable", "Agent", "--exec", app, "status", "Agent"));
+        assertEquals("enable Agent: ok\ndisable Agent: ok\nAgent: disabled",
+                run("enable", "Agent", "--exec", app, "disable", "Agent", "status", "Agent"));
+    }
+
+    @Test
+    void commandsForDifferentApplicationsShareABatch() {
+        assertEquals("enable A: ok\nenable B: ok\ndisable A: ok\nA: disabled\nB: enabled",
+                run("enable", "A", "--exec", app, "enable", "B", "--exec", app, "disable", "A",
+                        "status", "A", "status", "B"));
+    }
+
+    @Test
+    void invalidCommandLinesPrintTheUsage() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = AutoLaunchCli.run(Arrays.asList("enable", "Agent"),
+                new PrintStream(out, true), new PrintStream(err, true));
+        assertEquals(2, exitCode);
+        assertEquals(0, out.size());
+        assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).startsWith("error: enable Agent requires --exec"));
+        // nothing was applied
+        assertEquals("Agent: disabled", run("status", "Agent"));
+    }
+
+    private static String run(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = AutoLaunchCli.run(Arrays.asList(args),
+                new PrintStream(out, true), new PrintStream(err, true));
+        assertEquals(0, exitCode, new String(err.toByteArray(), StandardCharsets.UTF_8));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+}
@@ -0,0 +1,76 @@
+import groovy.json.JsonSlurper
+
+plugins {
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+dependencies {
+    implementation(project(":autostart4j-core"))
+    implementation(project(":autostart4j-windows"))
+    implementation(testFixtures(project(":autostart4j-core")))
+}
+
+jmh {
+    // measure both throughput and allocation rate
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("ms")
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    resultFormat.set("JSON")
+    // ./gradlew :jmh:jmh -Pjmh.includes=Format
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
+
+/**
+ * Compares the results of the last `jmh` run against the checked-in baseline.
+ *
+ * Throughput drops larger than `-Pjmh.threshold` (a percentage, 10 by default) are
+ * reported as regressions, and fail the build if `-Pjmh.failOnRegression` is set.
+ */
+tasks.register("jmhCompare") {
+    group = "benchmark"
+    description = "Compares the last JMH results against baseline.json"
+    val resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    val baselineFile = layout.projectDirectory.file("baseline.json")
+    inputs.files(resultsFile, baselineFile)
+    doLast {
+        val threshold = (findProperty("jmh.threshold") as String?)?.toDouble() ?: 10.0
+        fun load(file: File): Map<String, Double> {
+            @Suppress("UNCHECKED_CAST")
+            val runs = JsonSlurper().parse(file) as List<Map<String, Any>>
+            return runs.associate { run ->
+                @Suppress("UNCHECKED_CAST")
+                val params = (run["params"] as Map<String, Any>?)?.entries?.joinToString(",") { "${it.key}=${it.value}" }
+                val name = run["benchmark"].toString() + (params?.let { "[$it]" } ?: "")
+                @Suppress("UNCHECKED_CAST")
+                val metric = run["primaryMetric"] as Map<String, Any>
+                name to (metric["score"] as Number).toDouble()
+            }
+        }
+
+        val baseline = load(baselineFile.asFile)
+        val results = load(resultsFile.get().asFile)
+        val regressions = mutableListOf<String>()
+        for ((name, score) in results.toSortedMap()) {
+            val expected = baseline[name]
+            if (expected == null) {
+                println(String.format("%-90s %14.2f  (no baseline)", name, score))
+                continue
+            }
+            val change = (score - expected) / expected * 100
+            println(String.format("%-90s %14.2f  %+7.1f%%", name, score, change))
+            if (change < -threshold)
+                regressions += name
+        }
+        if (regressions.isNotEmpty()) {
+            val message = "Throughput regressed by more than $threshold% in: ${regressions.joinToString()}"
+            if (hasProperty("jmh.failOnRegression"))
+                throw GradleException(message)
+            logger.warn(message)
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package revxrsal.autolaunch;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Benchmarks looking up login items in the macOS background items store, both
+ * from the cache and by parsing the store from scratch. Both run against a
+ * synthetic store, so they run on any platform.
+ */
+@State(Scope.Benchmark)
+public class BackgroundItemsBenchmark {
+
+    @Param({"10", "200"})
+    public int items;
+
+    private Path home;
+    private Path store;
+    private byte[] data;
+    private String name;
+
+    @Setup
+    public void setup() throws IOException {
+        home = Fixtures.createHome();
+        store = home.resolve(BackgroundItems.FILE_NAME);
+        data = Fixtures.backgroundItems(items);
+        Files.write(store, data);
+        name = "App " + (items / 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteRecursively(home);
+    }
+
+    @Benchmark
+    public boolean lookup() {
+        Set<String> names = BackgroundItems.loginItemNames(store, 0);
+        return names != null && names.contains(name);
+    }
+
+    @Benchmark
+    public Set<String> parse() {
+        return BackgroundItems.parse(data);
+    }
+}
@@ -0,0 +1,37 @@
+package revxrsal.autolaunch;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks {@link Utils#escapeJava(String)}
+ */
+@State(Scope.Benchmark)
+public class EscapeBenchmark {
+
+    @Param({"plain", "quotes", "unicode"})
+    public String input;
+
+    private String value;
+
+    @Setup
+    public void setup() {
+        switch (input) {
+            case "plain":
+                value = "make login item at end with properties {name:Everything, path:/Applications/Everything.app, hidden:false}";
+                break;
+            case "quotes":
+                value = "make login item at end with properties {name:\"Everything\", path:\"/Applications/Everything.app\", hidden:false}";
+                break;
+            case "unicode":
+                value = "make login item at end with properties {name:\"\u00C4rger \u00FCber \u2603\", path:\"/Applications/\u65E5\u672C.app\", hidden:false}";
+                break;
+            default:
+                throw new IllegalArgumentException(input);
+        }
+    }
+
+    @Benchmark
+    public String escapeJava() {
+        return Utils.escapeJava(value);
+    }
+}
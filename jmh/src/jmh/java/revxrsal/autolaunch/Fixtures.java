@@ -0,0 +1,112 @@
+package revxrsal.autolaunch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Shared fixtures for the benchmarks
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Creates an {@link AutoLaunch} without going through the builder, which
+     * requires the app file to exist.
+     *
+     * @param appName The app name
+     * @param args    Whether to add arguments
+     * @return The new auto launch
+     */
+    static AutoLaunch autoLaunch(String appName, boolean args) {
+        return autoLaunch(appName, args, false, Durability.NONE);
+    }
+
+    /**
+     * Creates an {@link AutoLaunch} without going through the builder, which
+     * requires the app file to exist.
+     *
+     * @param appName        The app name
+     * @param args           Whether to add arguments
+     * @param useLaunchAgent Whether to use a launch agent on macOS
+     * @param durability     The durability of written entries
+     * @return The new auto launch
+     */
+    static AutoLaunch autoLaunch(String appName, boolean args, boolean useLaunchAgent, Durability durability) {
+        return new AutoLaunch(
+                appName,
+                Paths.get("/opt/" + appName + "/bin/" + appName).toFile(),
+                args ? Arrays.asList("--minimized", "--profile", "default", "--log-level=info") : Collections.emptyList(),
+                useLaunchAgent,
+                false,
+                Collections.emptyList(),
+                Duration.ZERO,
+                null,
+                false,
+                PlistFormat.XML,
+                null,
+                durability,
+                false,
+                null,
+                null
+        );
+    }
+
+    /**
+     * Creates a background items store, as a keyed archive with the given
+     * number of login items, named {@literal App 0}, {@literal App 1}, etc.
+     *
+     * @param items The number of login items
+     * @return The encoded store
+     */
+    static byte[] backgroundItems(int items) {
+        String[] names = new String[items];
+        for (int i = 0; i < items; i++)
+            names[i] = "App " + i;
+        return BackgroundItemsStore.of("BackgroundItem", names);
+    }
+
+    /**
+     * Creates a temporary directory to act as {@literal user.home}. This is
+     * placed on tmpfs where available, so that the benchmarks measure the
+     * library rather than the disk.
+     *
+     * @return The new home directory
+     */
+    static Path createHome() {
+        try {
+            Path shm = Paths.get("/dev/shm");
+            if (Files.isDirectory(shm) && Files.isWritable(shm))
+                return Files.createTempDirectory(shm, "autostart4j-jmh");
+            return Files.createTempDirectory("autostart4j-jmh");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void deleteRecursively(Path dir) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package revxrsal.autolaunch;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the construction of startup commands and entry payloads
+ */
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    @Param({"true", "false"})
+    public boolean args;
+
+    private AutoLaunch autoLaunch;
+
+    @Setup
+    public void setup() {
+        autoLaunch = Fixtures.autoLaunch("Everything", args);
+    }
+
+    @Benchmark
+    public String startupCommand() {
+        return autoLaunch.startupCommand();
+    }
+
+    @Benchmark
+    public String startupCommandUnquoted() {
+        return autoLaunch.startupCommand(false);
+    }
+
+    @Benchmark
+    public String linuxDesktopEntry() {
+        return LinuxAutoLaunch.formatDoc(autoLaunch);
+    }
+
+    @Benchmark
+    public String macOSLaunchAgent() {
+        return MacOSAutoLaunch.createLaunchAgentDoc(autoLaunch);
+    }
+}
@@ -0,0 +1,57 @@
+package revxrsal.autolaunch;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+
+/**
+ * Benchmarks full enable/isEnabled/disable cycles of the file-based backends,
+ * against a temporary {@literal user.home}.
+ */
+@State(Scope.Benchmark)
+public class LifecycleBenchmark {
+
+    @Param({"NONE", "FILE"})
+    public Durability durability;
+
+    private String previousHome;
+    private Path home;
+    private AutoLaunch autoLaunch;
+    private AutoLaunch launchAgent;
+
+    @Setup
+    public void setup() {
+        previousHome = System.getProperty("user.home");
+        home = Fixtures.createHome();
+        System.setProperty("user.home", home.toString());
+        autoLaunch = Fixtures.autoLaunch("Everything", true, false, durability);
+        launchAgent = Fixtures.autoLaunch("Everything", true, true, durability);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setProperty("user.home", previousHome);
+        Fixtures.deleteRecursively(home);
+    }
+
+    @Benchmark
+    public boolean linuxCycle() {
+        LinuxAutoLaunch.INSTANCE.enable(autoLaunch);
+        boolean enabled = LinuxAutoLaunch.INSTANCE.isEnabled(autoLaunch);
+        LinuxAutoLaunch.INSTANCE.disable(autoLaunch);
+        return enabled;
+    }
+
+    @Benchmark
+    public boolean linuxIsEnabled() {
+        return LinuxAutoLaunch.INSTANCE.isEnabled(autoLaunch);
+    }
+
+    @Benchmark
+    public boolean macOSLaunchAgentCycle() {
+        MacOSAutoLaunch.INSTANCE.enable(launchAgent);
+        boolean enabled = MacOSAutoLaunch.INSTANCE.isEnabled(launchAgent);
+        MacOSAutoLaunch.INSTANCE.disable(launchAgent);
+        return enabled;
+    }
+}
@@ -0,0 +1,49 @@
+package revxrsal.autolaunch;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmarks the Windows backend against an in-memory registry, which measures
+ * the cost of the logic itself, without the registry.
+ */
+@State(Scope.Benchmark)
+public class WindowsBenchmark {
+
+    private WindowsAutoLaunch windows;
+    private AutoLaunch autoLaunch;
+    private List<AutoLaunch> batch;
+
+    @Setup
+    public void setup() {
+        windows = new WindowsAutoLaunch(new InMemoryRegistryBackend());
+        autoLaunch = Fixtures.autoLaunch("Everything", true);
+        batch = new ArrayList<>();
+        for (int i = 0; i < 32; i++)
+            batch.add(Fixtures.autoLaunch("App" + i, true));
+        windows.enable(autoLaunch);
+    }
+
+    @Benchmark
+    public boolean cycle() {
+        windows.enable(autoLaunch);
+        boolean enabled = windows.isEnabled(autoLaunch);
+        windows.disable(autoLaunch);
+        windows.enable(autoLaunch);
+        return enabled;
+    }
+
+    @Benchmark
+    public boolean isEnabled() {
+        return windows.isEnabled(autoLaunch);
+    }
+
+    @Benchmark
+    public BatchResult batch() {
+        windows.applyAll(batch, Collections.emptyList());
+        return windows.applyAll(Collections.emptyList(), batch);
+    }
+}
@@ -1,2 +1,7 @@
 rootProject.name = "autostart4j"
 
+include("autostart4j-core")
+include("autostart4j-windows")
+include("jmh")
+include("cli")
+include("stress")
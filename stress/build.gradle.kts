@@ -0,0 +1,16 @@
+plugins {
+    application
+}
+
+dependencies {
+    implementation(project(":autostart4j-core"))
+}
+
+application {
+    mainClass.set("revxrsal.autolaunch.stress.StressHarness")
+}
+
+tasks.named<JavaExec>("run") {
+    // ./gradlew :stress:run --args="--threads 16 --forks 3 --duration 5m"
+    workingDir = layout.buildDirectory.get().asFile
+}
@@ -0,0 +1,146 @@
+package revxrsal.autolaunch.stress;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the startup entries over and over while the workers change them, and
+ * checks that every entry it finds is complete. As entries are written to a
+ * temporary file and moved into place, a reader must never see an empty entry,
+ * or one that is only partially written.
+ */
+final class EntryObserver implements Runnable {
+
+    private static final int MAX_SAMPLES = 10;
+
+    private final Path directory;
+    private final String extension;
+    private final byte[][] expected;
+    private volatile boolean stopped;
+
+    private long reads;
+    private long empty;
+    private long partial;
+    private long failures;
+    private final List<String> samples = new ArrayList<>();
+
+    /**
+     * @param directory The directory of the entries
+     * @param extension The extension of entry files, such as {@literal .desktop}
+     * @param expected  The exact content of the entry of each application
+     */
+    EntryObserver(@NotNull Path directory, @NotNull String extension, byte @NotNull [] @NotNull [] expected) {
+        this.directory = directory;
+        this.extension = extension;
+        this.expected = expected;
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            for (int app = 0; app < expected.length && !stopped; app++)
+                check(app);
+        }
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Reads and checks the entry of the given application
+     *
+     * @param app The application index
+     * @return The state of the entry
+     */
+    @NotNull State check(int app) {
+        Path file = entryOf(app);
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return State.ABSENT;
+        } catch (IOException e) {
+            failures++;
+            sample("cannot read " + file.getFileName() + ": " + e);
+            return State.UNREADABLE;
+        }
+        reads++;
+        if (data.length == 0) {
+            empty++;
+            sample(file.getFileName() + " is empty");
+            return State.INCOMPLETE;
+        }
+        if (!Arrays.equals(data, expected[app])) {
+            partial++;
+            sample(file.getFileName() + " has " + data.length + " bytes rather than the expected " + expected[app].length);
+            return State.INCOMPLETE;
+        }
+        return State.COMPLETE;
+    }
+
+    private void sample(@NotNull String message) {
+        if (samples.size() < MAX_SAMPLES)
+            samples.add(message);
+    }
+
+    @NotNull Path entryOf(int app) {
+        return directory.resolve(Worker.appName(app) + extension);
+    }
+
+    /**
+     * Returns the temporary files that are left in the directory. These can
+     * only be left behind by writes that failed, or by a crashed process.
+     *
+     * @return The leftover files
+     * @throws IOException if the directory cannot be listed
+     */
+    @NotNull List<Path> findLeftovers() throws IOException {
+        List<Path> leftovers = new ArrayList<>();
+        if (!Files.isDirectory(directory))
+            return leftovers;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path path : stream)
+                leftovers.add(path);
+        }
+        return leftovers;
+    }
+
+    long getReads() {
+        return reads;
+    }
+
+    long getEmpty() {
+        return empty;
+    }
+
+    long getPartial() {
+        return partial;
+    }
+
+    long getFailures() {
+        return failures;
+    }
+
+    @NotNull List<String> getSamples() {
+        return samples;
+    }
+
+    /**
+     * The state of an entry, as read by the observer
+     */
+    enum State {
+        ABSENT,
+        COMPLETE,
+        INCOMPLETE,
+        UNREADABLE
+    }
+}
@@ -0,0 +1,68 @@
+package revxrsal.autolaunch.stress;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import revxrsal.autolaunch.AutoLaunch;
+
+/**
+ * The operations the harness runs against an {@link AutoLaunch}
+ */
+enum Operation {
+
+    ENABLE("enable") {
+        @Override
+        boolean run(@NotNull AutoLaunch autoLaunch) {
+            autoLaunch.enable();
+            return true;
+        }
+    },
+
+    DISABLE("disable") {
+        @Override
+        boolean run(@NotNull AutoLaunch autoLaunch) {
+            autoLaunch.disable();
+            return false;
+        }
+    },
+
+    IS_ENABLED("isEnabled") {
+        @Override
+        boolean run(@NotNull AutoLaunch autoLaunch) {
+            return autoLaunch.isEnabled();
+        }
+    },
+
+    TOGGLE("toggle") {
+        @Override
+        boolean run(@NotNull AutoLaunch autoLaunch) {
+            return autoLaunch.toggle();
+        }
+    };
+
+    private final String name;
+
+    Operation(@NotNull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs this operation
+     *
+     * @param autoLaunch The application
+     * @return Whether the application is enabled once the operation completes,
+     * as far as the operation can tell
+     */
+    abstract boolean run(@NotNull AutoLaunch autoLaunch);
+
+    @NotNull String getName() {
+        return name;
+    }
+
+    static @Nullable Operation of(@NotNull String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equalsIgnoreCase(name))
+                return operation;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,186 @@
+package revxrsal.autolaunch.stress;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The options of a stress run. The coordinator passes them on to the forked
+ * workers, along with the index of each worker and the time to start at.
+ */
+final class Options {
+
+    int threads = 8;
+    int apps = 16;
+    int forks = 2;
+    Duration duration = Duration.ofSeconds(10);
+    final int[] weights = {1, 1, 2, 1};
+    long seed = System.nanoTime();
+    boolean processLock = true;
+    @Nullable Path home;
+    boolean keepHome;
+
+    // set by the coordinator for the forked workers
+    int workerIndex = -1;
+    long startAt;
+
+    private Options() {
+    }
+
+    /**
+     * Whether this process is a forked worker, rather than the coordinator
+     */
+    boolean isWorker() {
+        return workerIndex >= 0;
+    }
+
+    static @NotNull Options parse(@NotNull List<String> args) {
+        Options options = new Options();
+        for (Iterator<String> iterator = args.iterator(); iterator.hasNext(); ) {
+            String option = iterator.next();
+            switch (option) {
+                case "--threads":
+                    options.threads = positive(option, value(option, iterator));
+                    break;
+                case "--apps":
+                    options.apps = positive(option, value(option, iterator));
+                    break;
+                case "--forks":
+                    options.forks = Integer.parseInt(value(option, iterator));
+                    if (options.forks < 0)
+                        throw new IllegalArgumentException("--forks cannot be negative");
+                    break;
+                case "--duration":
+                    options.duration = parseDuration(value(option, iterator));
+                    break;
+                case "--mix":
+                    parseMix(value(option, iterator), options.weights);
+                    break;
+                case "--seed":
+                    options.seed = Long.parseLong(value(option, iterator));
+                    break;
+                case "--no-process-lock":
+                    options.processLock = false;
+                    break;
+                case "--home":
+                    options.home = Paths.get(value(option, iterator)).toAbsolutePath();
+                    break;
+                case "--keep-home":
+                    options.keepHome = true;
+                    break;
+                case "--worker":
+                    options.workerIndex = Integer.parseInt(value(option, iterator));
+                    break;
+                case "--start-at":
+                    options.startAt = Long.parseLong(value(option, iterator));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+        if (options.isWorker() && options.home == null)
+            throw new IllegalArgumentException("workers need --home");
+        return options;
+    }
+
+    /**
+     * Returns the arguments that start a forked worker with these options
+     *
+     * @param workerIndex The index of the worker
+     * @return The arguments
+     */
+    @NotNull List<String> toWorkerArgs(int workerIndex) {
+        List<String> args = new ArrayList<>();
+        add(args, "--threads", threads);
+        add(args, "--apps", apps);
+        add(args, "--duration", duration.toMillis() + "ms");
+        add(args, "--mix", formatMix());
+        add(args, "--seed", seed);
+        if (!processLock)
+            args.add("--no-process-lock");
+        add(args, "--home", home);
+        add(args, "--worker", workerIndex);
+        add(args, "--start-at", startAt);
+        return args;
+    }
+
+    @NotNull String formatMix() {
+        StringBuilder mix = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            if (mix.length() > 0)
+                mix.append(',');
+            mix.append(operation.getName()).append('=').append(weights[operation.ordinal()]);
+        }
+        return mix.toString();
+    }
+
+    private static void add(@NotNull List<String> args, @NotNull String option, Object value) {
+        args.add(option);
+        args.add(String.valueOf(value));
+    }
+
+    private static @NotNull String value(@NotNull String option, @NotNull Iterator<String> iterator) {
+        if (!iterator.hasNext())
+            throw new IllegalArgumentException(option + " needs a value");
+        return iterator.next();
+    }
+
+    private static int positive(@NotNull String option, @NotNull String value) {
+        int number = Integer.parseInt(value);
+        if (number <= 0)
+            throw new IllegalArgumentException(option + " must be positive");
+        return number;
+    }
+
+    /**
+     * Parses durations such as {@literal 500ms}, {@literal 30s}, {@literal 5m} and
+     * {@literal 2h}. Plain numbers are seconds.
+     */
+    static @NotNull Duration parseDuration(@NotNull String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        Duration duration;
+        if (text.endsWith("ms"))
+            duration = Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        else if (text.endsWith("s"))
+            duration = Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        else if (text.endsWith("m"))
+            duration = Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        else if (text.endsWith("h"))
+            duration = Duration.ofHours(Long.parseLong(text.substring(0, text.length() - 1)));
+        else
+            duration = Duration.ofSeconds(Long.parseLong(text));
+        if (duration.isNegative() || duration.isZero())
+            throw new IllegalArgumentException("the duration must be positive: " + value);
+        return duration;
+    }
+
+    /**
+     * Parses an operation mix such as {@literal enable=1,disable=1,isEnabled=2,toggle=1}.
+     * Operations that are left out are not run.
+     */
+    private static void parseMix(@NotNull String value, int @NotNull [] weights) {
+        int[] parsed = new int[weights.length];
+        int total = 0;
+        for (String part : value.split(",")) {
+            int equals = part.indexOf('=');
+            Operation operation = equals < 0 ? null : Operation.of(part.substring(0, equals).trim());
+            if (operation == null)
+                throw new IllegalArgumentException("invalid --mix entry: " + part);
+            int weight = Integer.parseInt(part.substring(equals + 1).trim());
+            if (weight < 0)
+                throw new IllegalArgumentException("weights cannot be negative: " + part);
+            parsed[operation.ordinal()] = weight;
+            total += weight;
+        }
+        if (total == 0)
+            throw new IllegalArgumentException("--mix must run at least one operation");
+        System.arraycopy(parsed, 0, weights, 0, weights.length);
+    }
+}
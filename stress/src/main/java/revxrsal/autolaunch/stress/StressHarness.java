@@ -0,0 +1,297 @@
+package revxrsal.autolaunch.stress;
+
+import org.jetbrains.annotations.NotNull;
+import revxrsal.autolaunch.AutoLaunch;
+import revxrsal.autolaunch.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+
+/**
+ * Stresses {@link AutoLaunch} from many threads and several JVMs at once, against
+ * a temporary home directory, and checks that the startup entries stay consistent.
+ * <p>
+ * The coordinator runs worker threads of its own, and forks further JVMs that run
+ * the same number of threads. While they run, an {@link EntryObserver} reads the
+ * entries over and over, looking for empty or partially written ones. Once all
+ * workers have stopped, the final state of each application must be the result of
+ * one of the operations that could have run last: an operation that no other
+ * operation started after.
+ * <p>
+ * The final check compares {@link System#nanoTime()} across JVMs, which holds on
+ * Linux and macOS, where it reads a system-wide monotonic clock.
+ * <p>
+ * Exits with 0 if every check passed, 1 if any check failed or any operation threw,
+ * and 2 if the command line is invalid.
+ */
+public final class StressHarness {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: stress [options]",
+            "",
+            "Options:",
+            "  --threads <n>        worker threads in each JVM (default 8)",
+            "  --apps <n>           applications to spread the operations over (default 16)",
+            "  --forks <n>          JVMs to fork, in addition to this one (default 2)",
+            "  --duration <time>    how long to run, e.g. 30s, 5m or 2h (default 10s)",
+            "  --mix <weights>      the operation mix (default enable=1,disable=1,isEnabled=2,toggle=1)",
+            "  --seed <n>           the random seed, to reproduce a run",
+            "  --no-process-lock    do not lock entries across processes",
+            "  --home <dir>         the home directory to use (default: a new temporary directory)",
+            "  --keep-home          do not delete the home directory afterwards"
+    );
+
+    // leaves the forked JVMs time to start before the run begins
+    private static final long FORK_STARTUP_MILLIS = 2000;
+
+    private StressHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            if (Arrays.asList(args).contains("--help")) {
+                System.out.println(USAGE);
+                return;
+            }
+            options = Options.parse(Arrays.asList(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println();
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.isWorker()) {
+            runWorker(options);
+            return;
+        }
+        System.exit(coordinate(options) ? 0 : 1);
+    }
+
+    private static void runWorker(@NotNull Options options) throws InterruptedException {
+        File appFile = options.home.resolve("bin").resolve("stress-app").toFile();
+        List<AutoLaunch> autoLaunches = Worker.createAutoLaunches(options, appFile);
+        new Worker(options, autoLaunches).run().writeTo(System.out);
+    }
+
+    private static boolean coordinate(@NotNull Options options) throws Exception {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        Path entryDirectory;
+        String extension;
+        boolean deleteHome = options.home == null && !options.keepHome;
+        if (options.home == null)
+            options.home = Files.createTempDirectory("autostart4j-stress").toAbsolutePath();
+        if (os.startsWith("linux")) {
+            entryDirectory = options.home.resolve(".config").resolve("autostart");
+            extension = ".desktop";
+        } else if (os.contains("mac")) {
+            entryDirectory = options.home.resolve("Library").resolve("LaunchAgents");
+            extension = ".plist";
+        } else {
+            // Windows entries live in the registry of the real user
+            System.err.println("error: the stress harness needs entries in the home directory, i.e. Linux or macOS");
+            return false;
+        }
+        System.setProperty("user.home", options.home.toString());
+
+        Path appFile = options.home.resolve("bin").resolve("stress-app");
+        Files.createDirectories(appFile.getParent());
+        if (!Files.exists(appFile))
+            Files.createFile(appFile);
+        appFile.toFile().setExecutable(true);
+        List<AutoLaunch> autoLaunches = Worker.createAutoLaunches(options, appFile.toFile());
+
+        // every run starts with all applications disabled, and learns what their entries look like
+        byte[][] expected = new byte[options.apps][];
+        for (int i = 0; i < options.apps; i++) {
+            AutoLaunch autoLaunch = autoLaunches.get(i);
+            autoLaunch.disable();
+            autoLaunch.enable();
+            expected[i] = Files.readAllBytes(entryDirectory.resolve(Worker.appName(i) + extension));
+            autoLaunch.disable();
+        }
+
+        System.out.printf("autostart4j stress: %d JVM(s) x %d threads, %d apps, %s, mix %s, seed %d%n",
+                options.forks + 1, options.threads, options.apps, format(options.duration),
+                options.formatMix(), options.seed);
+        System.out.println("home: " + options.home);
+
+        options.startAt = System.currentTimeMillis() + (options.forks > 0 ? FORK_STARTUP_MILLIS : 0);
+        List<FutureTask<WorkerReport>> forks = new ArrayList<>();
+        for (int i = 1; i <= options.forks; i++)
+            forks.add(fork(options, i));
+
+        EntryObserver observer = new EntryObserver(entryDirectory, extension, expected);
+        Thread observerThread = new Thread(observer, "stress-observer");
+        observerThread.start();
+        WorkerReport report;
+        try {
+            report = new Worker(options, autoLaunches).run();
+            for (FutureTask<WorkerReport> fork : forks)
+                report.add(fork.get());
+        } finally {
+            observer.stop();
+            observerThread.join();
+        }
+
+        boolean passed = printReport(options, report, observer, autoLaunches);
+        if (deleteHome)
+            deleteRecursively(options.home);
+        return passed;
+    }
+
+    private static @NotNull FutureTask<WorkerReport> fork(@NotNull Options options, int index) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Duser.home=" + options.home);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StressHarness.class.getName());
+        command.addAll(options.toWorkerArgs(index));
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        process.getOutputStream().close();
+        FutureTask<WorkerReport> task = new FutureTask<>(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                WorkerReport report = WorkerReport.readFrom(in, options.apps);
+                int exitCode = process.waitFor();
+                if (exitCode != 0)
+                    throw new IllegalStateException("worker " + index + " exited with code " + exitCode);
+                return report;
+            }
+        });
+        Thread reader = new Thread(task, "stress-fork-" + index);
+        reader.setDaemon(true);
+        reader.start();
+        return task;
+    }
+
+    private static boolean printReport(
+            @NotNull Options options,
+            @NotNull WorkerReport report,
+            @NotNull EntryObserver observer,
+            @NotNull List<AutoLaunch> autoLaunches
+    ) throws IOException {
+        double seconds = options.duration.toNanos() / 1e9;
+        System.out.println();
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %10s %7s%n",
+                "operation", "count", "ops/s", "p50", "p90", "p99", "p99.9", "max", "errors");
+        LatencyHistogram all = new LatencyHistogram();
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram.Snapshot latencies = report.getLatencies(operation).snapshot();
+            all.add(latencies);
+            printRow(operation.getName(), latencies, report.getErrors(operation), seconds);
+        }
+        printRow("all", all.snapshot(), report.getTotalErrors(), seconds);
+
+        // the final state of each application must be the result of an operation that could have run last
+        int checked = 0, inconsistent = 0, indeterminate = 0;
+        List<String> samples = new ArrayList<>();
+        for (int app = 0; app < options.apps; app++) {
+            List<WorkerReport.LastOperation> lasts = report.getLastOperations(app);
+            if (lasts.isEmpty())
+                continue;
+            long lastStart = Long.MIN_VALUE;
+            for (WorkerReport.LastOperation last : lasts)
+                lastStart = Math.max(lastStart, last.start);
+            Set<Boolean> allowed = new HashSet<>();
+            boolean unknown = false;
+            for (WorkerReport.LastOperation last : lasts) {
+                if (last.end - lastStart < 0)
+                    continue;
+                if (last.result == null)
+                    unknown = true;
+                else
+                    allowed.add(last.result);
+            }
+            if (unknown) {
+                // an operation that may have run last failed, so the state cannot be known
+                indeterminate++;
+                continue;
+            }
+            checked++;
+            EntryObserver.State state = observer.check(app);
+            boolean onDisk = state == EntryObserver.State.COMPLETE;
+            boolean reported = autoLaunches.get(app).isEnabled();
+            String name = Worker.appName(app);
+            if (state == EntryObserver.State.INCOMPLETE || state == EntryObserver.State.UNREADABLE) {
+                inconsistent++;
+                samples.add(name + " has an incomplete entry");
+            } else if (onDisk != reported) {
+                inconsistent++;
+                samples.add(name + " has " + (onDisk ? "an" : "no") + " entry, but isEnabled() returns " + reported);
+            } else if (!allowed.contains(onDisk)) {
+                inconsistent++;
+                samples.add(name + " is " + (onDisk ? "enabled" : "disabled") + ", but the last operations left it " + (onDisk ? "disabled" : "enabled"));
+            }
+        }
+        List<Path> leftovers = observer.findLeftovers();
+
+        System.out.println();
+        System.out.println("invariants:");
+        System.out.printf("  entry reads      %d (%d empty, %d partial, %d unreadable)%n",
+                observer.getReads(), observer.getEmpty(), observer.getPartial(), observer.getFailures());
+        System.out.printf("  final state      %d apps checked, %d inconsistent, %d indeterminate%n",
+                checked, inconsistent, indeterminate);
+        System.out.printf("  leftover files   %d%n", leftovers.size());
+        List<String> details = new ArrayList<>(observer.getSamples());
+        details.addAll(samples);
+        for (Path leftover : leftovers)
+            details.add("leftover " + leftover.getFileName());
+        details.addAll(report.getSamples());
+        for (String detail : details)
+            System.out.println("  - " + detail);
+
+        boolean passed = observer.getEmpty() == 0 && observer.getPartial() == 0 && observer.getFailures() == 0
+                && inconsistent == 0 && leftovers.isEmpty() && report.getTotalErrors() == 0;
+        System.out.println();
+        System.out.println(passed ? "PASSED" : "FAILED");
+        return passed;
+    }
+
+    private static void printRow(@NotNull String name, @NotNull LatencyHistogram.Snapshot latencies, long errors, double seconds) {
+        System.out.printf("%-10s %10d %10.0f %10s %10s %10s %10s %10s %7d%n",
+                name,
+                latencies.getCount(),
+                latencies.getCount() / seconds,
+                format(latencies.getPercentile(50)),
+                format(latencies.getPercentile(90)),
+                format(latencies.getPercentile(99)),
+                format(latencies.getPercentile(99.9)),
+                format(latencies.getMax()),
+                errors);
+    }
+
+    private static @NotNull String format(@NotNull Duration duration) {
+        long nanos = duration.toNanos();
+        if (nanos < 1_000)
+            return nanos + " ns";
+        if (nanos < 1_000_000)
+            return String.format("%.1f us", nanos / 1e3);
+        if (nanos < 1_000_000_000)
+            return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.2f s", nanos / 1e9);
+    }
+
+    private static void deleteRecursively(@NotNull Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            List<Path> all = new ArrayList<>();
+            paths.forEach(all::add);
+            Collections.reverse(all);
+            for (Path path : all)
+                Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package revxrsal.autolaunch.stress;
+
+import org.jetbrains.annotations.NotNull;
+import revxrsal.autolaunch.AutoLaunch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Runs randomly chosen operations on randomly chosen applications from a number
+ * of threads, until the end of the run.
+ */
+final class Worker {
+
+    private final Options options;
+    private final List<AutoLaunch> autoLaunches;
+
+    Worker(@NotNull Options options, @NotNull List<AutoLaunch> autoLaunches) {
+        this.options = options;
+        this.autoLaunches = autoLaunches;
+    }
+
+    /**
+     * Creates the applications that are stressed, named {@literal stress-app-0}
+     * to {@literal stress-app-<apps - 1>}
+     *
+     * @param options The run options
+     * @param appFile The file the applications launch
+     * @return The applications
+     */
+    static @NotNull List<AutoLaunch> createAutoLaunches(@NotNull Options options, @NotNull File appFile) {
+        List<AutoLaunch> autoLaunches = new ArrayList<>(options.apps);
+        for (int i = 0; i < options.apps; i++) {
+            AutoLaunch.Builder builder = AutoLaunch.builder()
+                    .appName(appName(i))
+                    .appFile(appFile)
+                    .args("--instance", String.valueOf(i))
+                    .useLaunchAgent();
+            if (options.processLock)
+                builder.lockAcrossProcesses();
+            autoLaunches.add(builder.build());
+        }
+        return autoLaunches;
+    }
+
+    static @NotNull String appName(int index) {
+        return "stress-app-" + index;
+    }
+
+    /**
+     * Waits for the start of the run, runs the threads until its end, and
+     * returns what they observed
+     *
+     * @return The report of all threads
+     * @throws InterruptedException if the current thread was interrupted
+     */
+    @NotNull WorkerReport run() throws InterruptedException {
+        long delay = options.startAt - System.currentTimeMillis();
+        if (delay > 0)
+            Thread.sleep(delay);
+        long deadline = System.nanoTime() + options.duration.toNanos();
+
+        WorkerReport[] reports = new WorkerReport[options.threads];
+        Thread[] threads = new Thread[options.threads];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            reports[i] = new WorkerReport(options.apps);
+            // each thread of each worker gets its own, reproducible sequence
+            SplittableRandom random = new SplittableRandom(options.seed ^ (0x9E3779B97F4A7C15L * (Math.max(0, options.workerIndex) * 1024L + i + 1)));
+            threads[i] = new Thread(() -> runThread(reports[index], random, deadline), "stress-worker-" + i);
+            threads[i].start();
+        }
+        WorkerReport report = new WorkerReport(options.apps);
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            report.add(reports[i]);
+        }
+        return report;
+    }
+
+    private void runThread(@NotNull WorkerReport report, @NotNull SplittableRandom random, long deadline) {
+        int totalWeight = 0;
+        for (int weight : options.weights)
+            totalWeight += weight;
+        WorkerReport.LastOperation[] last = new WorkerReport.LastOperation[options.apps];
+        while (System.nanoTime() - deadline < 0) {
+            int app = random.nextInt(options.apps);
+            Operation operation = pick(random.nextInt(totalWeight));
+            long start = System.nanoTime();
+            Boolean result = null;
+            try {
+                result = operation.run(autoLaunches.get(app));
+                report.recordSuccess(operation, System.nanoTime() - start);
+            } catch (Throwable t) {
+                report.recordFailure(operation, t);
+            }
+            last[app] = new WorkerReport.LastOperation(start, System.nanoTime(), result);
+        }
+        for (int app = 0; app < last.length; app++) {
+            if (last[app] != null)
+                report.recordLast(app, last[app]);
+        }
+    }
+
+    private @NotNull Operation pick(int roll) {
+        for (Operation operation : Operation.values()) {
+            roll -= options.weights[operation.ordinal()];
+            if (roll < 0)
+                return operation;
+        }
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,207 @@
+package revxrsal.autolaunch.stress;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import revxrsal.autolaunch.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What one or more worker threads observed: latencies and failures by operation,
+ * and the last operation each thread ran on each application.
+ * <p>
+ * Forked workers print their report to standard output, and the coordinator
+ * reads it back and adds it to its own.
+ */
+final class WorkerReport {
+
+    /**
+     * The maximum number of failures whose description is kept
+     */
+    private static final int MAX_SAMPLES = 10;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final long[] errors = new long[Operation.values().length];
+    private final List<String> samples = new ArrayList<>();
+    private final List<List<LastOperation>> lastOperations;
+
+    WorkerReport(int apps) {
+        for (int i = 0; i < latencies.length; i++)
+            latencies[i] = new LatencyHistogram();
+        lastOperations = new ArrayList<>(apps);
+        for (int i = 0; i < apps; i++)
+            lastOperations.add(new ArrayList<>());
+    }
+
+    void recordSuccess(@NotNull Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    void recordFailure(@NotNull Operation operation, @NotNull Throwable failure) {
+        errors[operation.ordinal()]++;
+        if (samples.size() < MAX_SAMPLES)
+            samples.add(operation.getName() + ": " + failure);
+    }
+
+    void recordLast(int app, @NotNull LastOperation operation) {
+        lastOperations.get(app).add(operation);
+    }
+
+    void add(@NotNull WorkerReport other) {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].add(other.latencies[i].snapshot());
+            errors[i] += other.errors[i];
+        }
+        for (String sample : other.samples) {
+            if (samples.size() < MAX_SAMPLES)
+                samples.add(sample);
+        }
+        for (int i = 0; i < lastOperations.size(); i++)
+            lastOperations.get(i).addAll(other.lastOperations.get(i));
+    }
+
+    @NotNull LatencyHistogram getLatencies(@NotNull Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    long getErrors(@NotNull Operation operation) {
+        return errors[operation.ordinal()];
+    }
+
+    long getTotalErrors() {
+        long total = 0;
+        for (long count : errors)
+            total += count;
+        return total;
+    }
+
+    @NotNull List<String> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the last operation that each thread ran on the given application
+     */
+    @NotNull List<LastOperation> getLastOperations(int app) {
+        return lastOperations.get(app);
+    }
+
+    void writeTo(@NotNull PrintStream out) {
+        for (Operation operation : Operation.values()) {
+            out.println("latency " + operation.getName() + " " + serialize(latencies[operation.ordinal()].snapshot()));
+            out.println("errors " + operation.getName() + " " + errors[operation.ordinal()]);
+        }
+        for (String sample : samples)
+            out.println("sample " + sample.replace('\n', ' ').replace('\r', ' '));
+        for (int app = 0; app < lastOperations.size(); app++) {
+            for (LastOperation last : lastOperations.get(app)) {
+                out.println("last " + app + " " + last.start + " " + last.end + " " +
+                        (last.result == null ? "?" : last.result ? "1" : "0"));
+            }
+        }
+        out.flush();
+    }
+
+    static @NotNull WorkerReport readFrom(@NotNull BufferedReader in, int apps) throws IOException {
+        WorkerReport report = new WorkerReport(apps);
+        String line;
+        while ((line = in.readLine()) != null) {
+            int space = line.indexOf(' ');
+            if (space < 0)
+                continue;
+            String kind = line.substring(0, space);
+            String value = line.substring(space + 1);
+            switch (kind) {
+                case "latency": {
+                    int split = value.indexOf(' ');
+                    Operation operation = Operation.of(value.substring(0, split));
+                    report.latencies[operation.ordinal()].add(parse(value.substring(split + 1)));
+                    break;
+                }
+                case "errors": {
+                    String[] parts = value.split(" ");
+                    report.errors[Operation.of(parts[0]).ordinal()] = Long.parseLong(parts[1]);
+                    break;
+                }
+                case "sample":
+                    report.samples.add(value);
+                    break;
+                case "last": {
+                    String[] parts = value.split(" ");
+                    Boolean result = parts[3].equals("?") ? null : parts[3].equals("1");
+                    report.recordLast(Integer.parseInt(parts[0]),
+                            new LastOperation(Long.parseLong(parts[1]), Long.parseLong(parts[2]), result));
+                    break;
+                }
+                default:
+                    // anything else the worker printed
+                    break;
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Writes the given histogram as {@literal total max index:count,...}, in
+     * nanoseconds, skipping empty buckets
+     */
+    private static @NotNull String serialize(@NotNull LatencyHistogram.Snapshot snapshot) {
+        StringBuilder out = new StringBuilder()
+                .append(snapshot.getTotal().toNanos()).append(' ')
+                .append(snapshot.getMax().toNanos()).append(' ');
+        boolean first = true;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            if (snapshot.getCount(i) == 0)
+                continue;
+            if (!first)
+                out.append(',');
+            out.append(i).append(':').append(snapshot.getCount(i));
+            first = false;
+        }
+        if (first)
+            out.append('-');
+        return out.toString();
+    }
+
+    private static @NotNull LatencyHistogram.Snapshot parse(@NotNull String value) {
+        String[] parts = value.split(" ");
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        if (!parts[2].equals("-")) {
+            for (String bucket : parts[2].split(",")) {
+                int colon = bucket.indexOf(':');
+                counts[Integer.parseInt(bucket.substring(0, colon))] = Long.parseLong(bucket.substring(colon + 1));
+            }
+        }
+        return LatencyHistogram.Snapshot.of(counts, Duration.ofNanos(Long.parseLong(parts[0])), Duration.ofNanos(Long.parseLong(parts[1])));
+    }
+
+    /**
+     * The last operation a thread ran on an application. As a thread runs its
+     * operations one after the other, only its last one can be the last operation
+     * on the application overall.
+     */
+    static final class LastOperation {
+
+        /**
+         * When the operation started and ended, in {@link System#nanoTime()}
+         */
+        final long start, end;
+
+        /**
+         * Whether the application was enabled once the operation completed,
+         * or {@code null} if the operation failed
+         */
+        final @Nullable Boolean result;
+
+        LastOperation(long start, long end, @Nullable Boolean result) {
+            this.start = start;
+            this.end = end;
+            this.result = result;
+        }
+    }
+}